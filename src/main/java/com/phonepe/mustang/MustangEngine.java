@@ -16,6 +16,11 @@
  */
 package com.phonepe.mustang;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -30,12 +35,20 @@ import com.phonepe.mustang.common.RequestContext;
 import com.phonepe.mustang.criteria.Criteria;
 import com.phonepe.mustang.debug.DebugResult;
 import com.phonepe.mustang.index.IndexingFacade;
+import com.phonepe.mustang.index.compaction.IndexStats;
+import com.phonepe.mustang.index.core.posting.PostingStorage;
+import com.phonepe.mustang.index.eviction.MemoryBudget;
+import com.phonepe.mustang.index.store.CheckpointPolicy;
+import com.phonepe.mustang.index.store.Durability;
+import com.phonepe.mustang.index.store.LoadMetrics;
+import com.phonepe.mustang.index.version.ChangeSet;
 import com.phonepe.mustang.processor.AsyncProcessor;
 import com.phonepe.mustang.ratify.RatificationRequest;
 import com.phonepe.mustang.ratify.RatificationResult;
 import com.phonepe.mustang.scan.Scanner;
 import com.phonepe.mustang.search.Query;
 import com.phonepe.mustang.search.QueryBuilder;
+import com.phonepe.mustang.search.ReadHandle;
 import com.phonepe.mustang.search.SearchFacade;
 import com.phonepe.mustang.search.ranking.RankingStrategy;
 
@@ -59,38 +72,170 @@ public class MustangEngine {
             .build();
     private final AsyncProcessor processor = AsyncProcessor.getInstance();
 
-    public synchronized String exportIndexGroup(final String indexName) {
+    public String exportIndexGroup(final String indexName) {
         return indexingFacde.exportIndexGroup(indexName, mapper);
     }
 
-    public synchronized void importIndexGroup(final String indexname, final String info) {
+    public void importIndexGroup(final String indexname, final String info) {
         indexingFacde.importIndexGroup(indexname, info, mapper);
     }
 
-    public synchronized String snapshot(final String indexName) {
+    public void exportIndexGroup(final String indexName, final Writer out) {
+        indexingFacde.exportIndexGroup(indexName, out, mapper);
+    }
+
+    public void importIndexGroup(final String indexName, final Reader in) {
+        indexingFacde.importIndexGroup(indexName, in, mapper);
+    }
+
+    public void exportIndexGroupLines(final String indexName, final Writer out) {
+        indexingFacde.exportIndexGroupLines(indexName, out, mapper);
+    }
+
+    public void importIndexGroupLines(final String indexName, final Reader in) {
+        indexingFacde.importIndexGroupLines(indexName, in, mapper);
+    }
+
+    public void exportIndexGroup(final String indexName, final OutputStream out, final boolean compressed) {
+        indexingFacde.exportIndexGroup(indexName, out, compressed);
+    }
+
+    public void importIndexGroup(final String indexName, final InputStream in) {
+        indexingFacde.importIndexGroup(indexName, in);
+    }
+
+    public void persistIndexGroup(final String indexName, final Path path) {
+        indexingFacde.persistIndexGroup(indexName, path, mapper);
+    }
+
+    public void openIndexGroup(final String indexName, final Path path) {
+        indexingFacde.openIndexGroup(indexName, path, mapper);
+    }
+
+    public void openSnapshotDirectory(final Path directory) {
+        indexingFacde.openSnapshotDirectory(directory);
+    }
+
+    public void saveIndexGroup(final String indexName) {
+        indexingFacde.saveIndexGroup(indexName);
+    }
+
+    public boolean isLoaded(final String indexName) {
+        return indexingFacde.isLoaded(indexName);
+    }
+
+    public LoadMetrics getLoadMetrics() {
+        return indexingFacde.getLoadMetrics();
+    }
+
+    public void setMemoryBudget(final MemoryBudget budget) {
+        indexingFacde.setMemoryBudget(budget);
+    }
+
+    public void enforceMemoryBudget() {
+        indexingFacde.enforceMemoryBudget();
+    }
+
+    public long getResidentBytes() {
+        return indexingFacde.getResidentBytes();
+    }
+
+    public ChangeSet changesSince(final String indexName, final long sequence) {
+        return indexingFacde.changesSince(indexName, sequence);
+    }
+
+    public void applyChanges(final String indexName, final ChangeSet changeSet) {
+        indexingFacde.applyChanges(indexName, changeSet);
+    }
+
+    public void recover(final Path directory, final Durability durability, final long syncIntervalMs) {
+        indexingFacde.recover(directory, durability, syncIntervalMs);
+    }
+
+    public void checkpoint() {
+        indexingFacde.checkpoint();
+    }
+
+    public void scheduleCheckpoints(final CheckpointPolicy policy) {
+        indexingFacde.scheduleCheckpoints(policy);
+    }
+
+    public void stopCheckpoints() {
+        indexingFacde.stopCheckpoints();
+    }
+
+    public void closeMutationLog() {
+        indexingFacde.closeMutationLog();
+    }
+
+    public String snapshot(final String indexName) {
         return indexingFacde.snapshot(indexName, mapper);
     }
 
-    public synchronized void add(final String indexName, final Criteria criteria) {
+    public void snapshot(final String indexName, final Writer out) {
+        indexingFacde.snapshot(indexName, out, mapper);
+    }
+
+    public void add(final String indexName, final Criteria criteria) {
         indexingFacde.add(indexName, criteria);
     }
 
-    public synchronized void add(final String indexName, final List<Criteria> criterias) {
+    public void add(final String indexName, final List<Criteria> criterias) {
         indexingFacde.add(indexName, criterias);
     }
 
-    public synchronized void update(final String indexName, final Criteria criteria) {
+    public void update(final String indexName, final Criteria criteria) {
         indexingFacde.update(indexName, criteria);
     }
 
-    public synchronized void delete(final String indexName, final Criteria criteria) {
+    public void delete(final String indexName, final Criteria criteria) {
         indexingFacde.delete(indexName, criteria);
     }
 
-    public synchronized void replaceIndex(final String oldIndex, final String newIndex) {
+    public void replaceIndex(final String oldIndex, final String newIndex) {
         indexingFacde.replace(oldIndex, newIndex);
     }
 
+    public int compact(final String indexName) {
+        return indexingFacde.compact(indexName);
+    }
+
+    public void remap(final String indexName) {
+        indexingFacde.remap(indexName);
+    }
+
+    public void freeze(final String indexName) {
+        indexingFacde.freeze(indexName);
+    }
+
+    public void freeze(final String indexName, final PostingStorage storage) {
+        indexingFacde.freeze(indexName, storage);
+    }
+
+    public void thaw(final String indexName) {
+        indexingFacde.thaw(indexName);
+    }
+
+    public void seal(final String indexName) {
+        indexingFacde.seal(indexName);
+    }
+
+    public void merge(final String indexName) {
+        indexingFacde.merge(indexName);
+    }
+
+    public IndexStats getIndexStats(final String indexName) {
+        return indexingFacde.getIndexStats(indexName);
+    }
+
+    public ReadHandle openReadHandle(final String indexName) {
+        return ReadHandle.builder()
+                .view(indexingFacde.pin(indexName))
+                .indexingFacade(indexingFacde)
+                .searchFacade(searchFacade)
+                .build();
+    }
+
     public Set<String> search(final String indexName, final RequestContext context) {
         return search(indexName, context, false); // turn-off scoring by default
     }
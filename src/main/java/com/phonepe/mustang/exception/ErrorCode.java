@@ -23,5 +23,8 @@ public enum ErrorCode {
     CORRUPTED_JSON_ERROR,
     INDEX_EXPORT_ERROR,
     INDEX_IMPORT_ERROR,
-    INDEX_GROUP_EXISTS;
+    INDEX_GROUP_EXISTS,
+    READ_HANDLE_CLOSED,
+    INDEX_GROUP_FROZEN,
+    MUTATION_LOG_ERROR;
 }
\ No newline at end of file
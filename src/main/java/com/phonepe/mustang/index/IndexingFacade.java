@@ -17,19 +17,79 @@
 package com.phonepe.mustang.index;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.apache.commons.lang3.tuple.Pair;
+
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Striped;
 import com.phonepe.mustang.criteria.Criteria;
 import com.phonepe.mustang.exception.ErrorCode;
 import com.phonepe.mustang.exception.MustangException;
+import com.phonepe.mustang.index.builder.BulkIndexBuilder;
 import com.phonepe.mustang.index.builder.CriteriaIndexBuilder;
+import com.phonepe.mustang.index.compaction.IdRemapper;
+import com.phonepe.mustang.index.compaction.IndexFreezer;
+import com.phonepe.mustang.index.compaction.IndexCompactor;
+import com.phonepe.mustang.index.compaction.IndexStats;
+import com.phonepe.mustang.index.compaction.SegmentMerger;
+import com.phonepe.mustang.index.core.posting.PostingStorage;
+import com.phonepe.mustang.index.eviction.EvictionPolicy;
+import com.phonepe.mustang.index.eviction.EvictionScheduler;
+import com.phonepe.mustang.index.eviction.GroupUsage;
+import com.phonepe.mustang.index.eviction.MemoryBudget;
+import com.phonepe.mustang.index.eviction.MemoryEstimator;
 import com.phonepe.mustang.index.group.IndexGroup;
 import com.phonepe.mustang.index.operation.IndexOperation;
+import com.phonepe.mustang.index.store.CheckpointPolicy;
+import com.phonepe.mustang.index.store.CheckpointScheduler;
+import com.phonepe.mustang.index.store.CheckpointStore;
+import com.phonepe.mustang.index.store.Durability;
+import com.phonepe.mustang.index.store.IndexGroupStore;
+import com.phonepe.mustang.index.store.JsonSnapshotReader;
+import com.phonepe.mustang.index.store.JsonSnapshotWriter;
+import com.phonepe.mustang.index.store.LineSnapshotReader;
+import com.phonepe.mustang.index.store.LoadMetrics;
+import com.phonepe.mustang.index.store.MappedIndexReader;
+import com.phonepe.mustang.index.store.MappedIndexWriter;
+import com.phonepe.mustang.index.store.Mutation;
+import com.phonepe.mustang.index.store.MutationLog;
+import com.phonepe.mustang.index.store.SnapshotReader;
+import com.phonepe.mustang.index.store.SnapshotWriter;
+import com.phonepe.mustang.index.version.Change;
+import com.phonepe.mustang.index.version.ChangeLog;
+import com.phonepe.mustang.index.version.ChangeSet;
+import com.phonepe.mustang.index.version.IndexView;
 
 import lombok.Builder;
 import lombok.Data;
@@ -37,138 +97,1361 @@ import lombok.Data;
 @Data
 @Builder
 public class IndexingFacade {
+    private static final int LOCK_STRIPES = 64;
+    private static final int IMPORT_BATCH_SIZE = 4096;
+    private static final int SEAL_ATTEMPTS = 3;
     private final Map<String, IndexGroup> indexMap = Maps.newConcurrentMap();
+    // Writers on different index groups proceed in parallel; exports share the read side of the same lock.
+    private final Striped<ReadWriteLock> locks = Striped.readWriteLock(LOCK_STRIPES);
+    private final ForkJoinPool indexingPool = ForkJoinPool.commonPool();
+    private final Set<String> sealing = Sets.newConcurrentHashSet();
+    private final Set<String> compacting = Sets.newConcurrentHashSet();
+    private final Map<String, ChangeLog> changeLogs = Maps.newConcurrentMap();
+    private final Map<String, Long> checkpointed = Maps.newConcurrentMap();
+    private final Object checkpointLock = new Object();
+    private volatile MutationLog mutationLog;
+    private volatile CheckpointScheduler checkpointScheduler;
+    // Groups known to be on disk but not yet in the map, and the loads of those under way.
+    private final Set<String> unloaded = Sets.newConcurrentHashSet();
+    private final Map<String, CompletableFuture<IndexGroup>> loading = Maps.newConcurrentMap();
+    private final LoadMetrics loadMetrics = new LoadMetrics();
+    private volatile IndexGroupStore groupStore;
+    // With a memory budget set, the coldest resident groups are written out & dropped once over it. Sizes are
+    // kept up to date as groups change, so checking the budget costs nothing. The change sequence each group
+    // was last saved at spares rewriting those unchanged since.
+    private final Map<String, Long> residentSizes = Maps.newConcurrentMap();
+    private final AtomicLong residentBytes = new AtomicLong(0);
+    private final Map<String, GroupUsage> usage = Maps.newConcurrentMap();
+    private final AtomicLong accessClock = new AtomicLong(0);
+    private final Object evictionLock = new Object();
+    private final Map<String, Long> saved = Maps.newConcurrentMap();
+    private volatile MemoryBudget memoryBudget;
+    private volatile EvictionScheduler evictionScheduler;
 
     public void add(final String index, final Criteria criteria) {
-        final IndexGroup indexGroup = get(index);
-        if (indexGroup.getAllCriterias()
-                .containsKey(criteria.getId())) {
-            throw MustangException.builder()
-                    .errorCode(ErrorCode.INDEX_GENERATION_ERROR)
-                    .build();
-        }
-        criteria.accept(CriteriaIndexBuilder.builder()
-                .indexGroup(indexGroup)
-                .operation(IndexOperation.ADD)
-                .build());
-        indexGroup.getAllCriterias()
-                .put(criteria.getId(), criteria);
+        withWriteLock(index, () -> {
+            final IndexGroup indexGroup = mutable(get(index));
+            final List<Criteria> criterias = Collections.singletonList(criteria);
+            absent(indexGroup, criterias);
+            logged(IndexOperation.ADD, index, criterias,
+                    () -> withVersion(indexGroup, version -> add(indexGroup, criteria, version)));
+        });
     }
 
     public void add(final String index, final List<Criteria> criterias) {
-        final IndexGroup indexGroup = get(index);
-        criterias.forEach(criteria -> {
+        withWriteLock(index, () -> {
+            final IndexGroup existing = loaded(index);
+            if (Objects.nonNull(existing)) {
+                mutable(existing);
+            }
+            // Loading into an empty index group is done in bulk, and the group is swapped in once fully built.
+            if (Objects.isNull(existing) || existing.getAllCriterias()
+                    .isEmpty()) {
+                final IndexGroup built = BulkIndexBuilder.builder()
+                        .name(index)
+                        .criterias(criterias)
+                        .pool(indexingPool)
+                        .baseVersion(Objects.isNull(existing) ? 0
+                                : existing.getVersions()
+                                        .getVersion())
+                        .build()
+                        .build();
+                logged(IndexOperation.ADD, index, criterias, () -> indexMap.put(index, built));
+            } else {
+                // Checked as a whole up front, so that a batch is either applied & logged in full or not at all.
+                absent(existing, criterias);
+                logged(IndexOperation.ADD, index, criterias, () -> withVersion(existing,
+                        version -> criterias.forEach(criteria -> add(existing, criteria, version))));
+            }
+        });
+    }
+
+    public void update(final String index, final Criteria criteria) {
+        withWriteLock(index, () -> {
+            final IndexGroup indexGroup = mutable(get(index));
+            logged(IndexOperation.UPDATE, index, Collections.singletonList(criteria),
+                    () -> withVersion(indexGroup, version -> {
+                        retain(indexGroup, criteria.getId(), version);
+                        mask(indexGroup, criteria.getId(), version);
+                        criteria.accept(CriteriaIndexBuilder.builder()
+                                .indexGroup(indexGroup)
+                                .operation(IndexOperation.UPDATE)
+                                .version(version)
+                                .build());
+                        indexGroup.getAllCriterias()
+                                .put(criteria.getId(), criteria);
+                    }));
+        });
+    }
+
+    public void delete(final String index, final Criteria criteria) {
+        withWriteLock(index, () -> {
+            final IndexGroup indexGroup = mutable(get(index));
             if (indexGroup.getAllCriterias()
                     .containsKey(criteria.getId())) {
+                logged(IndexOperation.DELETE, index, Collections.singletonList(criteria),
+                        () -> withVersion(indexGroup, version -> {
+                            retain(indexGroup, criteria.getId(), version);
+                            mask(indexGroup, criteria.getId(), version);
+                            criteria.accept(CriteriaIndexBuilder.builder()
+                                    .indexGroup(indexGroup)
+                                    .operation(IndexOperation.DELETE)
+                                    .version(version)
+                                    .build());
+                            indexGroup.getAllCriterias()
+                                    .remove(criteria.getId());
+                        }));
+            } else {
                 throw MustangException.builder()
-                        .errorCode(ErrorCode.INDEX_GENERATION_ERROR)
+                        .errorCode(ErrorCode.INDEX_NOT_FOUND)
                         .build();
             }
-            criteria.accept(CriteriaIndexBuilder.builder()
-                    .indexGroup(indexGroup)
-                    .operation(IndexOperation.ADD)
-                    .build());
-            indexGroup.getAllCriterias()
-                    .put(criteria.getId(), criteria);
         });
     }
 
-    public void update(final String index, final Criteria criteria) {
-        final IndexGroup indexGroup = get(index);
+    public void replace(final String oldIndex, final String newIndex) {
+        withWriteLocks(Arrays.asList(oldIndex, newIndex), () -> {
+            loaded(oldIndex);
+            loaded(newIndex);
+            final IndexGroup replaced = indexMap.get(oldIndex);
+            final IndexGroup replacement = indexMap.get(newIndex);
+            final List<Criteria> criterias = Objects.isNull(replacement) ? Collections.emptyList()
+                    : Lists.newArrayList(replacement.getAllCriterias()
+                            .values());
+            final List<Criteria> removed = removed(replaced, criterias);
+            // One record, so that recovery never sees the group half replaced.
+            final List<Mutation> mutations = Objects.isNull(replacement)
+                    ? Lists.newArrayList(Mutation.drop(oldIndex))
+                    : mutations(IndexOperation.DELETE, oldIndex, removed);
+            if (Objects.nonNull(replacement)) {
+                mutations.addAll(mutations(IndexOperation.ADD, oldIndex, criterias));
+            }
+            mutations.add(Mutation.drop(newIndex));
+            append(mutations);
+            if (Objects.nonNull(replacement)) {
+                if (indexMap.containsKey(oldIndex)) {
+                    indexMap.replace(oldIndex, getIndexGroup(oldIndex), getIndexGroup(newIndex));
+                } else {
+                    indexMap.put(oldIndex, getIndexGroup(newIndex));
+                }
+                getIndexGroup(oldIndex).setName(oldIndex);
+                indexMap.remove(newIndex, getIndexGroup(newIndex));
+            } else {
+                indexMap.remove(oldIndex);
+            }
+            retire(replaced);
+            resize(oldIndex);
+            resize(newIndex);
+            changeLogs.remove(newIndex);
+            changeLog(oldIndex).reset();
+            if (Objects.nonNull(replacement)) {
+                publish(IndexOperation.DELETE, oldIndex, removed);
+                publish(IndexOperation.ADD, oldIndex, criterias);
+            } else {
+                mutated(1);
+            }
+            mutated(1);
+        });
+    }
+
+    public IndexGroup getIndexGroup(final String index) {
+        final IndexGroup indexGroup = loaded(index);
+        if (Objects.nonNull(indexGroup)) {
+            return indexGroup;
+        }
+        throw MustangException.builder()
+                .errorCode(ErrorCode.INDEX_NOT_FOUND)
+                .build();
+    }
+
+    public String exportIndexGroup(final String index, final ObjectMapper mapper) {
+        return withReadLock(index, () -> {
+            try {
+                return mapper.writeValueAsString(getIndexGroup(index).getAllCriterias()
+                        .values());
+            } catch (JsonProcessingException e) {
+                throw MustangException.builder()
+                        .errorCode(ErrorCode.INDEX_EXPORT_ERROR)
+                        .cause(e)
+                        .build();
+            }
+        });
+    }
+
+    public void exportIndexGroup(final String index, final OutputStream out, final boolean compressed) {
+        withReadLock(index, () -> {
+            try {
+                SnapshotWriter.builder()
+                        .criterias(getIndexGroup(index).getAllCriterias()
+                                .values())
+                        .out(out)
+                        .compressed(compressed)
+                        .build()
+                        .write();
+            } catch (IOException e) {
+                throw MustangException.builder()
+                        .errorCode(ErrorCode.INDEX_EXPORT_ERROR)
+                        .cause(e)
+                        .build();
+            }
+        });
+    }
+
+    public void exportIndexGroup(final String index, final Writer out, final ObjectMapper mapper) {
+        withReadLock(index, () -> {
+            try {
+                JsonSnapshotWriter.builder()
+                        .criterias(getIndexGroup(index).getAllCriterias()
+                                .values())
+                        .mapper(mapper)
+                        .out(out)
+                        .build()
+                        .write();
+            } catch (IOException e) {
+                throw MustangException.builder()
+                        .errorCode(ErrorCode.INDEX_EXPORT_ERROR)
+                        .cause(e)
+                        .build();
+            }
+        });
+    }
+
+    public String snapshot(final String index, final ObjectMapper mapper) {
+        return withReadLock(index, () -> {
+            try {
+                return mapper.writeValueAsString(getIndexGroup(index));
+            } catch (JsonProcessingException e) {
+                throw MustangException.builder()
+                        .errorCode(ErrorCode.INTERNAL_ERROR)
+                        .cause(e)
+                        .build();
+            }
+        });
+    }
+
+    public void exportIndexGroupLines(final String index, final Writer out, final ObjectMapper mapper) {
+        withReadLock(index, () -> {
+            try {
+                JsonSnapshotWriter.builder()
+                        .criterias(getIndexGroup(index).getAllCriterias()
+                                .values())
+                        .mapper(mapper)
+                        .out(out)
+                        .lines(true)
+                        .build()
+                        .write();
+            } catch (IOException e) {
+                throw MustangException.builder()
+                        .errorCode(ErrorCode.INDEX_EXPORT_ERROR)
+                        .cause(e)
+                        .build();
+            }
+        });
+    }
+
+    public void snapshot(final String index, final Writer out, final ObjectMapper mapper) {
+        withReadLock(index, () -> {
+            try (JsonGenerator generator = mapper.getFactory()
+                    .createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                mapper.writeValue(generator, getIndexGroup(index));
+            } catch (IOException e) {
+                throw MustangException.builder()
+                        .errorCode(ErrorCode.INTERNAL_ERROR)
+                        .cause(e)
+                        .build();
+            }
+        });
+    }
+
+    public IndexGroup importIndexGroup(final String indexName, final String groupDetails, final ObjectMapper mapper) {
+        return withWriteLock(indexName, () -> {
+            if (exists(indexName)) {
+                throw MustangException.builder()
+                        .errorCode(ErrorCode.INDEX_GROUP_EXISTS)
+                        .build();
+            }
+            try {
+                final List<Criteria> criterias = mapper.readValue(groupDetails, new TypeReference<List<Criteria>>() {
+                });
+                imported(indexName, criterias);
+            } catch (IOException e) {
+                throw MustangException.builder()
+                        .errorCode(ErrorCode.INDEX_IMPORT_ERROR)
+                        .cause(e)
+                        .build();
+            }
+            return getIndexGroup(indexName);
+        });
+    }
+
+    public IndexGroup importIndexGroup(final String indexName, final Reader in, final ObjectMapper mapper) {
+        return withWriteLock(indexName, () -> {
+            if (exists(indexName)) {
+                throw MustangException.builder()
+                        .errorCode(ErrorCode.INDEX_GROUP_EXISTS)
+                        .build();
+            }
+            // Batches are gathered as they are read & indexed in one bulk build, nothing is applied or logged for an
+            // import that fails part way through.
+            final List<Criteria> criterias = Lists.newArrayList();
+            try {
+                JsonSnapshotReader.builder()
+                        .mapper(mapper)
+                        .in(in)
+                        .batchSize(IMPORT_BATCH_SIZE)
+                        .build()
+                        .read(criterias::addAll);
+            } catch (IOException e) {
+                throw MustangException.builder()
+                        .errorCode(ErrorCode.INDEX_IMPORT_ERROR)
+                        .cause(e)
+                        .build();
+            }
+            imported(indexName, criterias);
+            return getIndexGroup(indexName);
+        });
+    }
+
+    public IndexGroup importIndexGroupLines(final String indexName, final Reader in, final ObjectMapper mapper) {
+        return withWriteLock(indexName, () -> {
+            if (exists(indexName)) {
+                throw MustangException.builder()
+                        .errorCode(ErrorCode.INDEX_GROUP_EXISTS)
+                        .build();
+            }
+            // Lines are deserialised in parallel batches as they are read, and indexed in one parallel bulk build.
+            final List<Criteria> criterias = Lists.newArrayList();
+            try {
+                LineSnapshotReader.builder()
+                        .mapper(mapper)
+                        .in(in)
+                        .pool(indexingPool)
+                        .batchSize(IMPORT_BATCH_SIZE)
+                        .build()
+                        .read(criterias::addAll);
+            } catch (IOException e) {
+                throw MustangException.builder()
+                        .errorCode(ErrorCode.INDEX_IMPORT_ERROR)
+                        .cause(e)
+                        .build();
+            }
+            imported(indexName, criterias);
+            return getIndexGroup(indexName);
+        });
+    }
+
+    public IndexGroup importIndexGroup(final String indexName, final InputStream in) {
+        return withWriteLock(indexName, () -> {
+            if (exists(indexName)) {
+                throw MustangException.builder()
+                        .errorCode(ErrorCode.INDEX_GROUP_EXISTS)
+                        .build();
+            }
+            try {
+                imported(indexName, SnapshotReader.builder()
+                        .in(in)
+                        .build()
+                        .read());
+            } catch (IOException e) {
+                throw MustangException.builder()
+                        .errorCode(ErrorCode.INDEX_IMPORT_ERROR)
+                        .cause(e)
+                        .build();
+            }
+            return getIndexGroup(indexName);
+        });
+    }
+
+    public void persistIndexGroup(final String index, final Path path, final ObjectMapper mapper) {
+        withReadLock(index, () -> {
+            final IndexGroup indexGroup = getIndexGroup(index);
+            try {
+                MappedIndexWriter.builder()
+                        .indexGroup(indexGroup.isFrozen() ? indexGroup : frozen(indexGroup, PostingStorage.HEAP))
+                        .mapper(mapper)
+                        .path(path)
+                        .build()
+                        .write();
+            } catch (IOException e) {
+                throw MustangException.builder()
+                        .errorCode(ErrorCode.INDEX_EXPORT_ERROR)
+                        .cause(e)
+                        .build();
+            }
+        });
+    }
+
+    public IndexGroup openIndexGroup(final String indexName, final Path path, final ObjectMapper mapper) {
+        return withWriteLock(indexName, () -> {
+            if (exists(indexName)) {
+                throw MustangException.builder()
+                        .errorCode(ErrorCode.INDEX_GROUP_EXISTS)
+                        .build();
+            }
+            try {
+                final IndexGroup opened = MappedIndexReader.builder()
+                        .name(indexName)
+                        .mapper(mapper)
+                        .path(path)
+                        .build()
+                        .read();
+                logged(IndexOperation.ADD, indexName, Lists.newArrayList(opened.getAllCriterias()
+                        .values()), () -> indexMap.put(indexName, opened));
+                changeLog(indexName).reset();
+            } catch (IOException e) {
+                throw MustangException.builder()
+                        .errorCode(ErrorCode.INDEX_IMPORT_ERROR)
+                        .cause(e)
+                        .build();
+            }
+            return getIndexGroup(indexName);
+        });
+    }
+
+    public ChangeSet changesSince(final String index, final long sequence) {
+        return withReadLock(index, () -> {
+            final IndexGroup indexGroup = getIndexGroup(index);
+            final ChangeLog changeLog = changeLog(index);
+            final List<Change> changes = changeLog.since(sequence);
+            if (Objects.nonNull(changes)) {
+                return ChangeSet.builder()
+                        .index(index)
+                        .sequence(changeLog.getSequence())
+                        .changes(changes)
+                        .build();
+            }
+            // Too far behind for the ring, the follower starts over from the group as it stands.
+            return ChangeSet.builder()
+                    .index(index)
+                    .sequence(changeLog.getSequence())
+                    .snapshot(true)
+                    .changes(indexGroup.getAllCriterias()
+                            .values()
+                            .stream()
+                            .map(criteria -> new Change(changeLog.getSequence(), IndexOperation.ADD, criteria))
+                            .collect(Collectors.toList()))
+                    .build();
+        });
+    }
+
+    public void applyChanges(final String index, final ChangeSet changeSet) {
+        withWriteLock(index, () -> {
+            if (!changeSet.isSnapshot()) {
+                changeSet.stream()
+                        .forEach(change -> apply(new Mutation(change.getOperation(), index, change.getCriteria())));
+                return;
+            }
+            final IndexGroup existing = loaded(index);
+            final List<Criteria> criterias = changeSet.stream()
+                    .map(Change::getCriteria)
+                    .collect(Collectors.toList());
+            final IndexGroup rebuilt = BulkIndexBuilder.builder()
+                    .name(index)
+                    .criterias(criterias)
+                    .pool(indexingPool)
+                    .baseVersion(Objects.isNull(existing) ? 0
+                            : existing.getVersions()
+                                    .getVersion())
+                    .build()
+                    .build();
+            final List<Criteria> removed = removed(existing, criterias);
+            final List<Mutation> mutations = mutations(IndexOperation.DELETE, index, removed);
+            mutations.addAll(mutations(IndexOperation.ADD, index, criterias));
+            append(mutations);
+            changeLog(index).reset();
+            retire(indexMap.put(index, rebuilt));
+            publish(IndexOperation.DELETE, index, removed);
+            publish(IndexOperation.ADD, index, criterias);
+        });
+    }
+
+    public void recover(final Path directory, final Durability durability, final long syncIntervalMs) {
+        if (Objects.nonNull(mutationLog)) {
+            throw MustangException.builder()
+                    .errorCode(ErrorCode.MUTATION_LOG_ERROR)
+                    .build();
+        }
+        // The latest checkpoint is loaded and the log replayed over it, before anything new gets logged.
+        try {
+            final CheckpointStore checkpoints = CheckpointStore.builder()
+                    .directory(directory)
+                    .build();
+            final OptionalLong latest = checkpoints.latest();
+            if (latest.isPresent()) {
+                checkpoints.read(latest.getAsLong(), this::importIndexGroup);
+            }
+            MutationLog.replay(directory, latest.orElse(0), this::apply);
+            mutationLog = MutationLog.open(directory, durability, syncIntervalMs, latest.orElse(0));
+        } catch (IOException e) {
+            throw MustangException.builder()
+                    .errorCode(ErrorCode.MUTATION_LOG_ERROR)
+                    .cause(e)
+                    .build();
+        }
+    }
+
+    public void checkpoint() {
+        final CheckpointScheduler scheduler = checkpointScheduler;
+        checkpoint(Objects.nonNull(scheduler) ? scheduler.getPolicy() : null);
+    }
+
+    // Scheduled runs carry their own policy, one still queued when checkpoints get stopped runs all the same.
+    private void checkpoint(final CheckpointPolicy policy) {
+        synchronized (checkpointLock) {
+            final MutationLog log = mutationLog;
+            if (Objects.isNull(log) && Objects.isNull(policy)) {
+                throw MustangException.builder()
+                        .errorCode(ErrorCode.MUTATION_LOG_ERROR)
+                        .build();
+            }
+            final CheckpointStore checkpoints = CheckpointStore.builder()
+                    .directory(Objects.nonNull(log) ? log.getDirectory() : policy.getDirectory())
+                    .build();
+            try {
+                Files.createDirectories(checkpoints.getDirectory());
+                if (checkpointed.equals(sequences()) && checkpoints.latest()
+                        .isPresent()) {
+                    return;
+                }
+                // Mutations from here on land in the new segment, and replay picks up from it.
+                final long segment = Objects.nonNull(log) ? log.roll()
+                        : checkpoints.latest()
+                                .orElse(0) + 1;
+                final Map<String, Long> sequences = sequences();
+                final Map<String, Long> written = Maps.newConcurrentMap();
+                checkpoints.write(segment, Lists.newArrayList(sequences.keySet()),
+                        index -> !Objects.equals(checkpointed.get(index), sequences.get(index)),
+                        (index, out) -> written.put(index, checkpoint(index, out)));
+                sequences.putAll(written);
+                checkpointed.clear();
+                checkpointed.putAll(sequences);
+                final OptionalLong oldest = checkpoints.retain(Objects.nonNull(policy) ? policy.getGenerations() : 1);
+                if (Objects.nonNull(log) && oldest.isPresent()) {
+                    log.prune(oldest.getAsLong());
+                }
+            } catch (IOException e) {
+                throw MustangException.builder()
+                        .errorCode(ErrorCode.MUTATION_LOG_ERROR)
+                        .cause(e)
+                        .build();
+            }
+        }
+    }
+
+    public void scheduleCheckpoints(final CheckpointPolicy policy) {
+        stopCheckpoints();
+        checkpointScheduler = new CheckpointScheduler(policy, () -> checkpoint(policy));
+    }
+
+    public void stopCheckpoints() {
+        final CheckpointScheduler scheduler = checkpointScheduler;
+        checkpointScheduler = null;
+        if (Objects.nonNull(scheduler)) {
+            scheduler.close();
+        }
+    }
+
+    public void closeMutationLog() {
+        final MutationLog log = mutationLog();
+        mutationLog = null;
+        try {
+            log.close();
+        } catch (IOException e) {
+            throw MustangException.builder()
+                    .errorCode(ErrorCode.MUTATION_LOG_ERROR)
+                    .cause(e)
+                    .build();
+        }
+    }
+
+    // Only the names are read here, each group is loaded the first time it is asked for.
+    public void openSnapshotDirectory(final Path directory) {
+        final IndexGroupStore store = IndexGroupStore.builder()
+                .directory(directory)
+                .build();
+        try {
+            final Set<String> names = store.names();
+            groupStore = store;
+            names.stream()
+                    .filter(name -> !indexMap.containsKey(name))
+                    .forEach(unloaded::add);
+        } catch (IOException e) {
+            throw MustangException.builder()
+                    .errorCode(ErrorCode.INDEX_IMPORT_ERROR)
+                    .cause(e)
+                    .build();
+        }
+    }
+
+    public void saveIndexGroup(final String index) {
+        final IndexGroupStore store = groupStore();
+        final Pair<Long, List<Criteria>> view = withReadLock(index, () -> Pair.of(changeLog(index).getSequence(),
+                Lists.newArrayList(getIndexGroup(index).getAllCriterias()
+                        .values())));
+        try {
+            store.write(index, view.getRight());
+            saved.put(index, view.getLeft());
+        } catch (IOException e) {
+            throw MustangException.builder()
+                    .errorCode(ErrorCode.INDEX_EXPORT_ERROR)
+                    .cause(e)
+                    .build();
+        }
+    }
+
+    public boolean isLoaded(final String index) {
+        return indexMap.containsKey(index);
+    }
+
+    // Brings the resident groups within the budget before returning, later on that is done in the background.
+    public void setMemoryBudget(final MemoryBudget budget) {
+        if (Objects.nonNull(budget)) {
+            groupStore();
+        }
+        final EvictionScheduler scheduler = evictionScheduler;
+        evictionScheduler = Objects.nonNull(budget) ? new EvictionScheduler(this::enforceMemoryBudget) : null;
+        if (Objects.nonNull(scheduler)) {
+            scheduler.close();
+        }
+        memoryBudget = budget;
+        enforceMemoryBudget();
+    }
+
+    // Victims are only taken when their lock is free right away; a group busy being written to is not cold.
+    public void enforceMemoryBudget() {
+        final MemoryBudget budget = memoryBudget;
+        if (Objects.isNull(budget)) {
+            return;
+        }
+        synchronized (evictionLock) {
+            // Ranked afresh after every eviction, groups loaded in the meantime may well be colder than the rest.
+            while (residentBytes.get() > budget.getMaxBytes()) {
+                if (!coldest(budget.getPolicy()).stream()
+                        .anyMatch(this::evict)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    public long getResidentBytes() {
+        return residentBytes.get();
+    }
+
+    public int compact(final String index) {
+        return withWriteLock(index, () -> {
+            final int reclaimed = IndexCompactor.builder()
+                    .indexGroup(getIndexGroup(index))
+                    .build()
+                    .compact();
+            resize(index);
+            return reclaimed;
+        });
+    }
+
+    public void remap(final String index) {
+        withWriteLock(index, () -> {
+            final IndexGroup indexGroup = getIndexGroup(index);
+            // Frozen groups are dense by construction.
+            if (!indexGroup.isFrozen()) {
+                swap(IdRemapper.builder()
+                        .indexGroup(indexGroup)
+                        .build());
+            }
+        });
+    }
+
+    public void freeze(final String index) {
+        freeze(index, PostingStorage.HEAP);
+    }
+
+    public void freeze(final String index, final PostingStorage storage) {
+        withWriteLock(index, () -> {
+            final IndexGroup indexGroup = getIndexGroup(index);
+            if (!indexGroup.isFrozen()) {
+                swap(indexGroup, frozen(indexGroup, storage));
+            }
+        });
+    }
+
+    public void thaw(final String index) {
+        withWriteLock(index, () -> {
+            final IndexGroup indexGroup = getIndexGroup(index);
+            // A remapped copy comes back with mutable tables, readers of the frozen group carry on with it.
+            if (indexGroup.isFrozen()) {
+                swap(IdRemapper.builder()
+                        .indexGroup(indexGroup)
+                        .build());
+            }
+        });
+    }
+
+    public void seal(final String index) {
+        seal(index, SegmentMerger::seal);
+    }
+
+    public void merge(final String index) {
+        seal(index, SegmentMerger::merge);
+    }
+
+    public IndexStats getIndexStats(final String index) {
+        return withReadLock(index, () -> IndexStats.of(getIndexGroup(index)));
+    }
+
+    public IndexView pin(final String index) {
+        return withReadLock(index, () -> pin(getIndexGroup(index)));
+    }
+
+    public void unpin(final IndexView view) {
+        view.getIndexGroup()
+                .getVersions()
+                .unpin(view.getVersion());
+        release(view.getIndexGroup());
+    }
+
+    // Groups with off heap postings are held on to while being read, so that their slabs are not recycled
+    // underneath the reader. A group retired in the meantime has already been replaced in the map.
+    public IndexGroup acquire(final String index) {
+        while (true) {
+            final IndexGroup indexGroup = getIndexGroup(index);
+            if (retain(indexGroup)) {
+                return indexGroup;
+            }
+        }
+    }
+
+    public boolean retain(final IndexGroup indexGroup) {
+        return Objects.isNull(indexGroup.getSlabs()) || indexGroup.getSlabs()
+                .retain();
+    }
+
+    public void release(final IndexGroup indexGroup) {
+        if (Objects.nonNull(indexGroup.getSlabs())) {
+            indexGroup.getSlabs()
+                    .release();
+        }
+    }
+
+    private void add(final IndexGroup indexGroup, final Criteria criteria, final long version) {
+        if (indexGroup.getAllCriterias()
+                .containsKey(criteria.getId())) {
+            throw MustangException.builder()
+                    .errorCode(ErrorCode.INDEX_GENERATION_ERROR)
+                    .build();
+        }
+        retain(indexGroup, criteria.getId(), version);
         criteria.accept(CriteriaIndexBuilder.builder()
                 .indexGroup(indexGroup)
-                .operation(IndexOperation.UPDATE)
+                .operation(IndexOperation.ADD)
+                .version(version)
                 .build());
         indexGroup.getAllCriterias()
                 .put(criteria.getId(), criteria);
     }
 
-    public void delete(final String index, final Criteria criteria) {
-        final IndexGroup indexGroup = get(index);
-        if (indexGroup.getAllCriterias()
-                .containsKey(criteria.getId())) {
-            criteria.accept(CriteriaIndexBuilder.builder()
-                    .indexGroup(indexGroup)
-                    .operation(IndexOperation.DELETE)
-                    .build());
-            indexGroup.getAllCriterias()
-                    .remove(criteria.getId());
-        } else {
+    // Checked as a whole before anything is logged, an id already in the group or twice in the batch fails it all.
+    private void absent(final IndexGroup indexGroup, final List<Criteria> criterias) {
+        final Set<String> ids = Sets.newHashSet();
+        if (criterias.stream()
+                .anyMatch(criteria -> indexGroup.getAllCriterias()
+                        .containsKey(criteria.getId()) || !ids.add(criteria.getId()))) {
             throw MustangException.builder()
-                    .errorCode(ErrorCode.INDEX_NOT_FOUND)
+                    .errorCode(ErrorCode.INDEX_GENERATION_ERROR)
                     .build();
         }
     }
 
-    public void replace(final String oldIndex, final String newIndex) {
-        if (indexMap.containsKey(newIndex)) {
-            if (indexMap.containsKey(oldIndex)) {
-                indexMap.replace(oldIndex, getIndexGroup(oldIndex), getIndexGroup(newIndex));
-            } else {
-                indexMap.put(oldIndex, getIndexGroup(newIndex));
-            }
-            getIndexGroup(oldIndex).setName(oldIndex);
-            indexMap.remove(newIndex, getIndexGroup(newIndex));
-        } else {
-            indexMap.remove(oldIndex);
+    // Written ahead, a mutation is in the mutation log before it is applied, so that one the log fails to take is
+    // never seen. It reaches followers & counts towards the next checkpoint only once applied.
+    private void logged(final IndexOperation operation, final String index, final List<Criteria> criterias,
+            final Runnable mutation) {
+        append(mutations(operation, index, criterias));
+        mutation.run();
+        publish(operation, index, criterias);
+    }
+
+    private void append(final List<Mutation> mutations) {
+        if (Objects.isNull(mutationLog) || mutations.isEmpty()) {
+            return;
+        }
+        try {
+            mutationLog.append(mutations);
+        } catch (IOException e) {
+            throw MustangException.builder()
+                    .errorCode(ErrorCode.MUTATION_LOG_ERROR)
+                    .cause(e)
+                    .build();
         }
     }
 
-    public IndexGroup getIndexGroup(final String index) {
-        if (indexMap.containsKey(index)) {
-            return indexMap.get(index);
+    private static List<Mutation> mutations(final IndexOperation operation, final String index,
+            final List<Criteria> criterias) {
+        return criterias.stream()
+                .map(criteria -> new Mutation(operation, index, criteria))
+                .collect(Collectors.toCollection(Lists::newArrayList));
+    }
+
+    private void publish(final IndexOperation operation, final String index, final List<Criteria> criterias) {
+        changeLog(index).append(operation, criterias);
+        resize(index);
+        mutated(criterias.size());
+    }
+
+    // An imported group arrives whole, followers pick it up as a snapshot rather than replay it change by change.
+    private void imported(final String indexName, final List<Criteria> criterias) {
+        add(indexName, criterias);
+        changeLog(indexName).reset();
+    }
+
+    private void mutated(final int mutations) {
+        final CheckpointScheduler scheduler = checkpointScheduler;
+        if (Objects.nonNull(scheduler)) {
+            scheduler.onMutations(mutations);
         }
-        throw MustangException.builder()
-                .errorCode(ErrorCode.INDEX_NOT_FOUND)
-                .build();
     }
 
-    public String exportIndexGroup(final String index, final ObjectMapper mapper) {
+    // A group replaced in full is logged as removals of whatever it no longer has, followed by everything it has now.
+    private List<Criteria> removed(final IndexGroup existing, final List<Criteria> criterias) {
+        if (Objects.isNull(existing)) {
+            return Collections.emptyList();
+        }
+        final Set<String> retained = criterias.stream()
+                .map(Criteria::getId)
+                .collect(Collectors.toSet());
+        return existing.getAllCriterias()
+                .values()
+                .stream()
+                .filter(criteria -> !retained.contains(criteria.getId()))
+                .collect(Collectors.toList());
+    }
+
+    // Groups that are only on disk, evicted or not loaded yet, are part of every checkpoint all the same.
+    private Map<String, Long> sequences() {
+        final Map<String, Long> sequences = Maps.newLinkedHashMap();
+        Stream.concat(indexMap.keySet()
+                .stream(), unloaded.stream())
+                .forEach(index -> sequences.put(index, changeLog(index).getSequence()));
+        return sequences;
+    }
+
+    // Only the copy of the criterias is taken under the read lock, they get serialised once it is let go. A group
+    // only on disk has its stored snapshot copied over instead, under the read lock so that it is not rewritten.
+    private long checkpoint(final String index, final OutputStream out) throws IOException {
+        final long sequence;
+        final List<Criteria> criterias;
+        final Lock lock = locks.get(index)
+                .readLock();
+        lock.lock();
         try {
-            return mapper.writeValueAsString(getIndexGroup(index).getAllCriterias()
+            sequence = changeLog(index).getSequence();
+            if (!indexMap.containsKey(index) && unloaded.contains(index)) {
+                groupStore().copy(index, out);
+                return sequence;
+            }
+            criterias = Lists.newArrayList(getIndexGroup(index).getAllCriterias()
                     .values());
-        } catch (JsonProcessingException e) {
+        } finally {
+            lock.unlock();
+        }
+        SnapshotWriter.builder()
+                .criterias(criterias)
+                .out(out)
+                .compressed(true)
+                .build()
+                .write();
+        return sequence;
+    }
+
+    private ChangeLog changeLog(final String index) {
+        return changeLogs.computeIfAbsent(index, x -> new ChangeLog(ChangeLog.DEFAULT_CAPACITY));
+    }
+
+    private IndexGroupStore groupStore() {
+        if (Objects.isNull(groupStore)) {
             throw MustangException.builder()
                     .errorCode(ErrorCode.INDEX_EXPORT_ERROR)
+                    .build();
+        }
+        return groupStore;
+    }
+
+    private boolean exists(final String index) {
+        return indexMap.containsKey(index) || unloaded.contains(index);
+    }
+
+    // A group on disk is loaded by whoever asks for it first, everyone else asking meanwhile waits on that load.
+    // No lock is taken for it, as callers may already hold the read lock on the index.
+    private IndexGroup loaded(final String index) {
+        final IndexGroup indexGroup = indexMap.get(index);
+        if (Objects.nonNull(indexGroup)) {
+            return touched(index, indexGroup);
+        }
+        // The group is put in the map before its name is let go of, so a miss on both means there is none.
+        if (!unloaded.contains(index)) {
+            return touched(index, indexMap.get(index));
+        }
+        final CompletableFuture<IndexGroup> pending = new CompletableFuture<>();
+        final CompletableFuture<IndexGroup> inFlight = loading.putIfAbsent(index, pending);
+        if (Objects.nonNull(inFlight)) {
+            return touched(index, await(inFlight));
+        }
+        try {
+            pending.complete(load(index));
+        } catch (RuntimeException e) {
+            pending.completeExceptionally(e);
+        } finally {
+            loading.remove(index, pending);
+        }
+        return await(pending);
+    }
+
+    private IndexGroup touched(final String index, final IndexGroup indexGroup) {
+        if (Objects.nonNull(indexGroup) && Objects.nonNull(memoryBudget)) {
+            usage.computeIfAbsent(index, x -> new GroupUsage())
+                    .touch(accessClock.incrementAndGet());
+        }
+        return indexGroup;
+    }
+
+    private IndexGroup load(final String index) {
+        // An eviction lists the group as unloaded before dropping it from the map, so it may still be there.
+        final IndexGroup present = indexMap.get(index);
+        if (Objects.nonNull(present)) {
+            return touched(index, present);
+        }
+        if (!unloaded.contains(index)) {
+            return touched(index, indexMap.get(index));
+        }
+        final long start = System.nanoTime();
+        try {
+            final IndexGroup indexGroup = BulkIndexBuilder.builder()
+                    .name(index)
+                    .criterias(groupStore().read(index))
+                    .pool(indexingPool)
+                    .build()
+                    .build();
+            saved.put(index, changeLog(index).getSequence());
+            // Seen as recent from the start, & the access it is loaded for counted while the load still shields it,
+            // or it would look like the coldest group around & be the first to go again.
+            usage.put(index, GroupUsage.since(accessClock.incrementAndGet()));
+            touched(index, indexGroup);
+            indexMap.putIfAbsent(index, indexGroup);
+            unloaded.remove(index);
+            resize(index);
+            loadMetrics.loaded(System.nanoTime() - start);
+            return indexMap.get(index);
+        } catch (IOException e) {
+            loadMetrics.failed();
+            throw MustangException.builder()
+                    .errorCode(ErrorCode.INDEX_IMPORT_ERROR)
                     .cause(e)
                     .build();
         }
     }
 
-    public String snapshot(final String index, final ObjectMapper mapper) {
+    // Keeps the estimate of a group's size current, and has cold groups evicted once the budget is exceeded. Frozen
+    // groups are never evicted, so they are left out of the budget rather than have every resize chase them.
+    private void resize(final String index) {
+        final IndexGroup indexGroup = indexMap.get(index);
+        final long size = Objects.isNull(indexGroup) || indexGroup.isFrozen() ? 0
+                : MemoryEstimator.estimate(indexGroup);
+        residentSizes.compute(index, (x, previous) -> {
+            residentBytes.addAndGet(size - (Objects.isNull(previous) ? 0 : previous));
+            return size == 0 ? null : size;
+        });
+        final MemoryBudget budget = memoryBudget;
+        final EvictionScheduler scheduler = evictionScheduler;
+        if (Objects.nonNull(budget) && Objects.nonNull(scheduler) && residentBytes.get() > budget.getMaxBytes()) {
+            scheduler.trigger();
+        }
+    }
+
+    private List<String> coldest(final EvictionPolicy policy) {
+        return residentSizes.keySet()
+                .stream()
+                .collect(Collectors.toMap(index -> index, index -> usage.getOrDefault(index, new GroupUsage())
+                        .copy()))
+                .entrySet()
+                .stream()
+                .sorted(Map.Entry.comparingByValue(GroupUsage.comparator(policy)))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    // Pinned groups serve older versions out of memory, & frozen ones may be off heap or mapped, so both stay. A
+    // group still being loaded is left to the load to finish listing, or it would end up neither here nor on disk.
+    private boolean evict(final String index) {
+        final Lock lock = locks.get(index)
+                .writeLock();
+        if (!lock.tryLock()) {
+            return false;
+        }
         try {
-            return mapper.writeValueAsString(getIndexGroup(index));
-        } catch (JsonProcessingException e) {
+            final IndexGroup indexGroup = indexMap.get(index);
+            if (Objects.isNull(indexGroup) || indexGroup.getVersions()
+                    .isPinned() || indexGroup.isFrozen() || sealing.contains(index) || compacting.contains(index)
+                    || loading.containsKey(index)) {
+                return false;
+            }
+            final long sequence = changeLog(index).getSequence();
+            if (!Objects.equals(saved.get(index), sequence)) {
+                groupStore().write(index, indexGroup.getAllCriterias()
+                        .values());
+                saved.put(index, sequence);
+            }
+            // Usage goes before the group does, a load starting right after has to find its own usage in place.
+            unloaded.add(index);
+            usage.remove(index);
+            indexMap.remove(index, indexGroup);
+            resize(index);
+            loadMetrics.evicted();
+            return true;
+        } catch (IOException e) {
+            loadMetrics.evictionFailed();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private IndexGroup await(final CompletableFuture<IndexGroup> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof MustangException) {
+                throw (MustangException) e.getCause();
+            }
             throw MustangException.builder()
                     .errorCode(ErrorCode.INTERNAL_ERROR)
-                    .cause(e)
+                    .cause(e.getCause())
                     .build();
         }
     }
 
-    public IndexGroup importIndexGroup(final String indexName, final String groupDetails, final ObjectMapper mapper) {
-        if (indexMap.containsKey(indexName)) {
+    private MutationLog mutationLog() {
+        if (Objects.isNull(mutationLog)) {
             throw MustangException.builder()
-                    .errorCode(ErrorCode.INDEX_GROUP_EXISTS)
+                    .errorCode(ErrorCode.MUTATION_LOG_ERROR)
                     .build();
         }
+        return mutationLog;
+    }
+
+    // Replay may run over mutations the checkpoint already has, so each one is applied as a put or a remove.
+    private void apply(final Mutation mutation) {
+        final String index = mutation.getIndex();
+        if (mutation.isDrop()) {
+            drop(index);
+            return;
+        }
+        final Criteria criteria = mutation.getCriteria();
+        final boolean present = exists(index) && getIndexGroup(index).getAllCriterias()
+                .containsKey(criteria.getId());
+        mutation.getOperation()
+                .accept(new IndexOperation.Visitor<Void>() {
+                    @Override
+                    public Void visitAdd() {
+                        return visitUpdate();
+                    }
+
+                    @Override
+                    public Void visitUpdate() {
+                        if (present) {
+                            update(index, criteria);
+                        } else {
+                            add(index, criteria);
+                        }
+                        return null;
+                    }
+
+                    @Override
+                    public Void visitDelete() {
+                        if (present) {
+                            delete(index, criteria);
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    private void retain(final IndexGroup indexGroup, final String criteriaId, final long version) {
+        indexGroup.getVersions()
+                .retain(criteriaId,
+                        indexGroup.getAllCriterias()
+                                .get(criteriaId),
+                        indexGroup.getTautologicalCriterias()
+                                .containsKey(criteriaId),
+                        version);
+    }
+
+    private void withVersion(final IndexGroup indexGroup, final LongConsumer mutation) {
+        final long version = indexGroup.getVersions()
+                .next();
         try {
-            final List<Criteria> criterias = mapper.readValue(groupDetails, new TypeReference<List<Criteria>>() {
+            mutation.accept(version);
+        } finally {
+            indexGroup.getVersions()
+                    .publish(version);
+        }
+        if (isCompactionDue(indexGroup)) {
+            compactInBackground(indexGroup.getName());
+        }
+        if (merger(indexGroup).isDue()) {
+            sealInBackground(indexGroup.getName());
+        }
+    }
+
+    // Compaction rewrites the posting lists of the live group, so it still takes the write lock, but on the pool
+    // rather than on the writer that found the group stale. A group left sparse gets renumbered off a pinned view,
+    // the same way a seal is built. Writes landing meanwhile find the run in flight, so it goes again if still due.
+    private void compactInBackground(final String index) {
+        if (compacting.add(index)) {
+            indexingPool.execute(() -> {
+                boolean ran = false;
+                try {
+                    withWriteLock(index, () -> {
+                        final IndexGroup indexGroup = indexMap.get(index);
+                        if (Objects.nonNull(indexGroup) && !indexGroup.isFrozen() && IndexCompactor.builder()
+                                .indexGroup(indexGroup)
+                                .build()
+                                .compactIfStale()) {
+                            resize(index);
+                        }
+                    });
+                    rebuilt(index, indexGroup -> {
+                        final IdRemapper remapper = IdRemapper.builder()
+                                .indexGroup(indexGroup)
+                                .build();
+                        return !indexGroup.isFrozen() && remapper.isSparse() ? remapper.remap() : null;
+                    });
+                    ran = true;
+                } finally {
+                    compacting.remove(index);
+                }
+                final IndexGroup indexGroup = indexMap.get(index);
+                if (ran && Objects.nonNull(indexGroup) && isCompactionDue(indexGroup)) {
+                    compactInBackground(index);
+                }
             });
-            add(indexName, criterias);
-        } catch (IOException e) {
+        }
+    }
+
+    private static boolean isCompactionDue(final IndexGroup indexGroup) {
+        return !indexGroup.isFrozen() && (IndexCompactor.builder()
+                .indexGroup(indexGroup)
+                .build()
+                .isStale()
+                || IdRemapper.builder()
+                        .indexGroup(indexGroup)
+                        .build()
+                        .isSparse());
+    }
+
+    private void sealInBackground(final String index) {
+        // A single attempt, a seal overtaken by writes is due again & gets triggered afresh by the next one.
+        if (sealing.add(index)) {
+            indexingPool.execute(() -> {
+                try {
+                    final IndexGroup indexGroup = indexMap.get(index);
+                    if (Objects.nonNull(indexGroup) && merger(indexGroup).isDue()) {
+                        sealed(index, SegmentMerger::seal);
+                    }
+                } finally {
+                    sealing.remove(index);
+                }
+            });
+        }
+    }
+
+    // Only a group that keeps changing under every attempt gets built under the write lock in the end.
+    private void seal(final String index, final Function<SegmentMerger, IndexGroup> build) {
+        mutable(getIndexGroup(index));
+        for (int attempt = 1; attempt < SEAL_ATTEMPTS; attempt++) {
+            if (sealed(index, build)) {
+                return;
+            }
+        }
+        withWriteLock(index, () -> {
+            final IndexGroup indexGroup = mutable(getIndexGroup(index));
+            swap(indexGroup, build.apply(merger(indexGroup)));
+        });
+    }
+
+    private boolean sealed(final String index, final Function<SegmentMerger, IndexGroup> build) {
+        return rebuilt(index, indexGroup -> build.apply(merger(mutable(indexGroup))));
+    }
+
+    // Replacements are built off a pinned view with no lock held, so that searches & writers carry on meanwhile. The
+    // write lock is only taken to swap one in, provided nothing got written since the pin; a build overtaken by a
+    // write is thrown away instead, as is one that comes back empty. Returns whether a replacement was swapped in.
+    private boolean rebuilt(final String index, final UnaryOperator<IndexGroup> build) {
+        final IndexView view = withReadLock(index, () -> {
+            final IndexGroup indexGroup = indexMap.get(index);
+            return Objects.isNull(indexGroup) ? null : pin(indexGroup);
+        });
+        if (Objects.isNull(view)) {
+            return false;
+        }
+        try {
+            final IndexGroup replacement;
+            try {
+                replacement = build.apply(view.getIndexGroup());
+            } catch (RuntimeException e) {
+                // read half way through a write, which is no failure of the build itself.
+                if (unchanged(index, view)) {
+                    throw e;
+                }
+                return false;
+            }
+            if (Objects.isNull(replacement)) {
+                return false;
+            }
+            return withWriteLock(index, () -> {
+                if (!unchanged(index, view)) {
+                    return false;
+                }
+                swap(view.getIndexGroup(), replacement);
+                return true;
+            });
+        } finally {
+            unpin(view);
+        }
+    }
+
+    private boolean unchanged(final String index, final IndexView view) {
+        return indexMap.get(index) == view.getIndexGroup() && view.getIndexGroup()
+                .getVersions()
+                .getVersion() == view.getVersion();
+    }
+
+    // Taken under the read lock so that no mutation is half way through when the version gets pinned.
+    private IndexView pin(final IndexGroup indexGroup) {
+        // No group gets retired under the read lock, so this always succeeds.
+        retain(indexGroup);
+        return IndexView.of(indexGroup, indexGroup.getVersions()
+                .pin(), true);
+    }
+
+    private void mask(final IndexGroup indexGroup, final String criteriaId, final long version) {
+        // Older copies of the criteria in base segments are masked off through their live bitmaps.
+        indexGroup.getSegments()
+                .forEach(segment -> {
+                    segment.getDnfInvertedIndex()
+                            .retire(criteriaId, version);
+                    segment.getCnfInvertedIndex()
+                            .retire(criteriaId, version);
+                });
+    }
+
+    private IndexGroup frozen(final IndexGroup indexGroup, final PostingStorage storage) {
+        // Segments are folded back into a single group first, a frozen group has no delta to take writes.
+        return IndexFreezer.builder()
+                .indexGroup(indexGroup.getSegments()
+                        .isEmpty() ? indexGroup : merger(indexGroup).rebuild())
+                .storage(storage)
+                .build()
+                .freeze();
+    }
+
+    private SegmentMerger merger(final IndexGroup indexGroup) {
+        return SegmentMerger.builder()
+                .indexGroup(indexGroup)
+                .pool(indexingPool)
+                .build();
+    }
+
+    private void swap(final IdRemapper remapper) {
+        swap(remapper.getIndexGroup(), remapper.remap());
+    }
+
+    private void swap(final IndexGroup indexGroup, final IndexGroup replacement) {
+        if (indexMap.replace(indexGroup.getName(), indexGroup, replacement)) {
+            resize(indexGroup.getName());
+            retire(indexGroup);
+        }
+    }
+
+    private void drop(final String index) {
+        withWriteLock(index, () -> {
+            loaded(index);
+            retire(indexMap.remove(index));
+            resize(index);
+            changeLogs.remove(index);
+        });
+    }
+
+    private void retire(final IndexGroup indexGroup) {
+        if (Objects.nonNull(indexGroup) && Objects.nonNull(indexGroup.getSlabs())) {
+            indexGroup.getSlabs()
+                    .retire();
+        }
+    }
+
+    private IndexGroup mutable(final IndexGroup indexGroup) {
+        if (indexGroup.isFrozen()) {
             throw MustangException.builder()
-                    .errorCode(ErrorCode.INDEX_IMPORT_ERROR)
-                    .cause(e)
+                    .errorCode(ErrorCode.INDEX_GROUP_FROZEN)
                     .build();
         }
-        return getIndexGroup(indexName);
+        return indexGroup;
     }
 
     private IndexGroup get(final String index) {
+        final IndexGroup indexGroup = loaded(index);
+        if (Objects.nonNull(indexGroup)) {
+            return indexGroup;
+        }
         return indexMap.computeIfAbsent(index, x -> IndexGroup.builder()
                 .name(index)
                 .build());
     }
 
+    private void withWriteLock(final String index, final Runnable action) {
+        withWriteLock(index, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private <T> T withWriteLock(final String index, final Supplier<T> action) {
+        return withLock(locks.get(index)
+                .writeLock(), action);
+    }
+
+    private void withReadLock(final String index, final Runnable action) {
+        withReadLock(index, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private <T> T withReadLock(final String index, final Supplier<T> action) {
+        return withLock(locks.get(index)
+                .readLock(), action);
+    }
+
+    private void withWriteLocks(final List<String> indexes, final Runnable action) {
+        // Striped hands back the locks in a stable stripe order, so multi-group callers never deadlock.
+        final List<ReadWriteLock> groupLocks = Lists.newArrayList(locks.bulkGet(indexes));
+        groupLocks.forEach(lock -> lock.writeLock()
+                .lock());
+        try {
+            action.run();
+        } finally {
+            Lists.reverse(groupLocks)
+                    .forEach(lock -> lock.writeLock()
+                            .unlock());
+        }
+    }
+
+    private <T> T withLock(final Lock lock, final Supplier<T> action) {
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
 }
@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.builder;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.validation.constraints.NotNull;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.hibernate.validator.constraints.NotBlank;
+
+import com.google.common.collect.Lists;
+
+import com.phonepe.mustang.criteria.Criteria;
+import com.phonepe.mustang.criteria.CriteriaVisitor;
+import com.phonepe.mustang.criteria.impl.CNFCriteria;
+import com.phonepe.mustang.criteria.impl.DNFCriteria;
+import com.phonepe.mustang.exception.ErrorCode;
+import com.phonepe.mustang.exception.MustangException;
+import com.phonepe.mustang.index.core.ConjunctionPostingEntry;
+import com.phonepe.mustang.index.core.DisjunctionPostingEntry;
+import com.phonepe.mustang.index.group.IndexGroup;
+import com.phonepe.mustang.index.operation.IndexOperation;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+// Builds an index group from scratch, off to the side, for it to be published in one go once complete.
+@Data
+@Builder
+public class BulkIndexBuilder {
+    private static final int SLICE_SIZE = 1024;
+    @NotBlank
+    private final String name;
+    @NotNull
+    private final List<Criteria> criterias;
+    private final long baseVersion;
+    // Criterias are indexed in parallel on this pool when present.
+    private final ForkJoinPool pool;
+
+    public IndexGroup build() {
+        final IndexGroup indexGroup = IndexGroup.builder()
+                .name(name)
+                .build();
+        indexGroup.getVersions()
+                .publish(baseVersion);
+        final long version = indexGroup.getVersions()
+                .next();
+
+        // Ids are handed out up front in list order, so they come out the same however the work gets split.
+        criterias.forEach(criteria -> {
+            if (indexGroup.getAllCriterias()
+                    .containsKey(criteria.getId())) {
+                throw MustangException.builder()
+                        .errorCode(ErrorCode.INDEX_GENERATION_ERROR)
+                        .build();
+            }
+            criteria.accept(new IdReserver(indexGroup));
+            indexGroup.getAllCriterias()
+                    .put(criteria.getId(), criteria);
+        });
+
+        final List<List<Criteria>> slices = Lists.partition(criterias, SLICE_SIZE);
+        final List<Pair<BulkPostingSink<ConjunctionPostingEntry>, BulkPostingSink<DisjunctionPostingEntry>>> partials = Objects
+                .isNull(pool) || slices.size() < 2 ? Collections.singletonList(index(indexGroup, criterias, version))
+                        : pool.invoke(new SliceIndexTask(indexGroup, slices, version));
+        BulkPostingSink.flush(indexGroup.getDnfInvertedIndex(),
+                partials.stream()
+                        .map(Pair::getLeft)
+                        .collect(Collectors.toList()),
+                pool);
+        BulkPostingSink.flush(indexGroup.getCnfInvertedIndex(),
+                partials.stream()
+                        .map(Pair::getRight)
+                        .collect(Collectors.toList()),
+                pool);
+        indexGroup.getVersions()
+                .publish(version);
+        return indexGroup;
+    }
+
+    private static Pair<BulkPostingSink<ConjunctionPostingEntry>, BulkPostingSink<DisjunctionPostingEntry>> index(
+            final IndexGroup indexGroup,
+            final List<Criteria> criterias,
+            final long version) {
+        final BulkPostingSink<ConjunctionPostingEntry> dnfSink = new BulkPostingSink<>();
+        final BulkPostingSink<DisjunctionPostingEntry> cnfSink = new BulkPostingSink<>();
+        criterias.forEach(criteria -> criteria.accept(CriteriaIndexBuilder.builder()
+                .indexGroup(indexGroup)
+                .operation(IndexOperation.ADD)
+                .version(version)
+                .dnfSink(dnfSink)
+                .cnfSink(cnfSink)
+                .build()));
+        return Pair.of(dnfSink, cnfSink);
+    }
+
+    @AllArgsConstructor
+    private static class IdReserver implements CriteriaVisitor<Void> {
+        private final IndexGroup indexGroup;
+
+        @Override
+        public Void visit(final DNFCriteria dnf) {
+            if (!CriteriaIndexBuilder.isTautology(dnf)) {
+                IntStream.range(0,
+                        dnf.getConjunctions()
+                                .size())
+                        .forEach(j -> indexGroup.getDnfInvertedIndex()
+                                .getUnusedInternalIdFromCache(
+                                        String.format(DNFIndexer.CONJUNCTION_ENTRY_ID_FORMAT, dnf.getId(), j)));
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(final CNFCriteria cnf) {
+            if (!CriteriaIndexBuilder.isTautology(cnf)) {
+                indexGroup.getCnfInvertedIndex()
+                        .getUnusedInternalIdFromCache(cnf.getId());
+            }
+            return null;
+        }
+    }
+
+    // Each worker indexes its slice of criterias into partial sinks of its own, kept in slice order.
+    @AllArgsConstructor
+    private static class SliceIndexTask extends
+            RecursiveTask<List<Pair<BulkPostingSink<ConjunctionPostingEntry>, BulkPostingSink<DisjunctionPostingEntry>>>> {
+        private static final long serialVersionUID = 2571638426374937491L;
+        private final transient IndexGroup indexGroup;
+        private final transient List<List<Criteria>> slices;
+        private final long version;
+
+        @Override
+        protected List<Pair<BulkPostingSink<ConjunctionPostingEntry>, BulkPostingSink<DisjunctionPostingEntry>>> compute() {
+            if (slices.size() == 1) {
+                return Lists.newArrayList(index(indexGroup, slices.get(0), version));
+            }
+            final int mid = slices.size() / 2;
+            final SliceIndexTask left = new SliceIndexTask(indexGroup, slices.subList(0, mid), version);
+            left.fork();
+            final List<Pair<BulkPostingSink<ConjunctionPostingEntry>, BulkPostingSink<DisjunctionPostingEntry>>> right = new SliceIndexTask(
+                    indexGroup,
+                    slices.subList(mid, slices.size()),
+                    version).compute();
+            final List<Pair<BulkPostingSink<ConjunctionPostingEntry>, BulkPostingSink<DisjunctionPostingEntry>>> partials = left
+                    .join();
+            partials.addAll(right);
+            return partials;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.builder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.commons.lang3.tuple.MutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+
+import com.google.common.collect.Maps;
+import com.phonepe.mustang.index.core.InvertedIndex;
+import com.phonepe.mustang.index.core.Key;
+import com.phonepe.mustang.index.core.posting.PostingList;
+
+import lombok.Data;
+
+// Collects postings of many criteria, and lays them out in an inverted index in one go.
+@Data
+public class BulkPostingSink<T> implements PostingSink<T> {
+    private final Map<Integer, Map<Key, List<Pair<Integer, T>>>> postings = Maps.newHashMap();
+
+    @Override
+    public void add(final int kSize, final List<Map<Key, TreeMap<Integer, T>>> postingLists) {
+        final Map<Key, List<Pair<Integer, T>>> table = postings.computeIfAbsent(kSize, x -> Maps.newHashMap());
+        postingLists.forEach(map -> map.forEach((key, postingList) -> {
+            final List<Pair<Integer, T>> entries = table.computeIfAbsent(key, x -> new ArrayList<>());
+            postingList.forEach((iId, entry) -> entries.add(Pair.of(iId, entry)));
+        }));
+    }
+
+    public void flush(final InvertedIndex<T> invertedIndex) {
+        flush(invertedIndex, Collections.singletonList(this), null);
+    }
+
+    // Partials hold disjoint id ranges, each key's posting list is a k-way merge of their sorted runs. Keys are
+    // merged & packed in parallel on the pool when there is one.
+    public static <T> void flush(final InvertedIndex<T> invertedIndex,
+            final List<BulkPostingSink<T>> partials,
+            final ForkJoinPool pool) {
+        partials.stream()
+                .map(BulkPostingSink::getPostings)
+                .flatMap(postings -> postings.keySet()
+                        .stream())
+                .distinct()
+                .forEach(kSize -> {
+                    final Map<Key, PostingList<T>> postingLists = invertedIndex.getTable()
+                            .computeIfAbsent(kSize, x -> Maps.newConcurrentMap());
+                    final List<Map<Key, List<Pair<Integer, T>>>> tables = partials.stream()
+                            .map(partial -> partial.getPostings()
+                                    .getOrDefault(kSize, Collections.emptyMap()))
+                            .collect(Collectors.toList());
+                    final List<Key> keys = tables.stream()
+                            .flatMap(table -> table.keySet()
+                                    .stream())
+                            .distinct()
+                            .collect(Collectors.toList());
+                    final Consumer<Key> pack = key -> {
+                        final List<Pair<Integer, T>> merged = new ArrayList<>();
+                        merge(tables.stream()
+                                .map(table -> table.getOrDefault(key, Collections.emptyList()))
+                                .collect(Collectors.toList()),
+                                Comparator.comparing(Pair::getLeft),
+                                entry -> {
+                                    // Equal ids come out next to each other, the last one wins.
+                                    if (!merged.isEmpty() && merged.get(merged.size() - 1)
+                                            .getLeft()
+                                            .equals(entry.getLeft())) {
+                                        merged.set(merged.size() - 1, entry);
+                                    } else {
+                                        merged.add(entry);
+                                    }
+                                });
+                        // Lists are laid out whole straight off the merge, frequent keys get packed right away.
+                        final PostingList<T> postingList = postingLists.get(key);
+                        postingLists.put(key,
+                                Objects.isNull(postingList) ? PostingList.of(invertedIndex.getCodec(), merged)
+                                        : postingList.addAll(toMap(merged)));
+                    };
+                    if (Objects.isNull(pool) || keys.size() < 2) {
+                        keys.forEach(pack);
+                    } else {
+                        pool.submit(() -> keys.parallelStream()
+                                .forEach(pack))
+                                .join();
+                    }
+                });
+        partials.forEach(partial -> partial.getPostings()
+                .clear());
+    }
+
+    private static <T> NavigableMap<Integer, T> toMap(final List<Pair<Integer, T>> entries) {
+        final NavigableMap<Integer, T> map = new TreeMap<>();
+        entries.forEach(entry -> map.put(entry.getLeft(), entry.getRight()));
+        return map;
+    }
+
+    private static <E> void merge(final List<List<E>> runs,
+            final Comparator<E> comparator,
+            final Consumer<E> consumer) {
+        // Runs are sorted stably first, so that among equal entries of a run the last one still wins.
+        runs.forEach(run -> run.sort(comparator));
+        final PriorityQueue<MutablePair<Integer, Integer>> cursors = new PriorityQueue<>(
+                Comparator.<MutablePair<Integer, Integer>, E>comparing(cursor -> runs.get(cursor.getLeft())
+                        .get(cursor.getRight()), comparator)
+                        .thenComparing(MutablePair::getLeft));
+        IntStream.range(0, runs.size())
+                .filter(run -> !runs.get(run)
+                        .isEmpty())
+                .forEach(run -> cursors.add(MutablePair.of(run, 0)));
+        while (!cursors.isEmpty()) {
+            final MutablePair<Integer, Integer> cursor = cursors.poll();
+            final List<E> run = runs.get(cursor.getLeft());
+            consumer.accept(run.get(cursor.getRight()));
+            if (cursor.getRight() + 1 < run.size()) {
+                cursor.setRight(cursor.getRight() + 1);
+                cursors.add(cursor);
+            }
+        }
+    }
+}
@@ -17,26 +17,24 @@
 package com.phonepe.mustang.index.builder;
 
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 
-import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.tuple.Pair;
 
-import com.google.common.collect.Sets;
 import com.phonepe.mustang.composition.impl.Disjunction;
 import com.phonepe.mustang.criteria.impl.CNFCriteria;
 import com.phonepe.mustang.detail.Caveat;
 import com.phonepe.mustang.index.core.DisjunctionPostingEntry;
 import com.phonepe.mustang.index.core.Key;
+import com.phonepe.mustang.index.core.OrderSlots;
 import com.phonepe.mustang.index.core.impl.CNFInvertedIndex;
 import com.phonepe.mustang.index.entry.extractor.CNFPostingListsExtractor;
 import com.phonepe.mustang.index.group.IndexGroup;
@@ -50,27 +48,6 @@ import lombok.Data;
 @Builder
 public class CNFIndexer {
     public static final String ZERO_SIZE_DISJUNCTION_ENTRY_KEYNAME = "ZZZ";
-    private static final Comparator<TreeMap<Integer, DisjunctionPostingEntry>> ID_COMPARATOR = (e1,
-            e2) -> (ObjectUtils.compare(e1.firstEntry()
-                    .getValue()
-                    .getIId(),
-                    e2.firstEntry()
-                            .getValue()
-                            .getIId()));
-    private static final Comparator<TreeMap<Integer, DisjunctionPostingEntry>> TYPE_COMPARATOR = (e1,
-            e2) -> (ObjectUtils.compare(e1.firstEntry()
-                    .getValue()
-                    .getType(),
-                    e2.firstEntry()
-                            .getValue()
-                            .getType()));
-    private static final Comparator<TreeMap<Integer, DisjunctionPostingEntry>> ORDER_COMPARATOR = (e1,
-            e2) -> (ObjectUtils.compare(e1.firstEntry()
-                    .getValue()
-                    .getOrder(),
-                    e2.firstEntry()
-                            .getValue()
-                            .getOrder()));
     @NotNull
     private final CNFCriteria criteria;
     @Valid
@@ -78,6 +55,9 @@ public class CNFIndexer {
     private final IndexGroup indexGroup;
     @NotNull
     private final IndexOperation operation;
+    private final long version;
+    @NotNull
+    private final PostingSink<DisjunctionPostingEntry> sink;
 
     public void index() {
         final int disjunctionSize = criteria.getDisjunctions()
@@ -87,21 +67,18 @@ public class CNFIndexer {
         final Pair<Boolean, Integer> operationMeta = operation
                 .accept(new IndexOperationMetaExtractor(cnfInvertedIndex, criteria.getId()));
         final Integer internalId = operationMeta.getRight();
-        final Map<Integer, Map<Key, TreeMap<Integer, DisjunctionPostingEntry>>> indexTable = cnfInvertedIndex
-                .getTable();
+        final AtomicInteger postings = new AtomicInteger(0);
 
         if (Boolean.TRUE.equals(operationMeta.getLeft())) {
-            final Integer[] disjunctionCounter = disjunctionCounters.computeIfAbsent(internalId,
-                    x -> new Integer[disjunctionSize]);
+            final Integer[] disjunctionCounter = new Integer[disjunctionSize];
             final int kSize = criteria.getDisjunctions()
                     .stream()
                     .filter(disjunction -> !isDisjunctionWithExcludedPredicate(disjunction))
                     .mapToInt(e -> 1)
                     .sum();
 
-            cnfInvertedIndex.getLinkages()
-                    .computeIfAbsent(kSize, x -> Sets.newTreeSet())
-                    .add(internalId);
+            // A fresh internal id only ever competes with its own earlier disjunctions for key slots.
+            final OrderSlots orderSlots = new OrderSlots();
 
             IntStream.range(0, disjunctionSize)
                     .boxed()
@@ -113,22 +90,22 @@ public class CNFIndexer {
                                 .stream()
                                 .map(predicate -> predicate.accept(CNFPostingListsExtractor.builder()
                                         .iId(internalId)
-                                        .eId(criteria.getId())
                                         .order(i)
-                                        .postingLists(indexTable.getOrDefault(kSize, Collections.emptyMap()))
+                                        .orderSlots(orderSlots)
                                         .cnfKeyFrequency(indexGroup.getCnfKeyFrequency())
+                                        .keyDictionary(indexGroup.getKeyDictionary())
                                         .allPaths(indexGroup.getAllPaths())
                                         .build()))
                                 .collect(Collectors.toList());
 
                         if (kSize == 0) {
                             // Zero size handling
-                            final Key key = Key.builder()
-                                    .name(ZERO_SIZE_DISJUNCTION_ENTRY_KEYNAME)
-                                    .caveat(Caveat.NONE)
-                                    .value(0)
-                                    .upperBoundScore(0)
-                                    .build();
+                            final Key key = indexGroup.getKeyDictionary()
+                                    .intern(Key.builder()
+                                            .name(ZERO_SIZE_DISJUNCTION_ENTRY_KEYNAME)
+                                            .caveat(Caveat.NONE)
+                                            .value(0)
+                                            .build());
                             final Map<Key, TreeMap<Integer, DisjunctionPostingEntry>> zPostingLists = postingLists
                                     .stream()
                                     .flatMap(m -> m.entrySet()
@@ -140,7 +117,6 @@ public class CNFIndexer {
                                     .distinct()
                                     .map(entry -> DisjunctionPostingEntry.builder()
                                             .iId(entry.getIId())
-                                            .eId(entry.getEId())
                                             .type(PredicateType.INCLUDED)
                                             .order(-1)
                                             .score(0)
@@ -156,24 +132,20 @@ public class CNFIndexer {
                             postingLists.add(zPostingLists);
                         }
 
-                        postingLists.add(indexTable.getOrDefault(kSize, Collections.emptyMap()));
-                        indexTable.put(kSize, CriteriaIndexBuilder.compactPostingLists(postingLists));
+                        postings.addAndGet(CriteriaIndexBuilder.countPostings(postingLists));
+                        sink.add(kSize, postingLists);
+                        postingLists.forEach(m -> m.keySet()
+                                .forEach(key -> orderSlots.occupy(key, internalId)));
                         disjunctionCounter[i] = getExcludedPredicateCountFromDisjunction(disjunction);
                     });
+            // Publish counters only once they are complete, readers may be walking the postings already.
+            disjunctionCounters.put(internalId, disjunctionCounter);
         }
+        cnfInvertedIndex.activate(criteria.getId(),
+                Boolean.TRUE.equals(operationMeta.getLeft()) ? Collections.singletonMap(internalId, postings.get())
+                        : Collections.emptyMap(),
+                version);
 
-        // Keep the index sorted.
-        indexTable.entrySet()
-                .forEach(x -> x.setValue(sortPostingLists(x.getValue())));
-    }
-
-    private LinkedHashMap<Key, TreeMap<Integer, DisjunctionPostingEntry>> sortPostingLists(
-            Map<Key, TreeMap<Integer, DisjunctionPostingEntry>> map) {
-        return map.entrySet()
-                .stream()
-                .sorted(Map.Entry.comparingByValue(ID_COMPARATOR.thenComparing(TYPE_COMPARATOR)
-                        .thenComparing(ORDER_COMPARATOR)))
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (o, n) -> n, LinkedHashMap::new));
     }
 
     private boolean isDisjunctionWithExcludedPredicate(Disjunction disjunction) {
@@ -202,7 +174,7 @@ public class CNFIndexer {
 
         @Override
         public Pair<Boolean, Integer> visitAdd() {
-            return Pair.of(true, cnfInvertedIndex.getInternalIdFromCache(criteriaId));
+            return Pair.of(true, cnfInvertedIndex.getUnusedInternalIdFromCache(criteriaId));
         }
 
         @Override
@@ -16,21 +16,23 @@
  */
 package com.phonepe.mustang.index.builder;
 
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.TreeMap;
-import java.util.stream.Collectors;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 
+import com.phonepe.mustang.criteria.Criteria;
 import com.phonepe.mustang.criteria.CriteriaVisitor;
 import com.phonepe.mustang.criteria.impl.CNFCriteria;
 import com.phonepe.mustang.criteria.impl.DNFCriteria;
 import com.phonepe.mustang.criteria.tautology.CNFTautologicalCriteria;
 import com.phonepe.mustang.criteria.tautology.DNFTautologicalCriteria;
+import com.phonepe.mustang.index.core.ConjunctionPostingEntry;
+import com.phonepe.mustang.index.core.DisjunctionPostingEntry;
 import com.phonepe.mustang.index.group.IndexGroup;
 import com.phonepe.mustang.index.operation.IndexOperation;
 
@@ -45,18 +47,28 @@ public class CriteriaIndexBuilder implements CriteriaVisitor<Void> {
     private IndexGroup indexGroup;
     @NotNull
     private IndexOperation operation;
+    private long version;
+    private PostingSink<ConjunctionPostingEntry> dnfSink;
+    private PostingSink<DisjunctionPostingEntry> cnfSink;
 
     @Override
     public Void visit(DNFCriteria dnf) {
-        if (dnf instanceof DNFTautologicalCriteria || dnf.getConjunctions()
-                .isEmpty()) {
-            indexGroup.getTautologicalCriterias()
-                    .put(dnf.getId(), dnf);
+        // A criteria may switch forms across versions, the other form must not keep serving it.
+        indexGroup.getCnfInvertedIndex()
+                .retire(dnf.getId(), version);
+        if (isTautology(dnf)) {
+            indexGroup.getDnfInvertedIndex()
+                    .retire(dnf.getId(), version);
+            indexTautology(dnf);
         } else {
+            indexGroup.getTautologicalCriterias()
+                    .remove(dnf.getId());
             final DNFIndexer dnfIndexer = DNFIndexer.builder()
                     .criteria(dnf)
                     .indexGroup(indexGroup)
                     .operation(operation)
+                    .version(version)
+                    .sink(Objects.nonNull(dnfSink) ? dnfSink : new LivePostingSink<>(indexGroup.getDnfInvertedIndex()))
                     .build();
             dnfIndexer.index();
         }
@@ -65,31 +77,53 @@ public class CriteriaIndexBuilder implements CriteriaVisitor<Void> {
 
     @Override
     public Void visit(CNFCriteria cnf) {
-        if (cnf instanceof CNFTautologicalCriteria || cnf.getDisjunctions()
-                .isEmpty()) {
-            indexGroup.getTautologicalCriterias()
-                    .put(cnf.getId(), cnf);
+        indexGroup.getDnfInvertedIndex()
+                .retire(cnf.getId(), version);
+        if (isTautology(cnf)) {
+            indexGroup.getCnfInvertedIndex()
+                    .retire(cnf.getId(), version);
+            indexTautology(cnf);
         } else {
+            indexGroup.getTautologicalCriterias()
+                    .remove(cnf.getId());
             final CNFIndexer cnfIndexer = CNFIndexer.builder()
                     .criteria(cnf)
                     .indexGroup(indexGroup)
                     .operation(operation)
+                    .version(version)
+                    .sink(Objects.nonNull(cnfSink) ? cnfSink : new LivePostingSink<>(indexGroup.getCnfInvertedIndex()))
                     .build();
             cnfIndexer.index();
         }
         return null;
     }
 
-    public static <T, S> Map<T, TreeMap<Integer, S>> compactPostingLists(List<Map<T, TreeMap<Integer, S>>> maps) {
-        final List<Map.Entry<T, TreeMap<Integer, S>>> tempResult = maps.stream()
-                .collect(ArrayList::new, (set, map) -> set.addAll(map.entrySet()), (set1, set2) -> set1.addAll(set2));
-        return tempResult.stream()
-                .collect(Collectors.groupingBy(Map.Entry::getKey, LinkedHashMap::new,
-                    Collectors.mapping(Map.Entry::getValue, Collectors.reducing(new TreeMap<>(), (s1, s2) -> {
-                        final TreeMap<Integer, S> combined = new TreeMap<>(s1);
-                        combined.putAll(s2);
-                        return combined;
-                    }))));
+    private void indexTautology(final Criteria criteria) {
+        if (IndexOperation.DELETE.equals(operation)) {
+            indexGroup.getTautologicalCriterias()
+                    .remove(criteria.getId());
+        } else {
+            indexGroup.getTautologicalCriterias()
+                    .put(criteria.getId(), criteria);
+        }
+    }
+
+    public static boolean isTautology(final DNFCriteria dnf) {
+        return dnf instanceof DNFTautologicalCriteria || dnf.getConjunctions()
+                .isEmpty();
+    }
+
+    public static boolean isTautology(final CNFCriteria cnf) {
+        return cnf instanceof CNFTautologicalCriteria || cnf.getDisjunctions()
+                .isEmpty();
+    }
+
+    public static <T, S> int countPostings(List<Map<T, TreeMap<Integer, S>>> maps) {
+        return (int) maps.stream()
+                .map(Map::keySet)
+                .flatMap(Set::stream)
+                .distinct()
+                .count();
     }
 
 }
@@ -16,12 +16,8 @@
  */
 package com.phonepe.mustang.index.builder;
 
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.TreeMap;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -29,10 +25,9 @@ import java.util.stream.IntStream;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 
-import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.tuple.Pair;
 
-import com.google.common.collect.Sets;
+import com.google.common.collect.Maps;
 import com.phonepe.mustang.composition.impl.Conjunction;
 import com.phonepe.mustang.criteria.impl.DNFCriteria;
 import com.phonepe.mustang.detail.Caveat;
@@ -51,13 +46,7 @@ import lombok.Data;
 @Builder
 public class DNFIndexer {
     public static final String ZERO_SIZE_CONJUNCTION_ENTRY_KEYNAME = "ZZZ";
-    private static final String CONJUNCTION_ENTRY_ID_FORMAT = "%s#%s";
-    private static final Comparator<TreeMap<Integer, ConjunctionPostingEntry>> POSTING_ENTRY_COMPARATOR = (e1,
-            e2) -> (ObjectUtils.compare(e1.firstEntry()
-                    .getValue(),
-                    e2.firstEntry()
-                            .getValue(),
-                    true));
+    static final String CONJUNCTION_ENTRY_ID_FORMAT = "%s#%s";
     @NotNull
     private final DNFCriteria criteria;
     @Valid
@@ -65,12 +54,13 @@ public class DNFIndexer {
     private final IndexGroup indexGroup;
     @NotNull
     private final IndexOperation operation;
+    private final long version;
+    @NotNull
+    private final PostingSink<ConjunctionPostingEntry> sink;
 
     public void index() {
         final DNFInvertedIndex<ConjunctionPostingEntry> dnfInvertedIndex = indexGroup.getDnfInvertedIndex();
-        final Map<Integer, Map<Key, TreeMap<Integer, ConjunctionPostingEntry>>> indexTable = dnfInvertedIndex
-                .getTable();
-        final Set<Integer> newIIds = Sets.newHashSet();
+        final Map<Integer, Integer> newIIds = Maps.newHashMap();
 
         IntStream.range(0,
                 criteria.getConjunctions()
@@ -83,7 +73,6 @@ public class DNFIndexer {
                             .accept(new IndexOperationMetaExtractor(dnfInvertedIndex,
                                     String.format(CONJUNCTION_ENTRY_ID_FORMAT, criteria.getId(), j)));
                     final Integer iId = operationMeta.getRight();
-                    newIIds.add(iId);
                     if (Boolean.TRUE.equals(operationMeta.getLeft())) {
                         final int kSize = conjunction.getPredicates()
                                 .stream()
@@ -91,29 +80,25 @@ public class DNFIndexer {
                                 .mapToInt(e -> 1)
                                 .sum();
 
-                        dnfInvertedIndex.getLinkages()
-                                .computeIfAbsent(kSize, x -> Sets.newTreeSet())
-                                .add(iId);
-
                         final List<Map<Key, TreeMap<Integer, ConjunctionPostingEntry>>> postingLists = conjunction
                                 .getPredicates()
                                 .stream()
                                 .map(predicate -> predicate.accept(DNFPostingListsExtractor.builder()
                                         .iId(iId)
-                                        .eId(criteria.getId())
                                         .dnfKeyFrequency(indexGroup.getDnfKeyFrequency())
+                                        .keyDictionary(indexGroup.getKeyDictionary())
                                         .allPaths(indexGroup.getAllPaths())
                                         .build()))
                                 .collect(Collectors.toList());
 
                         if (kSize == 0) {
                             // ZERO size handling
-                            final Key key = Key.builder()
-                                    .name(ZERO_SIZE_CONJUNCTION_ENTRY_KEYNAME)
-                                    .caveat(Caveat.NONE)
-                                    .value(0)
-                                    .upperBoundScore(0)
-                                    .build();
+                            final Key key = indexGroup.getKeyDictionary()
+                                    .intern(Key.builder()
+                                            .name(ZERO_SIZE_CONJUNCTION_ENTRY_KEYNAME)
+                                            .caveat(Caveat.NONE)
+                                            .value(0)
+                                            .build());
                             final Map<Key, TreeMap<Integer, ConjunctionPostingEntry>> zPostingLists = postingLists
                                     .stream()
                                     .flatMap(m -> m.entrySet()
@@ -125,7 +110,6 @@ public class DNFIndexer {
                                     .distinct()
                                     .map(entry -> ConjunctionPostingEntry.builder()
                                             .iId(entry.getIId())
-                                            .eId(entry.getEId())
                                             .type(PredicateType.INCLUDED)
                                             .score(0)
                                             .build())
@@ -140,26 +124,12 @@ public class DNFIndexer {
                             postingLists.add(zPostingLists);
                         }
 
-                        postingLists.add(indexTable.getOrDefault(kSize, Collections.emptyMap()));
-                        indexTable.put(kSize, CriteriaIndexBuilder.compactPostingLists(postingLists));
+                        newIIds.put(iId, CriteriaIndexBuilder.countPostings(postingLists));
+                        sink.add(kSize, postingLists);
                     }
                 });
 
-        dnfInvertedIndex.getActiveIds()
-                .put(criteria.getId(), newIIds);
-
-        // Keep the index sorted.
-        indexTable.entrySet()
-                .forEach(x -> x.setValue(sortPostingLists(x.getValue())));
-    }
-
-    private LinkedHashMap<Key, TreeMap<Integer, ConjunctionPostingEntry>> sortPostingLists(
-            Map<Key, TreeMap<Integer, ConjunctionPostingEntry>> map) {
-        return map.entrySet()
-                .stream()
-                .sorted(Map.Entry.comparingByValue(POSTING_ENTRY_COMPARATOR))
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (o, n) -> n, LinkedHashMap::new));
-
+        dnfInvertedIndex.activate(criteria.getId(), newIIds, version);
     }
 
     private static class IndexOperationMetaExtractor implements IndexOperation.Visitor<Pair<Boolean, Integer>> {
@@ -174,7 +144,7 @@ public class DNFIndexer {
 
         @Override
         public Pair<Boolean, Integer> visitAdd() {
-            return Pair.of(true, cnfInvertedIndex.getInternalIdFromCache(conjunctionId));
+            return Pair.of(true, cnfInvertedIndex.getUnusedInternalIdFromCache(conjunctionId));
         }
 
         @Override
@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.builder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import com.google.common.collect.Maps;
+import com.phonepe.mustang.index.core.InvertedIndex;
+import com.phonepe.mustang.index.core.Key;
+import com.phonepe.mustang.index.core.posting.PostingList;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class LivePostingSink<T> implements PostingSink<T> {
+    private final InvertedIndex<T> invertedIndex;
+
+    // Postings go straight into the live posting lists, readers only pick them up once the id is activated.
+    @Override
+    public void add(final int kSize, final List<Map<Key, TreeMap<Integer, T>>> postingLists) {
+        final Map<Key, PostingList<T>> table = invertedIndex.getTable()
+                .computeIfAbsent(kSize, x -> Maps.newConcurrentMap());
+        postingLists.forEach(map -> map.forEach((key, postingList) -> {
+            final PostingList<T> current = table.get(key);
+            if (Objects.isNull(current)) {
+                table.put(key, PostingList.of(invertedIndex.getCodec(), postingList));
+                return;
+            }
+            final PostingList<T> grown = current.addAll(postingList);
+            if (grown != current) {
+                // The list got repacked, searches in flight keep walking the one they started with.
+                table.put(key, grown);
+            }
+        }));
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.compaction;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.phonepe.mustang.index.core.ConjunctionPostingEntry;
+import com.phonepe.mustang.index.core.DisjunctionPostingEntry;
+import com.phonepe.mustang.index.core.InvertedIndex;
+import com.phonepe.mustang.index.core.Key;
+import com.phonepe.mustang.index.core.Lifespan;
+import com.phonepe.mustang.index.core.posting.PostingList;
+import com.phonepe.mustang.index.group.IndexGroup;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class IdRemapper {
+    private static final double SPARSE_DENSITY_THRESHOLD = 0.5;
+    private static final int MIN_ID_SPACE = 1024;
+    @Valid
+    @NotNull
+    private final IndexGroup indexGroup;
+
+    // Checked on every write, so only the id counters & live bitmap cardinalities are looked at.
+    public boolean isSparse() {
+        final long idSpace = indexGroup.getDnfInvertedIndex()
+                .getIdCounter()
+                .get()
+                + indexGroup.getCnfInvertedIndex()
+                        .getIdCounter()
+                        .get();
+        final long liveIds = indexGroup.getDnfInvertedIndex()
+                .getLiveIds()
+                .cardinality()
+                + indexGroup.getCnfInvertedIndex()
+                        .getLiveIds()
+                        .cardinality();
+        return idSpace >= MIN_ID_SPACE && liveIds < idSpace * SPARSE_DENSITY_THRESHOLD;
+    }
+
+    // Renumbering rewrites every posting, so it is done on a fresh copy of the group which is then swapped in.
+    // Readers already walking (or pinned to) the current group carry on with it undisturbed.
+    public IndexGroup remap() {
+        final IndexGroup remapped = IndexGroup.builder()
+                .name(indexGroup.getName())
+                .ratificationResult(indexGroup.getRatificationResult())
+                .build();
+        remapped.getAllCriterias()
+                .putAll(indexGroup.getAllCriterias());
+        remapped.getTautologicalCriterias()
+                .putAll(indexGroup.getTautologicalCriterias());
+        remapped.getAllPaths()
+                .putAll(indexGroup.getAllPaths());
+        remapped.getKeyDictionary()
+                .putAll(indexGroup.getKeyDictionary());
+        remapped.getSegments()
+                .addAll(indexGroup.getSegments());
+        copyKeyFrequency(indexGroup.getDnfKeyFrequency(), remapped.getDnfKeyFrequency());
+        copyKeyFrequency(indexGroup.getCnfKeyFrequency(), remapped.getCnfKeyFrequency());
+        remapped.getVersions()
+                .publish(indexGroup.getVersions()
+                        .getVersion());
+        remapped.getLastCompactedVersion()
+                .set(indexGroup.getVersions()
+                        .getVersion());
+
+        remap(indexGroup.getDnfInvertedIndex(),
+                remapped.getDnfInvertedIndex(),
+                remapped.getDnfKeyFrequency(),
+                UnaryOperator.identity(),
+                (entry, iId) -> ConjunctionPostingEntry.builder()
+                        .iId(iId)
+                        .type(entry.getType())
+                        .score(entry.getScore())
+                        .build());
+        final Map<Integer, Integer> cnfIds = remap(indexGroup.getCnfInvertedIndex(),
+                remapped.getCnfInvertedIndex(),
+                remapped.getCnfKeyFrequency(),
+                IndexCompactor::baseKey,
+                (entry, iId) -> DisjunctionPostingEntry.builder()
+                        .iId(iId)
+                        .type(entry.getType())
+                        .order(entry.getOrder())
+                        .score(entry.getScore())
+                        .build());
+        cnfIds.forEach((oldId, newId) -> remapped.getCnfInvertedIndex()
+                .getDisjunctionCounters()
+                .put(newId,
+                        indexGroup.getCnfInvertedIndex()
+                                .getDisjunctionCounters()
+                                .get(oldId)));
+        return remapped;
+    }
+
+    private <T> Map<Integer, Integer> remap(final InvertedIndex<T> source,
+            final InvertedIndex<T> target,
+            final Map<Key, AtomicInteger> keyFrequency,
+            final UnaryOperator<Key> frequencyKey,
+            final BiFunction<T, Integer, T> renumber) {
+        // Live ids keep their relative order, so posting lists stay sorted the same way.
+        final List<Integer> liveIds = source.getLifespans()
+                .ids()
+                .filter(iId -> source.getLifespans()
+                        .get(iId)
+                        .getDiedAt() == Lifespan.ALIVE)
+                .boxed()
+                .collect(Collectors.toList());
+        // The id allocator never hands out 0, the dense ids follow suit and run from 1 to N.
+        final Map<Integer, Integer> ids = IntStream.range(0, liveIds.size())
+                .boxed()
+                .collect(Collectors.toMap(liveIds::get, i -> i + 1));
+
+        source.getTable()
+                .forEach((kSize, postingLists) -> {
+                    final Map<Key, PostingList<T>> remapped = Maps.newConcurrentMap();
+                    postingLists.forEach((key, postingList) -> {
+                        final NavigableMap<Integer, T> live = new TreeMap<>();
+                        postingList.forEach((iId, entry) -> {
+                            final Integer newId = ids.get(iId);
+                            if (Objects.nonNull(newId)) {
+                                live.put(newId, renumber.apply(entry, newId));
+                            }
+                        });
+                        IndexCompactor.release(keyFrequency, frequencyKey.apply(key), postingList.size() - live.size());
+                        if (!live.isEmpty()) {
+                            remapped.put(key, PostingList.of(target.getCodec(), live));
+                        }
+                    });
+                    if (!remapped.isEmpty()) {
+                        target.getTable()
+                                .put(kSize, remapped);
+                    }
+                });
+        source.getActiveIds()
+                .forEach((externalId, iIds) -> {
+                    final List<Integer> remapped = iIds.stream()
+                            .map(ids::get)
+                            .filter(Objects::nonNull)
+                            .collect(Collectors.toList());
+                    if (!remapped.isEmpty()) {
+                        final PriorityQueue<Integer> queue = new PriorityQueue<>(Comparator.reverseOrder());
+                        queue.addAll(remapped);
+                        target.getIdCache()
+                                .put(externalId, queue);
+                        target.getActiveIds()
+                                .put(externalId, Sets.newHashSet(remapped));
+                    }
+                });
+        ids.forEach((oldId, newId) -> {
+            final Lifespan lifespan = source.getLifespans()
+                    .get(oldId);
+            target.getLifespans()
+                    .put(newId, new Lifespan(lifespan.getBornAt(), lifespan.getPostings()));
+            target.getExternalIds()
+                    .put(newId, source.getExternalId(oldId));
+            target.getLiveIds()
+                    .set(newId);
+            target.getPostingCount()
+                    .addAndGet(lifespan.getPostings());
+        });
+        target.getIdCounter()
+                .set(ids.size());
+        return ids;
+    }
+
+    private static void copyKeyFrequency(final Map<Key, AtomicInteger> source, final Map<Key, AtomicInteger> target) {
+        source.forEach((key, frequency) -> target.put(key, new AtomicInteger(frequency.get())));
+    }
+
+}
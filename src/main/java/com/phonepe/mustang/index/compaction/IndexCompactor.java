@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.compaction;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+import com.phonepe.mustang.index.core.InvertedIndex;
+import com.phonepe.mustang.index.core.Key;
+import com.phonepe.mustang.index.core.posting.PostingList;
+import com.phonepe.mustang.index.group.IndexGroup;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class IndexCompactor {
+    private static final double STALE_RATIO_THRESHOLD = 0.25;
+    private static final long MIN_STALE_POSTINGS = 1024;
+    @Valid
+    @NotNull
+    private final IndexGroup indexGroup;
+
+    public boolean compactIfStale() {
+        if (!isStale()) {
+            return false;
+        }
+        compact();
+        return true;
+    }
+
+    // Checked on every write, so only the counters kept up to date by the inverted indexes are looked at.
+    public boolean isStale() {
+        final long postings = indexGroup.getDnfInvertedIndex()
+                .getPostingCount()
+                .get()
+                + indexGroup.getCnfInvertedIndex()
+                        .getPostingCount()
+                        .get();
+        final long stalePostings = indexGroup.getDnfInvertedIndex()
+                .getStalePostingCount()
+                .get()
+                + indexGroup.getCnfInvertedIndex()
+                        .getStalePostingCount()
+                        .get();
+        if (stalePostings < MIN_STALE_POSTINGS || postings == 0
+                || (double) stalePostings / postings < STALE_RATIO_THRESHOLD) {
+            return false;
+        }
+        // Nothing new can be reclaimed until the oldest pinned reader moves past the previous run.
+        return getHorizon() > indexGroup.getLastCompactedVersion()
+                .get();
+    }
+
+    public int compact() {
+        final long horizon = getHorizon();
+        final Set<Integer> dnfReclaimed = compact(indexGroup.getDnfInvertedIndex(),
+                indexGroup.getDnfKeyFrequency(),
+                UnaryOperator.identity(),
+                horizon);
+        final Set<Integer> cnfReclaimed = compact(indexGroup.getCnfInvertedIndex(),
+                indexGroup.getCnfKeyFrequency(),
+                IndexCompactor::baseKey,
+                horizon);
+        indexGroup.getCnfInvertedIndex()
+                .getDisjunctionCounters()
+                .keySet()
+                .removeAll(cnfReclaimed);
+        indexGroup.getLastCompactedVersion()
+                .accumulateAndGet(horizon, Math::max);
+        return dnfReclaimed.size() + cnfReclaimed.size();
+    }
+
+    private long getHorizon() {
+        // Ids that died at or before the oldest pinned version are invisible to every reader.
+        return indexGroup.getVersions()
+                .oldestVisibleVersion();
+    }
+
+    private <T> Set<Integer> compact(final InvertedIndex<T> invertedIndex,
+            final Map<Key, AtomicInteger> keyFrequency,
+            final UnaryOperator<Key> frequencyKey,
+            final long horizon) {
+        final Set<Integer> reclaimable = invertedIndex.getLifespans()
+                .ids()
+                .filter(iId -> invertedIndex.getLifespans()
+                        .get(iId)
+                        .getDiedAt() <= horizon)
+                .boxed()
+                .collect(Collectors.toSet());
+        if (reclaimable.isEmpty()) {
+            return reclaimable;
+        }
+        // Posting lists are swapped copy-on-write, searches in flight keep walking the lists they started with.
+        invertedIndex.getTable()
+                .values()
+                .forEach(postingLists -> compactPostingLists(postingLists, reclaimable, keyFrequency, frequencyKey));
+        invertedIndex.getTable()
+                .values()
+                .removeIf(Map::isEmpty);
+        invertedIndex.reclaim(reclaimable);
+        return reclaimable;
+    }
+
+    private <T> void compactPostingLists(final Map<Key, PostingList<T>> postingLists,
+            final Set<Integer> reclaimable,
+            final Map<Key, AtomicInteger> keyFrequency,
+            final UnaryOperator<Key> frequencyKey) {
+        postingLists.entrySet()
+                .forEach(entry -> {
+                    final PostingList<T> postingList = entry.getValue();
+                    final PostingList<T> live = postingList.removeAll(reclaimable);
+                    if (live != postingList) {
+                        release(keyFrequency, frequencyKey.apply(entry.getKey()), postingList.size() - live.size());
+                        entry.setValue(live);
+                    }
+                });
+        postingLists.values()
+                .removeIf(PostingList::isEmpty);
+    }
+
+    static Key baseKey(final Key key) {
+        // CNF key frequencies are tracked without the order slot.
+        return Key.builder()
+                .name(key.getName())
+                .caveat(key.getCaveat())
+                .value(key.getValue())
+                .attrId(key.getAttrId())
+                .valueId(key.getValueId())
+                .build();
+    }
+
+    static void release(final Map<Key, AtomicInteger> keyFrequency, final Key key, final int removed) {
+        if (removed > 0) {
+            keyFrequency.computeIfPresent(key,
+                    (x, frequency) -> frequency.addAndGet(-removed) > 0 ? frequency : null);
+        }
+    }
+
+}
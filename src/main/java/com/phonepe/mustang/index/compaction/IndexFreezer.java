@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.compaction;
+
+import java.util.Map;
+import java.util.Objects;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+import com.google.common.collect.Maps;
+import com.phonepe.mustang.index.core.FrozenTable;
+import com.phonepe.mustang.index.core.InvertedIndex;
+import com.phonepe.mustang.index.core.Key;
+import com.phonepe.mustang.index.core.posting.DirectPostingList;
+import com.phonepe.mustang.index.core.posting.PostingList;
+import com.phonepe.mustang.index.core.posting.PostingStorage;
+import com.phonepe.mustang.index.core.posting.SlabAllocator;
+import com.phonepe.mustang.index.group.IndexGroup;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class IndexFreezer {
+    @Valid
+    @NotNull
+    private final IndexGroup indexGroup;
+    // Posting lists stay on heap unless asked otherwise. Direct storage moves only the posting lists into slabs, the
+    // key dictionary & the frozen tables around them stay on heap.
+    private final PostingStorage storage;
+
+    // Freezing starts off a dense copy of the group, whose posting lists are already fully packed.
+    // Every level of its tables is then laid out read only, and the copy is swapped in like a remapped one.
+    public IndexGroup freeze() {
+        final IndexGroup frozen = IdRemapper.builder()
+                .indexGroup(indexGroup)
+                .build()
+                .remap();
+        if (PostingStorage.DIRECT.equals(storage)) {
+            frozen.setSlabs(new SlabAllocator());
+        }
+        freeze(frozen.getDnfInvertedIndex(), frozen.getSlabs());
+        freeze(frozen.getCnfInvertedIndex(), frozen.getSlabs());
+        frozen.setFrozen(true);
+        return frozen;
+    }
+
+    private static <T> void freeze(final InvertedIndex<T> invertedIndex, final SlabAllocator slabs) {
+        invertedIndex.getTable()
+                .replaceAll((kSize, postingLists) -> {
+                    if (Objects.isNull(slabs)) {
+                        return FrozenTable.of(postingLists);
+                    }
+                    final Map<Key, PostingList<T>> direct = Maps.newHashMap();
+                    postingLists.forEach((key, postingList) -> direct.put(key,
+                            DirectPostingList.pack(slabs, invertedIndex.getCodec(), postingList)));
+                    return FrozenTable.of(direct);
+                });
+    }
+
+}
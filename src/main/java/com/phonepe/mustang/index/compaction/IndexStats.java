@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.compaction;
+
+import java.util.Objects;
+
+import com.phonepe.mustang.index.core.InvertedIndex;
+import com.phonepe.mustang.index.eviction.MemoryEstimator;
+import com.phonepe.mustang.index.group.IndexGroup;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class IndexStats {
+    private final long version;
+    private final int criterias;
+    private final long postings;
+    private final long stalePostings;
+    private final long tombstones;
+    private final double staleRatio;
+    private final long lastCompactedVersion;
+    private final long liveIds;
+    private final long idSpace;
+    private final int segments;
+    private final long offHeapBytes;
+    private final long estimatedBytes;
+
+    public static IndexStats of(final IndexGroup indexGroup) {
+        final InvertedIndex<?> dnf = indexGroup.getDnfInvertedIndex();
+        final InvertedIndex<?> cnf = indexGroup.getCnfInvertedIndex();
+        final long postings = dnf.getPostingCount()
+                .get()
+                + cnf.getPostingCount()
+                        .get();
+        final long stalePostings = dnf.getStalePostingCount()
+                .get()
+                + cnf.getStalePostingCount()
+                        .get();
+        return IndexStats.builder()
+                .version(indexGroup.getVersions()
+                        .getVersion())
+                .criterias(indexGroup.getAllCriterias()
+                        .size())
+                .postings(postings)
+                .stalePostings(stalePostings)
+                .tombstones(dnf.getTombstoneCount()
+                        .get()
+                        + cnf.getTombstoneCount()
+                                .get())
+                .staleRatio(postings == 0 ? 0 : (double) stalePostings / postings)
+                .lastCompactedVersion(indexGroup.getLastCompactedVersion()
+                        .get())
+                .liveIds(dnf.getLiveIds()
+                        .cardinality()
+                        + cnf.getLiveIds()
+                                .cardinality())
+                .idSpace(dnf.getIdCounter()
+                        .get()
+                        + cnf.getIdCounter()
+                                .get())
+                .segments(indexGroup.getSegments()
+                        .size())
+                .offHeapBytes(Objects.isNull(indexGroup.getSlabs()) ? 0
+                        : indexGroup.getSlabs()
+                                .getAllocatedBytes())
+                .estimatedBytes(MemoryEstimator.estimate(indexGroup))
+                .build();
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.compaction;
+
+import java.util.concurrent.ForkJoinPool;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+import com.google.common.collect.Lists;
+import com.phonepe.mustang.index.builder.BulkIndexBuilder;
+import com.phonepe.mustang.index.core.InvertedIndex;
+import com.phonepe.mustang.index.group.IndexGroup;
+
+import lombok.Builder;
+import lombok.Data;
+
+// A segmented index group searches a few frozen base segments along with its own small mutable tables, the delta.
+// Criterias in base segments that get updated or deleted are masked off through the segment's live bitmap.
+@Data
+@Builder
+public class SegmentMerger {
+    private static final long MIN_DELTA_POSTINGS = 4096;
+    private static final double DELTA_RATIO = 0.1;
+    private static final int MAX_SEGMENTS = 4;
+    @Valid
+    @NotNull
+    private final IndexGroup indexGroup;
+    // Merged base segments are rebuilt in parallel on this pool when present.
+    private final ForkJoinPool pool;
+
+    public boolean isDue() {
+        if (indexGroup.getSegments()
+                .isEmpty()) {
+            return false;
+        }
+        final long segmentPostings = indexGroup.getSegments()
+                .stream()
+                .mapToLong(SegmentMerger::postings)
+                .sum();
+        return postings(indexGroup) >= Math.max(MIN_DELTA_POSTINGS, (long) (segmentPostings * DELTA_RATIO));
+    }
+
+    // The delta is frozen into a base segment of its own, and the group carries on with an empty delta.
+    // Once there are too many segments, all of them are merged into a single one instead.
+    public IndexGroup seal() {
+        if (indexGroup.getSegments()
+                .size() >= MAX_SEGMENTS) {
+            return merge();
+        }
+        final IndexGroup segment = IndexFreezer.builder()
+                .indexGroup(indexGroup)
+                .build()
+                .freeze();
+        segment.getSegments()
+                .clear();
+        final IndexGroup sealed = delta(segment.getVersions()
+                .getVersion());
+        sealed.getSegments()
+                .addAll(indexGroup.getSegments());
+        if (!isEmpty(segment)) {
+            sealed.getSegments()
+                    .add(segment);
+        }
+        return sealed;
+    }
+
+    public IndexGroup merge() {
+        final IndexGroup segment = IndexFreezer.builder()
+                .indexGroup(rebuild())
+                .build()
+                .freeze();
+        final IndexGroup merged = delta(segment.getVersions()
+                .getVersion());
+        if (!isEmpty(segment)) {
+            merged.getSegments()
+                    .add(segment);
+        }
+        return merged;
+    }
+
+    // Rebuilds a single unsegmented group out of the criterias of the group; masked postings are left behind.
+    public IndexGroup rebuild() {
+        final IndexGroup rebuilt = BulkIndexBuilder.builder()
+                .name(indexGroup.getName())
+                .criterias(Lists.newArrayList(indexGroup.getAllCriterias()
+                        .values()))
+                .pool(pool)
+                .baseVersion(indexGroup.getVersions()
+                        .getVersion())
+                .build()
+                .build();
+        rebuilt.setRatificationResult(indexGroup.getRatificationResult());
+        return rebuilt;
+    }
+
+    private IndexGroup delta(final long version) {
+        final IndexGroup delta = IndexGroup.builder()
+                .name(indexGroup.getName())
+                .ratificationResult(indexGroup.getRatificationResult())
+                .build();
+        delta.getAllCriterias()
+                .putAll(indexGroup.getAllCriterias());
+        delta.getTautologicalCriterias()
+                .putAll(indexGroup.getTautologicalCriterias());
+        delta.getAllPaths()
+                .putAll(indexGroup.getAllPaths());
+        delta.getVersions()
+                .publish(version);
+        delta.getLastCompactedVersion()
+                .set(version);
+        return delta;
+    }
+
+    private static boolean isEmpty(final IndexGroup segment) {
+        return isEmpty(segment.getDnfInvertedIndex()) && isEmpty(segment.getCnfInvertedIndex());
+    }
+
+    private static boolean isEmpty(final InvertedIndex<?> invertedIndex) {
+        return invertedIndex.getLifespans()
+                .isEmpty();
+    }
+
+    private static long postings(final IndexGroup indexGroup) {
+        return indexGroup.getDnfInvertedIndex()
+                .getPostingCount()
+                .get()
+                + indexGroup.getCnfInvertedIndex()
+                        .getPostingCount()
+                        .get();
+    }
+
+}
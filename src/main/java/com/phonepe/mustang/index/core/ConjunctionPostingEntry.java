@@ -31,7 +31,6 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class ConjunctionPostingEntry implements Comparable<ConjunctionPostingEntry> {
     private Integer iId;
-    private String eId;
     private PredicateType type;
     private long score;
 
@@ -31,7 +31,6 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class DisjunctionPostingEntry implements Comparable<DisjunctionPostingEntry> {
     private Integer iId;
-    private String eId;
     private PredicateType type;
     private int order;
     private long score;
@@ -0,0 +1,191 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.core;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.stream.IntStream;
+
+import com.google.common.collect.Lists;
+import com.phonepe.mustang.detail.Caveat;
+import com.phonepe.mustang.index.core.posting.PostingCursor;
+import com.phonepe.mustang.index.core.posting.PostingList;
+
+// Read only level of an inverted index table, laid out as parallel sorted arrays of keys and posting lists.
+// Equality keys are additionally open addressed on their name and value, so a query hashes straight to them.
+public final class FrozenTable<T> extends AbstractMap<Key, PostingList<T>> {
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparingInt(Key::getAttrId)
+            .thenComparingInt(Key::getValueId)
+            .thenComparing(Key::getCaveat)
+            .thenComparingInt(Key::getOrder);
+    private final Key[] keys;
+    private final PostingList<T>[] postingLists;
+    // Index + 1 of the first key of each equality run, 0 marks an empty slot.
+    private final int[] slots;
+    private final String[] equalityNames;
+    private final int[] scanned;
+
+    @SuppressWarnings("unchecked")
+    private FrozenTable(final Map<Key, PostingList<T>> postingLists) {
+        this.keys = postingLists.keySet()
+                .stream()
+                .sorted(KEY_ORDER)
+                .toArray(Key[]::new);
+        this.postingLists = Arrays.stream(keys)
+                .map(postingLists::get)
+                .toArray(PostingList[]::new);
+        final int[] runs = IntStream.range(0, keys.length)
+                .filter(i -> isEquality(keys[i]) && (i == 0 || !sameRun(keys[i - 1], keys[i])))
+                .toArray();
+        this.slots = new int[Integer.highestOneBit(Math.max(1, runs.length) * 2) << 1];
+        for (final int run : runs) {
+            int slot = hash(keys[run].getName(), keys[run].getValue()) & (slots.length - 1);
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & (slots.length - 1);
+            }
+            slots[slot] = run + 1;
+        }
+        this.equalityNames = Arrays.stream(runs)
+                .mapToObj(run -> keys[run].getName())
+                .distinct()
+                .toArray(String[]::new);
+        this.scanned = IntStream.range(0, keys.length)
+                .filter(i -> !isEquality(keys[i]))
+                .toArray();
+    }
+
+    public static <T> FrozenTable<T> of(final Map<Key, PostingList<T>> postingLists) {
+        return new FrozenTable<>(postingLists);
+    }
+
+    // Cursors over the lists whose keys hold for the given path values; keys other than equality ones are left to
+    // the filter.
+    @SuppressWarnings("unchecked")
+    public PostingCursor<T>[] cursors(final Map<String, Object> pathValues, final BiPredicate<Key, Object> filter) {
+        final List<PostingCursor<T>> cursors = Lists.newArrayList();
+        for (final String name : equalityNames) {
+            final Object value = pathValues.get(name);
+            final int run = Objects.isNull(value) ? -1 : find(name, value);
+            // Orders of the same name & value sit next to each other, all of them hold together.
+            for (int i = run; i >= 0 && i < keys.length && sameRun(keys[run], keys[i]); i++) {
+                cursors.add(postingLists[i].cursor());
+            }
+        }
+        for (final int i : scanned) {
+            if (filter.test(keys[i], pathValues.get(keys[i].getName()))) {
+                cursors.add(postingLists[i].cursor());
+            }
+        }
+        return cursors.toArray(new PostingCursor[cursors.size()]);
+    }
+
+    @Override
+    public PostingList<T> get(final Object key) {
+        final int index = indexOf(key);
+        return index < 0 ? null : postingLists[index];
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public Set<Map.Entry<Key, PostingList<T>>> entrySet() {
+        return new AbstractSet<Map.Entry<Key, PostingList<T>>>() {
+            @Override
+            public Iterator<Map.Entry<Key, PostingList<T>>> iterator() {
+                return new Iterator<Map.Entry<Key, PostingList<T>>>() {
+                    private int index = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < keys.length;
+                    }
+
+                    @Override
+                    public Map.Entry<Key, PostingList<T>> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        final Map.Entry<Key, PostingList<T>> entry = new AbstractMap.SimpleImmutableEntry<>(
+                                keys[index], postingLists[index]);
+                        index++;
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+        };
+    }
+
+    private int find(final String name, final Object value) {
+        int slot = hash(name, value) & (slots.length - 1);
+        while (slots[slot] != 0) {
+            final Key key = keys[slots[slot] - 1];
+            if (key.getName()
+                    .equals(name)
+                    && key.getValue()
+                            .equals(value)) {
+                return slots[slot] - 1;
+            }
+            slot = (slot + 1) & (slots.length - 1);
+        }
+        return -1;
+    }
+
+    private int indexOf(final Object key) {
+        if (!(key instanceof Key)) {
+            return -1;
+        }
+        final int index = Arrays.binarySearch(keys, (Key) key, KEY_ORDER);
+        return index >= 0 && keys[index].equals(key) ? index : -1;
+    }
+
+    private static boolean isEquality(final Key key) {
+        return Caveat.EQUALITY.equals(key.getCaveat());
+    }
+
+    private static boolean sameRun(final Key first, final Key second) {
+        return first.getAttrId() == second.getAttrId() && first.getValueId() == second.getValueId()
+                && first.getCaveat() == second.getCaveat();
+    }
+
+    private static int hash(final String name, final Object value) {
+        final int h = 31 * name.hashCode() + value.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.core;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Bitmap keyed by internal id. Ids may be set concurrently while a group is being built, reads need no locking.
+// Words sit in fixed size pages that never move once allocated, like IdTable's, so that setting & clearing bits
+// is a plain atomic update that no grow can lose; only allocating a page or growing the directory takes a lock.
+public class IdBitmap {
+    private static final int WORD_SHIFT = 6;
+    private static final int PAGE_SHIFT = 4;
+    private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+    private final Object growLock = new Object();
+    private volatile AtomicReferenceArray<AtomicLongArray> pages = new AtomicReferenceArray<>(1);
+    // Bits actually flipped are counted as they go, so that the count never needs the words walked.
+    private final AtomicInteger cardinality = new AtomicInteger(0);
+
+    public boolean get(final int id) {
+        final AtomicLongArray words = existing(id >>> WORD_SHIFT);
+        return Objects.nonNull(words) && (words.get((id >>> WORD_SHIFT) & PAGE_MASK) & (1L << id)) != 0;
+    }
+
+    public void set(final int id) {
+        final int word = id >>> WORD_SHIFT;
+        if ((page(word).getAndAccumulate(word & PAGE_MASK, 1L << id, (x, bit) -> x | bit) & (1L << id)) == 0) {
+            cardinality.incrementAndGet();
+        }
+    }
+
+    public void clear(final int id) {
+        final int word = id >>> WORD_SHIFT;
+        final AtomicLongArray words = existing(word);
+        if (Objects.nonNull(words)
+                && (words.getAndAccumulate(word & PAGE_MASK, ~(1L << id), (x, mask) -> x & mask) & (1L << id)) != 0) {
+            cardinality.decrementAndGet();
+        }
+    }
+
+    public int cardinality() {
+        return cardinality.get();
+    }
+
+    private AtomicLongArray existing(final int word) {
+        final AtomicReferenceArray<AtomicLongArray> current = pages;
+        final int page = word >>> PAGE_SHIFT;
+        return page < current.length() ? current.get(page) : null;
+    }
+
+    private AtomicLongArray page(final int word) {
+        final AtomicLongArray existing = existing(word);
+        if (Objects.nonNull(existing)) {
+            return existing;
+        }
+        final int page = word >>> PAGE_SHIFT;
+        // Pages only come & the directory only grows under the lock, so that neither loses what the other did.
+        synchronized (growLock) {
+            AtomicReferenceArray<AtomicLongArray> directory = pages;
+            if (page >= directory.length()) {
+                final AtomicReferenceArray<AtomicLongArray> grown = new AtomicReferenceArray<>(
+                        Math.max(page + 1, directory.length() << 1));
+                for (int i = 0; i < directory.length(); i++) {
+                    grown.set(i, directory.get(i));
+                }
+                pages = grown;
+                directory = grown;
+            }
+            if (Objects.isNull(directory.get(page))) {
+                directory.set(page, new AtomicLongArray(PAGE_MASK + 1));
+            }
+            return directory.get(page);
+        }
+    }
+}
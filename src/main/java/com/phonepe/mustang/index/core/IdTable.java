@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.core;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.IntStream;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+// Table keyed by internal id. Ids are handed out densely from 1, so values sit in an array indexed by the id
+// rather than in a map of boxed ids. The array is made of fixed size pages that never move once allocated, and
+// growing only copies the page directory; values may be put concurrently while a group is being built, and
+// reads need no locking.
+public class IdTable<T> {
+    private static final int PAGE_SHIFT = 8;
+    private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+    private final Object growLock = new Object();
+    private volatile AtomicReferenceArray<AtomicReferenceArray<T>> pages = new AtomicReferenceArray<>(1);
+    private final AtomicInteger size = new AtomicInteger(0);
+
+    public T get(final int id) {
+        final AtomicReferenceArray<AtomicReferenceArray<T>> current = pages;
+        final int page = id >>> PAGE_SHIFT;
+        if (page >= current.length()) {
+            return null;
+        }
+        final AtomicReferenceArray<T> values = current.get(page);
+        return Objects.isNull(values) ? null : values.get(id & PAGE_MASK);
+    }
+
+    public boolean containsKey(final int id) {
+        return Objects.nonNull(get(id));
+    }
+
+    public T put(final int id, final T value) {
+        final T previous = page(id).getAndSet(id & PAGE_MASK, value);
+        if (Objects.isNull(previous)) {
+            size.incrementAndGet();
+        }
+        return previous;
+    }
+
+    public T putIfAbsent(final int id, final T value) {
+        final AtomicReferenceArray<T> values = page(id);
+        while (true) {
+            if (values.compareAndSet(id & PAGE_MASK, null, value)) {
+                size.incrementAndGet();
+                return null;
+            }
+            final T existing = values.get(id & PAGE_MASK);
+            if (Objects.nonNull(existing)) {
+                return existing;
+            }
+        }
+    }
+
+    public T remove(final int id) {
+        final AtomicReferenceArray<AtomicReferenceArray<T>> current = pages;
+        final int page = id >>> PAGE_SHIFT;
+        if (page >= current.length() || Objects.isNull(current.get(page))) {
+            return null;
+        }
+        final T previous = current.get(page)
+                .getAndSet(id & PAGE_MASK, null);
+        if (Objects.nonNull(previous)) {
+            size.decrementAndGet();
+        }
+        return previous;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    // Ids with a value, in ascending order.
+    public IntStream ids() {
+        return IntStream.range(0, pages.length() << PAGE_SHIFT)
+                .filter(this::containsKey);
+    }
+
+    public void forEach(final ObjIntConsumer<T> action) {
+        ids().forEach(id -> {
+            final T value = get(id);
+            if (Objects.nonNull(value)) {
+                action.accept(value, id);
+            }
+        });
+    }
+
+    @JsonValue
+    public Map<Integer, T> toMap() {
+        final Map<Integer, T> map = new TreeMap<>();
+        forEach((value, id) -> map.put(id, value));
+        return map;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return this == o || o instanceof IdTable && toMap().equals(((IdTable<?>) o).toMap());
+    }
+
+    @Override
+    public int hashCode() {
+        return toMap().hashCode();
+    }
+
+    private AtomicReferenceArray<T> page(final int id) {
+        final int page = id >>> PAGE_SHIFT;
+        final AtomicReferenceArray<AtomicReferenceArray<T>> current = pages;
+        if (page < current.length() && Objects.nonNull(current.get(page))) {
+            return current.get(page);
+        }
+        // Pages only come & the directory only grows under the lock, so that neither loses what the other did.
+        synchronized (growLock) {
+            AtomicReferenceArray<AtomicReferenceArray<T>> directory = pages;
+            if (page >= directory.length()) {
+                final AtomicReferenceArray<AtomicReferenceArray<T>> grown = new AtomicReferenceArray<>(
+                        Math.max(page + 1, directory.length() << 1));
+                for (int i = 0; i < directory.length(); i++) {
+                    grown.set(i, directory.get(i));
+                }
+                pages = grown;
+                directory = grown;
+            }
+            if (Objects.isNull(directory.get(page))) {
+                directory.set(page, new AtomicReferenceArray<>(PAGE_MASK + 1));
+            }
+            return directory.get(page);
+        }
+    }
+}
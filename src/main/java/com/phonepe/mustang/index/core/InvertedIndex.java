@@ -16,17 +16,23 @@
  */
 package com.phonepe.mustang.index.core;
 
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Map;
+import java.util.Objects;
 import java.util.PriorityQueue;
-import java.util.TreeMap;
-import java.util.TreeSet;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.validation.constraints.NotNull;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.phonepe.mustang.criteria.CriteriaForm;
+import com.phonepe.mustang.index.core.posting.PostingCodec;
+import com.phonepe.mustang.index.core.posting.PostingList;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -37,9 +43,18 @@ public abstract class InvertedIndex<T> {
     @NotNull
     private final CriteriaForm form;
     private final AtomicInteger idCounter = new AtomicInteger(0);
-    private final Map<Integer, Map<Key, TreeMap<Integer, T>>> table = Maps.newConcurrentMap();
+    @JsonIgnore
+    private final PostingCodec<T> codec;
+    private final Map<Integer, Map<Key, PostingList<T>>> table = Maps.newConcurrentMap();
     private final Map<String, PriorityQueue<Integer>> idCache = Maps.newConcurrentMap();
-    private final Map<Integer, TreeSet<Integer>> linkages = Maps.newConcurrentMap();
+    private final Map<String, Set<Integer>> activeIds = Maps.newConcurrentMap();
+    private final IdTable<Lifespan> lifespans = new IdTable<>();
+    private final IdTable<String> externalIds = new IdTable<>();
+    @JsonIgnore
+    private final IdBitmap liveIds = new IdBitmap();
+    private final AtomicLong postingCount = new AtomicLong(0);
+    private final AtomicLong stalePostingCount = new AtomicLong(0);
+    private final AtomicLong tombstoneCount = new AtomicLong(0);
 
     public Integer getInternalIdFromCache(final String externalId) {
         return idCache.computeIfAbsent(externalId, x -> {
@@ -57,4 +72,75 @@ public abstract class InvertedIndex<T> {
                 .peek();
     }
 
+    public Integer getUnusedInternalIdFromCache(final String externalId) {
+        final Integer iId = getInternalIdFromCache(externalId);
+        // Ids that were live once keep their old postings around, so they must never be brought back.
+        if (lifespans.containsKey(iId)) {
+            return getNextInternalIdFromCache(externalId);
+        }
+        return iId;
+    }
+
+    public void activate(final String externalId, final Map<Integer, Integer> postings, final long version) {
+        postings.forEach((iId, count) -> {
+            if (Objects.isNull(lifespans.putIfAbsent(iId, new Lifespan(version, count)))) {
+                postingCount.addAndGet(count);
+                externalIds.put(iId, externalId);
+                liveIds.set(iId);
+            }
+        });
+        activeIds.getOrDefault(externalId, Collections.emptySet())
+                .stream()
+                .filter(iId -> !postings.containsKey(iId))
+                .forEach(iId -> {
+                    liveIds.clear(iId);
+                    final Lifespan lifespan = lifespans.get(iId);
+                    if (Objects.nonNull(lifespan)) {
+                        // Postings of a dead id stay back as tombstones until compaction reclaims them.
+                        lifespan.setDiedAt(version);
+                        stalePostingCount.addAndGet(lifespan.getPostings());
+                        tombstoneCount.incrementAndGet();
+                    }
+                });
+        if (postings.isEmpty()) {
+            activeIds.remove(externalId);
+        } else {
+            activeIds.put(externalId, Sets.newHashSet(postings.keySet()));
+        }
+    }
+
+    public void retire(final String externalId, final long version) {
+        activate(externalId, Collections.emptyMap(), version);
+    }
+
+    public void reclaim(final Set<Integer> iIds) {
+        iIds.forEach(externalIds::remove);
+        iIds.stream()
+                .map(lifespans::remove)
+                .filter(Objects::nonNull)
+                .forEach(lifespan -> {
+                    postingCount.addAndGet(-lifespan.getPostings());
+                    stalePostingCount.addAndGet(-lifespan.getPostings());
+                    tombstoneCount.decrementAndGet();
+                });
+        // Ids that never made it into the index (deletes allocate one) go along with the reclaimed ones.
+        idCache.values()
+                .forEach(queue -> queue.removeIf(iId -> !lifespans.containsKey(iId)));
+        idCache.values()
+                .removeIf(PriorityQueue::isEmpty);
+    }
+
+    public String getExternalId(final Integer iId) {
+        return externalIds.get(iId);
+    }
+
+    public boolean isLive(final int iId) {
+        return liveIds.get(iId);
+    }
+
+    public boolean isVisible(final Integer iId, final long version) {
+        final Lifespan lifespan = lifespans.get(iId);
+        return Objects.nonNull(lifespan) && lifespan.isVisibleAt(version);
+    }
+
 }
@@ -16,21 +16,22 @@
  */
 package com.phonepe.mustang.index.core;
 
+import java.util.Objects;
+
 import javax.validation.constraints.NotNull;
 
 import org.hibernate.validator.constraints.NotBlank;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.phonepe.mustang.detail.Caveat;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
-import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
 @Data
 @Builder
-@EqualsAndHashCode(of = { "name", "caveat", "value", "order" })
 @NoArgsConstructor
 @AllArgsConstructor
 public class Key {
@@ -41,6 +42,37 @@ public class Key {
     @NotNull
     private Object value;
     private int order;
-    @Builder.Default
-    private long upperBoundScore = 10;
+    // Dictionary encoded identity of name & value, assigned by the index group's KeyDictionary.
+    private int attrId;
+    private int valueId;
+
+    // Keys from the dictionary compare by their ids, which is cheap. Keys that have not been through it have no ids
+    // to go by & compare by name & value instead; the two kinds never compare equal.
+    @JsonIgnore
+    public boolean isInterned() {
+        return attrId != 0;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Key)) {
+            return false;
+        }
+        final Key key = (Key) o;
+        if (caveat != key.caveat || order != key.order || isInterned() != key.isInterned()) {
+            return false;
+        }
+        return isInterned() ? attrId == key.attrId && valueId == key.valueId
+                : Objects.equals(name, key.name) && Objects.equals(value, key.value);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = isInterned() ? 31 * attrId + valueId : 31 * Objects.hashCode(name) + Objects.hashCode(value);
+        result = 31 * result + Objects.hashCode(caveat);
+        return 31 * result + order;
+    }
 }
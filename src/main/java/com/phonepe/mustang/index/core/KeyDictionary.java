@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.core;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.Maps;
+
+import lombok.Data;
+
+@Data
+public class KeyDictionary {
+    private final Map<String, Integer> attributeIds = Maps.newConcurrentMap();
+    private final Map<Integer, String> attributes = Maps.newConcurrentMap();
+    private final Map<Object, Integer> valueIds = Maps.newConcurrentMap();
+    private final Map<Integer, Object> values = Maps.newConcurrentMap();
+    private final Map<Key, Key> keys = Maps.newConcurrentMap();
+    // Id 0 is left unassigned, it marks a key that has not been through the dictionary.
+    private final AtomicInteger attributeCounter = new AtomicInteger(0);
+    private final AtomicInteger valueCounter = new AtomicInteger(0);
+
+    public Key intern(final Key key) {
+        final int attrId = attributeIds.computeIfAbsent(key.getName(), name -> {
+            final int id = attributeCounter.incrementAndGet();
+            attributes.put(id, name);
+            return id;
+        });
+        final int valueId = valueIds.computeIfAbsent(key.getValue(), value -> {
+            final int id = valueCounter.incrementAndGet();
+            values.put(id, value);
+            return id;
+        });
+        return keys.computeIfAbsent(encode(key, attrId, valueId), x -> Key.builder()
+                .name(attributes.get(attrId))
+                .caveat(key.getCaveat())
+                .value(values.get(valueId))
+                .order(key.getOrder())
+                .attrId(attrId)
+                .valueId(valueId)
+                .build());
+    }
+
+    // Resolves a key built outside the index to its interned counterpart, without interning anything new.
+    public Key lookup(final Key key) {
+        final Integer attrId = attributeIds.get(key.getName());
+        final Integer valueId = valueIds.get(key.getValue());
+        if (Objects.isNull(attrId) || Objects.isNull(valueId)) {
+            return key;
+        }
+        return keys.getOrDefault(encode(key, attrId, valueId), key);
+    }
+
+    public void putAll(final KeyDictionary dictionary) {
+        attributeIds.putAll(dictionary.getAttributeIds());
+        attributes.putAll(dictionary.getAttributes());
+        valueIds.putAll(dictionary.getValueIds());
+        values.putAll(dictionary.getValues());
+        keys.putAll(dictionary.getKeys());
+        attributeCounter.set(dictionary.getAttributeCounter()
+                .get());
+        valueCounter.set(dictionary.getValueCounter()
+                .get());
+    }
+
+    private static Key encode(final Key key, final int attrId, final int valueId) {
+        return Key.builder()
+                .caveat(key.getCaveat())
+                .order(key.getOrder())
+                .attrId(attrId)
+                .valueId(valueId)
+                .build();
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.core;
+
+import lombok.Data;
+
+@Data
+public class Lifespan {
+    public static final long ALIVE = Long.MAX_VALUE;
+    private final long bornAt;
+    private final int postings;
+    private volatile long diedAt = ALIVE;
+
+    public boolean isVisibleAt(final long version) {
+        return bornAt <= version && version < diedAt;
+    }
+}
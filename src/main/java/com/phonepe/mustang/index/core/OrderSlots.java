@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import lombok.Data;
+
+// Order slots per (name, caveat, value) of CNF keys, along with the ids holding each slot.
+@Data
+public class OrderSlots {
+    private final Map<Key, List<Set<Integer>>> slots = Maps.newHashMap();
+
+    public int find(final Key key, final Integer iId) {
+        final List<Set<Integer>> orders = slots.getOrDefault(slotKey(key), new ArrayList<>());
+        return IntStream.range(0, orders.size())
+                .filter(order -> !orders.get(order)
+                        .contains(iId))
+                .findFirst()
+                .orElse(orders.size());
+    }
+
+    public void occupy(final Key key, final Integer iId) {
+        final List<Set<Integer>> orders = slots.computeIfAbsent(slotKey(key), x -> new ArrayList<>());
+        while (orders.size() <= key.getOrder()) {
+            orders.add(Sets.newHashSet());
+        }
+        orders.get(key.getOrder())
+                .add(iId);
+    }
+
+    private static Key slotKey(final Key key) {
+        return Key.builder()
+                .caveat(key.getCaveat())
+                .attrId(key.getAttrId())
+                .valueId(key.getValueId())
+                .build();
+    }
+}
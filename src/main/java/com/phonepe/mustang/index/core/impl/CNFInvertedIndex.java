@@ -21,6 +21,8 @@ import java.util.Map;
 import com.google.common.collect.Maps;
 import com.phonepe.mustang.criteria.CriteriaForm;
 import com.phonepe.mustang.index.core.InvertedIndex;
+import com.phonepe.mustang.index.core.posting.DisjunctionPostingCodec;
+import com.phonepe.mustang.index.core.posting.PostingCodec;
 
 import lombok.Builder;
 import lombok.Data;
@@ -34,8 +36,9 @@ public class CNFInvertedIndex<T> extends InvertedIndex<T> {
     private final Map<Integer, Integer[]> disjunctionCounters = Maps.newConcurrentMap();
 
     @Builder
+    @SuppressWarnings("unchecked")
     public CNFInvertedIndex() {
-        super(CriteriaForm.CNF);
+        super(CriteriaForm.CNF, (PostingCodec<T>) (PostingCodec<?>) new DisjunctionPostingCodec());
     }
 
 }
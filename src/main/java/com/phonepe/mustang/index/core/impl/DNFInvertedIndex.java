@@ -16,12 +16,10 @@
  */
 package com.phonepe.mustang.index.core.impl;
 
-import java.util.Map;
-import java.util.Set;
-
-import com.google.common.collect.Maps;
 import com.phonepe.mustang.criteria.CriteriaForm;
 import com.phonepe.mustang.index.core.InvertedIndex;
+import com.phonepe.mustang.index.core.posting.ConjunctionPostingCodec;
+import com.phonepe.mustang.index.core.posting.PostingCodec;
 
 import lombok.Builder;
 import lombok.Data;
@@ -32,11 +30,10 @@ import lombok.ToString;
 @ToString(callSuper = true)
 @EqualsAndHashCode(callSuper = true)
 public class DNFInvertedIndex<T> extends InvertedIndex<T> {
-    private final Map<String, Set<Integer>> activeIds = Maps.newConcurrentMap();
-
     @Builder
+    @SuppressWarnings("unchecked")
     public DNFInvertedIndex() {
-        super(CriteriaForm.DNF);
+        super(CriteriaForm.DNF, (PostingCodec<T>) (PostingCodec<?>) new ConjunctionPostingCodec());
     }
 
 }
@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.core.posting;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// Sorted values, for chunks holding up to 4096 ids.
+class ArrayContainer extends Container {
+    private final char[] values;
+
+    private ArrayContainer(final char[] values) {
+        this.values = values;
+    }
+
+    static ArrayContainer of(final char[] values, final int size) {
+        return new ArrayContainer(Arrays.copyOf(values, size));
+    }
+
+    @Override
+    int cardinality() {
+        return values.length;
+    }
+
+    @Override
+    int indexOf(final int value) {
+        final int index = Arrays.binarySearch(values, (char) value);
+        return index >= 0 ? index : -1;
+    }
+
+    @Override
+    int next(final int value) {
+        final int index = Arrays.binarySearch(values, (char) value);
+        final int position = index >= 0 ? index : -index - 1;
+        return position < values.length ? values[position] : -1;
+    }
+
+    @Override
+    int first() {
+        return values[0];
+    }
+
+    @Override
+    int last() {
+        return values[values.length - 1];
+    }
+
+    @Override
+    void forEach(final int high, final IntConsumer consumer) {
+        for (char value : values) {
+            consumer.accept(high | value);
+        }
+    }
+}
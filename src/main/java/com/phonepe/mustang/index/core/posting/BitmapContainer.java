@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.core.posting;
+
+import java.util.function.IntConsumer;
+
+// One bit per value, for chunks holding more than 4096 ids.
+class BitmapContainer extends Container {
+    private static final int WORDS = 1024;
+    private static final int WORDS_PER_BLOCK = 16;
+    private final long[] words;
+    // Cardinality ahead of each block of words, keeps rank lookups to a handful of words.
+    private final int[] blockRanks;
+    private final int cardinality;
+
+    private BitmapContainer(final long[] words, final int[] blockRanks, final int cardinality) {
+        this.words = words;
+        this.blockRanks = blockRanks;
+        this.cardinality = cardinality;
+    }
+
+    static BitmapContainer of(final char[] values, final int size) {
+        final long[] words = new long[WORDS];
+        for (int i = 0; i < size; i++) {
+            words[values[i] >>> 6] |= 1L << values[i];
+        }
+        final int[] blockRanks = new int[WORDS / WORDS_PER_BLOCK];
+        int rank = 0;
+        for (int word = 0; word < WORDS; word++) {
+            if (word % WORDS_PER_BLOCK == 0) {
+                blockRanks[word / WORDS_PER_BLOCK] = rank;
+            }
+            rank += Long.bitCount(words[word]);
+        }
+        return new BitmapContainer(words, blockRanks, size);
+    }
+
+    @Override
+    int cardinality() {
+        return cardinality;
+    }
+
+    @Override
+    int indexOf(final int value) {
+        final int word = value >>> 6;
+        if ((words[word] & (1L << value)) == 0) {
+            return -1;
+        }
+        int rank = blockRanks[word / WORDS_PER_BLOCK];
+        for (int i = word - word % WORDS_PER_BLOCK; i < word; i++) {
+            rank += Long.bitCount(words[i]);
+        }
+        return rank + Long.bitCount(words[word] & ((1L << value) - 1));
+    }
+
+    @Override
+    int next(final int value) {
+        int word = value >>> 6;
+        long bits = words[word] & (-1L << value);
+        while (bits == 0) {
+            if (++word == WORDS) {
+                return -1;
+            }
+            bits = words[word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    @Override
+    int first() {
+        return next(0);
+    }
+
+    @Override
+    int last() {
+        int word = WORDS - 1;
+        while (words[word] == 0) {
+            word--;
+        }
+        return (word << 6) + 63 - Long.numberOfLeadingZeros(words[word]);
+    }
+
+    @Override
+    void forEach(final int high, final IntConsumer consumer) {
+        for (int word = 0; word < WORDS; word++) {
+            long bits = words[word];
+            while (bits != 0) {
+                consumer.accept(high | (word << 6) + Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+        }
+    }
+}
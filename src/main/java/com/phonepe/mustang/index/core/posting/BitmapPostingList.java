@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.core.posting;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+import org.apache.commons.lang3.tuple.Triple;
+
+import com.google.common.collect.Maps;
+
+// Ids of a frequent key packed into a compressed bitmap. Entries of a key mostly agree on everything but the
+// id, so the distinct type/order/score combinations are kept once in a palette and each id points into it.
+public class BitmapPostingList<T> extends PackedPostingList<T> {
+    private static final int MAX_PALETTE_SIZE = 256;
+    private final RoaringBitmap ids;
+    private final List<T> palette;
+    // Palette slot of each id, by its position among the ids. Left out when all ids share the one slot.
+    private final byte[] slots;
+
+    private BitmapPostingList(final PostingCodec<T> codec,
+            final RoaringBitmap ids,
+            final List<T> palette,
+            final byte[] slots) {
+        super(codec);
+        this.ids = ids;
+        this.palette = palette;
+        this.slots = slots;
+    }
+
+    // Null when the entries are too diverse for the palette.
+    static <T> BitmapPostingList<T> pack(final PostingCodec<T> codec,
+            final Collection<? extends Map.Entry<Integer, T>> entries) {
+        final Map<Triple<Object, Integer, Long>, Integer> paletteSlots = Maps.newHashMap();
+        final List<T> palette = new ArrayList<>();
+        final int[] iIds = new int[entries.size()];
+        final byte[] slots = new byte[iIds.length];
+        int position = 0;
+        for (Map.Entry<Integer, T> entry : entries) {
+            final int slot = paletteSlots.computeIfAbsent(Triple.of(codec.getType(entry.getValue()),
+                    codec.getOrder(entry.getValue()),
+                    codec.getScore(entry.getValue())), x -> {
+                        palette.add(entry.getValue());
+                        return palette.size() - 1;
+                    });
+            if (slot >= MAX_PALETTE_SIZE) {
+                return null;
+            }
+            iIds[position] = entry.getKey();
+            slots[position++] = (byte) slot;
+        }
+        return new BitmapPostingList<>(codec, RoaringBitmap.of(iIds), palette, palette.size() > 1 ? slots : null);
+    }
+
+    @Override
+    protected int packedSize() {
+        return ids.cardinality();
+    }
+
+    @Override
+    protected boolean packedContains(final int iId) {
+        return ids.contains(iId);
+    }
+
+    @Override
+    protected T packedGet(final int iId) {
+        final int position = ids.indexOf(iId);
+        return position >= 0 ? entry(iId, position) : null;
+    }
+
+    @Override
+    protected int packedAdvance(final int target) {
+        return ids.advance(target);
+    }
+
+    @Override
+    protected void packedForEach(final BiConsumer<Integer, T> consumer) {
+        final int[] position = { 0 };
+        ids.forEach(iId -> consumer.accept(iId, entry(iId, position[0]++)));
+    }
+
+    @Override
+    protected PostingCursor<T> packedCursor() {
+        final RoaringBitmap.Cursor cursor = ids.cursor();
+        return new PostingCursor<T>() {
+            @Override
+            public int id() {
+                return cursor.id();
+            }
+
+            @Override
+            public int advance(final int target) {
+                return cursor.advance(target);
+            }
+
+            @Override
+            public T entry() {
+                return cursor.id() != NO_MORE_IDS ? packedGet(cursor.id()) : null;
+            }
+        };
+    }
+
+    private T entry(final int iId, final int position) {
+        final T prototype = palette.get(Objects.isNull(slots) ? 0 : slots[position] & 0xFF);
+        return codec.entry(iId, codec.getType(prototype), codec.getOrder(prototype), codec.getScore(prototype));
+    }
+}
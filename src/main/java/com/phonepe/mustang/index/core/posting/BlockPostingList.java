@@ -0,0 +1,269 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.core.posting;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+import com.phonepe.mustang.predicate.PredicateType;
+
+// Ids of a long tail key, delta & varint encoded in blocks of 128. Each block has a header with its first id,
+// its last id & where its deltas start, so lookups & cursors only ever decode the one block they land on.
+// Types, orders & scores sit in bit packed channels alongside, indexed by the entry's position in the list.
+public class BlockPostingList<T> extends PackedPostingList<T> {
+    static final int BLOCK_SIZE = 128;
+    private static final int HEADER_SIZE = 3;
+    private static final PredicateType[] TYPES = PredicateType.values();
+    private final int size;
+    private final int blocks;
+    private final int[] headers;
+    private final byte[] deltas;
+    private final PackedChannel types;
+    private final PackedChannel orders;
+    private final PackedChannel scores;
+    // Last block decoded for a lookup, searches tend to look up the same few ids over & over.
+    private volatile Block lastBlock;
+
+    private BlockPostingList(final PostingCodec<T> codec,
+            final int size,
+            final int[] headers,
+            final byte[] deltas,
+            final PackedChannel types,
+            final PackedChannel orders,
+            final PackedChannel scores) {
+        super(codec);
+        this.size = size;
+        this.blocks = headers.length / HEADER_SIZE;
+        this.headers = headers;
+        this.deltas = deltas;
+        this.types = types;
+        this.orders = orders;
+        this.scores = scores;
+    }
+
+    static <T> BlockPostingList<T> pack(final PostingCodec<T> codec,
+            final Collection<? extends Map.Entry<Integer, T>> entries) {
+        final int size = entries.size();
+        final int[] headers = new int[(size + BLOCK_SIZE - 1) / BLOCK_SIZE * HEADER_SIZE];
+        final ByteArrayOutputStream deltas = new ByteArrayOutputStream();
+        final long[] types = new long[size];
+        final long[] orders = new long[size];
+        final long[] scores = new long[size];
+        int position = 0;
+        int previous = 0;
+        for (Map.Entry<Integer, T> entry : entries) {
+            final int iId = entry.getKey();
+            final int header = position / BLOCK_SIZE * HEADER_SIZE;
+            if (position % BLOCK_SIZE == 0) {
+                headers[header] = iId;
+                headers[header + 2] = deltas.size();
+            } else {
+                writeVarint(deltas, iId - previous);
+            }
+            headers[header + 1] = iId;
+            types[position] = codec.getType(entry.getValue())
+                    .ordinal();
+            orders[position] = PackedChannel.zigzag(codec.getOrder(entry.getValue()));
+            scores[position] = PackedChannel.zigzag(codec.getScore(entry.getValue()));
+            previous = iId;
+            position++;
+        }
+        return new BlockPostingList<>(codec,
+                size,
+                headers,
+                deltas.toByteArray(),
+                PackedChannel.of(types),
+                PackedChannel.of(orders),
+                PackedChannel.of(scores));
+    }
+
+    @Override
+    protected int packedSize() {
+        return size;
+    }
+
+    @Override
+    protected boolean packedContains(final int iId) {
+        return indexOf(iId) >= 0;
+    }
+
+    @Override
+    protected T packedGet(final int iId) {
+        final int position = indexOf(iId);
+        return position >= 0 ? entryAt(iId, position) : null;
+    }
+
+    @Override
+    protected int packedAdvance(final int target) {
+        final int block = blockOf(target);
+        if (block == blocks) {
+            return NO_MORE_IDS;
+        }
+        if (headers[block * HEADER_SIZE] >= target) {
+            return headers[block * HEADER_SIZE];
+        }
+        final int[] ids = block(block).ids;
+        final int position = Arrays.binarySearch(ids, target);
+        return ids[position >= 0 ? position : -position - 1];
+    }
+
+    @Override
+    protected void packedForEach(final BiConsumer<Integer, T> consumer) {
+        for (int block = 0; block < blocks; block++) {
+            final int[] ids = decode(block);
+            for (int i = 0; i < ids.length; i++) {
+                consumer.accept(ids[i], entryAt(ids[i], block * BLOCK_SIZE + i));
+            }
+        }
+    }
+
+    @Override
+    protected PostingCursor<T> packedCursor() {
+        return new BlockCursor();
+    }
+
+    private int indexOf(final int iId) {
+        final int block = blockOf(iId);
+        if (block == blocks || headers[block * HEADER_SIZE] > iId) {
+            return -1;
+        }
+        final int position = Arrays.binarySearch(block(block).ids, iId);
+        return position >= 0 ? block * BLOCK_SIZE + position : -1;
+    }
+
+    // First block whose last id is >= target.
+    private int blockOf(final int target) {
+        int low = 0;
+        int high = blocks;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (headers[mid * HEADER_SIZE + 1] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private Block block(final int block) {
+        final Block cached = lastBlock;
+        if (Objects.nonNull(cached) && cached.index == block) {
+            return cached;
+        }
+        final Block decoded = new Block(block, decode(block));
+        lastBlock = decoded;
+        return decoded;
+    }
+
+    private int[] decode(final int block) {
+        final int[] ids = new int[Math.min(BLOCK_SIZE, size - block * BLOCK_SIZE)];
+        ids[0] = headers[block * HEADER_SIZE];
+        int offset = headers[block * HEADER_SIZE + 2];
+        for (int i = 1; i < ids.length; i++) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = deltas[offset++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            ids[i] = ids[i - 1] + delta;
+        }
+        return ids;
+    }
+
+    private T entryAt(final int iId, final int position) {
+        return codec.entry(iId,
+                TYPES[(int) types.get(position)],
+                (int) PackedChannel.unzigzag(orders.get(position)),
+                PackedChannel.unzigzag(scores.get(position)));
+    }
+
+    private static void writeVarint(final ByteArrayOutputStream out, final int value) {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            out.write((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        out.write(remaining);
+    }
+
+    private static final class Block {
+        private final int index;
+        private final int[] ids;
+
+        private Block(final int index, final int[] ids) {
+            this.index = index;
+            this.ids = ids;
+        }
+    }
+
+    // Gallops over the block headers & within a block, a block only gets decoded when the cursor has to look
+    // inside it.
+    private final class BlockCursor implements PostingCursor<T> {
+        private int block;
+        private int[] ids;
+        private int position;
+        private int id;
+
+        private BlockCursor() {
+            this.id = blocks > 0 ? headers[0] : NO_MORE_IDS;
+        }
+
+        @Override
+        public int id() {
+            return id;
+        }
+
+        @Override
+        public int advance(final int target) {
+            if (id >= target) {
+                return id;
+            }
+            if (target > headers[block * HEADER_SIZE + 1]) {
+                block = Galloping.search(headers, HEADER_SIZE, 1, block + 1, blocks, target);
+                ids = null;
+                position = 0;
+                if (block == blocks) {
+                    id = NO_MORE_IDS;
+                    return id;
+                }
+                if (headers[block * HEADER_SIZE] >= target) {
+                    id = headers[block * HEADER_SIZE];
+                    return id;
+                }
+            }
+            if (Objects.isNull(ids)) {
+                ids = decode(block);
+            }
+            position = Galloping.search(ids, position, ids.length, target);
+            id = ids[position];
+            return id;
+        }
+
+        @Override
+        public T entry() {
+            return id != NO_MORE_IDS ? entryAt(id, block * BLOCK_SIZE + position) : null;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.core.posting;
+
+import com.phonepe.mustang.index.core.ConjunctionPostingEntry;
+import com.phonepe.mustang.predicate.PredicateType;
+
+import lombok.EqualsAndHashCode;
+
+@EqualsAndHashCode
+public class ConjunctionPostingCodec implements PostingCodec<ConjunctionPostingEntry> {
+
+    @Override
+    public int getIId(final ConjunctionPostingEntry entry) {
+        return entry.getIId();
+    }
+
+    @Override
+    public PredicateType getType(final ConjunctionPostingEntry entry) {
+        return entry.getType();
+    }
+
+    @Override
+    public int getOrder(final ConjunctionPostingEntry entry) {
+        return 0;
+    }
+
+    @Override
+    public long getScore(final ConjunctionPostingEntry entry) {
+        return entry.getScore();
+    }
+
+    @Override
+    public ConjunctionPostingEntry entry(final int iId, final PredicateType type, final int order, final long score) {
+        return ConjunctionPostingEntry.builder()
+                .iId(iId)
+                .type(type)
+                .score(score)
+                .build();
+    }
+}
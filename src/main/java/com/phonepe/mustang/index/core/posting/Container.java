@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.core.posting;
+
+import java.util.function.IntConsumer;
+
+// Holds the low 16 bits of the ids sharing the same high 16 bits.
+abstract class Container {
+    static final int MAX_ARRAY_SIZE = 4096;
+    static final int BITMAP_BYTES = 8192;
+
+    abstract int cardinality();
+
+    // Position of the value among the container's values, -1 if absent.
+    abstract int indexOf(int value);
+
+    // Smallest value >= the given one, -1 if there is none.
+    abstract int next(int value);
+
+    abstract int first();
+
+    abstract int last();
+
+    abstract void forEach(int high, IntConsumer consumer);
+
+    // Picks the smallest of the three layouts for the sorted values.
+    static Container of(final char[] values, final int size) {
+        int runs = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || values[i] != values[i - 1] + 1) {
+                runs++;
+            }
+        }
+        if (4 * runs < Math.min(2 * size, BITMAP_BYTES)) {
+            return RunContainer.of(values, size, runs);
+        }
+        if (size <= MAX_ARRAY_SIZE) {
+            return ArrayContainer.of(values, size);
+        }
+        return BitmapContainer.of(values, size);
+    }
+}
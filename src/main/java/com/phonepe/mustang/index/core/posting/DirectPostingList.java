@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.core.posting;
+
+import java.nio.ByteBuffer;
+import java.util.NavigableMap;
+import java.util.function.BiConsumer;
+
+import com.phonepe.mustang.predicate.PredicateType;
+
+// Read only posting list kept off heap in a region of a slab. Ids, orders, scores & types are laid out as
+// contiguous columns, ids first so that they can be galloped over in place.
+public final class DirectPostingList<T> extends PostingList<T> {
+    private static final PredicateType[] TYPES = PredicateType.values();
+    private static final int ENTRY_BYTES = Integer.BYTES + Integer.BYTES + Long.BYTES + Byte.BYTES;
+    private final ByteBuffer buffer;
+    private final int size;
+
+    private DirectPostingList(final PostingCodec<T> codec, final ByteBuffer buffer, final int size) {
+        super(codec);
+        this.buffer = buffer;
+        this.size = size;
+    }
+
+    public static <T> DirectPostingList<T> pack(final SlabAllocator slabs,
+            final PostingCodec<T> codec,
+            final PostingList<T> postingList) {
+        final ByteBuffer buffer = slabs.allocate(bytes(postingList.size()));
+        write(buffer, codec, postingList);
+        return wrap(codec, buffer, postingList.size());
+    }
+
+    // A list laid out earlier by write, the buffer starting right at it.
+    public static <T> DirectPostingList<T> wrap(final PostingCodec<T> codec, final ByteBuffer buffer, final int size) {
+        return new DirectPostingList<>(codec, buffer, size);
+    }
+
+    public static int bytes(final int size) {
+        return size * ENTRY_BYTES;
+    }
+
+    // Lays the list out from the start of the buffer, in the buffer's byte order.
+    public static <T> void write(final ByteBuffer buffer, final PostingCodec<T> codec, final PostingList<T> postingList) {
+        final int size = postingList.size();
+        final int[] index = { 0 };
+        postingList.forEach((iId, entry) -> {
+            final int i = index[0]++;
+            buffer.putInt(i * Integer.BYTES, iId);
+            buffer.putInt(ordersOffset(size) + i * Integer.BYTES, codec.getOrder(entry));
+            buffer.putLong(scoresOffset(size) + i * Long.BYTES, codec.getScore(entry));
+            buffer.put(typesOffset(size) + i, (byte) codec.getType(entry)
+                    .ordinal());
+        });
+    }
+
+    @Override
+    public T get(final int iId) {
+        final int index = Galloping.search(buffer, 0, size, iId);
+        return index < size && idAt(index) == iId ? entryAt(index) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int advance(final int target) {
+        final int index = Galloping.search(buffer, 0, size, target);
+        return index < size ? idAt(index) : NO_MORE_IDS;
+    }
+
+    @Override
+    public void forEach(final BiConsumer<Integer, T> consumer) {
+        for (int i = 0; i < size; i++) {
+            consumer.accept(idAt(i), entryAt(i));
+        }
+    }
+
+    // Off heap lists belong to frozen groups, anything written to them goes back on heap.
+    @Override
+    public PostingList<T> addAll(final NavigableMap<Integer, T> entries) {
+        final NavigableMap<Integer, T> merged = toMap();
+        merged.putAll(entries);
+        return of(codec, merged);
+    }
+
+    @Override
+    public PostingCursor<T> cursor() {
+        return new DirectCursor();
+    }
+
+    private int idAt(final int index) {
+        return buffer.getInt(index * Integer.BYTES);
+    }
+
+    private T entryAt(final int index) {
+        return codec.entry(idAt(index),
+                TYPES[buffer.get(typesOffset(size) + index)],
+                buffer.getInt(ordersOffset(size) + index * Integer.BYTES),
+                buffer.getLong(scoresOffset(size) + index * Long.BYTES));
+    }
+
+    private static int ordersOffset(final int size) {
+        return size * Integer.BYTES;
+    }
+
+    private static int scoresOffset(final int size) {
+        return size * (Integer.BYTES + Integer.BYTES);
+    }
+
+    private static int typesOffset(final int size) {
+        return size * (Integer.BYTES + Integer.BYTES + Long.BYTES);
+    }
+
+    private final class DirectCursor implements PostingCursor<T> {
+        private int position = 0;
+
+        @Override
+        public int id() {
+            return position < size ? idAt(position) : NO_MORE_IDS;
+        }
+
+        @Override
+        public int advance(final int target) {
+            if (position < size && idAt(position) < target) {
+                position = Galloping.search(buffer, position, size, target);
+            }
+            return id();
+        }
+
+        @Override
+        public T entry() {
+            return position < size ? entryAt(position) : null;
+        }
+    }
+}
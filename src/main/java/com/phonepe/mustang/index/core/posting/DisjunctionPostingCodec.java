@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.core.posting;
+
+import com.phonepe.mustang.index.core.DisjunctionPostingEntry;
+import com.phonepe.mustang.predicate.PredicateType;
+
+import lombok.EqualsAndHashCode;
+
+@EqualsAndHashCode
+public class DisjunctionPostingCodec implements PostingCodec<DisjunctionPostingEntry> {
+
+    @Override
+    public int getIId(final DisjunctionPostingEntry entry) {
+        return entry.getIId();
+    }
+
+    @Override
+    public PredicateType getType(final DisjunctionPostingEntry entry) {
+        return entry.getType();
+    }
+
+    @Override
+    public int getOrder(final DisjunctionPostingEntry entry) {
+        return entry.getOrder();
+    }
+
+    @Override
+    public long getScore(final DisjunctionPostingEntry entry) {
+        return entry.getScore();
+    }
+
+    @Override
+    public DisjunctionPostingEntry entry(final int iId, final PredicateType type, final int order, final long score) {
+        return DisjunctionPostingEntry.builder()
+                .iId(iId)
+                .type(type)
+                .order(order)
+                .score(score)
+                .build();
+    }
+}
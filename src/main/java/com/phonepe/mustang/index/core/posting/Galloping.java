@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.core.posting;
+
+import java.nio.ByteBuffer;
+import java.util.function.IntUnaryOperator;
+
+// Exponential search forward from a position, finds what lies a short gap ahead in a few steps & what lies far
+// ahead in O(log gap). Values are read as values[index * stride + offset], so headers interleaving several
+// fields can be searched in place.
+final class Galloping {
+
+    private Galloping() {
+    }
+
+    // First index in [from, to) whose value is >= target, to if there is none.
+    static int search(final int[] values, final int stride, final int offset, final int from, final int to,
+            final int target) {
+        return search(index -> values[index * stride + offset], from, to, target);
+    }
+
+    static int search(final int[] values, final int from, final int to, final int target) {
+        return search(index -> values[index], from, to, target);
+    }
+
+    static int search(final char[] values, final int from, final int to, final int target) {
+        return search(index -> values[index], from, to, target);
+    }
+
+    // Ints laid out back to back from the start of the buffer.
+    static int search(final ByteBuffer values, final int from, final int to, final int target) {
+        return search(index -> values.getInt(index << 2), from, to, target);
+    }
+
+    // Every layout above comes down to this one, reading the value at an index through the given accessor.
+    private static int search(final IntUnaryOperator values, final int from, final int to, final int target) {
+        int low = from;
+        int step = 1;
+        while (low < to && values.applyAsInt(low) < target) {
+            final int probe = low + step;
+            if (probe >= to || values.applyAsInt(probe) >= target) {
+                int high = Math.min(probe, to);
+                low++;
+                while (low < high) {
+                    final int mid = (low + high) >>> 1;
+                    if (values.applyAsInt(mid) < target) {
+                        low = mid + 1;
+                    } else {
+                        high = mid;
+                    }
+                }
+                return low;
+            }
+            low = probe + 1;
+            step <<= 1;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.core.posting;
+
+// Cursor for lists that answer advance & get on their own.
+class ListCursor<T> implements PostingCursor<T> {
+    private final PostingList<T> postingList;
+    private int id;
+
+    ListCursor(final PostingList<T> postingList) {
+        this.postingList = postingList;
+        this.id = postingList.first();
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
+    @Override
+    public int advance(final int target) {
+        if (id < target) {
+            id = postingList.advance(target);
+        }
+        return id;
+    }
+
+    @Override
+    public T entry() {
+        return id != PostingList.NO_MORE_IDS ? postingList.get(id) : null;
+    }
+}
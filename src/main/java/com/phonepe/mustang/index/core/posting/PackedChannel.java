@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.core.posting;
+
+// Fixed width values bit packed into longs, the width being just enough for the largest value. A channel of
+// values that are all zero takes no space at all.
+final class PackedChannel {
+    private static final long[] NO_WORDS = new long[0];
+    private final int width;
+    private final long[] words;
+
+    private PackedChannel(final int width, final long[] words) {
+        this.width = width;
+        this.words = words;
+    }
+
+    // Values are taken as unsigned.
+    static PackedChannel of(final long[] values) {
+        long bits = 0;
+        for (long value : values) {
+            bits |= value;
+        }
+        final int width = 64 - Long.numberOfLeadingZeros(bits);
+        if (width == 0) {
+            return new PackedChannel(0, NO_WORDS);
+        }
+        final long[] words = new long[(int) (((long) values.length * width + 63) >>> 6)];
+        for (int index = 0; index < values.length; index++) {
+            final long bit = (long) index * width;
+            final int word = (int) (bit >>> 6);
+            final int shift = (int) (bit & 63);
+            words[word] |= values[index] << shift;
+            if (shift + width > 64) {
+                words[word + 1] |= values[index] >>> (64 - shift);
+            }
+        }
+        return new PackedChannel(width, words);
+    }
+
+    long get(final int index) {
+        if (width == 0) {
+            return 0;
+        }
+        final long bit = (long) index * width;
+        final int word = (int) (bit >>> 6);
+        final int shift = (int) (bit & 63);
+        long value = words[word] >>> shift;
+        if (shift + width > 64) {
+            value |= words[word + 1] << (64 - shift);
+        }
+        return width == 64 ? value : value & ((1L << width) - 1);
+    }
+
+    static long zigzag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
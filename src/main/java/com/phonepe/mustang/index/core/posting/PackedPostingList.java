@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.core.posting;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
+
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+
+// Entries packed once & never touched again, along with a small tail taking in entries added after packing.
+// The list gets repacked once the tail grows large, the tail itself is only allocated on the first add.
+public abstract class PackedPostingList<T> extends PostingList<T> {
+    private static final int MIN_TAIL_SIZE = 8;
+    private volatile ConcurrentSkipListMap<Integer, T> tail;
+    private volatile int tailSize;
+
+    protected PackedPostingList(final PostingCodec<T> codec) {
+        super(codec);
+    }
+
+    protected abstract int packedSize();
+
+    protected abstract boolean packedContains(int iId);
+
+    protected abstract T packedGet(int iId);
+
+    protected abstract int packedAdvance(int target);
+
+    protected abstract void packedForEach(BiConsumer<Integer, T> consumer);
+
+    @Override
+    public T get(final int iId) {
+        final ConcurrentSkipListMap<Integer, T> fresh = tail;
+        final T entry = Objects.nonNull(fresh) ? fresh.get(iId) : null;
+        return Objects.nonNull(entry) ? entry : packedGet(iId);
+    }
+
+    @Override
+    public int size() {
+        return packedSize() + tailSize;
+    }
+
+    @Override
+    public int advance(final int target) {
+        final ConcurrentSkipListMap<Integer, T> fresh = tail;
+        final Integer next = Objects.nonNull(fresh) ? fresh.ceilingKey(target) : null;
+        return Math.min(packedAdvance(target), Objects.nonNull(next) ? next : NO_MORE_IDS);
+    }
+
+    @Override
+    public void forEach(final BiConsumer<Integer, T> consumer) {
+        final ConcurrentSkipListMap<Integer, T> fresh = tail;
+        if (Objects.isNull(fresh)) {
+            packedForEach(consumer);
+            return;
+        }
+        final PeekingIterator<Map.Entry<Integer, T>> entries = Iterators.peekingIterator(fresh.entrySet()
+                .iterator());
+        packedForEach((iId, entry) -> {
+            while (entries.hasNext() && entries.peek()
+                    .getKey() < iId) {
+                final Map.Entry<Integer, T> next = entries.next();
+                consumer.accept(next.getKey(), next.getValue());
+            }
+            consumer.accept(iId, entry);
+        });
+        entries.forEachRemaining(next -> consumer.accept(next.getKey(), next.getValue()));
+    }
+
+    @Override
+    public PostingCursor<T> cursor() {
+        return Objects.isNull(tail) ? packedCursor() : super.cursor();
+    }
+
+    protected PostingCursor<T> packedCursor() {
+        return super.cursor();
+    }
+
+    @Override
+    public PostingList<T> addAll(final NavigableMap<Integer, T> entries) {
+        if (entries.keySet()
+                .stream()
+                .anyMatch(this::packedContains)) {
+            // Packed entries being overwritten, rare enough to just repack.
+            final NavigableMap<Integer, T> merged = toMap();
+            merged.putAll(entries);
+            return of(codec, merged);
+        }
+        if (Objects.isNull(tail)) {
+            tail = new ConcurrentSkipListMap<>();
+        }
+        entries.forEach((iId, entry) -> {
+            if (Objects.isNull(tail.put(iId, entry))) {
+                tailSize++;
+            }
+        });
+        if (tailSize > Math.max(MIN_TAIL_SIZE, packedSize() >>> 3)) {
+            return of(codec, toMap());
+        }
+        return this;
+    }
+}
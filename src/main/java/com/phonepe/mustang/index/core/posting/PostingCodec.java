@@ -0,0 +1,34 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.core.posting;
+
+import com.phonepe.mustang.predicate.PredicateType;
+
+// Takes posting entries apart into their fields & puts them back together, so packed posting lists need not
+// hold on to an entry object per id.
+public interface PostingCodec<T> {
+
+    int getIId(T entry);
+
+    PredicateType getType(T entry);
+
+    int getOrder(T entry);
+
+    long getScore(T entry);
+
+    T entry(int iId, PredicateType type, int order, long score);
+}
@@ -0,0 +1,29 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.core.posting;
+
+// Walks a posting list in id order, starting out on its first id.
+public interface PostingCursor<T> {
+
+    // Current id, NO_MORE_IDS once the list is exhausted.
+    int id();
+
+    // Moves on to the smallest id >= target, never backwards.
+    int advance(int target);
+
+    T entry();
+}
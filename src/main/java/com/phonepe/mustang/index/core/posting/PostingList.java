@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.core.posting;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.google.common.collect.Maps;
+
+// Entries of a key, sorted by internal id. Long tail keys are packed into delta encoded blocks, frequent keys into
+// compressed bitmaps. Lists are written by a single writer at a time and read without locking.
+public abstract class PostingList<T> {
+    public static final int NO_MORE_IDS = Integer.MAX_VALUE;
+    // Keys with at least as many entries are dense enough to be packed.
+    public static final int DENSE_SIZE = 1024;
+    protected final PostingCodec<T> codec;
+
+    protected PostingList(final PostingCodec<T> codec) {
+        this.codec = codec;
+    }
+
+    public static <T> PostingList<T> of(final PostingCodec<T> codec, final NavigableMap<Integer, T> entries) {
+        return of(codec, entries.entrySet());
+    }
+
+    // Entries come sorted by id, each id once.
+    public static <T> PostingList<T> of(final PostingCodec<T> codec,
+            final Collection<? extends Map.Entry<Integer, T>> entries) {
+        if (entries.size() >= DENSE_SIZE) {
+            final PostingList<T> packed = BitmapPostingList.pack(codec, entries);
+            if (Objects.nonNull(packed)) {
+                return packed;
+            }
+        }
+        return BlockPostingList.pack(codec, entries);
+    }
+
+    public abstract T get(int iId);
+
+    public abstract int size();
+
+    // Smallest id >= target, NO_MORE_IDS when the list is exhausted.
+    public abstract int advance(int target);
+
+    // Walks the entries in id order.
+    public abstract void forEach(BiConsumer<Integer, T> consumer);
+
+    // Adds the entries, handing back the list the key should point to from here on. That is a different list
+    // whenever the entries got the list (re)packed, readers holding on to the old one are unaffected.
+    public abstract PostingList<T> addAll(NavigableMap<Integer, T> entries);
+
+    public PostingCursor<T> cursor() {
+        return new ListCursor<>(this);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int first() {
+        return advance(0);
+    }
+
+    public Map.Entry<Integer, T> firstEntry() {
+        final int iId = first();
+        return iId != NO_MORE_IDS ? Maps.immutableEntry(iId, get(iId)) : null;
+    }
+
+    public IntStream ids() {
+        final IntStream.Builder ids = IntStream.builder();
+        forEach((iId, entry) -> ids.add(iId));
+        return ids.build();
+    }
+
+    // Copy on write, hands back the very same list when none of the ids are in it.
+    public PostingList<T> removeAll(final Set<Integer> iIds) {
+        final boolean touched = iIds.size() < size() ? iIds.stream()
+                .anyMatch(iId -> Objects.nonNull(get(iId)))
+                : ids().anyMatch(iIds::contains);
+        if (!touched) {
+            return this;
+        }
+        final NavigableMap<Integer, T> live = toMap();
+        live.keySet()
+                .removeAll(iIds);
+        return of(codec, live);
+    }
+
+    @JsonValue
+    public NavigableMap<Integer, T> toMap() {
+        final NavigableMap<Integer, T> entries = new TreeMap<>();
+        forEach(entries::put);
+        return entries;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return o instanceof PostingList && toMap().equals(((PostingList<?>) o).toMap());
+    }
+
+    @Override
+    public int hashCode() {
+        return toMap().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.core.posting;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// Compressed sorted set of ids. Ids are split on their high 16 bits into chunks, each chunk is laid out as
+// an array, a bitmap or a list of runs, whichever is smallest. Immutable once built.
+public final class RoaringBitmap {
+    public static final RoaringBitmap EMPTY = new RoaringBitmap(new char[0], new Container[0], new int[0], 0);
+    private final char[] keys;
+    private final Container[] containers;
+    // Cardinality ahead of each container.
+    private final int[] ranks;
+    private final int cardinality;
+
+    private RoaringBitmap(final char[] keys, final Container[] containers, final int[] ranks, final int cardinality) {
+        this.keys = keys;
+        this.containers = containers;
+        this.ranks = ranks;
+        this.cardinality = cardinality;
+    }
+
+    // Ids must be positive & strictly ascending.
+    public static RoaringBitmap of(final int[] ids) {
+        if (ids.length == 0) {
+            return EMPTY;
+        }
+        final int chunks = (int) Arrays.stream(ids)
+                .map(id -> id >>> 16)
+                .distinct()
+                .count();
+        final char[] keys = new char[chunks];
+        final Container[] containers = new Container[chunks];
+        final int[] ranks = new int[chunks];
+        final char[] values = new char[Math.min(1 << 16, ids.length)];
+        int chunk = 0;
+        int start = 0;
+        while (start < ids.length) {
+            final int high = ids[start] >>> 16;
+            int end = start;
+            while (end < ids.length && ids[end] >>> 16 == high) {
+                values[end - start] = (char) ids[end];
+                end++;
+            }
+            keys[chunk] = (char) high;
+            containers[chunk] = Container.of(values, end - start);
+            ranks[chunk] = start;
+            chunk++;
+            start = end;
+        }
+        return new RoaringBitmap(keys, containers, ranks, ids.length);
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean contains(final int id) {
+        return indexOf(id) >= 0;
+    }
+
+    // Position of the id among all ids, -1 if absent.
+    public int indexOf(final int id) {
+        final int chunk = Arrays.binarySearch(keys, (char) (id >>> 16));
+        if (id < 0 || chunk < 0) {
+            return -1;
+        }
+        final int index = containers[chunk].indexOf(id & 0xFFFF);
+        return index >= 0 ? ranks[chunk] + index : -1;
+    }
+
+    // Smallest id >= target.
+    public int advance(final int target) {
+        if (target < 0) {
+            return first();
+        }
+        int chunk = Arrays.binarySearch(keys, (char) (target >>> 16));
+        if (chunk >= 0) {
+            final int next = containers[chunk].next(target & 0xFFFF);
+            if (next >= 0) {
+                return keys[chunk] << 16 | next;
+            }
+            chunk++;
+        } else {
+            chunk = -chunk - 1;
+        }
+        return chunk < keys.length ? keys[chunk] << 16 | containers[chunk].first() : PostingList.NO_MORE_IDS;
+    }
+
+    public int first() {
+        return keys.length > 0 ? keys[0] << 16 | containers[0].first() : PostingList.NO_MORE_IDS;
+    }
+
+    public int last() {
+        return keys.length > 0 ? keys[keys.length - 1] << 16 | containers[keys.length - 1].last() : -1;
+    }
+
+    public void forEach(final IntConsumer consumer) {
+        for (int chunk = 0; chunk < keys.length; chunk++) {
+            containers[chunk].forEach(keys[chunk] << 16, consumer);
+        }
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    public int[] toArray() {
+        final int[] ids = new int[cardinality];
+        final int[] position = { 0 };
+        forEach(id -> ids[position[0]++] = id);
+        return ids;
+    }
+
+    // Gallops over the chunks, within a chunk the container finds the next id on its own.
+    public final class Cursor {
+        private int chunk;
+        private int id;
+
+        private Cursor() {
+            this.id = first();
+        }
+
+        public int id() {
+            return id;
+        }
+
+        // Moves on to the smallest id >= target, never backwards.
+        public int advance(final int target) {
+            if (id >= target) {
+                return id;
+            }
+            final int high = target >>> 16;
+            if (keys[chunk] != high) {
+                chunk = Galloping.search(keys, chunk + 1, keys.length, high);
+                if (chunk == keys.length) {
+                    id = PostingList.NO_MORE_IDS;
+                    return id;
+                }
+                if (keys[chunk] > high) {
+                    id = keys[chunk] << 16 | containers[chunk].first();
+                    return id;
+                }
+            }
+            final int next = containers[chunk].next(target & 0xFFFF);
+            if (next >= 0) {
+                id = keys[chunk] << 16 | next;
+            } else if (++chunk < keys.length) {
+                id = keys[chunk] << 16 | containers[chunk].first();
+            } else {
+                id = PostingList.NO_MORE_IDS;
+            }
+            return id;
+        }
+    }
+}
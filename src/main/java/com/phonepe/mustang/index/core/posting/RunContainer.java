@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.core.posting;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// Runs of consecutive values, for chunks of ids allocated in one go.
+class RunContainer extends Container {
+    private final char[] starts;
+    private final char[] lengths;
+    // Cardinality ahead of each run.
+    private final int[] runRanks;
+    private final int cardinality;
+
+    private RunContainer(final char[] starts, final char[] lengths, final int[] runRanks, final int cardinality) {
+        this.starts = starts;
+        this.lengths = lengths;
+        this.runRanks = runRanks;
+        this.cardinality = cardinality;
+    }
+
+    static RunContainer of(final char[] values, final int size, final int runs) {
+        final char[] starts = new char[runs];
+        final char[] lengths = new char[runs];
+        final int[] runRanks = new int[runs];
+        int run = -1;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || values[i] != values[i - 1] + 1) {
+                run++;
+                starts[run] = values[i];
+                runRanks[run] = i;
+            } else {
+                lengths[run]++;
+            }
+        }
+        return new RunContainer(starts, lengths, runRanks, size);
+    }
+
+    @Override
+    int cardinality() {
+        return cardinality;
+    }
+
+    @Override
+    int indexOf(final int value) {
+        final int run = runOf(value);
+        if (run < 0 || value > starts[run] + lengths[run]) {
+            return -1;
+        }
+        return runRanks[run] + value - starts[run];
+    }
+
+    @Override
+    int next(final int value) {
+        final int run = runOf(value);
+        if (run >= 0 && value <= starts[run] + lengths[run]) {
+            return value;
+        }
+        return run + 1 < starts.length ? starts[run + 1] : -1;
+    }
+
+    @Override
+    int first() {
+        return starts[0];
+    }
+
+    @Override
+    int last() {
+        return starts[starts.length - 1] + lengths[lengths.length - 1];
+    }
+
+    @Override
+    void forEach(final int high, final IntConsumer consumer) {
+        for (int run = 0; run < starts.length; run++) {
+            for (int value = starts[run]; value <= starts[run] + lengths[run]; value++) {
+                consumer.accept(high | value);
+            }
+        }
+    }
+
+    // Last run starting at or before the value, -1 if the value comes before all runs.
+    private int runOf(final int value) {
+        final int index = Arrays.binarySearch(starts, (char) value);
+        return index >= 0 ? index : -index - 2;
+    }
+}
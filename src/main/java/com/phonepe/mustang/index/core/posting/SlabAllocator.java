@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.core.posting;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.Lists;
+
+// Carves posting storage out of large direct buffers, so that only small handles stay on the java heap. Readers
+// hold a reference each while they walk the lists; the owning index group gives up its own when it is retired,
+// and the slabs are handed back for reuse once the last reader is done with them.
+// Only posting lists are carved out of slabs. Key dictionaries, frozen tables & the id tables stay on heap.
+public final class SlabAllocator {
+    static final int SLAB_SIZE = 1 << 20;
+    private static final int MAX_POOLED_SLABS = 64;
+    private static final Queue<ByteBuffer> POOL = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger POOLED = new AtomicInteger(0);
+    private final List<ByteBuffer> slabs = Lists.newArrayList();
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final AtomicBoolean retired = new AtomicBoolean(false);
+    private ByteBuffer current;
+
+    public synchronized ByteBuffer allocate(final int bytes) {
+        if (bytes > SLAB_SIZE) {
+            final ByteBuffer dedicated = ByteBuffer.allocateDirect(bytes);
+            slabs.add(dedicated);
+            return dedicated.order(ByteOrder.nativeOrder());
+        }
+        if (Objects.isNull(current) || current.remaining() < bytes) {
+            current = slab();
+            slabs.add(current);
+        }
+        final ByteBuffer region = current.slice();
+        region.limit(bytes);
+        current.position(current.position() + bytes);
+        return region.slice()
+                .order(ByteOrder.nativeOrder());
+    }
+
+    public synchronized long getAllocatedBytes() {
+        return slabs.stream()
+                .mapToLong(ByteBuffer::capacity)
+                .sum();
+    }
+
+    public boolean isReleased() {
+        return references.get() == 0;
+    }
+
+    // Fails once the slabs have been released, the reader should move on to whatever replaced the group.
+    public boolean retain() {
+        int count = references.get();
+        while (count > 0) {
+            if (references.compareAndSet(count, count + 1)) {
+                return true;
+            }
+            count = references.get();
+        }
+        return false;
+    }
+
+    public void release() {
+        if (references.decrementAndGet() == 0) {
+            recycle();
+        }
+    }
+
+    public void retire() {
+        if (retired.compareAndSet(false, true)) {
+            release();
+        }
+    }
+
+    private synchronized void recycle() {
+        slabs.stream()
+                .filter(slab -> slab.capacity() == SLAB_SIZE)
+                .forEach(slab -> {
+                    if (POOLED.incrementAndGet() <= MAX_POOLED_SLABS) {
+                        slab.clear();
+                        POOL.add(slab);
+                    } else {
+                        POOLED.decrementAndGet();
+                    }
+                });
+        // Slabs not pooled are left to the collector, which frees their native memory along with them.
+        slabs.clear();
+        current = null;
+    }
+
+    private static ByteBuffer slab() {
+        final ByteBuffer pooled = POOL.poll();
+        if (Objects.nonNull(pooled)) {
+            POOLED.decrementAndGet();
+            return pooled;
+        }
+        return ByteBuffer.allocateDirect(SLAB_SIZE);
+    }
+}
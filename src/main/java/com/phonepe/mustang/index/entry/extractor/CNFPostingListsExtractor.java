@@ -16,7 +16,6 @@
  */
 package com.phonepe.mustang.index.entry.extractor;
 
-import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
@@ -26,11 +25,12 @@ import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.tuple.Pair;
 
-import com.google.common.collect.Sets;
 import com.jayway.jsonpath.JsonPath;
 import com.phonepe.mustang.detail.Detail;
 import com.phonepe.mustang.index.core.DisjunctionPostingEntry;
 import com.phonepe.mustang.index.core.Key;
+import com.phonepe.mustang.index.core.KeyDictionary;
+import com.phonepe.mustang.index.core.OrderSlots;
 import com.phonepe.mustang.predicate.PredicateType;
 import com.phonepe.mustang.predicate.PredicateVisitor;
 import com.phonepe.mustang.predicate.impl.ExcludedPredicate;
@@ -45,13 +45,11 @@ import lombok.Data;
 @AllArgsConstructor
 public class CNFPostingListsExtractor implements PredicateVisitor<Map<Key, TreeMap<Integer, DisjunctionPostingEntry>>> {
 
-    private static final Comparator<Key> KEY_ORDER_COMPARATOR = (k1, k2) -> Integer.valueOf(k1.getOrder())
-            .compareTo(k2.getOrder());
     private final Integer iId;
-    private final String eId;
     private final int order;
-    private final Map<Key, TreeMap<Integer, DisjunctionPostingEntry>> postingLists;
+    private final OrderSlots orderSlots;
     private final Map<Key, AtomicInteger> cnfKeyFrequency;
+    private final KeyDictionary keyDictionary;
     private final Map<String, JsonPath> allPaths;
 
     @Override
@@ -70,7 +68,6 @@ public class CNFPostingListsExtractor implements PredicateVisitor<Map<Key, TreeM
 
         final DisjunctionPostingEntry postingEntry = DisjunctionPostingEntry.builder()
                 .iId(iId)
-                .eId(eId)
                 .type(pType)
                 .order(order)
                 .score(0)
@@ -80,51 +77,25 @@ public class CNFPostingListsExtractor implements PredicateVisitor<Map<Key, TreeM
 
         return values.stream()
                 .map(value -> {
-                    final Set<Key> keys = postingLists.keySet()
-                            .stream()
-                            .filter(key -> key.getName()
-                                    .equals(lhs)
-                                    && key.getCaveat()
-                                            .equals(detail.getCaveat())
-                                    && key.getValue()
-                                            .equals(value))
-                            .sorted(KEY_ORDER_COMPARATOR)
-                            .collect(Collectors.toSet());
-                    if (keys.isEmpty()) {
-                        return Key.builder()
-                                .name(lhs)
-                                .caveat(detail.getCaveat())
-                                .value(value)
-                                .order(0)
-                                .build();
-                    }
-                    final AtomicInteger counter = new AtomicInteger(0);
-                    return keys.stream()
-                            .sequential()
-                            .filter(key -> {
-                                counter.incrementAndGet();
-                                return !Sets.newTreeSet(postingLists.get(key)
-                                        .values())
-                                        .contains(postingEntry);
-                            })
-                            .findFirst()
-                            .orElse(Key.builder()
-                                    .name(lhs)
-                                    .caveat(detail.getCaveat())
-                                    .value(value)
-                                    .order(counter.get())
-                                    .build());
-                })
-                .map(key -> {
-                    final Key baseKey = Key.builder()
-                            .name(key.getName())
+                    final Key baseKey = keyDictionary.intern(Key.builder()
+                            .name(lhs)
                             .caveat(detail.getCaveat())
-                            .value(key.getValue())
-                            .build();
+                            .value(value)
+                            .order(0)
+                            .build());
                     cnfKeyFrequency.computeIfAbsent(baseKey, x -> new AtomicInteger(0))
                             .getAndIncrement();
                     allPaths.computeIfAbsent(lhs, x -> JsonPath.compile(lhs));
-                    return key;
+                    final int slot = orderSlots.find(baseKey, iId);
+                    if (slot == 0) {
+                        return baseKey;
+                    }
+                    return keyDictionary.intern(Key.builder()
+                            .name(lhs)
+                            .caveat(detail.getCaveat())
+                            .value(value)
+                            .order(slot)
+                            .build());
                 })
                 .map(key -> Pair.of(key, postingEntry))
                 .collect(Collectors.groupingBy(Pair::getLeft,
@@ -29,6 +29,7 @@ import com.jayway.jsonpath.JsonPath;
 import com.phonepe.mustang.detail.Detail;
 import com.phonepe.mustang.index.core.ConjunctionPostingEntry;
 import com.phonepe.mustang.index.core.Key;
+import com.phonepe.mustang.index.core.KeyDictionary;
 import com.phonepe.mustang.predicate.PredicateType;
 import com.phonepe.mustang.predicate.PredicateVisitor;
 import com.phonepe.mustang.predicate.impl.ExcludedPredicate;
@@ -43,8 +44,8 @@ import lombok.Data;
 @AllArgsConstructor
 public class DNFPostingListsExtractor implements PredicateVisitor<Map<Key, TreeMap<Integer, ConjunctionPostingEntry>>> {
     private final Integer iId;
-    private final String eId;
     private final Map<Key, AtomicInteger> dnfKeyFrequency;
+    private final KeyDictionary keyDictionary;
     private final Map<String, JsonPath> allPaths;
 
     @Override
@@ -63,11 +64,11 @@ public class DNFPostingListsExtractor implements PredicateVisitor<Map<Key, TreeM
         final Set<Object> values = detail.accept(new DetailValueExtractor());
         return values.stream()
                 .map(value -> {
-                    final Key key = Key.builder()
+                    final Key key = keyDictionary.intern(Key.builder()
                             .name(lhs)
                             .caveat(detail.getCaveat())
                             .value(value)
-                            .build();
+                            .build());
                     dnfKeyFrequency.computeIfAbsent(key, x -> new AtomicInteger(0))
                             .getAndIncrement();
                     allPaths.computeIfAbsent(lhs, x -> JsonPath.compile(lhs));
@@ -76,7 +77,6 @@ public class DNFPostingListsExtractor implements PredicateVisitor<Map<Key, TreeM
                 .map(key -> Pair.of(key,
                         ConjunctionPostingEntry.builder()
                                 .iId(iId)
-                                .eId(eId)
                                 .type(pType)
                                 .score(0)
                                 .build()))
@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.eviction;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+// Which resident index groups go first when the memory budget is exceeded.
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public enum EvictionPolicy {
+    // Least recently accessed first.
+    LRU() {
+        @Override
+        public <T> T accept(Visitor<T> visitor) {
+            return visitor.visitLru();
+        }
+    },
+    // Least often accessed since being loaded first, the least recently accessed among equals.
+    LFU() {
+        @Override
+        public <T> T accept(Visitor<T> visitor) {
+            return visitor.visitLfu();
+        }
+    };
+
+    public abstract <T> T accept(Visitor<T> visitor);
+
+    public interface Visitor<T> {
+        T visitLru();
+
+        T visitLfu();
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.eviction;
+
+import java.io.Closeable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+// Runs evictions on a thread of its own, so that writing a cold group out never lands on a writer or a
+// searcher. Only one runs at a time; triggers arriving in the meantime are folded into the next run.
+public final class EvictionScheduler implements Closeable {
+    private final Runnable eviction;
+    private final ExecutorService executor;
+    private final AtomicBoolean queued = new AtomicBoolean(false);
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+    public EvictionScheduler(final Runnable eviction) {
+        this.eviction = eviction;
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setDaemon(true)
+                .setNameFormat("mustang-eviction-%d")
+                .build());
+    }
+
+    // Racing close, the executor may shut down between the check & the hand off, the trigger is dropped then.
+    public void trigger() {
+        if (!executor.isShutdown() && queued.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::run);
+            } catch (RejectedExecutionException e) {
+                queued.set(false);
+            }
+        }
+    }
+
+    // The last run that failed, if the one after it has not succeeded yet.
+    public RuntimeException getFailure() {
+        return failure.get();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                    .interrupt();
+        }
+    }
+
+    private void run() {
+        queued.set(false);
+        try {
+            eviction.run();
+            failure.set(null);
+        } catch (RuntimeException e) {
+            // left for the next run to retry.
+            failure.set(e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.eviction;
+
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.Getter;
+
+// Accesses to a resident index group, stamped off an engine wide clock so that recency compares across groups.
+@Getter
+public final class GroupUsage {
+    private final AtomicLong lastAccess = new AtomicLong(0);
+    private final AtomicLong accesses = new AtomicLong(0);
+
+    // A group just brought in, as recent as anything accessed so far without having been accessed itself.
+    public static GroupUsage since(final long tick) {
+        final GroupUsage usage = new GroupUsage();
+        usage.lastAccess.set(tick);
+        return usage;
+    }
+
+    public void touch(final long tick) {
+        lastAccess.accumulateAndGet(tick, Math::max);
+        accesses.incrementAndGet();
+    }
+
+    // A copy that holds still, for sorting on while accesses carry on.
+    public GroupUsage copy() {
+        final GroupUsage copy = new GroupUsage();
+        copy.lastAccess.set(lastAccess.get());
+        copy.accesses.set(accesses.get());
+        return copy;
+    }
+
+    // Coldest first.
+    public static Comparator<GroupUsage> comparator(final EvictionPolicy policy) {
+        final Comparator<GroupUsage> recency = Comparator.comparingLong(usage -> usage.getLastAccess()
+                .get());
+        return policy.accept(new EvictionPolicy.Visitor<Comparator<GroupUsage>>() {
+            @Override
+            public Comparator<GroupUsage> visitLru() {
+                return recency;
+            }
+
+            @Override
+            public Comparator<GroupUsage> visitLfu() {
+                return Comparator.<GroupUsage>comparingLong(usage -> usage.getAccesses()
+                        .get())
+                        .thenComparing(recency);
+            }
+        });
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.eviction;
+
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import com.phonepe.mustang.index.core.InvertedIndex;
+import com.phonepe.mustang.index.core.posting.DirectPostingList;
+import com.phonepe.mustang.index.group.IndexGroup;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+// Rough heap footprint of an index group, from the counts it already keeps: postings including stale ones not
+// yet compacted away, interned keys, & stored criterias. Postings of the group's base segments count along with
+// its own, off heap or mapped postings are left out.
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class MemoryEstimator {
+    static final long POSTING_BYTES = 40;
+    static final long KEY_BYTES = 160;
+    static final long CRITERIA_BYTES = 480;
+    static final long GROUP_BYTES = 4096;
+
+    public static long estimate(final IndexGroup indexGroup) {
+        return GROUP_BYTES + heapPostings(indexGroup) * POSTING_BYTES + (long) indexGroup.getKeyDictionary()
+                .getKeys()
+                .size() * KEY_BYTES
+                + (long) indexGroup.getAllCriterias()
+                        .size() * CRITERIA_BYTES;
+    }
+
+    private static long heapPostings(final IndexGroup indexGroup) {
+        final long postings = isOffHeap(indexGroup) ? 0
+                : postings(indexGroup.getDnfInvertedIndex()) + postings(indexGroup.getCnfInvertedIndex());
+        return postings + indexGroup.getSegments()
+                .stream()
+                .mapToLong(MemoryEstimator::heapPostings)
+                .sum();
+    }
+
+    // Lists of a frozen group all live in the same place, so the first one tells where the rest are.
+    private static boolean isOffHeap(final IndexGroup indexGroup) {
+        return Objects.nonNull(indexGroup.getSlabs()) || indexGroup.isFrozen() && Stream
+                .of(indexGroup.getDnfInvertedIndex(), indexGroup.getCnfInvertedIndex())
+                .flatMap(invertedIndex -> invertedIndex.getTable()
+                        .values()
+                        .stream())
+                .flatMap(table -> table.values()
+                        .stream())
+                .findAny()
+                .filter(DirectPostingList.class::isInstance)
+                .isPresent();
+    }
+
+    private static long postings(final InvertedIndex<?> invertedIndex) {
+        return invertedIndex.getPostingCount()
+                .get()
+                + invertedIndex.getStalePostingCount()
+                        .get();
+    }
+}
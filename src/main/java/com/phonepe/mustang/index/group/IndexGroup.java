@@ -16,19 +16,26 @@
  */
 package com.phonepe.mustang.index.group;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.hibernate.validator.constraints.NotBlank;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.jayway.jsonpath.JsonPath;
 import com.phonepe.mustang.criteria.Criteria;
 import com.phonepe.mustang.index.core.ConjunctionPostingEntry;
 import com.phonepe.mustang.index.core.DisjunctionPostingEntry;
 import com.phonepe.mustang.index.core.Key;
+import com.phonepe.mustang.index.core.KeyDictionary;
 import com.phonepe.mustang.index.core.impl.CNFInvertedIndex;
 import com.phonepe.mustang.index.core.impl.DNFInvertedIndex;
+import com.phonepe.mustang.index.core.posting.SlabAllocator;
+import com.phonepe.mustang.index.version.IndexVersions;
 import com.phonepe.mustang.ratify.RatificationResult;
 
 import lombok.AllArgsConstructor;
@@ -56,5 +63,20 @@ public class IndexGroup {
     private final Map<Key, AtomicInteger> dnfKeyFrequency = Maps.newConcurrentMap();
     private final Map<Key, AtomicInteger> cnfKeyFrequency = Maps.newConcurrentMap();
     private final Map<String, JsonPath> allPaths = Maps.newConcurrentMap();
+    @JsonIgnore
+    private final KeyDictionary keyDictionary = new KeyDictionary();
+    @JsonIgnore
+    private final IndexVersions versions = new IndexVersions();
+    @JsonIgnore
+    private final AtomicLong lastCompactedVersion = new AtomicLong(0);
+    // Frozen base segments searched along with this group's own tables, see SegmentMerger.
+    @JsonIgnore
+    private final List<IndexGroup> segments = Lists.newArrayList();
     private RatificationResult ratificationResult;
+    // Frozen groups are laid out read only, see IndexFreezer.
+    @JsonIgnore
+    private boolean frozen;
+    // Holds the posting lists of frozen groups kept off heap.
+    @JsonIgnore
+    private SlabAllocator slabs;
 }
@@ -0,0 +1,36 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.store;
+
+import java.nio.file.Path;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+// When checkpoints get taken in the background & how many are kept. Checkpoints go next to the mutation log
+// when there is one, and to the given directory otherwise. A zero interval or mutation count turns that
+// trigger off.
+@Data
+@Builder
+@AllArgsConstructor
+public class CheckpointPolicy {
+    private final Path directory;
+    private final long intervalMs;
+    private final long mutations;
+    private final int generations;
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.store;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.Getter;
+
+// Runs checkpoints on a thread of its own, every interval & early once enough mutations have piled up since
+// the last one. Only one runs at a time; triggers arriving in the meantime are folded into the next run.
+public final class CheckpointScheduler implements Closeable {
+    @Getter
+    private final CheckpointPolicy policy;
+    private final Runnable checkpoint;
+    private final ScheduledExecutorService executor;
+    private final AtomicLong pending = new AtomicLong(0);
+    private final AtomicBoolean queued = new AtomicBoolean(false);
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+    public CheckpointScheduler(final CheckpointPolicy policy, final Runnable checkpoint) {
+        this.policy = policy;
+        this.checkpoint = checkpoint;
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true)
+                .setNameFormat("mustang-checkpoint-%d")
+                .build());
+        if (policy.getIntervalMs() > 0) {
+            executor.scheduleWithFixedDelay(this::trigger, policy.getIntervalMs(), policy.getIntervalMs(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void onMutations(final int count) {
+        if (policy.getMutations() > 0 && pending.addAndGet(count) >= policy.getMutations()) {
+            trigger();
+        }
+    }
+
+    // The last checkpoint that failed, if the one after it has not succeeded yet.
+    public RuntimeException getFailure() {
+        return failure.get();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                    .interrupt();
+        }
+    }
+
+    // Racing close, the executor may shut down between the check & the hand off, the trigger is dropped then.
+    private void trigger() {
+        if (!executor.isShutdown() && queued.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::run);
+            } catch (RejectedExecutionException e) {
+                queued.set(false);
+            }
+        }
+    }
+
+    private void run() {
+        queued.set(false);
+        pending.set(0);
+        try {
+            checkpoint.run();
+            failure.set(null);
+        } catch (RuntimeException e) {
+            // left for the next run to retry.
+            failure.set(e);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.validation.constraints.NotNull;
+
+import com.google.common.collect.Maps;
+
+import lombok.Builder;
+import lombok.Data;
+
+// Checkpoints are a directory each, named after the log segment from which replay has to pick up. One holds
+// a binary snapshot per index group & the list of groups. It is built under a temporary name & only renamed
+// into place once all of it is synced, so a crash part way through leaves at worst a temporary directory
+// behind, which the next pruning clears.
+@Data
+@Builder
+public class CheckpointStore {
+    private static final String PREFIX = "checkpoint-";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String GROUPS = "groups";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    @NotNull
+    private final Path directory;
+
+    // Groups that are not dirty are linked in from the latest checkpoint rather than written out again.
+    public void write(final long segment,
+            final List<String> names,
+            final Predicate<String> dirty,
+            final GroupWriter writer) throws IOException {
+        final Map<String, Path> previous = files(latest());
+        final Path temp = directory.resolve(name(segment) + TEMP_SUFFIX);
+        delete(temp);
+        Files.createDirectories(temp);
+        for (int i = 0; i < names.size(); i++) {
+            final String name = names.get(i);
+            final Path file = temp.resolve(i + SNAPSHOT_SUFFIX);
+            if (!dirty.test(name) && previous.containsKey(name)) {
+                link(previous.get(name), file);
+                continue;
+            }
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+                writer.write(name, out);
+            }
+            sync(file);
+        }
+        final Path groups = temp.resolve(GROUPS);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(groups)))) {
+            out.writeInt(names.size());
+            for (String name : names) {
+                out.writeUTF(name);
+            }
+        }
+        sync(groups);
+        MutationLog.syncDirectory(temp);
+        Files.move(temp, directory.resolve(name(segment)), StandardCopyOption.ATOMIC_MOVE);
+        MutationLog.syncDirectory(directory);
+    }
+
+    public OptionalLong latest() throws IOException {
+        return checkpoints().stream()
+                .mapToLong(Long::longValue)
+                .max();
+    }
+
+    public void read(final long segment, final GroupReader reader) throws IOException {
+        for (Map.Entry<String, Path> file : files(OptionalLong.of(segment)).entrySet()) {
+            try (InputStream snapshot = Files.newInputStream(file.getValue())) {
+                reader.read(file.getKey(), snapshot);
+            }
+        }
+    }
+
+    // Keeps the latest few checkpoints, dropping older ones along with any left unfinished. Returns the oldest
+    // one kept, replay would never need to go back further than that.
+    public OptionalLong retain(final int generations) throws IOException {
+        final List<Long> kept = checkpoints().stream()
+                .sorted(Comparator.reverseOrder())
+                .limit(Math.max(1, generations))
+                .collect(Collectors.toList());
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                final String name = file.getFileName()
+                        .toString();
+                if (name.startsWith(PREFIX) && (name.endsWith(TEMP_SUFFIX) || !kept.contains(segment(name)))) {
+                    delete(file);
+                }
+            }
+        }
+        return kept.stream()
+                .mapToLong(Long::longValue)
+                .min();
+    }
+
+    private Map<String, Path> files(final OptionalLong segment) throws IOException {
+        final Map<String, Path> files = Maps.newLinkedHashMap();
+        if (!segment.isPresent()) {
+            return files;
+        }
+        final Path checkpoint = directory.resolve(name(segment.getAsLong()));
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(checkpoint.resolve(GROUPS))))) {
+            final int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                files.put(in.readUTF(), checkpoint.resolve(i + SNAPSHOT_SUFFIX));
+            }
+        }
+        return files;
+    }
+
+    private List<Long> checkpoints() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName()
+                    .toString())
+                    .filter(name -> name.startsWith(PREFIX) && !name.endsWith(TEMP_SUFFIX))
+                    .map(CheckpointStore::segment)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static String name(final long segment) {
+        return String.format("%s%019d", PREFIX, segment);
+    }
+
+    private static long segment(final String name) {
+        return Long.parseLong(name.substring(PREFIX.length()));
+    }
+
+    private static void link(final Path source, final Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(source, target);
+            sync(target);
+        }
+    }
+
+    private static void sync(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    private static void delete(final Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted(Comparator.reverseOrder())
+                    .collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface GroupWriter {
+        void write(String name, OutputStream out) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface GroupReader {
+        void read(String name, InputStream in) throws IOException;
+    }
+}
@@ -0,0 +1,27 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.store;
+
+// How far a mutation is known to have made it to disk by the time the engine returns from it.
+public enum Durability {
+    // Handed to the OS, synced when a log segment is rolled or the log is closed.
+    NONE,
+    // Synced in the background every sync interval, so at most an interval's worth is lost on a power failure.
+    PERIODIC,
+    // Synced before returning. Appends arriving while a sync is under way share the next one.
+    SYNC;
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.validation.constraints.NotNull;
+
+import com.phonepe.mustang.criteria.Criteria;
+
+import lombok.Builder;
+import lombok.Data;
+
+// A directory of index groups kept as binary snapshots, a file each, named after the group. Files are written
+// aside & renamed over the previous one once synced, so a reader only ever sees a complete snapshot.
+@Data
+@Builder
+public class IndexGroupStore {
+    private static final String SUFFIX = ".snap";
+    private static final String TEMP_SUFFIX = ".tmp";
+    @NotNull
+    private final Path directory;
+
+    public Set<String> names() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptySet();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName()
+                    .toString())
+                    .filter(name -> name.endsWith(SUFFIX))
+                    .map(name -> decode(name.substring(0, name.length() - SUFFIX.length())))
+                    .collect(Collectors.toSet());
+        }
+    }
+
+    public List<Criteria> read(final String name) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path(name)))) {
+            return SnapshotReader.builder()
+                    .in(in)
+                    .build()
+                    .read();
+        }
+    }
+
+    // Copies a stored snapshot byte for byte, it is in the same form the snapshot writer puts out.
+    public void copy(final String name, final OutputStream out) throws IOException {
+        Files.copy(path(name), out);
+    }
+
+    public void write(final String name, final Collection<Criteria> criterias) throws IOException {
+        Files.createDirectories(directory);
+        final Path temp = directory.resolve(encode(name) + TEMP_SUFFIX);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+            SnapshotWriter.builder()
+                    .criterias(criterias)
+                    .out(out)
+                    .compressed(true)
+                    .build()
+                    .write();
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, path(name), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        MutationLog.syncDirectory(directory);
+    }
+
+    public void delete(final String name) throws IOException {
+        Files.deleteIfExists(path(name));
+    }
+
+    private Path path(final String name) {
+        return directory.resolve(encode(name) + SUFFIX);
+    }
+
+    private static String encode(final String name) {
+        try {
+            return URLEncoder.encode(name, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String decode(final String name) {
+        try {
+            return URLDecoder.decode(name, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
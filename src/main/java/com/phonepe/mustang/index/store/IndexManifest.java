@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.store;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// The part of a persisted index group that is parsed up front. Criterias, the key dictionary, the id tables & the
+// posting lists follow it in the file as binary regions that get mapped in.
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IndexManifest {
+    private String name;
+    private long version;
+    private List<String> tautologicalCriterias;
+    private List<String> paths;
+    // Lengths of the consecutive chunks the posting lists are laid out in, each one is mapped separately.
+    private List<Long> chunks;
+    private Region criterias;
+    private Region keys;
+    private Segment dnf;
+    private Segment cnf;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Segment {
+        private int idCounter;
+        private Region postings;
+        private Region ids;
+        private Region externalIds;
+        private Region keyFrequency;
+        private Region disjunctionCounters;
+    }
+
+    // Offsets are taken from the first region, which starts on an 8 byte boundary after the last posting chunk.
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Region {
+        private long offset;
+        private int length;
+    }
+}
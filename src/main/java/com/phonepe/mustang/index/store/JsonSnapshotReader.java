@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.store;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.validation.constraints.NotNull;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.collect.Lists;
+import com.phonepe.mustang.criteria.Criteria;
+
+import lombok.Builder;
+import lombok.Data;
+
+// Parses a JSON array of criterias off a stream, handing them over in batches of at most batchSize as they
+// are parsed, so only a batch's worth of criterias is held here at any point. The source is left open.
+@Data
+@Builder
+public class JsonSnapshotReader {
+    @NotNull
+    private final ObjectMapper mapper;
+    @NotNull
+    private final Reader in;
+    private final int batchSize;
+
+    public void read(final Consumer<List<Criteria>> sink) throws IOException {
+        final ObjectReader reader = mapper.readerFor(Criteria.class);
+        try (JsonParser parser = mapper.getFactory()
+                .createParser(in)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "Expected an array of criterias");
+            }
+            List<Criteria> batch = Lists.newArrayListWithCapacity(batchSize);
+            for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new JsonParseException(parser, "Expected a criteria, found " + token);
+                }
+                batch.add(reader.readValue(parser));
+                if (batch.size() >= batchSize) {
+                    sink.accept(batch);
+                    batch = Lists.newArrayListWithCapacity(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                sink.accept(batch);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.store;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+
+import javax.validation.constraints.NotNull;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.phonepe.mustang.criteria.Criteria;
+
+import lombok.Builder;
+import lombok.Data;
+
+// Streams criterias out as the same JSON array the String export produces, one criteria at a time, so that
+// no more than a criteria's worth of output is ever buffered. The target is flushed but left open.
+@Data
+@Builder
+public class JsonSnapshotWriter {
+    private static final String LINE_SEPARATOR = "\n";
+    @NotNull
+    private final Collection<Criteria> criterias;
+    @NotNull
+    private final ObjectMapper mapper;
+    @NotNull
+    private final Writer out;
+    // Newline delimited, one criteria a line, instead of an array.
+    private final boolean lines;
+
+    public void write() throws IOException {
+        final ObjectWriter writer = mapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator(LINE_SEPARATOR);
+        try (JsonGenerator generator = mapper.getFactory()
+                .createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            if (!lines) {
+                generator.writeStartArray();
+            }
+            for (Criteria criteria : criterias) {
+                writer.writeValue(generator, criteria);
+            }
+            if (lines) {
+                generator.writeRaw(LINE_SEPARATOR);
+            } else {
+                generator.writeEndArray();
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.store;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.validation.constraints.NotNull;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.collect.Lists;
+import com.phonepe.mustang.criteria.Criteria;
+
+import lombok.Builder;
+import lombok.Data;
+
+// Reads newline delimited criterias, one JSON document a line. Lines are read off in batches & each batch is
+// deserialised in parallel on the pool while the next one is being read, handing criterias over in line
+// order. Blank lines are skipped. The source is left open.
+@Data
+@Builder
+public class LineSnapshotReader {
+    @NotNull
+    private final ObjectMapper mapper;
+    @NotNull
+    private final Reader in;
+    @NotNull
+    private final ForkJoinPool pool;
+    private final int batchSize;
+
+    public void read(final Consumer<List<Criteria>> sink) throws IOException {
+        final ObjectReader reader = mapper.readerFor(Criteria.class);
+        final BufferedReader lines = new BufferedReader(in);
+        Future<List<Criteria>> parsing = null;
+        long firstLine = 1;
+        for (List<String> batch = next(lines); !batch.isEmpty(); batch = next(lines)) {
+            final List<String> current = batch;
+            final long offset = firstLine;
+            final Future<List<Criteria>> next = pool.submit(() -> parse(reader, current, offset));
+            if (Objects.nonNull(parsing)) {
+                sink.accept(get(parsing));
+            }
+            parsing = next;
+            firstLine += batch.size();
+        }
+        if (Objects.nonNull(parsing)) {
+            sink.accept(get(parsing));
+        }
+    }
+
+    private List<String> next(final BufferedReader lines) throws IOException {
+        final List<String> batch = Lists.newArrayListWithCapacity(batchSize);
+        String line;
+        while (batch.size() < batchSize && Objects.nonNull(line = lines.readLine())) {
+            batch.add(line);
+        }
+        return batch;
+    }
+
+    private static List<Criteria> parse(final ObjectReader reader, final List<String> batch, final long firstLine) {
+        return IntStream.range(0, batch.size())
+                .parallel()
+                .filter(i -> !batch.get(i)
+                        .trim()
+                        .isEmpty())
+                .mapToObj(i -> {
+                    try {
+                        return reader.<Criteria>readValue(batch.get(i));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Malformed criteria on line " + (firstLine + i), e);
+                    }
+                })
+                .collect(Collectors.toList());
+    }
+
+    private static List<Criteria> get(final Future<List<Criteria>> parsing) throws IOException {
+        try {
+            return parsing.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                    .interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw new IOException(e.getCause()
+                        .getMessage(), e.getCause()
+                                .getCause());
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.store;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.Getter;
+
+// Counts & times index groups brought in from disk on first access, & counts those written back out to make room.
+@Getter
+public final class LoadMetrics {
+    private final AtomicLong loads = new AtomicLong(0);
+    private final AtomicLong failures = new AtomicLong(0);
+    private final AtomicLong totalLoadNanos = new AtomicLong(0);
+    private final AtomicLong maxLoadNanos = new AtomicLong(0);
+    private final AtomicLong evictions = new AtomicLong(0);
+    private final AtomicLong evictionFailures = new AtomicLong(0);
+
+    public void loaded(final long nanos) {
+        loads.incrementAndGet();
+        totalLoadNanos.addAndGet(nanos);
+        maxLoadNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public void failed() {
+        failures.incrementAndGet();
+    }
+
+    public void evicted() {
+        evictions.incrementAndGet();
+    }
+
+    public void evictionFailed() {
+        evictionFailures.incrementAndGet();
+    }
+
+    public double getMeanLoadMillis() {
+        final long count = loads.get();
+        return count == 0 ? 0 : (double) TimeUnit.NANOSECONDS.toMicros(totalLoadNanos.get()) / count / 1000;
+    }
+
+    public double getMaxLoadMillis() {
+        return (double) TimeUnit.NANOSECONDS.toMicros(maxLoadNanos.get()) / 1000;
+    }
+}
@@ -0,0 +1,311 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.store;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.validation.constraints.NotNull;
+
+import org.hibernate.validator.constraints.NotBlank;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
+import com.jayway.jsonpath.JsonPath;
+import com.phonepe.mustang.criteria.Criteria;
+import com.phonepe.mustang.detail.Caveat;
+import com.phonepe.mustang.index.core.FrozenTable;
+import com.phonepe.mustang.index.core.InvertedIndex;
+import com.phonepe.mustang.index.core.Key;
+import com.phonepe.mustang.index.core.KeyDictionary;
+import com.phonepe.mustang.index.core.Lifespan;
+import com.phonepe.mustang.index.core.impl.CNFInvertedIndex;
+import com.phonepe.mustang.index.core.posting.DirectPostingList;
+import com.phonepe.mustang.index.core.posting.PostingList;
+import com.phonepe.mustang.index.group.IndexGroup;
+
+import lombok.Builder;
+import lombok.Data;
+
+// Opens a file written by MappedIndexWriter as a frozen index group. Posting lists are read in place off the
+// mapped file & paged in as they get walked. The remaining regions are mapped & decoded straight into the group's
+// tables, only the small manifest goes through Jackson.
+@Data
+@Builder
+public class MappedIndexReader {
+    @NotBlank
+    private final String name;
+    @NotNull
+    private final ObjectMapper mapper;
+    @NotNull
+    private final Path path;
+
+    public IndexGroup read() throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final ByteBuffer header = read(channel, 0, MappedIndexWriter.HEADER_BYTES);
+            if (header.getInt() != MappedIndexWriter.MAGIC
+                    || header.getInt() != MappedIndexWriter.FORMAT_VERSION) {
+                throw new IOException("Not a mapped index group: " + path);
+            }
+            final long manifestLength = header.getLong();
+            if (manifestLength < 0 || MappedIndexWriter.HEADER_BYTES + manifestLength > channel.size()) {
+                throw new IOException("Truncated mapped index group: " + path);
+            }
+            channel.position(MappedIndexWriter.HEADER_BYTES);
+            final IndexManifest manifest = mapper.readerFor(IndexManifest.class)
+                    .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                    // The channel outlives the manifest, the regions are mapped off it next.
+                    .without(JsonParser.Feature.AUTO_CLOSE_SOURCE)
+                    .readValue(ByteStreams.limit(Channels.newInputStream(channel), manifestLength));
+            // Mappings stay valid once the channel is closed.
+            final List<MappedByteBuffer> chunks = Lists.newArrayList();
+            final long postingsStart = MappedIndexWriter.postingsStart(manifestLength);
+            long position = postingsStart;
+            for (final long length : manifest.getChunks()) {
+                chunks.add(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+                position += length;
+            }
+            final long regionsStart = MappedIndexWriter.regionsStart(postingsStart, manifest.getChunks());
+            try {
+                return build(manifest, chunks, region -> map(channel, regionsStart, region));
+            } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+                throw new IOException("Corrupted mapped index group: " + path, e);
+            }
+        }
+    }
+
+    private IndexGroup build(final IndexManifest manifest,
+            final List<MappedByteBuffer> chunks,
+            final Regions regions) throws IOException {
+        final IndexGroup indexGroup = IndexGroup.builder()
+                .name(name)
+                .frozen(true)
+                .build();
+        final DataInputStream criterias = input(regions.map(manifest.getCriterias()));
+        final int criteriaCount = SnapshotReader.readVarInt(criterias);
+        for (int i = 0; i < criteriaCount; i++) {
+            final Criteria criteria = SnapshotReader.readCriteria(criterias);
+            indexGroup.getAllCriterias()
+                    .put(criteria.getId(), criteria);
+        }
+        manifest.getTautologicalCriterias()
+                .forEach(criteriaId -> indexGroup.getTautologicalCriterias()
+                        .put(criteriaId,
+                                indexGroup.getAllCriterias()
+                                        .get(criteriaId)));
+        manifest.getPaths()
+                .forEach(lhs -> indexGroup.getAllPaths()
+                        .put(lhs, JsonPath.compile(lhs)));
+        indexGroup.getVersions()
+                .publish(manifest.getVersion());
+        indexGroup.getLastCompactedVersion()
+                .set(manifest.getVersion());
+        final List<Key> keys = keys(regions.map(manifest.getKeys()), indexGroup.getKeyDictionary());
+        build(manifest.getDnf(),
+                indexGroup.getDnfInvertedIndex(),
+                indexGroup.getDnfKeyFrequency(),
+                keys,
+                chunks,
+                regions);
+        build(manifest.getCnf(),
+                indexGroup.getCnfInvertedIndex(),
+                indexGroup.getCnfKeyFrequency(),
+                keys,
+                chunks,
+                regions);
+        return indexGroup;
+    }
+
+    private static List<Key> keys(final ByteBuffer region, final KeyDictionary keyDictionary) throws IOException {
+        final DataInputStream input = input(region);
+        final List<String> names = Lists.newArrayList();
+        final int nameCount = SnapshotReader.readVarInt(input);
+        for (int i = 0; i < nameCount; i++) {
+            names.add(SnapshotReader.readString(input));
+        }
+        final List<Object> values = Lists.newArrayList();
+        final int valueCount = SnapshotReader.readVarInt(input);
+        for (int i = 0; i < valueCount; i++) {
+            values.add(SnapshotReader.readValue(input));
+        }
+        final List<Key> keys = Lists.newArrayList();
+        final int keyCount = SnapshotReader.readVarInt(input);
+        for (int i = 0; i < keyCount; i++) {
+            keys.add(keyDictionary.intern(Key.builder()
+                    .name(names.get(SnapshotReader.readVarInt(input)))
+                    .value(values.get(SnapshotReader.readVarInt(input)))
+                    .caveat(Caveat.values()[input.readUnsignedByte()])
+                    .order(SnapshotReader.readVarInt(input))
+                    .build()));
+        }
+        return keys;
+    }
+
+    private static <T> void build(final IndexManifest.Segment segment,
+            final InvertedIndex<T> invertedIndex,
+            final Map<Key, AtomicInteger> keyFrequency,
+            final List<Key> keys,
+            final List<MappedByteBuffer> chunks,
+            final Regions regions) throws IOException {
+        final Map<Integer, Map<Key, PostingList<T>>> table = Maps.newHashMap();
+        final ByteBuffer postings = regions.map(segment.getPostings());
+        while (postings.hasRemaining()) {
+            final Key key = keys.get(postings.getInt());
+            final int kSize = postings.getInt();
+            final MappedByteBuffer chunk = chunks.get(postings.getInt());
+            final int offset = postings.getInt();
+            final int size = postings.getInt();
+            table.computeIfAbsent(kSize, x -> Maps.newHashMap())
+                    .put(key, DirectPostingList.wrap(invertedIndex.getCodec(),
+                            slice(chunk, offset, DirectPostingList.bytes(size)),
+                            size));
+        }
+        table.forEach((kSize, postingLists) -> invertedIndex.getTable()
+                .put(kSize, FrozenTable.of(postingLists)));
+
+        final DataInputStream externalIdsInput = input(regions.map(segment.getExternalIds()));
+        final List<String> externalIds = Lists.newArrayList();
+        final int externalIdCount = SnapshotReader.readVarInt(externalIdsInput);
+        for (int i = 0; i < externalIdCount; i++) {
+            externalIds.add(SnapshotReader.readString(externalIdsInput));
+        }
+        final Map<String, Set<Integer>> activeIds = Maps.newHashMap();
+        final ByteBuffer ids = regions.map(segment.getIds());
+        for (int iId = 0; ids.hasRemaining(); iId++) {
+            final long bornAt = ids.getLong();
+            final int postingCount = ids.getInt();
+            final int externalId = ids.getInt();
+            if (postingCount == MappedIndexWriter.ABSENT) {
+                continue;
+            }
+            invertedIndex.getLifespans()
+                    .put(iId, new Lifespan(bornAt, postingCount));
+            invertedIndex.getLiveIds()
+                    .set(iId);
+            invertedIndex.getPostingCount()
+                    .addAndGet(postingCount);
+            if (externalId != MappedIndexWriter.ABSENT) {
+                invertedIndex.getExternalIds()
+                        .put(iId, externalIds.get(externalId));
+                activeIds.computeIfAbsent(externalIds.get(externalId), x -> Sets.newHashSet())
+                        .add(iId);
+            }
+        }
+        activeIds.forEach((externalId, iIds) -> {
+            final PriorityQueue<Integer> queue = new PriorityQueue<>(Comparator.reverseOrder());
+            queue.addAll(iIds);
+            invertedIndex.getIdCache()
+                    .put(externalId, queue);
+            invertedIndex.getActiveIds()
+                    .put(externalId, iIds);
+        });
+        invertedIndex.getIdCounter()
+                .set(segment.getIdCounter());
+
+        if (invertedIndex instanceof CNFInvertedIndex && Objects.nonNull(segment.getDisjunctionCounters())) {
+            final ByteBuffer counters = regions.map(segment.getDisjunctionCounters());
+            while (counters.hasRemaining()) {
+                final int iId = counters.getInt();
+                final Integer[] disjunctionCounter = new Integer[counters.getInt()];
+                for (int i = 0; i < disjunctionCounter.length; i++) {
+                    disjunctionCounter[i] = counters.getInt();
+                }
+                ((CNFInvertedIndex<T>) invertedIndex).getDisjunctionCounters()
+                        .put(iId, disjunctionCounter);
+            }
+        }
+        final ByteBuffer frequencies = regions.map(segment.getKeyFrequency());
+        while (frequencies.hasRemaining()) {
+            keyFrequency.put(keys.get(frequencies.getInt()), new AtomicInteger(frequencies.getInt()));
+        }
+    }
+
+    private static ByteBuffer map(final FileChannel channel,
+            final long regionsStart,
+            final IndexManifest.Region region) throws IOException {
+        if (region.getOffset() < 0 || region.getLength() < 0
+                || regionsStart + region.getOffset() + region.getLength() > channel.size()) {
+            throw new IOException("Region out of bounds in mapped index group");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, regionsStart + region.getOffset(), region.getLength())
+                .order(MappedIndexWriter.BYTE_ORDER);
+    }
+
+    private static DataInputStream input(final ByteBuffer region) {
+        return new DataInputStream(new InputStream() {
+            @Override
+            public int read() {
+                return region.hasRemaining() ? region.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(final byte[] bytes, final int offset, final int length) {
+                if (!region.hasRemaining()) {
+                    return -1;
+                }
+                final int count = Math.min(length, region.remaining());
+                region.get(bytes, offset, count);
+                return count;
+            }
+        });
+    }
+
+    private static ByteBuffer slice(final MappedByteBuffer chunk, final int offset, final int bytes) {
+        final ByteBuffer region = chunk.duplicate();
+        region.position(offset);
+        region.limit(offset + bytes);
+        return region.slice()
+                .order(MappedIndexWriter.BYTE_ORDER);
+    }
+
+    private ByteBuffer read(final FileChannel channel, final long position, final int bytes) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(bytes)
+                .order(MappedIndexWriter.BYTE_ORDER);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated mapped index group: " + path);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @FunctionalInterface
+    private interface Regions {
+        ByteBuffer map(IndexManifest.Region region) throws IOException;
+    }
+}
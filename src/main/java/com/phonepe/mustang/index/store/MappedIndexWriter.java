@@ -0,0 +1,325 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.store;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.validation.constraints.NotNull;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.phonepe.mustang.criteria.Criteria;
+import com.phonepe.mustang.index.core.InvertedIndex;
+import com.phonepe.mustang.index.core.Key;
+import com.phonepe.mustang.index.core.Lifespan;
+import com.phonepe.mustang.index.core.impl.CNFInvertedIndex;
+import com.phonepe.mustang.index.core.posting.DirectPostingList;
+import com.phonepe.mustang.index.group.IndexGroup;
+
+import lombok.Builder;
+import lombok.Data;
+
+// Writes a frozen index group out as a header, a small JSON manifest, the posting lists laid out the way off heap
+// lists keep them & binary regions for the criterias, the key dictionary & the id tables, so that
+// MappedIndexReader can map them back in place. The file is written aside and only renamed over the target once
+// it is complete and synced, along with the directory holding it.
+@Data
+@Builder
+public class MappedIndexWriter {
+    static final int MAGIC = 0x4D535447;
+    static final int FORMAT_VERSION = 2;
+    static final int HEADER_BYTES = 2 * Integer.BYTES + Long.BYTES;
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    // An id table slot holds the born at version, the posting count & the external id index of one internal id.
+    static final int ID_BYTES = Long.BYTES + 2 * Integer.BYTES;
+    static final int POSTINGS_BYTES = 5 * Integer.BYTES;
+    static final int FREQUENCY_BYTES = 2 * Integer.BYTES;
+    static final int ABSENT = -1;
+    private static final long CHUNK_SIZE = 1 << 30;
+    @NotNull
+    private final IndexGroup indexGroup;
+    @NotNull
+    private final ObjectMapper mapper;
+    @NotNull
+    private final Path path;
+
+    public void write() throws IOException {
+        final List<Long> chunks = Lists.newArrayList();
+        final List<Pair<Integer, Consumer<ByteBuffer>>> postingLists = Lists.newArrayList();
+        final List<byte[]> regions = Lists.newArrayList();
+        final Map<Key, Integer> keys = Maps.newLinkedHashMap();
+        final IndexManifest manifest = IndexManifest.builder()
+                .name(indexGroup.getName())
+                .version(indexGroup.getVersions()
+                        .getVersion())
+                .tautologicalCriterias(Lists.newArrayList(indexGroup.getTautologicalCriterias()
+                        .keySet()))
+                .paths(Lists.newArrayList(indexGroup.getAllPaths()
+                        .keySet()))
+                .chunks(chunks)
+                .criterias(region(regions, criterias(indexGroup.getAllCriterias()
+                        .values())))
+                .dnf(segment(indexGroup.getDnfInvertedIndex(),
+                        indexGroup.getDnfKeyFrequency(),
+                        keys,
+                        chunks,
+                        postingLists,
+                        regions))
+                .cnf(segment(indexGroup.getCnfInvertedIndex(),
+                        indexGroup.getCnfKeyFrequency(),
+                        keys,
+                        chunks,
+                        postingLists,
+                        regions))
+                .build();
+        // Both segments have to be through before the dictionary knows every key they refer to.
+        manifest.setKeys(region(regions, keys(keys)));
+        final byte[] manifestBytes = mapper.writeValueAsBytes(manifest);
+
+        final Path target = path.toAbsolutePath();
+        final Path temp = Files.createTempFile(target.getParent(), target.getFileName()
+                .toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                final long postingsStart = postingsStart(manifestBytes.length);
+                final ByteBuffer header = ByteBuffer.allocate((int) postingsStart)
+                        .order(BYTE_ORDER);
+                header.putInt(MAGIC)
+                        .putInt(FORMAT_VERSION)
+                        .putLong(manifestBytes.length)
+                        .put(manifestBytes);
+                header.clear();
+                writeFully(channel, header);
+                for (final Pair<Integer, Consumer<ByteBuffer>> postingList : postingLists) {
+                    final ByteBuffer buffer = ByteBuffer.allocate(postingList.getLeft())
+                            .order(BYTE_ORDER);
+                    postingList.getRight()
+                            .accept(buffer);
+                    writeFully(channel, buffer);
+                }
+                long position = regionsStart(postingsStart, chunks);
+                for (final byte[] region : regions) {
+                    writeFully(channel, ByteBuffer.wrap(region), position);
+                    position += align(region.length);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            // The rename is only durable once the directory entry is.
+            MutationLog.syncDirectory(target.getParent());
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Posting lists start on an 8 byte boundary after the manifest, the regions on one after the posting lists.
+    static long postingsStart(final long manifestLength) {
+        return align(HEADER_BYTES + manifestLength);
+    }
+
+    static long regionsStart(final long postingsStart, final List<Long> chunks) {
+        return align(postingsStart + chunks.stream()
+                .mapToLong(Long::longValue)
+                .sum());
+    }
+
+    private static long align(final long position) {
+        return (position + Long.BYTES - 1) & -Long.BYTES;
+    }
+
+    private static IndexManifest.Region region(final List<byte[]> regions, final byte[] bytes) {
+        final long offset = regions.stream()
+                .mapToLong(region -> align(region.length))
+                .sum();
+        regions.add(bytes);
+        return IndexManifest.Region.builder()
+                .offset(offset)
+                .length(bytes.length)
+                .build();
+    }
+
+    private static <T> IndexManifest.Segment segment(final InvertedIndex<T> invertedIndex,
+            final Map<Key, AtomicInteger> keyFrequency,
+            final Map<Key, Integer> keys,
+            final List<Long> chunks,
+            final List<Pair<Integer, Consumer<ByteBuffer>>> postingLists,
+            final List<byte[]> regions) throws IOException {
+        final List<int[]> postings = Lists.newArrayList();
+        invertedIndex.getTable()
+                .forEach((kSize, table) -> table.forEach((key, postingList) -> {
+                    final int bytes = DirectPostingList.bytes(postingList.size());
+                    // A list never straddles two chunks, one larger than a chunk gets a chunk of its own.
+                    if (chunks.isEmpty() || chunks.get(chunks.size() - 1) > 0
+                            && chunks.get(chunks.size() - 1) + bytes > CHUNK_SIZE) {
+                        chunks.add(0L);
+                    }
+                    final int chunk = chunks.size() - 1;
+                    final int offset = chunks.get(chunk)
+                            .intValue();
+                    postings.add(new int[] { key(keys, key), kSize, chunk, offset, postingList.size() });
+                    chunks.set(chunk, chunks.get(chunk) + bytes);
+                    postingLists.add(Pair.of(bytes,
+                            buffer -> DirectPostingList.write(buffer, invertedIndex.getCodec(), postingList)));
+                }));
+        final ByteBuffer postingsRegion = allocate((long) postings.size() * POSTINGS_BYTES);
+        postings.forEach(entry -> {
+            for (final int field : entry) {
+                postingsRegion.putInt(field);
+            }
+        });
+        final ByteBuffer frequencyRegion = allocate((long) keyFrequency.size() * FREQUENCY_BYTES);
+        keyFrequency.forEach((key, count) -> frequencyRegion.putInt(key(keys, key))
+                .putInt(count.get()));
+
+        // Slots are indexed by internal id, the ids of a frozen group are dense so few of them go unused.
+        final int idCounter = invertedIndex.getIdCounter()
+                .get();
+        final Map<String, Integer> externalIds = Maps.newLinkedHashMap();
+        final ByteBuffer idsRegion = allocate(((long) idCounter + 1) * ID_BYTES);
+        for (int iId = 0; iId <= idCounter; iId++) {
+            final Lifespan lifespan = invertedIndex.getLifespans()
+                    .get(iId);
+            if (Objects.isNull(lifespan) || !invertedIndex.isLive(iId)) {
+                idsRegion.putLong(0)
+                        .putInt(ABSENT)
+                        .putInt(ABSENT);
+                continue;
+            }
+            final String externalId = invertedIndex.getExternalId(iId);
+            idsRegion.putLong(lifespan.getBornAt())
+                    .putInt(lifespan.getPostings())
+                    .putInt(Objects.isNull(externalId) ? ABSENT
+                            : externalIds.computeIfAbsent(externalId, x -> externalIds.size()));
+        }
+        final ByteArrayOutputStream externalIdsRegion = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(externalIdsRegion);
+        SnapshotWriter.writeVarInt(output, externalIds.size());
+        for (final String externalId : externalIds.keySet()) {
+            SnapshotWriter.writeString(output, externalId);
+        }
+
+        return IndexManifest.Segment.builder()
+                .idCounter(idCounter)
+                .postings(region(regions, postingsRegion.array()))
+                .ids(region(regions, idsRegion.array()))
+                .externalIds(region(regions, externalIdsRegion.toByteArray()))
+                .keyFrequency(region(regions, frequencyRegion.array()))
+                .disjunctionCounters(invertedIndex instanceof CNFInvertedIndex
+                        ? region(regions, disjunctionCounters(((CNFInvertedIndex<T>) invertedIndex)
+                                .getDisjunctionCounters()))
+                        : null)
+                .build();
+    }
+
+    private static byte[] disjunctionCounters(final Map<Integer, Integer[]> disjunctionCounters) throws IOException {
+        final ByteBuffer region = allocate(disjunctionCounters.values()
+                .stream()
+                .mapToLong(counters -> 2L + counters.length)
+                .sum() * Integer.BYTES);
+        disjunctionCounters.forEach((iId, counters) -> {
+            region.putInt(iId)
+                    .putInt(counters.length);
+            for (final Integer counter : counters) {
+                region.putInt(counter);
+            }
+        });
+        return region.array();
+    }
+
+    private static byte[] criterias(final Iterable<Criteria> criterias) throws IOException {
+        final ByteArrayOutputStream region = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(region);
+        final List<Criteria> all = Lists.newArrayList(criterias);
+        SnapshotWriter.writeVarInt(output, all.size());
+        for (final Criteria criteria : all) {
+            SnapshotWriter.writeCriteria(output, criteria);
+        }
+        return region.toByteArray();
+    }
+
+    // Names & values are written once each, keys refer to them by their position.
+    private static byte[] keys(final Map<Key, Integer> keys) throws IOException {
+        final Map<String, Integer> names = Maps.newLinkedHashMap();
+        final Map<Object, Integer> values = Maps.newLinkedHashMap();
+        keys.keySet()
+                .forEach(key -> {
+                    names.computeIfAbsent(key.getName(), x -> names.size());
+                    values.computeIfAbsent(key.getValue(), x -> values.size());
+                });
+        final ByteArrayOutputStream region = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(region);
+        SnapshotWriter.writeVarInt(output, names.size());
+        for (final String name : names.keySet()) {
+            SnapshotWriter.writeString(output, name);
+        }
+        SnapshotWriter.writeVarInt(output, values.size());
+        for (final Object value : values.keySet()) {
+            SnapshotWriter.writeValue(output, value);
+        }
+        SnapshotWriter.writeVarInt(output, keys.size());
+        for (final Key key : keys.keySet()) {
+            SnapshotWriter.writeVarInt(output, names.get(key.getName()));
+            SnapshotWriter.writeVarInt(output, values.get(key.getValue()));
+            output.writeByte(key.getCaveat()
+                    .ordinal());
+            SnapshotWriter.writeVarInt(output, key.getOrder());
+        }
+        return region.toByteArray();
+    }
+
+    private static int key(final Map<Key, Integer> keys, final Key key) {
+        return keys.computeIfAbsent(key, x -> keys.size());
+    }
+
+    private static ByteBuffer allocate(final long bytes) throws IOException {
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IOException("Region too large for a mapped index group: " + bytes);
+        }
+        return ByteBuffer.allocate((int) bytes)
+                .order(BYTE_ORDER);
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+}
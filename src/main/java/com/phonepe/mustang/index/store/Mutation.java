@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.store;
+
+import java.util.Objects;
+
+import org.hibernate.validator.constraints.NotBlank;
+
+import com.phonepe.mustang.criteria.Criteria;
+import com.phonepe.mustang.index.operation.IndexOperation;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+// A criteria level operation on an index group, or with neither operation nor criteria, the group being dropped.
+@Data
+@Builder
+@AllArgsConstructor
+public class Mutation {
+    private final IndexOperation operation;
+    @NotBlank
+    private final String index;
+    private final Criteria criteria;
+
+    public static Mutation drop(final String index) {
+        return new Mutation(null, index, null);
+    }
+
+    public boolean isDrop() {
+        return Objects.isNull(operation);
+    }
+}
@@ -0,0 +1,322 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.store;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.phonepe.mustang.index.operation.IndexOperation;
+
+import lombok.Getter;
+
+// Append only log of index mutations, split into numbered segments that get rolled whenever a checkpoint is
+// taken. A record is its length, a CRC32 & a payload of every mutation appended together, each the operation,
+// the index group & the criteria in the binary snapshot encoding, strings & values in place. A group dropped as
+// a whole is the drop marker & the index group with no criteria. A record torn by a crash fails its length or
+// checksum & ends the replay there, so that a batch is replayed in full or not at all.
+public final class MutationLog implements Closeable {
+    private static final int DROP = 0xFF;
+    private static final String SEGMENT_PREFIX = "mutations-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    @Getter
+    private final Path directory;
+    @Getter
+    private final Durability durability;
+    private final Object syncLock = new Object();
+    private final ScheduledExecutorService syncer;
+    private FileChannel channel;
+    private long segment;
+    private long appended;
+    private long synced;
+    private IOException failure;
+
+    private MutationLog(final Path directory, final Durability durability, final long syncIntervalMs) {
+        this.directory = directory;
+        this.durability = durability;
+        if (Durability.PERIODIC.equals(durability)) {
+            syncer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true)
+                    .setNameFormat("mustang-log-sync-%d")
+                    .build());
+            syncer.scheduleWithFixedDelay(this::syncQuietly, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            syncer = null;
+        }
+    }
+
+    // Appends go to a fresh segment past the given one, whatever is already on disk is left for replay & pruning.
+    public static MutationLog open(final Path directory,
+            final Durability durability,
+            final long syncIntervalMs,
+            final long after) throws IOException {
+        Files.createDirectories(directory);
+        final MutationLog log = new MutationLog(directory, durability, syncIntervalMs);
+        log.segment = Math.max(after, segments(directory).stream()
+                .mapToLong(Long::longValue)
+                .max()
+                .orElse(-1));
+        log.roll();
+        return log;
+    }
+
+    // The mutations go in as one record. A write that fails part way may leave a torn record behind, past which
+    // nothing would be replayed, so the log takes no more appends after it.
+    public void append(final List<Mutation> mutations) throws IOException {
+        final byte[] record = record(encode(mutations));
+        final long target;
+        synchronized (this) {
+            if (Objects.nonNull(failure)) {
+                throw failure;
+            }
+            try {
+                write(record);
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+            target = appended;
+        }
+        if (Durability.SYNC.equals(durability)) {
+            sync(target);
+        }
+    }
+
+    // Starts a new segment, once everything appended to the current one is synced. Returns the new segment.
+    public long roll() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                if (Objects.nonNull(channel)) {
+                    channel.force(false);
+                    channel.close();
+                }
+                synced = appended;
+                segment++;
+                channel = FileChannel.open(segment(directory, segment), StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.WRITE);
+                syncDirectory(directory);
+                return segment;
+            }
+        }
+    }
+
+    public void sync() throws IOException {
+        final long target;
+        synchronized (this) {
+            target = appended;
+        }
+        sync(target);
+    }
+
+    // Drops segments before the given one, once a checkpoint covers them.
+    public void prune(final long before) throws IOException {
+        for (Long older : segments(directory)) {
+            if (older < before) {
+                Files.deleteIfExists(segment(directory, older));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (Objects.nonNull(syncer)) {
+            syncer.shutdown();
+        }
+        synchronized (syncLock) {
+            synchronized (this) {
+                if (channel.isOpen()) {
+                    channel.force(false);
+                    channel.close();
+                }
+            }
+        }
+    }
+
+    // Replays segments from the given one onwards, in order. Only the last segment may end in a torn record.
+    public static void replay(final Path directory, final long from, final Consumer<Mutation> consumer)
+            throws IOException {
+        final List<Long> segments = segments(directory).stream()
+                .filter(segment -> segment >= from)
+                .collect(Collectors.toList());
+        for (int i = 0; i < segments.size(); i++) {
+            if (!replay(segment(directory, segments.get(i)), consumer) && i < segments.size() - 1) {
+                throw new IOException("Torn record in mutation log segment " + segments.get(i));
+            }
+        }
+    }
+
+    private static boolean replay(final Path path, final Consumer<Mutation> consumer) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                final int length;
+                try {
+                    length = input.readInt();
+                } catch (EOFException e) {
+                    return true;
+                }
+                try {
+                    final int checksum = input.readInt();
+                    if (length < 0) {
+                        return false;
+                    }
+                    final byte[] payload = new byte[length];
+                    input.readFully(payload);
+                    final CRC32 crc = new CRC32();
+                    crc.update(payload);
+                    if ((int) crc.getValue() != checksum) {
+                        return false;
+                    }
+                    decode(payload).forEach(consumer);
+                } catch (EOFException e) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    private static byte[] record(final byte[] payload) {
+        final CRC32 crc = new CRC32();
+        crc.update(payload);
+        return ByteBuffer.allocate(Integer.BYTES * 2 + payload.length)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .put(payload)
+                .array();
+    }
+
+    private void write(final byte[] record) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(record);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        appended += record.length;
+    }
+
+    private void sync(final long target) throws IOException {
+        // Whoever gets here first syncs everything appended so far, on behalf of the appenders queued behind it.
+        synchronized (syncLock) {
+            if (synced >= target) {
+                return;
+            }
+            final FileChannel current;
+            final long upTo;
+            synchronized (this) {
+                current = channel;
+                upTo = appended;
+            }
+            try {
+                current.force(false);
+            } catch (IOException e) {
+                // What failed to sync cannot be counted on, neither can anything appended after it.
+                synchronized (this) {
+                    failure = e;
+                }
+                throw e;
+            }
+            synced = upTo;
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (IOException e) {
+            // surfaces on the next append, there is no caller to hand it to here.
+        }
+    }
+
+    private static byte[] encode(final List<Mutation> mutations) throws IOException {
+        final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(payload);
+        SnapshotWriter.writeVarInt(output, mutations.size());
+        for (Mutation mutation : mutations) {
+            output.writeByte(mutation.isDrop() ? DROP
+                    : mutation.getOperation()
+                            .ordinal());
+            SnapshotWriter.writeString(output, mutation.getIndex());
+            if (!mutation.isDrop()) {
+                SnapshotWriter.writeCriteria(output, mutation.getCriteria());
+            }
+        }
+        return payload.toByteArray();
+    }
+
+    private static List<Mutation> decode(final byte[] payload) throws IOException {
+        final DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+        final int count = SnapshotReader.readVarInt(input);
+        final List<Mutation> mutations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final int operation = input.readUnsignedByte();
+            if (operation == DROP) {
+                mutations.add(Mutation.drop(SnapshotReader.readString(input)));
+                continue;
+            }
+            if (operation >= IndexOperation.values().length) {
+                throw new IOException("Unknown operation in mutation log: " + operation);
+            }
+            final String index = SnapshotReader.readString(input);
+            mutations.add(new Mutation(IndexOperation.values()[operation], index, SnapshotReader.readCriteria(input)));
+        }
+        return mutations;
+    }
+
+    private static Path segment(final Path directory, final long segment) {
+        return directory.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private static List<Long> segments(final Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName()
+                    .toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.valueOf(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    static void syncDirectory(final Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+}
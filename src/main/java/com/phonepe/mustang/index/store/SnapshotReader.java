@@ -0,0 +1,267 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.store;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import javax.validation.constraints.NotNull;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
+import com.phonepe.mustang.composition.impl.Conjunction;
+import com.phonepe.mustang.composition.impl.Disjunction;
+import com.phonepe.mustang.criteria.Criteria;
+import com.phonepe.mustang.criteria.CriteriaForm;
+import com.phonepe.mustang.criteria.CriteriaVisitor;
+import com.phonepe.mustang.criteria.impl.CNFCriteria;
+import com.phonepe.mustang.criteria.impl.DNFCriteria;
+import com.phonepe.mustang.criteria.tautology.TautologicalCriteria;
+import com.phonepe.mustang.detail.Detail;
+import com.phonepe.mustang.detail.impl.CheckType;
+import com.phonepe.mustang.detail.impl.EqualityDetail;
+import com.phonepe.mustang.detail.impl.RangeDetail;
+import com.phonepe.mustang.detail.impl.RegexDetail;
+import com.phonepe.mustang.detail.impl.VersioningDetail;
+import com.phonepe.mustang.index.builder.CriteriaIndexBuilder;
+import com.phonepe.mustang.predicate.Predicate;
+import com.phonepe.mustang.predicate.impl.ExcludedPredicate;
+import com.phonepe.mustang.predicate.impl.IncludedPredicate;
+
+import lombok.Builder;
+import lombok.Data;
+
+// Reads back criterias written by SnapshotWriter. Counts are never trusted for allocation, so a damaged body
+// runs into the end of the stream or a bad table reference rather than a huge allocation, & whatever decodes
+// is only handed out once the checksum over the body matches.
+@Data
+@Builder
+public class SnapshotReader {
+    @NotNull
+    private final InputStream in;
+
+    public List<Criteria> read() throws IOException {
+        final DataInputStream header = new DataInputStream(in);
+        if (header.readInt() != SnapshotWriter.MAGIC || header.readUnsignedByte() != SnapshotWriter.FORMAT_VERSION) {
+            throw new IOException("Not a criteria snapshot");
+        }
+        final boolean compressed = (header.readUnsignedByte() & SnapshotWriter.COMPRESSED) != 0;
+
+        final Inflater inflater = compressed ? new Inflater() : null;
+        try {
+            final DataInputStream source = new DataInputStream(
+                    new BufferedInputStream(compressed ? new InflaterInputStream(in, inflater) : in));
+            final CheckedInputStream checked = new CheckedInputStream(source, new CRC32());
+            final DataInputStream body = new DataInputStream(checked);
+            final List<Criteria> criterias;
+            try {
+                final List<String> strings = readTable(body, SnapshotReader::readString);
+                final List<Object> values = readTable(body, SnapshotReader::readValue);
+                criterias = readTable(body, input -> readCriteria(input, table -> strings.get(readVarInt(table)),
+                        table -> values.get(readVarInt(table))));
+            } catch (IndexOutOfBoundsException | IllegalArgumentException | ClassCastException e) {
+                throw new IOException("Corrupted criteria snapshot", e);
+            }
+            if (source.readInt() != (int) checked.getChecksum()
+                    .getValue()) {
+                throw new IOException("Criteria snapshot checksum mismatch");
+            }
+            // a deflated body has to run to the end of its stream, which also checks the deflate trailer.
+            if (compressed && source.read() != -1) {
+                throw new IOException("Trailing data in criteria snapshot");
+            }
+            return criterias;
+        } finally {
+            if (Objects.nonNull(inflater)) {
+                inflater.end();
+            }
+        }
+    }
+
+    // Reads back a criteria written by SnapshotWriter.writeCriteria, strings & values in place.
+    static Criteria readCriteria(final DataInputStream input) throws IOException {
+        try {
+            return readCriteria(input, SnapshotReader::readString, SnapshotReader::readValue);
+        } catch (IllegalArgumentException | ClassCastException e) {
+            throw new IOException("Corrupted criteria", e);
+        }
+    }
+
+    private static Criteria readCriteria(final DataInputStream input,
+            final Read<String> strings,
+            final Read<Object> values) throws IOException {
+        final int form = input.readUnsignedByte();
+        final String id = readString(input);
+        final Criteria criteria;
+        switch (form) {
+            case SnapshotWriter.DNF:
+                criteria = new DNFCriteria(id, readTable(input,
+                        composition -> new Conjunction(readTable(composition,
+                                predicate -> readPredicate(predicate, strings, values)))));
+                break;
+            case SnapshotWriter.CNF:
+                criteria = new CNFCriteria(id, readTable(input,
+                        composition -> new Disjunction(readTable(composition,
+                                predicate -> readPredicate(predicate, strings, values)))));
+                break;
+            default:
+                throw new IOException("Unknown criteria form in snapshot: " + form);
+        }
+        // criterias without compositions are tautologies, brought back as such.
+        return criteria.accept(new CriteriaVisitor<Criteria>() {
+            @Override
+            public Criteria visit(final DNFCriteria dnf) {
+                return CriteriaIndexBuilder.isTautology(dnf) ? TautologicalCriteria.generate(CriteriaForm.DNF, id) : dnf;
+            }
+
+            @Override
+            public Criteria visit(final CNFCriteria cnf) {
+                return CriteriaIndexBuilder.isTautology(cnf) ? TautologicalCriteria.generate(CriteriaForm.CNF, id) : cnf;
+            }
+        });
+    }
+
+    private static Predicate readPredicate(final DataInputStream input,
+            final Read<String> strings,
+            final Read<Object> values) throws IOException {
+        final int type = input.readUnsignedByte();
+        final String lhs = strings.apply(input);
+        final long weight = readVarLong(input);
+        final Detail detail = readDetail(input, strings, values);
+        switch (type) {
+            case SnapshotWriter.INCLUDED:
+                return new IncludedPredicate(lhs, weight, detail, null);
+            case SnapshotWriter.EXCLUDED:
+                return new ExcludedPredicate(lhs, weight, detail, null);
+            default:
+                throw new IOException("Unknown predicate type in snapshot: " + type);
+        }
+    }
+
+    private static Detail readDetail(final DataInputStream input,
+            final Read<String> strings,
+            final Read<Object> values) throws IOException {
+        final int caveat = input.readUnsignedByte();
+        switch (caveat) {
+            case SnapshotWriter.EQUALITY:
+                return new EqualityDetail(Sets.newHashSet(readTable(input, values)));
+            case SnapshotWriter.REGEX:
+                return new RegexDetail(strings.apply(input));
+            case SnapshotWriter.RANGE:
+                return new RangeDetail((Number) values.apply(input),
+                        (Number) values.apply(input),
+                        input.readBoolean(),
+                        input.readBoolean());
+            case SnapshotWriter.VERSIONING:
+                return new VersioningDetail(CheckType.valueOf(strings.apply(input)),
+                        strings.apply(input),
+                        input.readBoolean());
+            default:
+                throw new IOException("Unknown caveat in snapshot: " + caveat);
+        }
+    }
+
+    private static <T> List<T> readTable(final DataInputStream input, final Read<T> read) throws IOException {
+        final int size = readVarInt(input);
+        final List<T> table = Lists.newArrayList();
+        for (int i = 0; i < size; i++) {
+            table.add(read.apply(input));
+        }
+        return table;
+    }
+
+    static int readVarInt(final DataInputStream input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            final int b = input.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in snapshot");
+    }
+
+    static long readVarLong(final DataInputStream input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            final int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (value >>> 1) ^ -(value & 1);
+            }
+        }
+        throw new IOException("Malformed varint in snapshot");
+    }
+
+    static String readString(final DataInputStream input) throws IOException {
+        final int length = readVarInt(input);
+        if (length < 0) {
+            throw new IOException("Malformed string in snapshot");
+        }
+        // Grown as bytes arrive rather than sized up front off a length that may be damaged.
+        final byte[] bytes = ByteStreams.toByteArray(ByteStreams.limit(input, length));
+        if (bytes.length != length) {
+            throw new EOFException();
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static Object readValue(final DataInputStream input) throws IOException {
+        final int tag = input.readUnsignedByte();
+        switch (tag) {
+            case SnapshotWriter.NULL:
+                return null;
+            case SnapshotWriter.STRING:
+                return readString(input);
+            case SnapshotWriter.INTEGER:
+                return (int) readVarLong(input);
+            case SnapshotWriter.LONG:
+                return readVarLong(input);
+            case SnapshotWriter.DOUBLE:
+                return input.readDouble();
+            case SnapshotWriter.FLOAT:
+                return input.readFloat();
+            case SnapshotWriter.BOOLEAN:
+                return input.readBoolean();
+            case SnapshotWriter.BIG_INTEGER:
+                return new BigInteger(readString(input));
+            case SnapshotWriter.BIG_DECIMAL:
+                return new BigDecimal(readString(input));
+            default:
+                throw new IOException("Unknown value type in snapshot: " + tag);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Read<T> {
+        T apply(DataInputStream input) throws IOException;
+    }
+}
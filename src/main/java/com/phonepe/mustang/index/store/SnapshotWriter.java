@@ -0,0 +1,344 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.store;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import javax.validation.constraints.NotNull;
+
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+import com.phonepe.mustang.composition.Composition;
+import com.phonepe.mustang.criteria.Criteria;
+import com.phonepe.mustang.criteria.CriteriaVisitor;
+import com.phonepe.mustang.criteria.impl.CNFCriteria;
+import com.phonepe.mustang.criteria.impl.DNFCriteria;
+import com.phonepe.mustang.detail.DetailVisitor;
+import com.phonepe.mustang.detail.impl.EqualityDetail;
+import com.phonepe.mustang.detail.impl.RangeDetail;
+import com.phonepe.mustang.detail.impl.RegexDetail;
+import com.phonepe.mustang.detail.impl.VersioningDetail;
+import com.phonepe.mustang.predicate.Predicate;
+import com.phonepe.mustang.predicate.PredicateVisitor;
+import com.phonepe.mustang.predicate.impl.ExcludedPredicate;
+import com.phonepe.mustang.predicate.impl.IncludedPredicate;
+
+import lombok.Builder;
+import lombok.Data;
+
+// Writes criterias out in a compact binary snapshot : a header, then a body made of a string table (lhs paths,
+// regexes, versions), a typed value table & the criteria structure with every count & table reference as a
+// varint, followed by a CRC32 of the body. The body is optionally deflated. Tables are filled by a first pass
+// over the criterias into a null sink, so nothing but the tables is held in memory.
+@Data
+@Builder
+public class SnapshotWriter {
+    static final int MAGIC = 0x4D534E50;
+    static final int FORMAT_VERSION = 1;
+    static final int COMPRESSED = 1;
+
+    static final int DNF = 0;
+    static final int CNF = 1;
+    static final int INCLUDED = 0;
+    static final int EXCLUDED = 1;
+    static final int EQUALITY = 0;
+    static final int REGEX = 1;
+    static final int RANGE = 2;
+    static final int VERSIONING = 3;
+
+    static final int NULL = 0;
+    static final int STRING = 1;
+    static final int INTEGER = 2;
+    static final int LONG = 3;
+    static final int DOUBLE = 4;
+    static final int FLOAT = 5;
+    static final int BOOLEAN = 6;
+    static final int BIG_INTEGER = 7;
+    static final int BIG_DECIMAL = 8;
+
+    @NotNull
+    private final Collection<Criteria> criterias;
+    @NotNull
+    private final OutputStream out;
+    private final boolean compressed;
+
+    public void write() throws IOException {
+        final Map<String, Integer> strings = Maps.newLinkedHashMap();
+        final Map<Object, Integer> values = Maps.newLinkedHashMap();
+        writeCriterias(new DataOutputStream(ByteStreams.nullOutputStream()), strings, values);
+
+        final DataOutputStream header = new DataOutputStream(out);
+        header.writeInt(MAGIC);
+        header.writeByte(FORMAT_VERSION);
+        header.writeByte(compressed ? COMPRESSED : 0);
+
+        // Native memory, only taken when the body is deflated.
+        final Deflater deflater = compressed ? new Deflater() : null;
+        try {
+            final DeflaterOutputStream deflated = compressed ? new DeflaterOutputStream(out, deflater) : null;
+            final DataOutputStream sink = new DataOutputStream(new BufferedOutputStream(compressed ? deflated : out));
+            final CheckedOutputStream checked = new CheckedOutputStream(sink, new CRC32());
+            final DataOutputStream body = new DataOutputStream(checked);
+            writeVarInt(body, strings.size());
+            for (String string : strings.keySet()) {
+                writeString(body, string);
+            }
+            writeVarInt(body, values.size());
+            for (Object value : values.keySet()) {
+                writeValue(body, value);
+            }
+            writeCriterias(body, strings, values);
+            body.flush();
+            sink.writeInt((int) checked.getChecksum()
+                    .getValue());
+            sink.flush();
+            if (compressed) {
+                deflated.finish();
+            }
+            out.flush();
+        } finally {
+            if (Objects.nonNull(deflater)) {
+                deflater.end();
+            }
+        }
+    }
+
+    private void writeCriterias(final DataOutputStream body,
+            final Map<String, Integer> strings,
+            final Map<Object, Integer> values) throws IOException {
+        final Encoder encoder = new Encoder(body, strings, values);
+        writeVarInt(body, criterias.size());
+        try {
+            for (Criteria criteria : criterias) {
+                criteria.accept(encoder);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // A single criteria with its strings & values written in place rather than through the tables, & with neither
+    // header nor checksum, for records that are framed & checked by whoever writes them.
+    static void writeCriteria(final DataOutputStream output, final Criteria criteria) throws IOException {
+        try {
+            criteria.accept(new Encoder(output, null, null));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    static void writeVarInt(final DataOutput output, final int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            output.writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        output.writeByte(remaining);
+    }
+
+    static void writeVarLong(final DataOutput output, final long value) throws IOException {
+        long remaining = (value << 1) ^ (value >> 63);
+        while ((remaining & ~0x7FL) != 0) {
+            output.writeByte((int) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        output.writeByte((int) remaining);
+    }
+
+    static void writeString(final DataOutput output, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(output, bytes.length);
+        output.write(bytes);
+    }
+
+    static void writeValue(final DataOutput output, final Object value) throws IOException {
+        if (Objects.isNull(value)) {
+            output.writeByte(NULL);
+        } else if (value instanceof String) {
+            output.writeByte(STRING);
+            writeString(output, (String) value);
+        } else if (value instanceof Integer) {
+            output.writeByte(INTEGER);
+            writeVarLong(output, (Integer) value);
+        } else if (value instanceof Long) {
+            output.writeByte(LONG);
+            writeVarLong(output, (Long) value);
+        } else if (value instanceof Double) {
+            output.writeByte(DOUBLE);
+            output.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            output.writeByte(FLOAT);
+            output.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            output.writeByte(BOOLEAN);
+            output.writeBoolean((Boolean) value);
+        } else if (value instanceof BigInteger || value instanceof BigDecimal) {
+            output.writeByte(value instanceof BigInteger ? BIG_INTEGER : BIG_DECIMAL);
+            writeString(output, value.toString());
+        } else {
+            throw new IOException("Unsupported value type in snapshot: " + value.getClass());
+        }
+    }
+
+    private static class Encoder implements CriteriaVisitor<Void>, PredicateVisitor<Void>, DetailVisitor<Void> {
+        private final DataOutputStream body;
+        private final Map<String, Integer> strings;
+        private final Map<Object, Integer> values;
+
+        Encoder(final DataOutputStream body, final Map<String, Integer> strings, final Map<Object, Integer> values) {
+            this.body = body;
+            this.strings = strings;
+            this.values = values;
+        }
+
+        @Override
+        public Void visit(final DNFCriteria dnf) {
+            return writeCriteria(DNF, dnf.getId(), dnf.getConjunctions());
+        }
+
+        @Override
+        public Void visit(final CNFCriteria cnf) {
+            return writeCriteria(CNF, cnf.getId(), cnf.getDisjunctions());
+        }
+
+        @Override
+        public Void visit(final IncludedPredicate predicate) {
+            return writePredicate(INCLUDED, predicate);
+        }
+
+        @Override
+        public Void visit(final ExcludedPredicate predicate) {
+            return writePredicate(EXCLUDED, predicate);
+        }
+
+        @Override
+        public Void visit(final EqualityDetail detail) {
+            return write(() -> {
+                body.writeByte(EQUALITY);
+                writeVarInt(body, detail.getValues()
+                        .size());
+                for (Object value : detail.getValues()) {
+                    value(value);
+                }
+            });
+        }
+
+        @Override
+        public Void visit(final RegexDetail detail) {
+            return write(() -> {
+                body.writeByte(REGEX);
+                string(detail.getRegex());
+            });
+        }
+
+        @Override
+        public Void visit(final RangeDetail detail) {
+            return write(() -> {
+                body.writeByte(RANGE);
+                value(detail.getLowerBound());
+                value(detail.getUpperBound());
+                body.writeBoolean(detail.isIncludeLowerBound());
+                body.writeBoolean(detail.isIncludeUpperBound());
+            });
+        }
+
+        @Override
+        public Void visit(final VersioningDetail detail) {
+            return write(() -> {
+                body.writeByte(VERSIONING);
+                string(detail.getCheck()
+                        .name());
+                string(detail.getBaseVersion());
+                body.writeBoolean(detail.isExcludeBase());
+            });
+        }
+
+        private Void writeCriteria(final int form, final String id, final List<? extends Composition> compositions) {
+            write(() -> {
+                body.writeByte(form);
+                writeString(body, id);
+                writeVarInt(body, compositions.size());
+                for (Composition composition : compositions) {
+                    writeVarInt(body, composition.getPredicates()
+                            .size());
+                    for (Predicate predicate : composition.getPredicates()) {
+                        predicate.accept(this);
+                    }
+                }
+            });
+            return null;
+        }
+
+        private Void writePredicate(final int type, final Predicate predicate) {
+            write(() -> {
+                body.writeByte(type);
+                string(predicate.getLhs());
+                // weights are rationalised on the way back in, so an absent weight goes out as zero.
+                writeVarLong(body, Objects.isNull(predicate.getWeight()) ? 0 : predicate.getWeight());
+            });
+            return predicate.getDetail()
+                    .accept(this);
+        }
+
+        // Table references, or without tables, the string or value itself.
+        private void string(final String value) throws IOException {
+            if (Objects.isNull(strings)) {
+                writeString(body, value);
+            } else {
+                writeVarInt(body, strings.computeIfAbsent(value, k -> strings.size()));
+            }
+        }
+
+        private void value(final Object value) throws IOException {
+            if (Objects.isNull(values)) {
+                writeValue(body, value);
+            } else {
+                writeVarInt(body, values.computeIfAbsent(value, k -> values.size()));
+            }
+        }
+
+        private Void write(final Write write) {
+            try {
+                write.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Write {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.version;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import com.phonepe.mustang.criteria.Criteria;
+import com.phonepe.mustang.index.operation.IndexOperation;
+
+// Numbers every change made to an index group & keeps the latest of them in a bounded ring, for followers to
+// catch up from. Changes from before a reset, like the group being swapped out wholesale, are never handed out.
+public final class ChangeLog {
+    public static final int DEFAULT_CAPACITY = 4096;
+    private final Change[] ring;
+    private long sequence;
+    private long base;
+
+    public ChangeLog(final int capacity) {
+        this.ring = new Change[capacity];
+    }
+
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    public synchronized void append(final IndexOperation operation, final List<Criteria> criterias) {
+        criterias.forEach(criteria -> {
+            sequence++;
+            ring[slot(sequence)] = new Change(sequence, operation, criteria);
+        });
+    }
+
+    public synchronized void reset() {
+        sequence++;
+        base = sequence;
+        Arrays.fill(ring, null);
+    }
+
+    // Changes after the given sequence in order, or null once some of them have been evicted or reset away.
+    public synchronized List<Change> since(final long from) {
+        final long oldest = Math.max(base, sequence - ring.length);
+        if (from < oldest || from > sequence) {
+            return null;
+        }
+        final List<Change> changes = Lists.newArrayListWithCapacity((int) (sequence - from));
+        for (long next = from + 1; next <= sequence; next++) {
+            changes.add(ring[slot(next)]);
+        }
+        return changes;
+    }
+
+    private int slot(final long position) {
+        return (int) (position % ring.length);
+    }
+}
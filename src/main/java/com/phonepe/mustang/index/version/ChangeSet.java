@@ -0,0 +1,42 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.version;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Changes made to an index group after a given sequence, up to & including sequence. When those are no longer
+// all at hand, it is a snapshot instead : every criteria in the group as an add, to replace the group with.
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeSet {
+    private String index;
+    private long sequence;
+    private boolean snapshot;
+    private List<Change> changes;
+
+    public Stream<Change> stream() {
+        return changes.stream();
+    }
+}
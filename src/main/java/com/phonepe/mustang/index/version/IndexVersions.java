@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.version;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.Maps;
+import com.phonepe.mustang.criteria.Criteria;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+public class IndexVersions {
+    private final AtomicLong current = new AtomicLong(0);
+    // Counts are replaced rather than updated in place, the map may apply a remapping more than once.
+    private final ConcurrentNavigableMap<Long, Integer> pins = new ConcurrentSkipListMap<>();
+    private final Map<String, ConcurrentNavigableMap<Long, PreImage>> preImages = Maps.newConcurrentMap();
+
+    public long getVersion() {
+        return current.get();
+    }
+
+    public long next() {
+        return current.get() + 1;
+    }
+
+    public void publish(final long version) {
+        current.accumulateAndGet(version, Math::max);
+    }
+
+    public boolean isPinned() {
+        return !pins.isEmpty();
+    }
+
+    // The oldest version any reader may still look at, the current one when no reader is pinned.
+    public long oldestVisibleVersion() {
+        final Map.Entry<Long, Integer> oldest = pins.firstEntry();
+        return Objects.nonNull(oldest) ? oldest.getKey() : current.get();
+    }
+
+    public long pin() {
+        final long version = current.get();
+        pins.merge(version, 1, Integer::sum);
+        return version;
+    }
+
+    public void unpin(final long version) {
+        pins.computeIfPresent(version, (x, count) -> count > 1 ? count - 1 : null);
+        reclaim();
+    }
+
+    // Pre-images are only worth keeping while some reader is pinned to an older version.
+    public void retain(final String criteriaId,
+            final Criteria criteria,
+            final boolean tautological,
+            final long version) {
+        if (isPinned()) {
+            preImages.computeIfAbsent(criteriaId, x -> new ConcurrentSkipListMap<>())
+                    .putIfAbsent(version, new PreImage(criteria, tautological));
+        }
+    }
+
+    public PreImage getPreImage(final String criteriaId, final long version) {
+        final ConcurrentNavigableMap<Long, PreImage> images = preImages.get(criteriaId);
+        if (Objects.isNull(images)) {
+            return null;
+        }
+        // The first change after the given version holds the criteria as it stood at that version.
+        final Map.Entry<Long, PreImage> entry = images.higherEntry(version);
+        return Objects.nonNull(entry) ? entry.getValue() : null;
+    }
+
+    private void reclaim() {
+        // Pins come & go concurrently, so the oldest is read once rather than checked for & then fetched.
+        final Map.Entry<Long, Integer> oldest = pins.firstEntry();
+        if (Objects.isNull(oldest)) {
+            preImages.clear();
+            return;
+        }
+        // Pre-images recorded at or before the oldest pinned version are of no use to any reader.
+        preImages.values()
+                .forEach(images -> images.headMap(oldest.getKey(), true)
+                        .clear());
+        preImages.values()
+                .removeIf(Map::isEmpty);
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class PreImage {
+        private final Criteria criteria;
+        private final boolean tautological;
+    }
+}
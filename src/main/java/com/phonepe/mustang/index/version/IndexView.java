@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.index.version;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.google.common.collect.Maps;
+import com.phonepe.mustang.criteria.Criteria;
+import com.phonepe.mustang.index.core.ConjunctionPostingEntry;
+import com.phonepe.mustang.index.core.DisjunctionPostingEntry;
+import com.phonepe.mustang.index.core.InvertedIndex;
+import com.phonepe.mustang.index.core.impl.CNFInvertedIndex;
+import com.phonepe.mustang.index.core.impl.DNFInvertedIndex;
+import com.phonepe.mustang.index.group.IndexGroup;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class IndexView {
+    private final IndexGroup indexGroup;
+    private final DNFInvertedIndex<ConjunctionPostingEntry> dnfInvertedIndex;
+    private final CNFInvertedIndex<DisjunctionPostingEntry> cnfInvertedIndex;
+    private final long version;
+    private final boolean pinned;
+
+    public static IndexView latest(final IndexGroup indexGroup) {
+        return of(indexGroup, indexGroup.getVersions()
+                .getVersion(), false);
+    }
+
+    public static IndexView of(final IndexGroup indexGroup, final long version, final boolean pinned) {
+        return IndexView.builder()
+                .indexGroup(indexGroup)
+                .dnfInvertedIndex(indexGroup.getDnfInvertedIndex())
+                .cnfInvertedIndex(indexGroup.getCnfInvertedIndex())
+                .version(version)
+                .pinned(pinned)
+                .build();
+    }
+
+    // The group's own tables come first, followed by its base segments masked through their own live bitmaps.
+    public List<IndexView> segments() {
+        return Stream.concat(Stream.of(this),
+                indexGroup.getSegments()
+                        .stream()
+                        .map(segment -> IndexView.builder()
+                                .indexGroup(indexGroup)
+                                .dnfInvertedIndex(segment.getDnfInvertedIndex())
+                                .cnfInvertedIndex(segment.getCnfInvertedIndex())
+                                .version(version)
+                                .pinned(pinned)
+                                .build()))
+                .collect(Collectors.toList());
+    }
+
+    public boolean isVisible(final InvertedIndex<?> invertedIndex, final Integer iId) {
+        // Unpinned readers only need what is live right now, which is a single bitmap probe.
+        return pinned ? invertedIndex.isVisible(iId, version) : invertedIndex.isLive(iId);
+    }
+
+    public Criteria getCriteria(final String criteriaId) {
+        if (pinned) {
+            final IndexVersions.PreImage preImage = indexGroup.getVersions()
+                    .getPreImage(criteriaId, version);
+            if (Objects.nonNull(preImage)) {
+                return preImage.getCriteria();
+            }
+        }
+        return indexGroup.getAllCriterias()
+                .get(criteriaId);
+    }
+
+    public Map<String, Criteria> getTautologicalCriterias() {
+        if (!pinned) {
+            return indexGroup.getTautologicalCriterias();
+        }
+        final Map<String, Criteria> tautologicalCriterias = Maps.newHashMap();
+        Stream.concat(indexGroup.getTautologicalCriterias()
+                .keySet()
+                .stream(),
+                indexGroup.getVersions()
+                        .getPreImages()
+                        .keySet()
+                        .stream())
+                .distinct()
+                .forEach(criteriaId -> {
+                    final IndexVersions.PreImage preImage = indexGroup.getVersions()
+                            .getPreImage(criteriaId, version);
+                    if (Objects.isNull(preImage)) {
+                        final Criteria criteria = indexGroup.getTautologicalCriterias()
+                                .get(criteriaId);
+                        if (Objects.nonNull(criteria)) {
+                            tautologicalCriterias.put(criteriaId, criteria);
+                        }
+                    } else if (preImage.isTautological()) {
+                        tautologicalCriterias.put(criteriaId, preImage.getCriteria());
+                    }
+                });
+        return tautologicalCriterias;
+    }
+
+}
@@ -19,6 +19,7 @@ package com.phonepe.mustang.process.handler.impl;
 import java.util.Objects;
 
 import com.google.common.eventbus.Subscribe;
+import com.phonepe.mustang.index.core.posting.SlabAllocator;
 import com.phonepe.mustang.process.handler.ITaskHandler;
 import com.phonepe.mustang.ratify.RatificationRequest;
 import com.phonepe.mustang.ratify.RatificationResult;
@@ -29,6 +30,22 @@ public class RatificationRequestHandler implements ITaskHandler<RatificationRequ
     @Override
     @Subscribe
     public void handle(final RatificationRequest message) {
+        final SlabAllocator slabs = message.getIndexGroup()
+                .getSlabs();
+        // Groups whose off heap postings are gone have been replaced, there is nothing left to ratify.
+        if (Objects.nonNull(slabs) && !slabs.retain()) {
+            return;
+        }
+        try {
+            ratify(message);
+        } finally {
+            if (Objects.nonNull(slabs)) {
+                slabs.release();
+            }
+        }
+    }
+
+    private void ratify(final RatificationRequest message) {
         final RatificationResult currentResult = message.getIndexGroup()
                 .getRatificationResult();
         // To guard against repeat invocations before the previous one gets over.
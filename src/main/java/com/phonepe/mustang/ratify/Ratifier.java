@@ -37,6 +37,7 @@ import com.phonepe.mustang.index.builder.CNFIndexer;
 import com.phonepe.mustang.index.builder.DNFIndexer;
 import com.phonepe.mustang.index.core.Key;
 import com.phonepe.mustang.index.group.IndexGroup;
+import com.phonepe.mustang.index.version.IndexView;
 import com.phonepe.mustang.scan.Scanner;
 import com.phonepe.mustang.search.Query;
 import com.phonepe.mustang.search.QueryBuilder;
@@ -181,7 +182,7 @@ public class Ratifier {
 
     private Set<String> getSearchResults(final Query query) {
         return CriteriaSearchHandler.builder()
-                .indexGroup(indexGroup)
+                .view(IndexView.latest(indexGroup))
                 .query(query)
                 .build()
                 .handle()
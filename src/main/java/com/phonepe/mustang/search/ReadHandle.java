@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.search;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.validation.constraints.NotNull;
+
+import com.phonepe.mustang.common.RequestContext;
+import com.phonepe.mustang.criteria.Criteria;
+import com.phonepe.mustang.debug.DebugResult;
+import com.phonepe.mustang.exception.ErrorCode;
+import com.phonepe.mustang.exception.MustangException;
+import com.phonepe.mustang.index.IndexingFacade;
+import com.phonepe.mustang.index.version.IndexView;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ReadHandle implements AutoCloseable {
+    @NotNull
+    private final IndexView view;
+    @NotNull
+    private final IndexingFacade indexingFacade;
+    @NotNull
+    private final SearchFacade searchFacade;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    public long getVersion() {
+        return view.getVersion();
+    }
+
+    public Set<String> search(final RequestContext context) {
+        return search(context, false); // turn-off scoring by default
+    }
+
+    public Set<String> search(final RequestContext context, final int topN) {
+        ensureOpen();
+        return searchFacade.search(view, QueryBuilder.buildQuery(context), topN, true);
+    }
+
+    public Set<String> search(final RequestContext context, final boolean score) {
+        ensureOpen();
+        return searchFacade.search(view, QueryBuilder.buildQuery(context), -1, score);
+    }
+
+    public Criteria getCriteria(final String criteriaId) {
+        ensureOpen();
+        return view.getCriteria(criteriaId);
+    }
+
+    public double score(final String criteriaId, final RequestContext context) {
+        final Criteria criteria = getCriteria(criteriaId);
+        if (Objects.nonNull(criteria) && criteria.evaluate(context)) {
+            return criteria.getScore(context);
+        }
+        return -1.0; // negative score to indicate unmatched criteria.
+    }
+
+    public DebugResult debug(final String criteriaId, final RequestContext context) {
+        final Criteria criteria = getCriteria(criteriaId);
+        if (Objects.isNull(criteria)) {
+            throw MustangException.builder()
+                    .errorCode(ErrorCode.INDEX_NOT_FOUND)
+                    .build();
+        }
+        return criteria.debug(context);
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            indexingFacade.unpin(view);
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed.get()) {
+            throw MustangException.builder()
+                    .errorCode(ErrorCode.READ_HANDLE_CLOSED)
+                    .build();
+        }
+    }
+
+}
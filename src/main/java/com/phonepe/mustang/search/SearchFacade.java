@@ -25,6 +25,8 @@ import java.util.stream.Collectors;
 import javax.validation.constraints.NotNull;
 
 import com.phonepe.mustang.index.IndexingFacade;
+import com.phonepe.mustang.index.group.IndexGroup;
+import com.phonepe.mustang.index.version.IndexView;
 import com.phonepe.mustang.search.handler.CriteriaSearchHandler;
 
 import lombok.AllArgsConstructor;
@@ -39,8 +41,17 @@ public class SearchFacade {
     private final IndexingFacade indexingFacade;
 
     public Set<String> search(final String indexName, final Query query, final int topN, final boolean score) {
+        final IndexGroup indexGroup = indexingFacade.acquire(indexName);
+        try {
+            return search(IndexView.latest(indexGroup), query, topN, score);
+        } finally {
+            indexingFacade.release(indexGroup);
+        }
+    }
+
+    public Set<String> search(final IndexView view, final Query query, final int topN, final boolean score) {
         final Map<String, Double> result = CriteriaSearchHandler.builder()
-                .indexGroup(indexingFacade.getIndexGroup(indexName))
+                .view(view)
                 .query(query)
                 .score(score)
                 .build()
@@ -25,7 +25,7 @@ import javax.validation.constraints.NotNull;
 
 import com.google.common.collect.Maps;
 import com.phonepe.mustang.criteria.CriteriaForm;
-import com.phonepe.mustang.index.group.IndexGroup;
+import com.phonepe.mustang.index.version.IndexView;
 import com.phonepe.mustang.json.JsonUtils;
 import com.phonepe.mustang.search.Query;
 import com.phonepe.mustang.search.matcher.CNFMatcher;
@@ -41,7 +41,7 @@ import lombok.Data;
 @AllArgsConstructor
 public class CriteriaSearchHandler implements CriteriaForm.Visitor<Matches> {
     @NotNull
-    private final IndexGroup indexGroup;
+    private final IndexView view;
     @Valid
     @NotNull
     private final Query query;
@@ -56,7 +56,7 @@ public class CriteriaSearchHandler implements CriteriaForm.Visitor<Matches> {
                 .flatMap(map -> map.entrySet()
                         .stream())
                 .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (o, n) -> o));
-        final Map<String, Double> tautologicalResults = indexGroup.getTautologicalCriterias()
+        final Map<String, Double> tautologicalResults = view.getTautologicalCriterias()
                 .keySet()
                 .stream()
                 .collect(Collectors.toMap(x -> x, x -> 0.0));
@@ -69,33 +69,45 @@ public class CriteriaSearchHandler implements CriteriaForm.Visitor<Matches> {
     @Override
     public Matches visitDNF() {
         return Matches.builder()
-                .probables(DNFMatcher.builder()
-                        .invertedIndex(indexGroup.getDnfInvertedIndex())
-                        .query(query)
-                        .allCriterias(indexGroup.getAllCriterias())
-                        .pathValues(pathValues)
-                        .score(score)
-                        .build()
-                        .getMatches())
+                .probables(merge(view.segments()
+                        .stream()
+                        .map(segment -> DNFMatcher.builder()
+                                .invertedIndex(segment.getDnfInvertedIndex())
+                                .query(query)
+                                .view(segment)
+                                .pathValues(pathValues)
+                                .score(score)
+                                .build()
+                                .getMatches())))
                 .build();
     }
 
     @Override
     public Matches visitCNF() {
         return Matches.builder()
-                .probables(CNFMatcher.builder()
-                        .invertedIndex(indexGroup.getCnfInvertedIndex())
-                        .query(query)
-                        .allCriterias(indexGroup.getAllCriterias())
-                        .pathValues(pathValues)
-                        .score(score)
-                        .build()
-                        .getMatches())
+                .probables(merge(view.segments()
+                        .stream()
+                        .map(segment -> CNFMatcher.builder()
+                                .invertedIndex(segment.getCnfInvertedIndex())
+                                .query(query)
+                                .view(segment)
+                                .pathValues(pathValues)
+                                .score(score)
+                                .build()
+                                .getMatches())))
                 .build();
     }
 
+    // A criteria is live in at most one segment, the rest have it masked.
+    private static Map<String, Double> merge(final Stream<Map<String, Double>> matches) {
+        return matches.flatMap(map -> map.entrySet()
+                .stream())
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (o, n) -> o));
+    }
+
     private void extractValuesForPaths() {
-        indexGroup.getAllPaths()
+        view.getIndexGroup()
+                .getAllPaths()
                 .entrySet()
                 .forEach(entry -> pathValues.put(entry.getKey(),
                         JsonUtils.getNodeValue(query.getParsedContext(), entry.getValue(), null)));
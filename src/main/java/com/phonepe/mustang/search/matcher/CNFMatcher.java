@@ -20,22 +20,18 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Objects;
-import java.util.TreeMap;
-import java.util.TreeSet;
-import java.util.stream.Collectors;
 import java.util.stream.IntStream;
-import java.util.stream.Stream;
-
-import org.apache.commons.lang3.ObjectUtils;
-import org.apache.commons.lang3.tuple.MutablePair;
 
 import com.google.common.collect.Maps;
 import com.phonepe.mustang.criteria.Criteria;
 import com.phonepe.mustang.index.core.DisjunctionPostingEntry;
+import com.phonepe.mustang.index.core.FrozenTable;
 import com.phonepe.mustang.index.core.Key;
 import com.phonepe.mustang.index.core.impl.CNFInvertedIndex;
+import com.phonepe.mustang.index.core.posting.PostingCursor;
+import com.phonepe.mustang.index.core.posting.PostingList;
+import com.phonepe.mustang.index.version.IndexView;
 import com.phonepe.mustang.predicate.PredicateType;
 import com.phonepe.mustang.search.Query;
 
@@ -47,24 +43,17 @@ import lombok.Data;
 @Builder
 @AllArgsConstructor
 public class CNFMatcher {
-    private static final Comparator<Map.Entry<Key, MutablePair<Integer, TreeMap<Integer, DisjunctionPostingEntry>>>> ID_COMPARATOR = (
-            e1,
-            e2) -> (ObjectUtils.compare(getIdSafely(e1), getIdSafely(e2), true));
-    private static final Comparator<Map.Entry<Key, MutablePair<Integer, TreeMap<Integer, DisjunctionPostingEntry>>>> TYPE_COMPARATOR = (
-            e1,
-            e2) -> (ObjectUtils.compare(getTypeSafely(e1), getTypeSafely(e2), true));
-    private static final Comparator<Map.Entry<Key, MutablePair<Integer, TreeMap<Integer, DisjunctionPostingEntry>>>> ORDER_COMPARATOR = (
-            e1,
-            e2) -> (ObjectUtils.compare(getOrderSafely(e1), getOrderSafely(e2), true));
+    private static final Comparator<PostingCursor<DisjunctionPostingEntry>> ID_COMPARATOR = Comparator
+            .comparingInt(PostingCursor::id);
     private final CNFInvertedIndex<DisjunctionPostingEntry> invertedIndex;
     private final Query query;
-    private final Map<String, Criteria> allCriterias;
+    private final IndexView view;
     private final Map<String, Object> pathValues;
     private final boolean score;
 
     public Map<String, Double> getMatches() {
         final Map<String, Double> result = Maps.newHashMap();
-        final Map<Integer, Map<Key, TreeMap<Integer, DisjunctionPostingEntry>>> table = invertedIndex.getTable();
+        final Map<Integer, Map<Key, PostingList<DisjunctionPostingEntry>>> table = invertedIndex.getTable();
         final Map<Integer, Integer[]> disjunctionCounters = invertedIndex.getDisjunctionCounters();
         final int start = 0;
         final int end = table.keySet()
@@ -76,12 +65,7 @@ public class CNFMatcher {
                 .map(i -> end - i + start)
                 .boxed()
                 .forEach(k -> {
-                    final TreeSet<Integer> links = invertedIndex.getLinkages()
-                            .get(k);
-                    final Map.Entry<Key, MutablePair<Integer, TreeMap<Integer, DisjunctionPostingEntry>>>[] pLists = getPostingListsCNF(
-                            table,
-                            k);
-                    initializeCurrentEntriesCNF(pLists);
+                    final PostingCursor<DisjunctionPostingEntry>[] pLists = getPostingListsCNF(table, k);
                     /* Processing k = 0 and k = 1 are identical */
                     if (k == 0) {
                         k = 1;
@@ -90,41 +74,33 @@ public class CNFMatcher {
                         /* Too few posting lists for any conjunction to be satisfied */
                         return;
                     }
-                    int nextID = 0;
-                    while (canContinue(pLists, k)) {
-                        sortByCurrentEntriesCNF(pLists);
+                    sortByCurrentEntriesCNF(pLists);
+                    while (pLists[k - 1].id() != PostingList.NO_MORE_IDS) {
+                        final int currentId = pLists[k - 1].id();
+                        final int nextID;
                         /*
                          * Check if the first k posting lists have the same conjunction ID in their
                          * current entries
                          */
-                        if (sameConjunctionCheck(pLists, k - 1)) {
-                            /*
-                             * For each disjunction in the current CNF, one counter is initialized to the
-                             * negative number of EXCLUDED predicates
-                             */
-                            final Integer[] counters = getCounters(disjunctionCounters,
-                                    pLists[0].getValue()
-                                            .getKey());
-
-                            disjunctionEvaluationCheck(result, pLists, k, counters);
+                        if (pLists[0].id() == currentId) {
+                            /* Entries of versions not visible to this view are never evaluated */
+                            if (view.isVisible(invertedIndex, currentId)) {
+                                /*
+                                 * For each disjunction in the current CNF, one counter is initialized to the
+                                 * negative number of EXCLUDED predicates
+                                 */
+                                final Integer[] counters = getCounters(disjunctionCounters, currentId);
+
+                                disjunctionEvaluationCheck(result, pLists, currentId, counters);
+                            }
 
                             /* nextID is the smallest possible ID after current ID */
-                            nextID = getNextHigherId(k,
-                                    pLists,
-                                    links,
-                                    pLists[k - 1].getValue()
-                                            .getKey());
-
+                            nextID = currentId + 1;
                         } else {
                             /* Skip first k-1 posting lists */
-                            nextID = getNextId(k,
-                                    pLists,
-                                    links,
-                                    pLists[k - 1].getValue()
-                                            .getKey(),
-                                    nextID);
+                            nextID = currentId;
                         }
-                        skipTo(k, pLists, nextID);
+                        skipTo(pLists, nextID);
                     }
                 });
 
@@ -132,114 +108,40 @@ public class CNFMatcher {
 
     }
 
-    private static Integer getIdSafely(
-            final Entry<Key, MutablePair<Integer, TreeMap<Integer, DisjunctionPostingEntry>>> entry) {
-        final DisjunctionPostingEntry disjunctionPostingEntry = getDisjunctionPostingEntry(entry.getValue()
-                .getValue(),
-                entry.getValue()
-                        .getKey());
-        return disjunctionPostingEntry != null ? disjunctionPostingEntry.getIId() : null;
-    }
-
-    private static PredicateType getTypeSafely(
-            final Entry<Key, MutablePair<Integer, TreeMap<Integer, DisjunctionPostingEntry>>> entry) {
-        final DisjunctionPostingEntry disjunctionPostingEntry = getDisjunctionPostingEntry(entry.getValue()
-                .getValue(),
-                entry.getValue()
-                        .getKey());
-        return disjunctionPostingEntry != null ? disjunctionPostingEntry.getType() : null;
-    }
-
-    private static Integer getOrderSafely(
-            Entry<Key, MutablePair<Integer, TreeMap<Integer, DisjunctionPostingEntry>>> entry) {
-        final DisjunctionPostingEntry disjunctionPostingEntry = getDisjunctionPostingEntry(entry.getValue()
-                .getValue(),
-                entry.getValue()
-                        .getKey());
-        return disjunctionPostingEntry != null ? disjunctionPostingEntry.getOrder() : Integer.MAX_VALUE;
-    }
-
-    private static DisjunctionPostingEntry getDisjunctionPostingEntry(
-            final TreeMap<Integer, DisjunctionPostingEntry> map,
-            final Integer iId) {
-        return map.get(iId);
-    }
-
     @SuppressWarnings("unchecked")
-    private Map.Entry<Key, MutablePair<Integer, TreeMap<Integer, DisjunctionPostingEntry>>>[] getPostingListsCNF(
-            final Map<Integer, Map<Key, TreeMap<Integer, DisjunctionPostingEntry>>> table,
+    private PostingCursor<DisjunctionPostingEntry>[] getPostingListsCNF(
+            final Map<Integer, Map<Key, PostingList<DisjunctionPostingEntry>>> table,
             final int k) {
-        final Map<Key, TreeMap<Integer, DisjunctionPostingEntry>> map = table.getOrDefault(k, Collections.emptyMap());
-        return getMatchingKeys(map).collect(Collectors.toMap(x -> x, x -> MutablePair.of(0, map.get(x))))
-                .entrySet()
-                .stream()
-                .toArray(Map.Entry[]::new);
-    }
-
-    private Stream<Key> getMatchingKeys(final Map<Key, TreeMap<Integer, DisjunctionPostingEntry>> map) {
-        return map.entrySet()
+        final Map<Key, PostingList<DisjunctionPostingEntry>> postingLists = table.getOrDefault(k, Collections.emptyMap());
+        // Frozen levels hash straight to the equality keys of the query instead of visiting every key.
+        if (postingLists instanceof FrozenTable) {
+            return ((FrozenTable<DisjunctionPostingEntry>) postingLists).cursors(pathValues, CNFMatcher::holds);
+        }
+        return postingLists.entrySet()
                 .stream()
-                .map(Entry::getKey)
-                .filter(key -> key.getCaveat()
-                        .visit(new CaveatEnforcer(key, pathValues.get(key.getName()))));
-    }
-
-    private void initializeCurrentEntriesCNF(
-            final Map.Entry<Key, MutablePair<Integer, TreeMap<Integer, DisjunctionPostingEntry>>>[] pLists) {
-        Arrays.stream(pLists)
-                .forEach(pList -> pList.getValue()
-                        .setLeft(pList.getValue()
-                                .getRight()
-                                .firstEntry()
-                                .getValue()
-                                .getIId()));
+                .filter(entry -> holds(entry.getKey(), pathValues.get(entry.getKey()
+                        .getName())))
+                .map(entry -> entry.getValue()
+                        .cursor())
+                .toArray(PostingCursor[]::new);
     }
 
-    private boolean canContinue(
-            final Map.Entry<Key, MutablePair<Integer, TreeMap<Integer, DisjunctionPostingEntry>>>[] pLists,
-            final int k) {
-        return Objects.nonNull(getDisjunctionPostingEntry(pLists[k - 1].getValue()
-                .getValue(),
-                pLists[k - 1].getValue()
-                        .getKey()));
+    private static boolean holds(final Key key, final Object value) {
+        return key.getCaveat()
+                .visit(new CaveatEnforcer(key, value));
     }
 
-    private void sortByCurrentEntriesCNF(
-            final Map.Entry<Key, MutablePair<Integer, TreeMap<Integer, DisjunctionPostingEntry>>>[] pLists) {
-        Arrays.sort(pLists,
-                ID_COMPARATOR.thenComparing(TYPE_COMPARATOR)
-                        .thenComparing(ORDER_COMPARATOR));
-    }
-
-    private boolean sameConjunctionCheck(
-            final Map.Entry<Key, MutablePair<Integer, TreeMap<Integer, DisjunctionPostingEntry>>>[] pLists,
-            final Integer k) {
-        if (Objects.nonNull(getDisjunctionPostingEntry(pLists[0].getValue()
-                .getValue(),
-                pLists[0].getValue()
-                        .getKey()))
-                && Objects.nonNull(getDisjunctionPostingEntry(pLists[k].getValue()
-                        .getValue(),
-                        pLists[k].getValue()
-                                .getKey()))) {
-            return pLists[0].getValue()
-                    .getKey()
-                    .equals(pLists[k].getValue()
-                            .getKey());
-        }
-        return false;
+    private void sortByCurrentEntriesCNF(final PostingCursor<DisjunctionPostingEntry>[] pLists) {
+        Arrays.sort(pLists, ID_COMPARATOR);
     }
 
     private void disjunctionEvaluationCheck(final Map<String, Double> result,
-            final Map.Entry<Key, MutablePair<Integer, TreeMap<Integer, DisjunctionPostingEntry>>>[] pLists,
-            final Integer k,
+            final PostingCursor<DisjunctionPostingEntry>[] pLists,
+            final int currentId,
             final Integer[] counters) {
-        for (int l = 0; ((l < pLists.length) && sameConjunctionCheck(pLists, l)); l++) {
+        for (int l = 0; l < pLists.length && pLists[l].id() == currentId; l++) {
             /* Ignore entries in the Z posting list */
-            final DisjunctionPostingEntry disjunctionPostingEntry = getDisjunctionPostingEntry(pLists[l].getValue()
-                    .getValue(),
-                    pLists[l].getValue()
-                            .getKey());
+            final DisjunctionPostingEntry disjunctionPostingEntry = pLists[l].entry();
             if (Objects.isNull(disjunctionPostingEntry) || disjunctionPostingEntry.getOrder() == -1) {
                 continue;
             }
@@ -252,85 +154,40 @@ public class CNFMatcher {
         }
         if (Arrays.stream(counters)
                 .allMatch(i -> i != 0)) {
-            final DisjunctionPostingEntry disjunctionPostingEntry = getDisjunctionPostingEntry(pLists[k - 1].getValue()
-                    .getValue(),
-                    pLists[k - 1].getValue()
-                            .getKey());
-            if (Objects.nonNull(disjunctionPostingEntry)) {
-                checkAndAdd(result, disjunctionPostingEntry);
-            }
+            checkAndAdd(result, currentId);
         }
-        preEmptiveSortCheck(pLists, k);
     }
 
-    private void checkAndAdd(final Map<String, Double> result, final DisjunctionPostingEntry postingEntry) {
-        // Check to see if the current entry represents criteria's latest version.
-        if (invertedIndex.getInternalIdFromCache(postingEntry.getEId())
-                .equals(postingEntry.getIId())) {
-            result.put(postingEntry.getEId(), computeScore(postingEntry.getEId()));
+    private void checkAndAdd(final Map<String, Double> result, final int iId) {
+        // Check to see if the current entry represents the criteria's version visible to this view.
+        if (view.isVisible(invertedIndex, iId)) {
+            final String eId = invertedIndex.getExternalId(iId);
+            if (Objects.nonNull(eId)) {
+                result.put(eId, computeScore(eId));
+            }
         }
     }
 
     private double computeScore(final String cId) {
         if (score) {
-            return allCriterias.get(cId)
-                    .getScore(query.getRequestContext());
+            final Criteria criteria = view.getCriteria(cId);
+            return Objects.nonNull(criteria) ? criteria.getScore(query.getRequestContext()) : 0;
         }
         return 0;
     }
 
-    private void preEmptiveSortCheck(
-            final Map.Entry<Key, MutablePair<Integer, TreeMap<Integer, DisjunctionPostingEntry>>>[] pLists,
-            final Integer k) {
-        // preemptive sort if possible to continue
-        if (!canContinue(pLists, k)) {
-            sortByCurrentEntriesCNF(pLists);
-        }
-    }
-
-    private int getNextHigherId(final int k,
-            final Map.Entry<Key, MutablePair<Integer, TreeMap<Integer, DisjunctionPostingEntry>>>[] pLists,
-            final TreeSet<Integer> links,
-            final Integer iId) {
-        return links.tailSet(iId, false)
-                .stream()
-                .map(id -> {
-                    skipTo(k, pLists, id);
-                    if (canContinue(pLists, k)) {
-                        return id;
-                    }
-                    return -1;
-                })
-                .filter(id -> id > -1)
-                .findFirst()
-                .orElse(iId + 1);
-
-    }
-
-    private int getNextId(final int k,
-            final Map.Entry<Key, MutablePair<Integer, TreeMap<Integer, DisjunctionPostingEntry>>>[] pLists,
-            final TreeSet<Integer> links,
-            final Integer internalId,
-            final int nextId) {
-        if (nextId != internalId) {
-            return internalId;
-        }
-        return getNextHigherId(k, pLists, links, internalId);
-    }
-
     private Integer[] getCounters(final Map<Integer, Integer[]> disjunctionCounters, final int iId) {
         return Arrays.stream(disjunctionCounters.get(iId))
                 .map(x -> -1 * x)
                 .toArray(Integer[]::new);
     }
 
-    private void skipTo(final int k,
-            final Map.Entry<Key, MutablePair<Integer, TreeMap<Integer, DisjunctionPostingEntry>>>[] pLists,
-            final int nextID) {
-        IntStream.range(0, pLists.length)
-                .forEach(l -> pLists[l].getValue()
-                        .setLeft(nextID));
-        preEmptiveSortCheck(pLists, k);
+    // Lists are kept sorted on their current ids, so only the ones behind nextID need to move.
+    private void skipTo(final PostingCursor<DisjunctionPostingEntry>[] pLists, final int nextID) {
+        for (int l = 0; l < pLists.length && pLists[l].id() < nextID; l++) {
+            pLists[l].advance(nextID);
+        }
+        sortByCurrentEntriesCNF(pLists);
     }
 
 }
@@ -20,24 +20,18 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.TreeMap;
-import java.util.TreeSet;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 import java.util.stream.IntStream;
-import java.util.stream.Stream;
-
-import org.apache.commons.lang3.ObjectUtils;
-import org.apache.commons.lang3.tuple.MutablePair;
 
 import com.google.common.collect.Maps;
 import com.phonepe.mustang.criteria.Criteria;
 import com.phonepe.mustang.index.core.ConjunctionPostingEntry;
+import com.phonepe.mustang.index.core.FrozenTable;
 import com.phonepe.mustang.index.core.Key;
 import com.phonepe.mustang.index.core.impl.DNFInvertedIndex;
+import com.phonepe.mustang.index.core.posting.PostingCursor;
+import com.phonepe.mustang.index.core.posting.PostingList;
+import com.phonepe.mustang.index.version.IndexView;
 import com.phonepe.mustang.predicate.PredicateType;
 import com.phonepe.mustang.search.Query;
 
@@ -50,18 +44,17 @@ import lombok.Data;
 @AllArgsConstructor
 public class DNFMatcher {
 
-    private static final Comparator<Map.Entry<Key, MutablePair<Integer, TreeMap<Integer, ConjunctionPostingEntry>>>> COMPARATOR = (
-            e1,
-            e2) -> (ObjectUtils.compare(getPostingEntry(e1), getPostingEntry(e2), true));
+    private static final Comparator<PostingCursor<ConjunctionPostingEntry>> COMPARATOR = Comparator
+            .comparingInt(PostingCursor::id);
     private final DNFInvertedIndex<ConjunctionPostingEntry> invertedIndex;
     private final Query query;
-    private final Map<String, Criteria> allCriterias;
+    private final IndexView view;
     private final Map<String, Object> pathValues;
     private final boolean score;
 
     public Map<String, Double> getMatches() {
         final Map<String, Double> result = Maps.newHashMap();
-        final Map<Integer, Map<Key, TreeMap<Integer, ConjunctionPostingEntry>>> table = invertedIndex.getTable();
+        final Map<Integer, Map<Key, PostingList<ConjunctionPostingEntry>>> table = invertedIndex.getTable();
         final int start = 0;
         final int end = table.keySet()
                 .stream()
@@ -72,12 +65,7 @@ public class DNFMatcher {
                 .map(i -> end - i + start)
                 .boxed()
                 .forEach(k -> {
-                    final TreeSet<Integer> links = invertedIndex.getLinkages()
-                            .get(k);
-                    final Map.Entry<Key, MutablePair<Integer, TreeMap<Integer, ConjunctionPostingEntry>>>[] pLists = getPostingListsDNF(
-                            table,
-                            k);
-                    initializeCurrentEntriesDNF(pLists);
+                    final PostingCursor<ConjunctionPostingEntry>[] pLists = getPostingListsDNF(table, k);
 
                     /* Processing k = 0 and k = 1 are identical */
                     if (k == 0) {
@@ -87,213 +75,95 @@ public class DNFMatcher {
                         /* Too few posting lists for any conjunction to be satisfied */
                         return;
                     }
-                    int nextID = 0;
-                    while (canContinue(pLists, k)) {
-                        sortByCurrentEntriesDNF(pLists);
+                    sortByCurrentEntriesDNF(pLists);
+                    while (pLists[k - 1].id() != PostingList.NO_MORE_IDS) {
+                        final int currentId = pLists[k - 1].id();
+                        final int nextID;
                         /*
                          * Check if the first k posting lists have the same conjunction ID in their
                          * current entries
                          */
-                        if (sameConjunctionCheck(pLists, k - 1)) {
+                        if (pLists[0].id() == currentId) {
                             /* Reject conjunction if EXCLUDED predicate is violated */
-                            final ConjunctionPostingEntry conjunctionPostingEntry = getConjunctionPostingEntry(
-                                    pLists[0].getValue()
-                                            .getValue(),
-                                    pLists[0].getValue()
-                                            .getKey());
-                            if (conjunctionRejectionCheck(conjunctionPostingEntry)) {
-                                conjunctionRejectionSkip(k,
-                                        pLists,
-                                        links,
-                                        pLists[0].getValue()
-                                                .getKey());
-                                continue; // continue to next while loop iteration
-                            } else {
+                            if (!conjunctionRejectionCheck(pLists, currentId)) {
                                 /* conjunction is fully satisfied */
-                                checkAndAdd(result, conjunctionPostingEntry);
+                                checkAndAdd(result, currentId);
                             }
                             /* nextID is the smallest possible ID after current ID */
-                            nextID = getNextHigherId(k,
-                                    pLists,
-                                    links,
-                                    pLists[k - 1].getValue()
-                                            .getKey());
-
+                            nextID = currentId + 1;
                         } else {
                             /* Skip first k-1 posting lists */
-                            nextID = getNextId(k,
-                                    pLists,
-                                    links,
-                                    pLists[k - 1].getValue()
-                                            .getKey(),
-                                    nextID);
+                            nextID = currentId;
                         }
-                        skipTo(k, pLists, nextID);
+                        skipTo(pLists, nextID);
                     }
                 });
         return result;
     }
 
-    private static ConjunctionPostingEntry getPostingEntry(
-            final Entry<Key, MutablePair<Integer, TreeMap<Integer, ConjunctionPostingEntry>>> entry) {
-        return getConjunctionPostingEntry(entry.getValue()
-                .getValue(),
-                entry.getValue()
-                        .getKey());
-    }
-
-    private static ConjunctionPostingEntry getConjunctionPostingEntry(
-            final TreeMap<Integer, ConjunctionPostingEntry> map,
-            final Integer iId) {
-        return map.get(iId);
-    }
-
     @SuppressWarnings("unchecked")
-    private Map.Entry<Key, MutablePair<Integer, TreeMap<Integer, ConjunctionPostingEntry>>>[] getPostingListsDNF(
-            final Map<Integer, Map<Key, TreeMap<Integer, ConjunctionPostingEntry>>> table,
+    private PostingCursor<ConjunctionPostingEntry>[] getPostingListsDNF(
+            final Map<Integer, Map<Key, PostingList<ConjunctionPostingEntry>>> table,
             final int k) {
-        final Map<Key, TreeMap<Integer, ConjunctionPostingEntry>> map = table.getOrDefault(k, Collections.emptyMap());
-        return getMatchingKeys(map).collect(Collectors.toMap(x -> x, x -> MutablePair.of(0, map.get(x))))
-                .entrySet()
-                .stream()
-                .toArray(Map.Entry[]::new);
-    }
-
-    private Stream<Key> getMatchingKeys(final Map<Key, TreeMap<Integer, ConjunctionPostingEntry>> map) {
-        return map.entrySet()
+        final Map<Key, PostingList<ConjunctionPostingEntry>> postingLists = table.getOrDefault(k, Collections.emptyMap());
+        // Frozen levels hash straight to the equality keys of the query instead of visiting every key.
+        if (postingLists instanceof FrozenTable) {
+            return ((FrozenTable<ConjunctionPostingEntry>) postingLists).cursors(pathValues, DNFMatcher::holds);
+        }
+        return postingLists.entrySet()
                 .stream()
-                .map(Entry::getKey)
-                .filter(key -> key.getCaveat()
-                        .visit(new CaveatEnforcer(key, pathValues.get(key.getName()))));
-    }
-
-    private void initializeCurrentEntriesDNF(
-            Map.Entry<Key, MutablePair<Integer, TreeMap<Integer, ConjunctionPostingEntry>>>[] pLists) {
-        Arrays.stream(pLists)
-                .forEach(pList -> pList.getValue()
-                        .setLeft(pList.getValue()
-                                .getRight()
-                                .firstEntry()
-                                .getValue()
-                                .getIId()));
-    }
-
-    private boolean canContinue(
-            final Map.Entry<Key, MutablePair<Integer, TreeMap<Integer, ConjunctionPostingEntry>>>[] pLists,
-            final int k) {
-        return Objects.nonNull(getConjunctionPostingEntry(pLists[k - 1].getValue()
-                .getValue(),
-                pLists[k - 1].getValue()
-                        .getKey()));
-    }
-
-    private boolean conjunctionRejectionCheck(final ConjunctionPostingEntry conjunctionPostingEntry) {
-        return Objects.isNull(conjunctionPostingEntry)
-                || PredicateType.EXCLUDED.equals(conjunctionPostingEntry.getType());
-    }
-
-    private void sortByCurrentEntriesDNF(
-            final Map.Entry<Key, MutablePair<Integer, TreeMap<Integer, ConjunctionPostingEntry>>>[] pLists) {
-        Arrays.sort(pLists, COMPARATOR);
-    }
-
-    private boolean sameConjunctionCheck(
-            final Map.Entry<Key, MutablePair<Integer, TreeMap<Integer, ConjunctionPostingEntry>>>[] pLists,
-            final Integer k) {
-        if (Objects.nonNull(getConjunctionPostingEntry(pLists[0].getValue()
-                .getValue(),
-                pLists[0].getValue()
-                        .getKey()))
-                && Objects.nonNull(getConjunctionPostingEntry(pLists[k].getValue()
-                        .getValue(),
-                        pLists[k].getValue()
-                                .getKey()))) {
-            return pLists[0].getValue()
-                    .getKey()
-                    .equals(pLists[k].getValue()
-                            .getKey());
+                .filter(entry -> holds(entry.getKey(), pathValues.get(entry.getKey()
+                        .getName())))
+                .map(entry -> entry.getValue()
+                        .cursor())
+                .toArray(PostingCursor[]::new);
+    }
+
+    private static boolean holds(final Key key, final Object value) {
+        return key.getCaveat()
+                .visit(new CaveatEnforcer(key, value));
+    }
+
+    private boolean conjunctionRejectionCheck(final PostingCursor<ConjunctionPostingEntry>[] pLists,
+            final int currentId) {
+        for (int l = 0; l < pLists.length && pLists[l].id() == currentId; l++) {
+            final ConjunctionPostingEntry conjunctionPostingEntry = pLists[l].entry();
+            if (Objects.isNull(conjunctionPostingEntry)
+                    || PredicateType.EXCLUDED.equals(conjunctionPostingEntry.getType())) {
+                return true;
+            }
         }
         return false;
     }
 
-    private void conjunctionRejectionSkip(final int k,
-            final Map.Entry<Key, MutablePair<Integer, TreeMap<Integer, ConjunctionPostingEntry>>>[] pLists,
-            final TreeSet<Integer> links,
-            final Integer rejectId) {
-        final Integer nextHigher = Optional.ofNullable(links.higher(rejectId)).map(Function.identity()).orElse(rejectId + 1);
-        IntStream.rangeClosed(0, Math.max(k, pLists.length))
-                .boxed()
-                .filter(l -> l < pLists.length)
-                .filter(l -> pLists[l].getValue()
-                        .getKey()
-                        .equals(rejectId))
-                .forEach(l -> pLists[l].getValue()
-                    .setLeft(nextHigher));
-
-        preEmptiveSortCheck(k, pLists);
-    }
-
-    private void preEmptiveSortCheck(final int k,
-            final Map.Entry<Key, MutablePair<Integer, TreeMap<Integer, ConjunctionPostingEntry>>>[] pLists) {
-        // preemptive sort if possible to continue
-        if (!canContinue(pLists, k)) {
-            sortByCurrentEntriesDNF(pLists);
-        }
-    }
-
-    private void checkAndAdd(final Map<String, Double> result, final ConjunctionPostingEntry postingEntry) {
-        // Check to see if the current entry is part of criteria's latest version.
-        if (invertedIndex.getActiveIds()
-                .get(postingEntry.getEId())
-                .contains(postingEntry.getIId())) {
-            result.put(postingEntry.getEId(), computeScore(postingEntry.getEId()));
-        }
-    }
-
-    private int getNextHigherId(final int k,
-            final Map.Entry<Key, MutablePair<Integer, TreeMap<Integer, ConjunctionPostingEntry>>>[] pLists,
-            final TreeSet<Integer> links,
-            final Integer internalId) {
-        return links.tailSet(internalId, false)
-                .stream()
-                .map(id -> {
-                    skipTo(k, pLists, id);
-                    if (canContinue(pLists, k)) {
-                        return id;
-                    }
-                    return -1;
-                })
-                .filter(id -> id > -1)
-                .findFirst()
-                .orElse(internalId + 1);
+    private void sortByCurrentEntriesDNF(final PostingCursor<ConjunctionPostingEntry>[] pLists) {
+        Arrays.sort(pLists, COMPARATOR);
     }
 
-    private int getNextId(final int k,
-            final Map.Entry<Key, MutablePair<Integer, TreeMap<Integer, ConjunctionPostingEntry>>>[] pLists,
-            final TreeSet<Integer> links,
-            final Integer internalId,
-            final int nextId) {
-        if (nextId != internalId) {
-            return internalId;
+    private void checkAndAdd(final Map<String, Double> result, final int iId) {
+        // Check to see if the current entry is part of the criteria's version visible to this view.
+        if (view.isVisible(invertedIndex, iId)) {
+            final String eId = invertedIndex.getExternalId(iId);
+            if (Objects.nonNull(eId)) {
+                result.put(eId, computeScore(eId));
+            }
         }
-        return getNextHigherId(k, pLists, links, internalId);
     }
 
     private double computeScore(final String cId) {
         if (score) {
-            return allCriterias.get(cId)
-                    .getScore(query.getRequestContext());
+            final Criteria criteria = view.getCriteria(cId);
+            return Objects.nonNull(criteria) ? criteria.getScore(query.getRequestContext()) : 0;
         }
         return 0;
     }
 
-    private void skipTo(final int k,
-            final Map.Entry<Key, MutablePair<Integer, TreeMap<Integer, ConjunctionPostingEntry>>>[] pLists,
-            final int nextID) {
-        IntStream.range(0, pLists.length)
-                .forEach(l -> pLists[l].getValue()
-                        .setLeft(nextID));
-        preEmptiveSortCheck(k, pLists);
+    // Lists are kept sorted on their current ids, so only the ones behind nextID need to move.
+    private void skipTo(final PostingCursor<ConjunctionPostingEntry>[] pLists, final int nextID) {
+        for (int l = 0; l < pLists.length && pLists[l].id() < nextID; l++) {
+            pLists[l].advance(nextID);
+        }
+        sortByCurrentEntriesDNF(pLists);
     }
 
 }
@@ -17,11 +17,22 @@
 package com.phonepe.mustang.index;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.hasSize;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -38,12 +49,25 @@ import com.phonepe.mustang.criteria.Criteria;
 import com.phonepe.mustang.criteria.impl.CNFCriteria;
 import com.phonepe.mustang.criteria.impl.DNFCriteria;
 import com.phonepe.mustang.detail.Caveat;
+import com.phonepe.mustang.detail.impl.RangeDetail;
 import com.phonepe.mustang.exception.ErrorCode;
 import com.phonepe.mustang.exception.MustangException;
+import com.phonepe.mustang.index.builder.BulkIndexBuilder;
+import com.phonepe.mustang.index.compaction.IndexStats;
+import com.phonepe.mustang.index.core.DisjunctionPostingEntry;
+import com.phonepe.mustang.index.core.FrozenTable;
+import com.phonepe.mustang.index.core.IdBitmap;
+import com.phonepe.mustang.index.core.IdTable;
 import com.phonepe.mustang.index.core.Key;
+import com.phonepe.mustang.index.core.posting.BitmapPostingList;
+import com.phonepe.mustang.index.core.posting.BlockPostingList;
+import com.phonepe.mustang.index.core.posting.DirectPostingList;
+import com.phonepe.mustang.index.core.posting.PostingList;
+import com.phonepe.mustang.index.core.posting.PostingStorage;
 import com.phonepe.mustang.index.group.IndexGroup;
 import com.phonepe.mustang.predicate.impl.ExcludedPredicate;
 import com.phonepe.mustang.predicate.impl.IncludedPredicate;
+import com.phonepe.mustang.search.ReadHandle;
 
 public class IndexTest {
 
@@ -117,12 +141,12 @@ public class IndexTest {
         // Fetch for a specific Index Group
         IndexGroup index = engine.getIndexingFacde()
                 .getIndexGroup("test");
-        final Key key = Key.builder()
-                .name("ZZZ")
-                .caveat(Caveat.NONE)
-                .value(0)
-                .upperBoundScore(0)
-                .build();
+        final Key key = index.getKeyDictionary()
+                .lookup(Key.builder()
+                        .name("ZZZ")
+                        .caveat(Caveat.NONE)
+                        .value(0)
+                        .build());
         Assert.assertEquals(1, index.getDnfInvertedIndex()
                 .getTable()
                 .size());
@@ -212,12 +236,12 @@ public class IndexTest {
                 .size());
 
         /* Asserions for keys in k = 0 */
-        final Key zKey = Key.builder()
-                .name("ZZZ")
-                .caveat(Caveat.NONE)
-                .value(0)
-                .upperBoundScore(0)
-                .build();
+        final Key zKey = index.getKeyDictionary()
+                .lookup(Key.builder()
+                        .name("ZZZ")
+                        .caveat(Caveat.NONE)
+                        .value(0)
+                        .build());
         Assert.assertEquals(3, index.getDnfInvertedIndex()
                 .getTable()
                 .get(0)
@@ -226,23 +250,24 @@ public class IndexTest {
                 .getTable()
                 .get(0)
                 .containsKey(zKey));
-        final Key key = Key.builder()
-                .name("$.b")
-                .caveat(Caveat.EQUALITY)
-                .value("B1")
-                .upperBoundScore(0)
-                .build();
+        final Key key = index.getKeyDictionary()
+                .lookup(Key.builder()
+                        .name("$.b")
+                        .caveat(Caveat.EQUALITY)
+                        .value("B1")
+                        .build());
         Assert.assertTrue(index.getDnfInvertedIndex()
                 .getTable()
                 .get(0)
                 .containsKey(key));
         Assert.assertTrue(index.getDnfInvertedIndex()
-                .getTable()
-                .get(0)
-                .get(key)
-                .firstEntry()
-                .getValue()
-                .getEId()
+                .getExternalId(index.getDnfInvertedIndex()
+                        .getTable()
+                        .get(0)
+                        .get(key)
+                        .firstEntry()
+                        .getValue()
+                        .getIId())
                 .equals("C1"));
 
         /* Asserions for keys in k = 1 */
@@ -250,12 +275,12 @@ public class IndexTest {
                 .getTable()
                 .get(1)
                 .size());
-        final Key akeyC3 = Key.builder()
-                .name("$.a")
-                .caveat(Caveat.EQUALITY)
-                .value("A1")
-                .upperBoundScore(0)
-                .build();
+        final Key akeyC3 = index.getKeyDictionary()
+                .lookup(Key.builder()
+                        .name("$.a")
+                        .caveat(Caveat.EQUALITY)
+                        .value("A1")
+                        .build());
         Assert.assertTrue(index.getDnfInvertedIndex()
                 .getTable()
                 .get(1)
@@ -266,12 +291,12 @@ public class IndexTest {
                 .getTable()
                 .get(2)
                 .size());
-        final Key keyK2 = Key.builder()
-                .name("$.a")
-                .caveat(Caveat.EQUALITY)
-                .value("A1")
-                .upperBoundScore(0)
-                .build();
+        final Key keyK2 = index.getKeyDictionary()
+                .lookup(Key.builder()
+                        .name("$.a")
+                        .caveat(Caveat.EQUALITY)
+                        .value("A1")
+                        .build());
         Assert.assertTrue(index.getDnfInvertedIndex()
                 .getTable()
                 .get(2)
@@ -286,12 +311,12 @@ public class IndexTest {
                 .getTable()
                 .get(3)
                 .containsKey(zKey));
-        final Key aKey = Key.builder()
-                .name("$.a")
-                .caveat(Caveat.EQUALITY)
-                .value("A1")
-                .upperBoundScore(0)
-                .build();
+        final Key aKey = index.getKeyDictionary()
+                .lookup(Key.builder()
+                        .name("$.a")
+                        .caveat(Caveat.EQUALITY)
+                        .value("A1")
+                        .build());
         Assert.assertTrue(index.getDnfInvertedIndex()
                 .getTable()
                 .get(3)
@@ -393,12 +418,12 @@ public class IndexTest {
         // Fetch for a specific Index Group
         IndexGroup index = engine.getIndexingFacde()
                 .getIndexGroup("test");
-        final Key zKey = Key.builder()
-                .name("ZZZ")
-                .caveat(Caveat.NONE)
-                .value(0)
-                .upperBoundScore(0)
-                .build();
+        final Key zKey = index.getKeyDictionary()
+                .lookup(Key.builder()
+                        .name("ZZZ")
+                        .caveat(Caveat.NONE)
+                        .value(0)
+                        .build());
         Assert.assertTrue(index.getCnfInvertedIndex()
                 .getTable()
                 .get(0)
@@ -431,12 +456,12 @@ public class IndexTest {
         engine.add("test", c1);
         IndexGroup index = engine.getIndexingFacde()
                 .getIndexGroup("test");
-        final Key key = Key.builder()
-                .name("ZZZ")
-                .caveat(Caveat.NONE)
-                .value(0)
-                .upperBoundScore(0)
-                .build();
+        final Key key = index.getKeyDictionary()
+                .lookup(Key.builder()
+                        .name("ZZZ")
+                        .caveat(Caveat.NONE)
+                        .value(0)
+                        .build());
         Assert.assertTrue(index.getCnfInvertedIndex()
                 .getTable()
                 .get(0)
@@ -552,12 +577,12 @@ public class IndexTest {
                 .size());
 
         /* Asserions for keys in k = 0 */
-        final Key zKey = Key.builder()
-                .name("ZZZ")
-                .caveat(Caveat.NONE)
-                .value(0)
-                .upperBoundScore(0)
-                .build();
+        final Key zKey = index.getKeyDictionary()
+                .lookup(Key.builder()
+                        .name("ZZZ")
+                        .caveat(Caveat.NONE)
+                        .value(0)
+                        .build());
         Assert.assertEquals(9, index.getCnfInvertedIndex()
                 .getTable()
                 .get(0)
@@ -566,23 +591,24 @@ public class IndexTest {
                 .getTable()
                 .get(0)
                 .containsKey(zKey));
-        final Key key = Key.builder()
-                .name("$.b")
-                .caveat(Caveat.EQUALITY)
-                .value("B2")
-                .upperBoundScore(0)
-                .build();
+        final Key key = index.getKeyDictionary()
+                .lookup(Key.builder()
+                        .name("$.b")
+                        .caveat(Caveat.EQUALITY)
+                        .value("B2")
+                        .build());
         Assert.assertTrue(index.getCnfInvertedIndex()
                 .getTable()
                 .get(0)
                 .containsKey(key));
         Assert.assertTrue(index.getCnfInvertedIndex()
-                .getTable()
-                .get(0)
-                .get(key)
-                .firstEntry()
-                .getValue()
-                .getEId()
+                .getExternalId(index.getCnfInvertedIndex()
+                        .getTable()
+                        .get(0)
+                        .get(key)
+                        .firstEntry()
+                        .getValue()
+                        .getIId())
                 .equals("C2"));
 
         /* Asserions for keys in k = 1 */
@@ -590,12 +616,12 @@ public class IndexTest {
                 .getTable()
                 .get(2)
                 .size());
-        final Key bkey = Key.builder()
-                .name("$.b")
-                .caveat(Caveat.EQUALITY)
-                .value("B1")
-                .upperBoundScore(0)
-                .build();
+        final Key bkey = index.getKeyDictionary()
+                .lookup(Key.builder()
+                        .name("$.b")
+                        .caveat(Caveat.EQUALITY)
+                        .value("B1")
+                        .build());
         Assert.assertTrue(index.getCnfInvertedIndex()
                 .getTable()
                 .get(1)
@@ -606,13 +632,13 @@ public class IndexTest {
                 .getTable()
                 .get(2)
                 .size());
-        final Key keyK2 = Key.builder()
-                .name("$.a")
-                .caveat(Caveat.EQUALITY)
-                .value("A1")
-                .order(0)
-                .upperBoundScore(0)
-                .build();
+        final Key keyK2 = index.getKeyDictionary()
+                .lookup(Key.builder()
+                        .name("$.a")
+                        .caveat(Caveat.EQUALITY)
+                        .value("A1")
+                        .order(0)
+                        .build());
         Assert.assertTrue(index.getCnfInvertedIndex()
                 .getTable()
                 .get(2)
@@ -627,13 +653,13 @@ public class IndexTest {
                 .getTable()
                 .get(3)
                 .containsKey(zKey));
-        final Key aKey = Key.builder()
-                .name("$.user_id")
-                .caveat(Caveat.EQUALITY)
-                .value("22")
-                .order(1)
-                .upperBoundScore(0)
-                .build();
+        final Key aKey = index.getKeyDictionary()
+                .lookup(Key.builder()
+                        .name("$.user_id")
+                        .caveat(Caveat.EQUALITY)
+                        .value("22")
+                        .order(1)
+                        .build());
         Assert.assertTrue(index.getCnfInvertedIndex()
                 .getTable()
                 .get(3)
@@ -929,4 +955,1011 @@ public class IndexTest {
 
     }
 
+    @Test
+    public void testParallelIndexingAcrossIndexGroups() throws Exception {
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+        final List<Future<?>> futures = IntStream.range(0, 4)
+                .mapToObj(g -> executorService.submit(() -> IntStream.range(0, 50)
+                        .forEach(i -> engine.add("test" + g, DNFCriteria.builder()
+                                .id("C" + i)
+                                .conjunction(Conjunction.builder()
+                                        .predicate(IncludedPredicate.builder()
+                                                .lhs("$.a")
+                                                .values(Sets.newHashSet("A" + i))
+                                                .build())
+                                        .build())
+                                .build()))))
+                .collect(Collectors.toList());
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executorService.shutdown();
+
+        IntStream.range(0, 4)
+                .forEach(g -> {
+                    Assert.assertEquals(50, engine.getIndexingFacde()
+                            .getIndexGroup("test" + g)
+                            .getAllCriterias()
+                            .size());
+                    Map<String, Object> testQuery = Maps.newHashMap();
+                    testQuery.put("a", "A7");
+                    final Set<String> searchResults = engine.search("test" + g, RequestContext.builder()
+                            .node(mapper.valueToTree(testQuery))
+                            .build());
+                    assertThat(searchResults, hasSize(1));
+                    Assert.assertTrue(searchResults.contains("C7"));
+                });
+    }
+
+    @Test
+    public void testCompactionOfStalePostings() {
+        IntStream.range(0, 3)
+                .forEach(round -> IntStream.range(0, 10)
+                        .forEach(i -> {
+                            engine.update("test", DNFCriteria.builder()
+                                    .id("D" + i)
+                                    .conjunction(Conjunction.builder()
+                                            .predicate(IncludedPredicate.builder()
+                                                    .lhs("$.a")
+                                                    .values(Sets.newHashSet("A" + round))
+                                                    .build())
+                                            .build())
+                                    .build());
+                            engine.update("test", CNFCriteria.builder()
+                                    .id("C" + i)
+                                    .disjunction(Disjunction.builder()
+                                            .predicate(IncludedPredicate.builder()
+                                                    .lhs("$.b")
+                                                    .values(Sets.newHashSet("B" + round))
+                                                    .build())
+                                            .build())
+                                    .build());
+                        }));
+
+        IndexStats stats = engine.getIndexStats("test");
+        Assert.assertEquals(20, stats.getCriterias());
+        Assert.assertEquals(40, stats.getTombstones());
+        Assert.assertEquals(40, stats.getStalePostings());
+        Assert.assertEquals(60, stats.getPostings());
+
+        Assert.assertEquals(40, engine.compact("test"));
+        stats = engine.getIndexStats("test");
+        Assert.assertEquals(0, stats.getTombstones());
+        Assert.assertEquals(0, stats.getStalePostings());
+        Assert.assertEquals(20, stats.getPostings());
+        Assert.assertEquals(0, engine.compact("test"));
+
+        final IndexGroup indexGroup = engine.getIndexingFacde()
+                .getIndexGroup("test");
+        Assert.assertEquals(1, indexGroup.getDnfKeyFrequency()
+                .size());
+        Assert.assertEquals(1, indexGroup.getCnfKeyFrequency()
+                .size());
+
+        Map<String, Object> testQuery = Maps.newHashMap();
+        testQuery.put("a", "A0");
+        testQuery.put("b", "B0");
+        assertThat(engine.search("test", RequestContext.builder()
+                .node(mapper.valueToTree(testQuery))
+                .build()), hasSize(0));
+        testQuery.put("a", "A2");
+        testQuery.put("b", "B2");
+        final Set<String> searchResults = engine.search("test", RequestContext.builder()
+                .node(mapper.valueToTree(testQuery))
+                .build());
+        assertThat(searchResults, hasSize(20));
+        Assert.assertTrue(searchResults.contains("D3"));
+        Assert.assertTrue(searchResults.contains("C3"));
+    }
+
+    @Test
+    public void testStaleGroupsAreCompactedOffTheWriter() {
+        IntStream.range(0, 300)
+                .forEach(round -> IntStream.range(0, 10)
+                        .forEach(i -> engine.update("test", DNFCriteria.builder()
+                                .id("D" + i)
+                                .conjunction(Conjunction.builder()
+                                        .predicate(IncludedPredicate.builder()
+                                                .lhs("$.a")
+                                                .values(Sets.newHashSet("A" + round))
+                                                .build())
+                                        .build())
+                                .build())));
+        ForkJoinPool.commonPool()
+                .awaitQuiescence(1, TimeUnit.MINUTES);
+
+        final IndexStats stats = engine.getIndexStats("test");
+        Assert.assertEquals(10, stats.getLiveIds());
+        Assert.assertTrue(stats.getTombstones() < 2990);
+        Assert.assertTrue(stats.getIdSpace() < 3000);
+        final Map<String, Object> testQuery = Maps.newHashMap();
+        testQuery.put("a", "A299");
+        assertThat(engine.search("test", RequestContext.builder()
+                .node(mapper.valueToTree(testQuery))
+                .build()), hasSize(10));
+        testQuery.put("a", "A298");
+        assertThat(engine.search("test", RequestContext.builder()
+                .node(mapper.valueToTree(testQuery))
+                .build()), hasSize(0));
+    }
+
+    @Test
+    public void testDenseIdRemapping() {
+        IntStream.range(0, 3)
+                .forEach(round -> IntStream.range(0, 10)
+                        .forEach(i -> {
+                            engine.update("test", DNFCriteria.builder()
+                                    .id("D" + i)
+                                    .conjunction(Conjunction.builder()
+                                            .predicate(IncludedPredicate.builder()
+                                                    .lhs("$.a")
+                                                    .values(Sets.newHashSet("A" + round))
+                                                    .build())
+                                            .build())
+                                    .build());
+                            engine.update("test", CNFCriteria.builder()
+                                    .id("C" + i)
+                                    .disjunction(Disjunction.builder()
+                                            .predicate(IncludedPredicate.builder()
+                                                    .lhs("$.b")
+                                                    .values(Sets.newHashSet("B" + round))
+                                                    .build())
+                                            .build())
+                                    .build());
+                        }));
+        Assert.assertEquals(60, engine.getIndexStats("test")
+                .getIdSpace());
+
+        engine.remap("test");
+        final IndexStats stats = engine.getIndexStats("test");
+        Assert.assertEquals(20, stats.getLiveIds());
+        Assert.assertEquals(20, stats.getIdSpace());
+        Assert.assertEquals(0, stats.getTombstones());
+        Assert.assertEquals(20, stats.getPostings());
+
+        final IndexGroup indexGroup = engine.getIndexingFacde()
+                .getIndexGroup("test");
+        Assert.assertEquals(10, indexGroup.getDnfInvertedIndex()
+                .getExternalIds()
+                .ids()
+                .max()
+                .getAsInt());
+        Assert.assertEquals(10, indexGroup.getCnfInvertedIndex()
+                .getDisjunctionCounters()
+                .size());
+
+        engine.delete("test", DNFCriteria.builder()
+                .id("D3")
+                .build());
+        Map<String, Object> testQuery = Maps.newHashMap();
+        testQuery.put("a", "A2");
+        testQuery.put("b", "B2");
+        final Set<String> searchResults = engine.search("test", RequestContext.builder()
+                .node(mapper.valueToTree(testQuery))
+                .build());
+        assertThat(searchResults, hasSize(19));
+        Assert.assertFalse(searchResults.contains("D3"));
+        Assert.assertTrue(searchResults.contains("C3"));
+    }
+
+    @Test
+    public void testIncrementalPostingListMaintenance() {
+        engine.add("test", DNFCriteria.builder()
+                .id("C1")
+                .conjunction(Conjunction.builder()
+                        .predicate(IncludedPredicate.builder()
+                                .lhs("$.a")
+                                .values(Sets.newHashSet("A1"))
+                                .build())
+                        .build())
+                .build());
+        final IndexGroup index = engine.getIndexingFacde()
+                .getIndexGroup("test");
+        final Key key = index.getKeyDictionary()
+                .lookup(Key.builder()
+                        .name("$.a")
+                        .caveat(Caveat.EQUALITY)
+                        .value("A1")
+                        .build());
+        final Map<Key, ?> postingLists = index.getDnfInvertedIndex()
+                .getTable()
+                .get(1);
+        final Object postingList = postingLists.get(key);
+
+        IntStream.range(2, 10)
+                .forEach(i -> engine.add("test", DNFCriteria.builder()
+                        .id("C" + i)
+                        .conjunction(Conjunction.builder()
+                                .predicate(IncludedPredicate.builder()
+                                        .lhs("$.a")
+                                        .values(Sets.newHashSet("A" + (i % 2)))
+                                        .build())
+                                .build())
+                        .build()));
+
+        // Untouched tables & posting lists are kept as is, touched ones grow in place.
+        Assert.assertSame(postingLists, index.getDnfInvertedIndex()
+                .getTable()
+                .get(1));
+        Assert.assertSame(postingList, postingLists.get(key));
+        Assert.assertEquals(5, index.getDnfInvertedIndex()
+                .getTable()
+                .get(1)
+                .get(key)
+                .size());
+        Map<String, Object> testQuery = Maps.newHashMap();
+        testQuery.put("a", "A1");
+        assertThat(engine.search("test", RequestContext.builder()
+                .node(mapper.valueToTree(testQuery))
+                .build()), hasSize(5));
+    }
+
+    @Test
+    public void testCnfOrderSlotsAreSharedAcrossCriteria() {
+        IntStream.range(0, 3)
+                .forEach(i -> engine.add("test", CNFCriteria.builder()
+                        .id("C" + i)
+                        .disjunction(Disjunction.builder()
+                                .predicate(IncludedPredicate.builder()
+                                        .lhs("$.a")
+                                        .values(Sets.newHashSet("A1"))
+                                        .build())
+                                .predicate(IncludedPredicate.builder()
+                                        .lhs("$.b")
+                                        .values(Sets.newHashSet("B1"))
+                                        .build())
+                                .build())
+                        .disjunction(Disjunction.builder()
+                                .predicate(IncludedPredicate.builder()
+                                        .lhs("$.a")
+                                        .values(Sets.newHashSet("A1"))
+                                        .build())
+                                .predicate(IncludedPredicate.builder()
+                                        .lhs("$.b")
+                                        .values(Sets.newHashSet("B2"))
+                                        .build())
+                                .build())
+                        .build()));
+        final IndexGroup index = engine.getIndexingFacde()
+                .getIndexGroup("test");
+
+        // Each criteria takes slots 0 & 1 of $.a = A1, no criteria needs a third one.
+        IntStream.range(0, 3)
+                .forEach(order -> {
+                    final Key key = index.getKeyDictionary()
+                            .lookup(Key.builder()
+                                    .name("$.a")
+                                    .caveat(Caveat.EQUALITY)
+                                    .value("A1")
+                                    .order(order)
+                                    .build());
+                    final Map<Key, PostingList<DisjunctionPostingEntry>> postingLists = index.getCnfInvertedIndex()
+                            .getTable()
+                            .get(2);
+                    if (order < 2) {
+                        Assert.assertEquals(3, postingLists.get(key)
+                                .size());
+                    } else {
+                        Assert.assertFalse(postingLists.containsKey(key));
+                    }
+                });
+        Map<String, Object> testQuery = Maps.newHashMap();
+        testQuery.put("a", "A1");
+        assertThat(engine.search("test", RequestContext.builder()
+                .node(mapper.valueToTree(testQuery))
+                .build()), hasSize(3));
+    }
+
+    @Test
+    public void testDenseKeysArePacked() {
+        final List<Criteria> criterias = IntStream.range(0, 3000)
+                .mapToObj(i -> DNFCriteria.builder()
+                        .id("C" + i)
+                        .conjunction(i % 2 == 0 ? Conjunction.builder()
+                                .predicate(IncludedPredicate.builder()
+                                        .lhs("$.a")
+                                        .values(Sets.newHashSet("A1"))
+                                        .build())
+                                .build()
+                                : Conjunction.builder()
+                                        .predicate(IncludedPredicate.builder()
+                                                .lhs("$.b")
+                                                .values(Sets.newHashSet("B1"))
+                                                .build())
+                                        .predicate(ExcludedPredicate.builder()
+                                                .lhs("$.a")
+                                                .values(Sets.newHashSet("A1"))
+                                                .build())
+                                        .build())
+                        .build())
+                .collect(Collectors.toList());
+        criterias.forEach(criteria -> engine.add("incremental", criteria));
+        engine.add("bulk", criterias);
+
+        Arrays.asList("incremental", "bulk")
+                .forEach(name -> {
+                    final IndexGroup index = engine.getIndexingFacde()
+                            .getIndexGroup(name);
+                    final PostingList<?> postingList = index.getDnfInvertedIndex()
+                            .getTable()
+                            .get(1)
+                            .get(index.getKeyDictionary()
+                                    .lookup(Key.builder()
+                                            .name("$.a")
+                                            .caveat(Caveat.EQUALITY)
+                                            .value("A1")
+                                            .build()));
+                    Assert.assertTrue(postingList instanceof BitmapPostingList);
+                    Assert.assertEquals(3000, postingList.size());
+                });
+
+        IntStream.range(0, 100)
+                .forEach(i -> engine.delete("incremental", DNFCriteria.builder()
+                        .id("C" + (2 * i + 1))
+                        .build()));
+        engine.compact("incremental");
+        Map<String, Object> testQuery = Maps.newHashMap();
+        testQuery.put("a", "A1");
+        testQuery.put("b", "B1");
+        final RequestContext included = RequestContext.builder()
+                .node(mapper.valueToTree(testQuery))
+                .build();
+        assertThat(engine.search("incremental", included), hasSize(1500));
+        assertThat(engine.search("bulk", included), hasSize(1500));
+        testQuery.put("a", "A2");
+        final RequestContext excluded = RequestContext.builder()
+                .node(mapper.valueToTree(testQuery))
+                .build();
+        assertThat(engine.search("incremental", excluded), hasSize(1400));
+        assertThat(engine.search("bulk", excluded), hasSize(1500));
+    }
+
+    @Test
+    public void testLongTailKeysAreBlockPacked() {
+        engine.add("test", IntStream.range(0, 300)
+                .mapToObj(i -> DNFCriteria.builder()
+                        .id("C" + i)
+                        .conjunction(Conjunction.builder()
+                                .predicate(IncludedPredicate.builder()
+                                        .lhs("$.a")
+                                        .values(Sets.newHashSet("A" + (i % 100)))
+                                        .build())
+                                .build())
+                        .build())
+                .collect(Collectors.toList()));
+        engine.add("test", DNFCriteria.builder()
+                .id("C300")
+                .conjunction(Conjunction.builder()
+                        .predicate(IncludedPredicate.builder()
+                                .lhs("$.a")
+                                .values(Sets.newHashSet("A7"))
+                                .build())
+                        .build())
+                .build());
+        final IndexGroup index = engine.getIndexingFacde()
+                .getIndexGroup("test");
+        final PostingList<?> postingList = index.getDnfInvertedIndex()
+                .getTable()
+                .get(1)
+                .get(index.getKeyDictionary()
+                        .lookup(Key.builder()
+                                .name("$.a")
+                                .caveat(Caveat.EQUALITY)
+                                .value("A7")
+                                .build()));
+        Assert.assertTrue(postingList instanceof BlockPostingList);
+        Assert.assertEquals(4, postingList.size());
+
+        Map<String, Object> testQuery = Maps.newHashMap();
+        testQuery.put("a", "A7");
+        assertThat(engine.search("test", RequestContext.builder()
+                .node(mapper.valueToTree(testQuery))
+                .build()), containsInAnyOrder("C7", "C107", "C207", "C300"));
+    }
+
+    @Test
+    public void testSparseMatchesInDenseListsAreFound() {
+        engine.add("test", IntStream.range(0, 3000)
+                .mapToObj(i -> i % 2 == 0 ? DNFCriteria.builder()
+                        .id("D" + i)
+                        .conjunction(Conjunction.builder()
+                                .predicate(IncludedPredicate.builder()
+                                        .lhs("$.a")
+                                        .values(Sets.newHashSet("A"))
+                                        .build())
+                                .predicate(IncludedPredicate.builder()
+                                        .lhs("$.b")
+                                        .values(Sets.newHashSet("B" + (i % 1000)))
+                                        .build())
+                                .build())
+                        .build()
+                        : CNFCriteria.builder()
+                                .id("C" + i)
+                                .disjunction(Disjunction.builder()
+                                        .predicate(IncludedPredicate.builder()
+                                                .lhs("$.a")
+                                                .values(Sets.newHashSet("A"))
+                                                .build())
+                                        .build())
+                                .disjunction(Disjunction.builder()
+                                        .predicate(IncludedPredicate.builder()
+                                                .lhs("$.b")
+                                                .values(Sets.newHashSet("B" + (i % 1000)))
+                                                .build())
+                                        .build())
+                                .build())
+                .collect(Collectors.toList()));
+
+        Map<String, Object> testQuery = Maps.newHashMap();
+        testQuery.put("a", "A");
+        testQuery.put("b", "B998");
+        assertThat(engine.search("test", RequestContext.builder()
+                .node(mapper.valueToTree(testQuery))
+                .build()), containsInAnyOrder("D998", "D1998", "D2998"));
+        testQuery.put("b", "B999");
+        assertThat(engine.search("test", RequestContext.builder()
+                .node(mapper.valueToTree(testQuery))
+                .build()), containsInAnyOrder("C999", "C1999", "C2999"));
+    }
+
+    @Test
+    public void testBulkLoadMatchesIncrementalLoad() {
+        final List<Criteria> criterias = IntStream.range(0, 50)
+                .mapToObj(i -> i % 2 == 0 ? DNFCriteria.builder()
+                        .id("D" + i)
+                        .conjunction(Conjunction.builder()
+                                .predicate(IncludedPredicate.builder()
+                                        .lhs("$.a")
+                                        .values(Sets.newHashSet("A" + (i % 5)))
+                                        .build())
+                                .predicate(ExcludedPredicate.builder()
+                                        .lhs("$.b")
+                                        .values(Sets.newHashSet("B" + (i % 3)))
+                                        .build())
+                                .build())
+                        .build()
+                        : CNFCriteria.builder()
+                                .id("C" + i)
+                                .disjunction(Disjunction.builder()
+                                        .predicate(IncludedPredicate.builder()
+                                                .lhs("$.a")
+                                                .values(Sets.newHashSet("A" + (i % 5)))
+                                                .build())
+                                        .build())
+                                .disjunction(Disjunction.builder()
+                                        .predicate(IncludedPredicate.builder()
+                                                .lhs("$.a")
+                                                .values(Sets.newHashSet("A" + (i % 5)))
+                                                .build())
+                                        .build())
+                                .build())
+                .collect(Collectors.toList());
+        engine.add("bulk", criterias);
+        criterias.forEach(criteria -> engine.add("incremental", criteria));
+
+        final IndexGroup bulk = engine.getIndexingFacde()
+                .getIndexGroup("bulk");
+        final IndexGroup incremental = engine.getIndexingFacde()
+                .getIndexGroup("incremental");
+        Assert.assertEquals(incremental.getDnfInvertedIndex()
+                .getTable()
+                .get(1)
+                .keySet(),
+                bulk.getDnfInvertedIndex()
+                        .getTable()
+                        .get(1)
+                        .keySet());
+        IntStream.range(0, 5)
+                .forEach(i -> {
+                    Map<String, Object> testQuery = Maps.newHashMap();
+                    testQuery.put("a", "A" + i);
+                    testQuery.put("b", "B" + i);
+                    final RequestContext context = RequestContext.builder()
+                            .node(mapper.valueToTree(testQuery))
+                            .build();
+                    final Set<String> searchResults = engine.search("bulk", context);
+                    Assert.assertFalse(searchResults.isEmpty());
+                    Assert.assertEquals(engine.search("incremental", context), searchResults);
+                });
+    }
+
+    @Test
+    public void testBulkLoadIsAllOrNothing() {
+        final Criteria criteria = DNFCriteria.builder()
+                .id("C1")
+                .conjunction(Conjunction.builder()
+                        .predicate(IncludedPredicate.builder()
+                                .lhs("$.a")
+                                .values(Sets.newHashSet("A1"))
+                                .build())
+                        .build())
+                .build();
+        try {
+            engine.add("bulk", Arrays.asList(criteria, criteria));
+            Assert.fail("Duplicate criteria ids should fail the load");
+        } catch (MustangException e) {
+            Assert.assertEquals(ErrorCode.INDEX_GENERATION_ERROR, e.getErrorCode());
+        }
+        Assert.assertFalse(engine.getIndexingFacde()
+                .getIndexMap()
+                .containsKey("bulk"));
+    }
+
+    @Test
+    public void testParallelBulkBuildIsDeterministic() {
+        final List<Criteria> criterias = IntStream.range(0, 5000)
+                .mapToObj(i -> i % 3 == 0 ? CNFCriteria.builder()
+                        .id("C" + i)
+                        .disjunction(Disjunction.builder()
+                                .predicate(IncludedPredicate.builder()
+                                        .lhs("$.a")
+                                        .values(Sets.newHashSet("A" + (i % 7)))
+                                        .build())
+                                .build())
+                        .build()
+                        : DNFCriteria.builder()
+                                .id("D" + i)
+                                .conjunction(Conjunction.builder()
+                                        .predicate(IncludedPredicate.builder()
+                                                .lhs("$.a")
+                                                .values(Sets.newHashSet("A" + (i % 7)))
+                                                .build())
+                                        .build())
+                                .conjunction(Conjunction.builder()
+                                        .predicate(IncludedPredicate.builder()
+                                                .lhs("$.b")
+                                                .values(Sets.newHashSet("B" + (i % 11)))
+                                                .build())
+                                        .build())
+                                .build())
+                .collect(Collectors.toList());
+        final IndexGroup sequential = BulkIndexBuilder.builder()
+                .name("sequential")
+                .criterias(criterias)
+                .build()
+                .build();
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        final IndexGroup parallel = BulkIndexBuilder.builder()
+                .name("parallel")
+                .criterias(criterias)
+                .pool(pool)
+                .build()
+                .build();
+        pool.shutdown();
+
+        Assert.assertEquals(sequential.getDnfInvertedIndex()
+                .getExternalIds(),
+                parallel.getDnfInvertedIndex()
+                        .getExternalIds());
+        Assert.assertEquals(sequential.getCnfInvertedIndex()
+                .getExternalIds(),
+                parallel.getCnfInvertedIndex()
+                        .getExternalIds());
+        final Key key = parallel.getKeyDictionary()
+                .lookup(Key.builder()
+                        .name("$.b")
+                        .caveat(Caveat.EQUALITY)
+                        .value("B3")
+                        .build());
+        Assert.assertEquals(sequential.getDnfInvertedIndex()
+                .getTable()
+                .get(1)
+                .get(sequential.getKeyDictionary()
+                        .lookup(key))
+                .toMap()
+                .keySet(),
+                parallel.getDnfInvertedIndex()
+                        .getTable()
+                        .get(1)
+                        .get(key)
+                        .toMap()
+                        .keySet());
+    }
+
+    @Test
+    public void testFrozenGroupMatchesMutableGroup() {
+        final List<Criteria> criterias = IntStream.range(0, 60)
+                .mapToObj(i -> i % 2 == 0 ? DNFCriteria.builder()
+                        .id("D" + i)
+                        .conjunction(Conjunction.builder()
+                                .predicate(IncludedPredicate.builder()
+                                        .lhs("$.a")
+                                        .values(Sets.newHashSet("A" + (i % 5), "A" + (i % 7)))
+                                        .build())
+                                .predicate(ExcludedPredicate.builder()
+                                        .lhs("$.b")
+                                        .values(Sets.newHashSet("B" + (i % 3)))
+                                        .build())
+                                .predicate(IncludedPredicate.builder()
+                                        .lhs("$.n")
+                                        .detail(RangeDetail.builder()
+                                                .upperBound(i)
+                                                .build())
+                                        .build())
+                                .build())
+                        .build()
+                        : CNFCriteria.builder()
+                                .id("C" + i)
+                                .disjunction(Disjunction.builder()
+                                        .predicate(IncludedPredicate.builder()
+                                                .lhs("$.a")
+                                                .values(Sets.newHashSet("A" + (i % 5)))
+                                                .build())
+                                        .predicate(ExcludedPredicate.builder()
+                                                .lhs("$.b")
+                                                .values(Sets.newHashSet("B" + (i % 3)))
+                                                .build())
+                                        .build())
+                                .disjunction(Disjunction.builder()
+                                        .predicate(IncludedPredicate.builder()
+                                                .lhs("$.b")
+                                                .values(Sets.newHashSet("B" + (i % 4)))
+                                                .build())
+                                        .build())
+                                .build())
+                .collect(Collectors.toList());
+        engine.add("mutable", criterias);
+        engine.add("frozen", criterias);
+        engine.delete("frozen", criterias.get(0));
+        engine.delete("mutable", criterias.get(0));
+        engine.freeze("frozen");
+
+        final IndexGroup frozen = engine.getIndexingFacde()
+                .getIndexGroup("frozen");
+        Assert.assertTrue(frozen.isFrozen());
+        Assert.assertTrue(frozen.getDnfInvertedIndex()
+                .getTable()
+                .values()
+                .stream()
+                .allMatch(postingLists -> postingLists instanceof FrozenTable));
+        Assert.assertEquals(engine.getIndexingFacde()
+                .getIndexGroup("mutable")
+                .getCnfInvertedIndex()
+                .getTable()
+                .get(2),
+                frozen.getCnfInvertedIndex()
+                        .getTable()
+                        .get(2));
+        final Set<String> matched = Sets.newHashSet();
+        IntStream.range(0, 140)
+                .forEach(i -> {
+                    Map<String, Object> testQuery = Maps.newHashMap();
+                    testQuery.put("a", "A" + (i % 7));
+                    testQuery.put("b", "B" + (i % 4));
+                    testQuery.put("n", i % 70);
+                    final RequestContext context = RequestContext.builder()
+                            .node(mapper.valueToTree(testQuery))
+                            .build();
+                    final Set<String> searchResults = engine.search("frozen", context);
+                    Assert.assertEquals(engine.search("mutable", context), searchResults);
+                    matched.addAll(searchResults);
+                });
+        Assert.assertTrue(matched.stream()
+                .anyMatch(id -> id.startsWith("D")));
+        Assert.assertTrue(matched.stream()
+                .anyMatch(id -> id.startsWith("C")));
+    }
+
+    @Test
+    public void testMutationsOnFrozenGroupAreRejected() {
+        final Criteria criteria = DNFCriteria.builder()
+                .id("D1")
+                .conjunction(Conjunction.builder()
+                        .predicate(IncludedPredicate.builder()
+                                .lhs("$.a")
+                                .values(Sets.newHashSet("A1"))
+                                .build())
+                        .build())
+                .build();
+        engine.add("test", criteria);
+        engine.freeze("test");
+        try {
+            engine.update("test", criteria);
+            Assert.fail("Should have thrown an exception");
+        } catch (MustangException e) {
+            Assert.assertEquals(ErrorCode.INDEX_GROUP_FROZEN, e.getErrorCode());
+        }
+        try {
+            engine.delete("test", criteria);
+            Assert.fail("Should have thrown an exception");
+        } catch (MustangException e) {
+            Assert.assertEquals(ErrorCode.INDEX_GROUP_FROZEN, e.getErrorCode());
+        }
+
+        engine.thaw("test");
+        Assert.assertFalse(engine.getIndexingFacde()
+                .getIndexGroup("test")
+                .isFrozen());
+        engine.delete("test", criteria);
+        Map<String, Object> testQuery = Maps.newHashMap();
+        testQuery.put("a", "A1");
+        assertThat(engine.search("test", RequestContext.builder()
+                .node(mapper.valueToTree(testQuery))
+                .build()), hasSize(0));
+    }
+
+    @Test
+    public void testSegmentedGroupMatchesUnsegmentedGroup() {
+        final List<Criteria> criterias = IntStream.range(0, 90)
+                .mapToObj(i -> i % 2 == 0 ? DNFCriteria.builder()
+                        .id("D" + (i % 60))
+                        .conjunction(Conjunction.builder()
+                                .predicate(IncludedPredicate.builder()
+                                        .lhs("$.a")
+                                        .values(Sets.newHashSet("A" + (i % 5)))
+                                        .build())
+                                .predicate(ExcludedPredicate.builder()
+                                        .lhs("$.b")
+                                        .values(Sets.newHashSet("B" + (i % 3)))
+                                        .build())
+                                .build())
+                        .build()
+                        : CNFCriteria.builder()
+                                .id("C" + (i % 60))
+                                .disjunction(Disjunction.builder()
+                                        .predicate(IncludedPredicate.builder()
+                                                .lhs("$.a")
+                                                .values(Sets.newHashSet("A" + (i % 5)))
+                                                .build())
+                                        .build())
+                                .disjunction(Disjunction.builder()
+                                        .predicate(IncludedPredicate.builder()
+                                                .lhs("$.b")
+                                                .values(Sets.newHashSet("B" + (i % 4)))
+                                                .build())
+                                        .build())
+                                .build())
+                .collect(Collectors.toList());
+        engine.add("plain", criterias.subList(0, 40));
+        engine.add("segmented", criterias.subList(0, 40));
+        engine.seal("segmented");
+        engine.add("plain", criterias.subList(40, 60));
+        criterias.subList(40, 60)
+                .forEach(criteria -> engine.add("segmented", criteria));
+        engine.seal("segmented");
+        // Criterias 60 onwards reuse the ids of the first ones, so they land in the delta and mask the segments.
+        criterias.subList(60, 90)
+                .forEach(criteria -> {
+                    engine.update("plain", criteria);
+                    engine.update("segmented", criteria);
+                });
+        IntStream.range(0, 10)
+                .forEach(i -> {
+                    engine.delete("plain", criterias.get(i * 6));
+                    engine.delete("segmented", criterias.get(i * 6));
+                });
+        Assert.assertEquals(2, engine.getIndexStats("segmented")
+                .getSegments());
+
+        final Runnable compare = () -> IntStream.range(0, 20)
+                .forEach(i -> {
+                    Map<String, Object> testQuery = Maps.newHashMap();
+                    testQuery.put("a", "A" + (i % 5));
+                    testQuery.put("b", "B" + (i % 4));
+                    final RequestContext context = RequestContext.builder()
+                            .node(mapper.valueToTree(testQuery))
+                            .build();
+                    final Set<String> searchResults = engine.search("segmented", context);
+                    Assert.assertFalse(searchResults.isEmpty());
+                    Assert.assertEquals(engine.search("plain", context), searchResults);
+                });
+        compare.run();
+
+        engine.merge("segmented");
+        Assert.assertEquals(1, engine.getIndexStats("segmented")
+                .getSegments());
+        compare.run();
+
+        engine.freeze("segmented");
+        Assert.assertEquals(0, engine.getIndexStats("segmented")
+                .getSegments());
+        compare.run();
+    }
+
+    @Test
+    public void testOffHeapFrozenGroupIsReleasedOnceReadersAreDone() {
+        final List<Criteria> criterias = IntStream.range(0, 2000)
+                .mapToObj(i -> DNFCriteria.builder()
+                        .id("D" + i)
+                        .conjunction(Conjunction.builder()
+                                .predicate(IncludedPredicate.builder()
+                                        .lhs("$.a")
+                                        .values(Sets.newHashSet("A" + (i % 3)))
+                                        .build())
+                                .predicate(ExcludedPredicate.builder()
+                                        .lhs("$.b")
+                                        .values(Sets.newHashSet("B" + (i % 7)))
+                                        .build())
+                                .build())
+                        .build())
+                .collect(Collectors.toList());
+        engine.add("heap", criterias);
+        engine.add("direct", criterias);
+        engine.freeze("direct", PostingStorage.DIRECT);
+
+        final IndexGroup direct = engine.getIndexingFacde()
+                .getIndexGroup("direct");
+        Assert.assertTrue(direct.getDnfInvertedIndex()
+                .getTable()
+                .get(1)
+                .values()
+                .stream()
+                .allMatch(postingList -> postingList instanceof DirectPostingList));
+        Assert.assertTrue(engine.getIndexStats("direct")
+                .getOffHeapBytes() > 0);
+        IntStream.range(0, 21)
+                .forEach(i -> {
+                    Map<String, Object> testQuery = Maps.newHashMap();
+                    testQuery.put("a", "A" + (i % 3));
+                    testQuery.put("b", "B" + (i % 7));
+                    final RequestContext context = RequestContext.builder()
+                            .node(mapper.valueToTree(testQuery))
+                            .build();
+                    final Set<String> searchResults = engine.search("direct", context);
+                    Assert.assertFalse(searchResults.isEmpty());
+                    Assert.assertEquals(engine.search("heap", context), searchResults);
+                });
+
+        final ReadHandle handle = engine.openReadHandle("direct");
+        engine.replaceIndex("direct", "missing");
+        Assert.assertFalse(direct.getSlabs()
+                .isReleased());
+        Map<String, Object> testQuery = Maps.newHashMap();
+        testQuery.put("a", "A1");
+        testQuery.put("b", "B1");
+        assertThat(handle.search(RequestContext.builder()
+                .node(mapper.valueToTree(testQuery))
+                .build()), hasSize(571));
+        handle.close();
+        Assert.assertTrue(direct.getSlabs()
+                .isReleased());
+    }
+
+    @Test
+    public void testConcurrentSetsSurviveGrowth() throws Exception {
+        final int threads = 4;
+        final int ids = 1 << 18;
+        final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        // Every thread sets ascending ids interleaved with the others, so that sets keep landing while a grow
+        // copies the directory over.
+        for (int round = 0; round < 200; round++) {
+            final IdBitmap bitmap = new IdBitmap();
+            final CyclicBarrier start = new CyclicBarrier(threads);
+            final List<Future<?>> futures = IntStream.range(0, threads)
+                    .mapToObj(t -> executorService.submit(() -> {
+                        start.await();
+                        for (int id = t; id < ids; id += threads) {
+                            bitmap.set(id);
+                        }
+                        return null;
+                    }))
+                    .collect(Collectors.toList());
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            Assert.assertEquals(ids, IntStream.range(0, ids)
+                    .filter(bitmap::get)
+                    .count());
+            Assert.assertEquals(ids, bitmap.cardinality());
+        }
+        executorService.shutdown();
+    }
+
+    @Test
+    public void testConcurrentPutsSurviveGrowth() throws Exception {
+        final int threads = 4;
+        final int ids = 1 << 16;
+        final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        for (int round = 0; round < 50; round++) {
+            final IdTable<String> table = new IdTable<>();
+            final CyclicBarrier start = new CyclicBarrier(threads);
+            final List<Future<?>> futures = IntStream.range(0, threads)
+                    .mapToObj(t -> executorService.submit(() -> {
+                        start.await();
+                        for (int id = t; id < ids; id += threads) {
+                            table.put(id, "E" + id);
+                        }
+                        return null;
+                    }))
+                    .collect(Collectors.toList());
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            Assert.assertEquals(ids, table.size());
+            Assert.assertEquals(ids, table.ids()
+                    .count());
+            IntStream.range(0, ids)
+                    .forEach(id -> Assert.assertEquals("E" + id, table.get(id)));
+        }
+        executorService.shutdown();
+    }
+
+    @Test
+    public void testSealRacingWritersLosesNothing() throws Exception {
+        final List<Criteria> criterias = IntStream.range(0, 3000)
+                .mapToObj(i -> DNFCriteria.builder()
+                        .id("D" + i)
+                        .conjunction(Conjunction.builder()
+                                .predicate(IncludedPredicate.builder()
+                                        .lhs("$.a")
+                                        .values(Sets.newHashSet("A" + (i % 5)))
+                                        .build())
+                                .build())
+                        .build())
+                .collect(Collectors.toList());
+        engine.add("plain", criterias);
+        engine.add("segmented", criterias.subList(0, 1000));
+        engine.seal("segmented");
+
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        final Future<?> writer = executorService.submit(() -> criterias.subList(1000, 3000)
+                .forEach(criteria -> engine.add("segmented", criteria)));
+        while (!writer.isDone()) {
+            engine.seal("segmented");
+        }
+        writer.get();
+        engine.merge("segmented");
+        executorService.shutdown();
+
+        Assert.assertEquals(3000, engine.getIndexingFacde()
+                .getIndexGroup("segmented")
+                .getAllCriterias()
+                .size());
+        IntStream.range(0, 5)
+                .forEach(i -> {
+                    final RequestContext context = RequestContext.builder()
+                            .node(mapper.valueToTree(Collections.singletonMap("a", "A" + i)))
+                            .build();
+                    final Set<String> searchResults = engine.search("segmented", context);
+                    Assert.assertEquals(600, searchResults.size());
+                    Assert.assertEquals(engine.search("plain", context), searchResults);
+                });
+    }
+
+    @Test
+    public void testKeysOutsideTheDictionaryKeepTheirIdentity() {
+        final Key a1 = Key.builder()
+                .name("$.a")
+                .caveat(Caveat.EQUALITY)
+                .value("A1")
+                .build();
+        final Key a2 = Key.builder()
+                .name("$.a")
+                .caveat(Caveat.EQUALITY)
+                .value("A2")
+                .build();
+        Assert.assertNotEquals(a1, a2);
+        Assert.assertEquals(a1, Key.builder()
+                .name("$.a")
+                .caveat(Caveat.EQUALITY)
+                .value("A1")
+                .build());
+
+        engine.add("test", DNFCriteria.builder()
+                .id("D1")
+                .conjunction(Conjunction.builder()
+                        .predicate(IncludedPredicate.builder()
+                                .lhs("$.a")
+                                .values(Sets.newHashSet("A1"))
+                                .build())
+                        .build())
+                .build());
+        final IndexGroup index = engine.getIndexingFacde()
+                .getIndexGroup("test");
+        final Key interned = index.getKeyDictionary()
+                .lookup(a1);
+        Assert.assertTrue(interned.isInterned());
+        Assert.assertNotEquals(a1, interned);
+        Assert.assertSame(a2, index.getKeyDictionary()
+                .lookup(a2));
+        Assert.assertTrue(index.getDnfInvertedIndex()
+                .getTable()
+                .get(1)
+                .containsKey(interned));
+        Assert.assertFalse(index.getDnfInvertedIndex()
+                .getTable()
+                .get(1)
+                .containsKey(a1));
+    }
+
 }
@@ -17,6 +17,7 @@
 package com.phonepe.mustang.search;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContaining;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.hasSize;
@@ -26,14 +27,33 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Matchers;
 import org.mockito.Mockito;
 
@@ -43,24 +63,46 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.phonepe.mustang.MustangEngine;
 import com.phonepe.mustang.common.RequestContext;
 import com.phonepe.mustang.composition.impl.Conjunction;
+import com.phonepe.mustang.composition.impl.Disjunction;
 import com.phonepe.mustang.criteria.Criteria;
 import com.phonepe.mustang.criteria.CriteriaForm;
+import com.phonepe.mustang.criteria.impl.CNFCriteria;
 import com.phonepe.mustang.criteria.impl.DNFCriteria;
 import com.phonepe.mustang.criteria.tautology.TautologicalCriteria;
 import com.phonepe.mustang.detail.impl.EqualityDetail;
 import com.phonepe.mustang.exception.ErrorCode;
 import com.phonepe.mustang.exception.MustangException;
+import com.phonepe.mustang.index.IndexingFacade;
+import com.phonepe.mustang.index.core.posting.PostingStorage;
+import com.phonepe.mustang.index.eviction.EvictionPolicy;
+import com.phonepe.mustang.index.eviction.MemoryBudget;
+import com.phonepe.mustang.index.group.IndexGroup;
+import com.phonepe.mustang.index.operation.IndexOperation;
+import com.phonepe.mustang.index.store.CheckpointPolicy;
+import com.phonepe.mustang.index.store.Durability;
+import com.phonepe.mustang.index.store.MutationLog;
+import com.phonepe.mustang.index.version.Change;
+import com.phonepe.mustang.index.version.ChangeSet;
+import com.phonepe.mustang.index.version.IndexView;
 import com.phonepe.mustang.predicate.impl.ExcludedPredicate;
 import com.phonepe.mustang.predicate.impl.IncludedPredicate;
 import com.phonepe.mustang.ratify.RatificationResult;
 
 public class ExportImportTest {
 
+    private static final String MIXED_CRITERIAS = "["
+            + "{\"form\":\"DNF\",\"id\":\"R1\",\"conjunctions\":[{\"type\":\"AND\",\"predicates\":[{\"type\":\"INCLUDED\",\"lhs\":\"$.a\",\"detail\":{\"caveat\":\"REGEX\",\"regex\":\"A.*\"},\"weight\":3},{\"type\":\"EXCLUDED\",\"lhs\":\"$.b\",\"detail\":{\"caveat\":\"EQUALITY\",\"values\":[\"B2\",\"B1\"]},\"weight\":1},{\"type\":\"INCLUDED\",\"lhs\":\"$.n\",\"detail\":{\"caveat\":\"RANGE\",\"lowerBound\":0,\"upperBound\":3.0E-15,\"includeLowerBound\":false,\"includeUpperBound\":true},\"weight\":1},{\"type\":\"INCLUDED\",\"lhs\":\"$.v\",\"detail\":{\"caveat\":\"VERSIONING\",\"check\":\"ABOVE\",\"baseVersion\":\"1.2.3\",\"excludeBase\":true},\"weight\":1}]}]},"
+            + "{\"form\":\"CNF\",\"id\":\"E1\",\"disjunctions\":[{\"type\":\"OR\",\"predicates\":[{\"type\":\"INCLUDED\",\"lhs\":\"$.a\",\"detail\":{\"caveat\":\"EQUALITY\",\"values\":[\"A1\",\"A2\"]},\"weight\":1},{\"type\":\"EXCLUDED\",\"lhs\":\"$.b\",\"detail\":{\"caveat\":\"EQUALITY\",\"values\":[\"B2\",\"B1\"]},\"weight\":1}]},{\"type\":\"OR\",\"predicates\":[{\"type\":\"INCLUDED\",\"lhs\":\"$.n\",\"detail\":{\"caveat\":\"EQUALITY\",\"values\":[1.0E-15,2,3000000000,true]},\"weight\":1},{\"type\":\"INCLUDED\",\"lhs\":\"$.p\",\"detail\":{\"caveat\":\"EQUALITY\",\"values\":[true]},\"weight\":1}]}]}"
+            + "]";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
     private final ObjectMapper mapper = new ObjectMapper();
     private MustangEngine engine;
 
@@ -349,4 +391,1117 @@ public class ExportImportTest {
         }
     }
 
+    @Test
+    public void testPersistAndOpenMappedIndexGroup() throws IOException {
+        final List<Criteria> criterias = mapper.readValue("["
+                + "{\"form\":\"DNF\",\"id\":\"R1\",\"conjunctions\":[{\"type\":\"AND\",\"predicates\":[{\"type\":\"INCLUDED\",\"lhs\":\"$.a\",\"detail\":{\"caveat\":\"REGEX\",\"regex\":\"A.*\"},\"weight\":1},{\"type\":\"EXCLUDED\",\"lhs\":\"$.b\",\"detail\":{\"caveat\":\"EQUALITY\",\"values\":[\"B2\",\"B1\"]},\"weight\":1},{\"type\":\"INCLUDED\",\"lhs\":\"$.n\",\"detail\":{\"caveat\":\"RANGE\",\"lowerBound\":0,\"upperBound\":3.0E-15,\"includeLowerBound\":false,\"includeUpperBound\":true},\"weight\":1},{\"type\":\"INCLUDED\",\"lhs\":\"$.p\",\"detail\":{\"caveat\":\"EQUALITY\",\"values\":[true]},\"weight\":1}]}]},"
+                + "{\"form\":\"CNF\",\"id\":\"E1\",\"disjunctions\":[{\"type\":\"OR\",\"predicates\":[{\"type\":\"INCLUDED\",\"lhs\":\"$.a\",\"detail\":{\"caveat\":\"EQUALITY\",\"values\":[\"A1\",\"A2\"]},\"weight\":1},{\"type\":\"EXCLUDED\",\"lhs\":\"$.b\",\"detail\":{\"caveat\":\"EQUALITY\",\"values\":[\"B2\",\"B1\"]},\"weight\":1}]},{\"type\":\"OR\",\"predicates\":[{\"type\":\"INCLUDED\",\"lhs\":\"$.n\",\"detail\":{\"caveat\":\"EQUALITY\",\"values\":[1.0E-15,2.0E-15,3.0E-15]},\"weight\":1},{\"type\":\"INCLUDED\",\"lhs\":\"$.p\",\"detail\":{\"caveat\":\"EQUALITY\",\"values\":[true]},\"weight\":1}]}]}"
+                + "]", new TypeReference<List<Criteria>>() {
+                });
+        engine.add("testsearch", criterias);
+        engine.add("testsearch", TautologicalCriteria.generate(CriteriaForm.DNF, "T1"));
+        IntStream.range(0, 50)
+                .forEach(i -> engine.add("testsearch", DNFCriteria.builder()
+                        .id("D" + i)
+                        .conjunction(Conjunction.builder()
+                                .predicate(IncludedPredicate.builder()
+                                        .lhs("$.a")
+                                        .values(Sets.newHashSet("A" + (i % 3)))
+                                        .build())
+                                .predicate(ExcludedPredicate.builder()
+                                        .lhs("$.b")
+                                        .values(Sets.newHashSet("B" + (i % 4)))
+                                        .build())
+                                .build())
+                        .build()));
+        engine.delete("testsearch", DNFCriteria.builder()
+                .id("D7")
+                .build());
+
+        final Path path = folder.getRoot()
+                .toPath()
+                .resolve("testsearch.idx");
+        engine.persistIndexGroup("testsearch", path);
+        final MustangEngine engine1 = MustangEngine.builder()
+                .mapper(mapper)
+                .build();
+        engine1.openIndexGroup("testsearch", path);
+        Assert.assertTrue(engine1.getIndexingFacde()
+                .getIndexGroup("testsearch")
+                .isFrozen());
+        assertThat(folder.getRoot()
+                .list(), arrayContaining("testsearch.idx"));
+
+        IntStream.range(0, 12)
+                .forEach(i -> {
+                    Map<String, Object> testQuery = Maps.newHashMap();
+                    testQuery.put("a", "A" + (i % 3));
+                    testQuery.put("b", "B" + (i % 4));
+                    testQuery.put("n", 0.000000000000002);
+                    testQuery.put("p", i % 2 == 0);
+                    final RequestContext context = RequestContext.builder()
+                            .node(mapper.valueToTree(testQuery))
+                            .build();
+                    final Set<String> searchResults = engine1.search("testsearch", context, true);
+                    assertTrue(searchResults.contains("T1"));
+                    Assert.assertFalse(searchResults.contains("D7"));
+                    Assert.assertEquals(engine.search("testsearch", context, true), searchResults);
+                });
+        Assert.assertEquals(engine.exportIndexGroup("testsearch"), engine1.exportIndexGroup("testsearch"));
+
+        try {
+            engine1.openIndexGroup("other", folder.newFile("empty.idx")
+                    .toPath());
+            Assert.fail("should have thrown exception");
+        } catch (MustangException e) {
+            assertTrue(ErrorCode.INDEX_IMPORT_ERROR.equals(e.getErrorCode()));
+        }
+    }
+
+    @Test
+    public void testTruncatedMappedIndexGroupIsNotOpened() throws IOException {
+        final List<Criteria> criterias = mapper.readValue(MIXED_CRITERIAS, new TypeReference<List<Criteria>>() {
+        });
+        engine.add("testsearch", criterias);
+        final Path path = folder.getRoot()
+                .toPath()
+                .resolve("testsearch.idx");
+        engine.persistIndexGroup("testsearch", path);
+        final byte[] bytes = Files.readAllBytes(path);
+        final Path truncated = folder.getRoot()
+                .toPath()
+                .resolve("truncated.idx");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 1));
+
+        final MustangEngine engine1 = MustangEngine.builder()
+                .mapper(mapper)
+                .build();
+        try {
+            engine1.openIndexGroup("testsearch", truncated);
+            Assert.fail("should have thrown exception");
+        } catch (MustangException e) {
+            assertTrue(ErrorCode.INDEX_IMPORT_ERROR.equals(e.getErrorCode()));
+        }
+        engine1.openIndexGroup("testsearch", path);
+        Assert.assertEquals(engine.exportIndexGroup("testsearch"), engine1.exportIndexGroup("testsearch"));
+    }
+
+    @Test
+    public void testBinarySnapshotExportImport() throws IOException {
+        final List<Criteria> criterias = mapper.readValue(MIXED_CRITERIAS, new TypeReference<List<Criteria>>() {
+        });
+        engine.add("testsearch", criterias);
+        engine.add("testsearch", TautologicalCriteria.generate(CriteriaForm.CNF, "T1"));
+        IntStream.range(0, 200)
+                .forEach(i -> engine.add("testsearch", DNFCriteria.builder()
+                        .id("D" + i)
+                        .conjunction(Conjunction.builder()
+                                .predicate(IncludedPredicate.builder()
+                                        .lhs("$.a")
+                                        .values(Sets.newHashSet("A" + (i % 3)))
+                                        .build())
+                                .predicate(ExcludedPredicate.builder()
+                                        .lhs("$.b")
+                                        .values(Sets.newHashSet("B" + (i % 4)))
+                                        .build())
+                                .build())
+                        .build()));
+
+        final ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        engine.exportIndexGroup("testsearch", plain, false);
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        engine.exportIndexGroup("testsearch", compressed, true);
+        assertTrue(compressed.size() < plain.size());
+        assertTrue(plain.size() < engine.exportIndexGroup("testsearch")
+                .length());
+
+        final Set<Criteria> expected = Sets.newHashSet(engine.getIndexingFacde()
+                .getIndexGroup("testsearch")
+                .getAllCriterias()
+                .values());
+        engine.importIndexGroup("plain", new ByteArrayInputStream(plain.toByteArray()));
+        engine.importIndexGroup("compressed", new ByteArrayInputStream(compressed.toByteArray()));
+        Assert.assertEquals(expected, Sets.newHashSet(engine.getIndexingFacde()
+                .getIndexGroup("plain")
+                .getAllCriterias()
+                .values()));
+        Assert.assertEquals(expected, Sets.newHashSet(engine.getIndexingFacde()
+                .getIndexGroup("compressed")
+                .getAllCriterias()
+                .values()));
+
+        final Map<String, Object> testQuery = Maps.newHashMap();
+        testQuery.put("a", "A1");
+        testQuery.put("b", "B3");
+        testQuery.put("n", 2);
+        testQuery.put("v", "1.1");
+        final RequestContext context = RequestContext.builder()
+                .node(mapper.valueToTree(testQuery))
+                .build();
+        Assert.assertEquals(engine.search("testsearch", context, true), engine.search("compressed", context, true));
+
+        final byte[] corrupted = plain.toByteArray();
+        corrupted[corrupted.length / 2] ^= 0x10;
+        try {
+            engine.importIndexGroup("corrupted", new ByteArrayInputStream(corrupted));
+            Assert.fail("should have thrown exception");
+        } catch (MustangException e) {
+            Assert.assertEquals(ErrorCode.INDEX_IMPORT_ERROR, e.getErrorCode());
+        }
+        try {
+            engine.importIndexGroup("truncated", new ByteArrayInputStream(compressed.toByteArray(), 0,
+                    compressed.size() - 1));
+            Assert.fail("should have thrown exception");
+        } catch (MustangException e) {
+            Assert.assertEquals(ErrorCode.INDEX_IMPORT_ERROR, e.getErrorCode());
+        }
+    }
+
+    @Test
+    public void testStreamingExportImport() throws IOException {
+        engine.add("testsearch", IntStream.range(0, 10000)
+                .mapToObj(i -> (Criteria) DNFCriteria.builder()
+                        .id("D" + i)
+                        .conjunction(Conjunction.builder()
+                                .predicate(IncludedPredicate.builder()
+                                        .lhs("$.a")
+                                        .values(Sets.newHashSet("A" + (i % 7)))
+                                        .build())
+                                .predicate(ExcludedPredicate.builder()
+                                        .lhs("$.b")
+                                        .values(Sets.newHashSet("B" + (i % 5)))
+                                        .build())
+                                .build())
+                        .build())
+                .collect(Collectors.toList()));
+        engine.add("testsearch", TautologicalCriteria.generate(CriteriaForm.DNF, "T1"));
+
+        final StringWriter exported = new StringWriter();
+        engine.exportIndexGroup("testsearch", exported);
+        Assert.assertEquals(engine.exportIndexGroup("testsearch"), exported.toString());
+        final StringWriter snapshot = new StringWriter();
+        engine.snapshot("testsearch", snapshot);
+        Assert.assertEquals(engine.snapshot("testsearch"), snapshot.toString());
+
+        engine.importIndexGroup("imported", new StringReader(exported.toString()));
+        Assert.assertEquals(engine.getIndexingFacde()
+                .getIndexGroup("testsearch")
+                .getAllCriterias()
+                .keySet(),
+                engine.getIndexingFacde()
+                        .getIndexGroup("imported")
+                        .getAllCriterias()
+                        .keySet());
+        IntStream.range(0, 35)
+                .forEach(i -> {
+                    final Map<String, Object> testQuery = Maps.newHashMap();
+                    testQuery.put("a", "A" + (i % 7));
+                    testQuery.put("b", "B" + (i % 5));
+                    final RequestContext context = RequestContext.builder()
+                            .node(mapper.valueToTree(testQuery))
+                            .build();
+                    Assert.assertEquals(engine.search("testsearch", context, true),
+                            engine.search("imported", context, true));
+                });
+
+        engine.importIndexGroup("empty", new StringReader("[]"));
+        assertThat(engine.getIndexingFacde()
+                .getIndexGroup("empty")
+                .getAllCriterias()
+                .keySet(), empty());
+
+        final String truncated = exported.toString()
+                .substring(0, exported.toString()
+                        .length() - 20);
+        try {
+            engine.importIndexGroup("truncated", new StringReader(truncated));
+            Assert.fail("should have thrown exception");
+        } catch (MustangException e) {
+            Assert.assertEquals(ErrorCode.INDEX_IMPORT_ERROR, e.getErrorCode());
+        }
+        final String duplicated = exported.toString()
+                .replace("\"id\":\"D9999\"", "\"id\":\"D1\"");
+        try {
+            engine.importIndexGroup("duplicated", new StringReader(duplicated));
+            Assert.fail("should have thrown exception");
+        } catch (MustangException e) {
+            Assert.assertEquals(ErrorCode.INDEX_GENERATION_ERROR, e.getErrorCode());
+        }
+        try {
+            engine.getIndexingFacde()
+                    .getIndexGroup("truncated");
+            Assert.fail("should have thrown exception");
+        } catch (MustangException e) {
+            Assert.assertEquals(ErrorCode.INDEX_NOT_FOUND, e.getErrorCode());
+        }
+        try {
+            engine.getIndexingFacde()
+                    .getIndexGroup("duplicated");
+            Assert.fail("should have thrown exception");
+        } catch (MustangException e) {
+            Assert.assertEquals(ErrorCode.INDEX_NOT_FOUND, e.getErrorCode());
+        }
+    }
+
+    @Test
+    public void testRecoveryFromCheckpointAndMutationLog() throws IOException {
+        final Path directory = folder.newFolder("wal")
+                .toPath();
+        engine.recover(directory, Durability.SYNC, 0);
+        engine.add("testsearch", IntStream.range(0, 100)
+                .mapToObj(i -> (Criteria) DNFCriteria.builder()
+                        .id("D" + i)
+                        .conjunction(Conjunction.builder()
+                                .predicate(IncludedPredicate.builder()
+                                        .lhs("$.a")
+                                        .values(Sets.newHashSet("A" + (i % 3)))
+                                        .build())
+                                .build())
+                        .build())
+                .collect(Collectors.toList()));
+        engine.checkpoint();
+        engine.add("testsearch", DNFCriteria.builder()
+                .id("D100")
+                .conjunction(Conjunction.builder()
+                        .predicate(IncludedPredicate.builder()
+                                .lhs("$.a")
+                                .values(Sets.newHashSet("A1"))
+                                .build())
+                        .build())
+                .build());
+        engine.update("testsearch", DNFCriteria.builder()
+                .id("D0")
+                .conjunction(Conjunction.builder()
+                        .predicate(IncludedPredicate.builder()
+                                .lhs("$.a")
+                                .values(Sets.newHashSet("A2"))
+                                .build())
+                        .build())
+                .build());
+        engine.delete("testsearch", DNFCriteria.builder()
+                .id("D4")
+                .build());
+        engine.add("other", TautologicalCriteria.generate(CriteriaForm.DNF, "T1"));
+
+        // A record torn half way through is dropped, along with anything after it.
+        final Path segment = Files.list(directory)
+                .filter(file -> file.getFileName()
+                        .toString()
+                        .endsWith(".log"))
+                .max(Comparator.naturalOrder())
+                .orElseThrow(AssertionError::new);
+        Files.write(segment, new byte[] { 0, 0, 0, 42, 1, 2 }, StandardOpenOption.APPEND);
+
+        final MustangEngine recovered = MustangEngine.builder()
+                .mapper(mapper)
+                .build();
+        recovered.recover(directory, Durability.PERIODIC, 10);
+        Assert.assertEquals(engine.getIndexingFacde()
+                .getIndexGroup("testsearch")
+                .getAllCriterias()
+                .keySet(),
+                recovered.getIndexingFacde()
+                        .getIndexGroup("testsearch")
+                        .getAllCriterias()
+                        .keySet());
+        IntStream.range(0, 3)
+                .forEach(i -> {
+                    final Map<String, Object> testQuery = Maps.newHashMap();
+                    testQuery.put("a", "A" + i);
+                    final RequestContext context = RequestContext.builder()
+                            .node(mapper.valueToTree(testQuery))
+                            .build();
+                    Assert.assertEquals(engine.search("testsearch", context, true),
+                            recovered.search("testsearch", context, true));
+                    Assert.assertEquals(Sets.newHashSet("T1"), recovered.search("other", context, true));
+                });
+
+        // Replaying a log that overlaps the checkpoint it follows comes out the same.
+        recovered.add("testsearch", DNFCriteria.builder()
+                .id("D4")
+                .conjunction(Conjunction.builder()
+                        .predicate(IncludedPredicate.builder()
+                                .lhs("$.a")
+                                .values(Sets.newHashSet("A0"))
+                                .build())
+                        .build())
+                .build());
+        recovered.checkpoint();
+        recovered.delete("testsearch", DNFCriteria.builder()
+                .id("D5")
+                .build());
+        recovered.closeMutationLog();
+        final MustangEngine restarted = MustangEngine.builder()
+                .mapper(mapper)
+                .build();
+        restarted.recover(directory, Durability.NONE, 0);
+        Assert.assertEquals(recovered.getIndexingFacde()
+                .getIndexGroup("testsearch")
+                .getAllCriterias()
+                .keySet(),
+                restarted.getIndexingFacde()
+                        .getIndexGroup("testsearch")
+                        .getAllCriterias()
+                        .keySet());
+        Assert.assertTrue(restarted.getIndexingFacde()
+                .getIndexGroup("testsearch")
+                .getAllCriterias()
+                .containsKey("D4"));
+        Assert.assertEquals(1, Files.list(directory)
+                .filter(file -> file.getFileName()
+                        .toString()
+                        .startsWith("checkpoint-"))
+                .count());
+        restarted.closeMutationLog();
+
+        try {
+            restarted.checkpoint();
+            Assert.fail("should have thrown exception");
+        } catch (MustangException e) {
+            Assert.assertEquals(ErrorCode.MUTATION_LOG_ERROR, e.getErrorCode());
+        }
+    }
+
+    @Test
+    public void testFollowerCatchesUpThroughChangeSets() {
+        final MustangEngine follower = MustangEngine.builder()
+                .mapper(mapper)
+                .build();
+        engine.add("testsearch", IntStream.range(0, 10)
+                .mapToObj(i -> criteria("D" + i, "A" + (i % 3)))
+                .collect(Collectors.toList()));
+        ChangeSet changeSet = engine.changesSince("testsearch", 0);
+        Assert.assertFalse(changeSet.isSnapshot());
+        Assert.assertEquals(10, changeSet.getSequence());
+        follower.applyChanges("testsearch", changeSet);
+        assertSameCriterias(engine, follower);
+
+        engine.update("testsearch", criteria("D0", "A2"));
+        engine.delete("testsearch", DNFCriteria.builder()
+                .id("D1")
+                .build());
+        engine.add("testsearch", criteria("D10", "A1"));
+        changeSet = engine.changesSince("testsearch", changeSet.getSequence());
+        Assert.assertFalse(changeSet.isSnapshot());
+        Assert.assertEquals(Lists.newArrayList(11L, 12L, 13L), changeSet.stream()
+                .map(Change::getSequence)
+                .collect(Collectors.toList()));
+        Assert.assertEquals(Lists.newArrayList(IndexOperation.UPDATE, IndexOperation.DELETE, IndexOperation.ADD),
+                changeSet.stream()
+                        .map(Change::getOperation)
+                        .collect(Collectors.toList()));
+        follower.applyChanges("testsearch", changeSet);
+        assertSameCriterias(engine, follower);
+        Assert.assertTrue(engine.changesSince("testsearch", 13)
+                .getChanges()
+                .isEmpty());
+
+        // Once the ring has moved past the follower, it is handed the whole group instead.
+        follower.add("testsearch", criteria("X1", "A0"));
+        IntStream.range(11, 5000)
+                .forEach(i -> engine.add("testsearch", criteria("D" + i, "A" + (i % 3))));
+        changeSet = engine.changesSince("testsearch", 13);
+        Assert.assertTrue(changeSet.isSnapshot());
+        Assert.assertEquals(engine.getIndexingFacde()
+                .getIndexGroup("testsearch")
+                .getAllCriterias()
+                .size(), changeSet.getChanges()
+                        .size());
+        follower.applyChanges("testsearch", changeSet);
+        assertSameCriterias(engine, follower);
+        final Map<String, Object> testQuery = Maps.newHashMap();
+        testQuery.put("a", "A0");
+        final RequestContext context = RequestContext.builder()
+                .node(mapper.valueToTree(testQuery))
+                .build();
+        Assert.assertEquals(engine.search("testsearch", context, true), follower.search("testsearch", context, true));
+        Assert.assertTrue(engine.changesSince("testsearch", changeSet.getSequence() + 1)
+                .isSnapshot());
+    }
+
+    @Test
+    public void testEveryImportStartsAFreshChangeHistory() throws IOException {
+        engine.add("testsearch", IntStream.range(0, 10)
+                .mapToObj(i -> criteria("D" + i, "A" + (i % 3)))
+                .collect(Collectors.toList()));
+        final StringWriter lines = new StringWriter();
+        engine.exportIndexGroupLines("testsearch", lines);
+        final ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        engine.exportIndexGroup("testsearch", binary, true);
+        final Path mapped = folder.getRoot()
+                .toPath()
+                .resolve("testsearch.idx");
+        engine.persistIndexGroup("testsearch", mapped);
+
+        engine.importIndexGroup("string", engine.exportIndexGroup("testsearch"));
+        engine.importIndexGroup("reader", new StringReader(engine.exportIndexGroup("testsearch")));
+        engine.importIndexGroupLines("lines", new StringReader(lines.toString()));
+        engine.importIndexGroup("binary", new ByteArrayInputStream(binary.toByteArray()));
+        engine.openIndexGroup("mapped", mapped);
+        Arrays.asList("string", "reader", "lines", "binary", "mapped")
+                .forEach(index -> {
+                    final ChangeSet changeSet = engine.changesSince(index, 0);
+                    Assert.assertTrue(index, changeSet.isSnapshot());
+                    Assert.assertEquals(index, 10, changeSet.getChanges()
+                            .size());
+                    Assert.assertTrue(index, engine.changesSince(index, changeSet.getSequence())
+                            .getChanges()
+                            .isEmpty());
+                });
+    }
+
+    private static Criteria criteria(final String id, final String value) {
+        return DNFCriteria.builder()
+                .id(id)
+                .conjunction(Conjunction.builder()
+                        .predicate(IncludedPredicate.builder()
+                                .lhs("$.a")
+                                .values(Sets.newHashSet(value))
+                                .build())
+                        .build())
+                .build();
+    }
+
+    private static void assertSameCriterias(final MustangEngine leader, final MustangEngine follower) {
+        Assert.assertEquals(leader.getIndexingFacde()
+                .getIndexGroup("testsearch")
+                .getAllCriterias(),
+                follower.getIndexingFacde()
+                        .getIndexGroup("testsearch")
+                        .getAllCriterias());
+    }
+
+    @Test
+    public void testScheduledCheckpointsKeepTheLatestGenerations() throws Exception {
+        final Path directory = folder.newFolder("checkpoints")
+                .toPath();
+        engine.scheduleCheckpoints(CheckpointPolicy.builder()
+                .directory(directory)
+                .mutations(50)
+                .generations(2)
+                .build());
+        engine.add("untouched", criteria("U1", "A0"));
+        IntStream.range(0, 200)
+                .forEach(i -> engine.add("testsearch", criteria("D" + i, "A" + (i % 3))));
+        engine.stopCheckpoints();
+        Assert.assertTrue(checkpoints(directory) >= 1);
+        Assert.assertTrue(checkpoints(directory) <= 2);
+
+        // A checkpoint with nothing new since the last one is skipped.
+        engine.scheduleCheckpoints(CheckpointPolicy.builder()
+                .directory(directory)
+                .generations(2)
+                .build());
+        engine.add("testsearch", criteria("D200", "A2"));
+        engine.checkpoint();
+        final long latest = latest(directory);
+        engine.checkpoint();
+        Assert.assertEquals(latest, latest(directory));
+        Assert.assertEquals(2, checkpoints(directory));
+        engine.stopCheckpoints();
+
+        final MustangEngine recovered = MustangEngine.builder()
+                .mapper(mapper)
+                .build();
+        recovered.recover(directory, Durability.NONE, 0);
+        Assert.assertEquals(engine.getIndexingFacde()
+                .getIndexGroup("testsearch")
+                .getAllCriterias(),
+                recovered.getIndexingFacde()
+                        .getIndexGroup("testsearch")
+                        .getAllCriterias());
+        Assert.assertEquals(engine.getIndexingFacde()
+                .getIndexGroup("untouched")
+                .getAllCriterias(),
+                recovered.getIndexingFacde()
+                        .getIndexGroup("untouched")
+                        .getAllCriterias());
+        recovered.add("testsearch", criteria("D201", "A0"));
+        recovered.checkpoint();
+        Assert.assertTrue(latest(directory) > latest);
+        Assert.assertEquals(1, checkpoints(directory));
+        recovered.closeMutationLog();
+    }
+
+    private static long latest(final Path directory) throws IOException {
+        return Files.list(directory)
+                .map(file -> file.getFileName()
+                        .toString())
+                .filter(name -> name.startsWith("checkpoint-"))
+                .max(Comparator.naturalOrder())
+                .map(name -> Long.valueOf(name.substring("checkpoint-".length())))
+                .orElseThrow(AssertionError::new);
+    }
+
+    private static long checkpoints(final Path directory) throws IOException {
+        return Files.list(directory)
+                .filter(file -> file.getFileName()
+                        .toString()
+                        .startsWith("checkpoint-"))
+                .count();
+    }
+
+    @Test
+    public void testNewlineDelimitedExportImport() throws IOException {
+        engine.add("testsearch", IntStream.range(0, 10000)
+                .mapToObj(i -> criteria("D" + i, "A" + (i % 7)))
+                .collect(Collectors.toList()));
+        engine.add("testsearch", CNFCriteria.builder()
+                .id("C1")
+                .disjunction(Disjunction.builder()
+                        .predicate(IncludedPredicate.builder()
+                                .lhs("$.a")
+                                .values(Sets.newHashSet("A3", 3))
+                                .build())
+                        .build())
+                .build());
+
+        final StringWriter exported = new StringWriter();
+        engine.exportIndexGroupLines("testsearch", exported);
+        final String[] lines = exported.toString()
+                .split("\n");
+        Assert.assertEquals(10001, lines.length);
+        Assert.assertEquals(engine.getIndexingFacde()
+                .getIndexGroup("testsearch")
+                .getAllCriterias()
+                .get("D42"), mapper.readValue(lines[42], Criteria.class));
+
+        engine.importIndexGroupLines("imported", new StringReader(exported.toString() + "\n\n"));
+        Assert.assertEquals(Lists.newArrayList(engine.getIndexingFacde()
+                .getIndexGroup("testsearch")
+                .getAllCriterias()
+                .values()),
+                Lists.newArrayList(engine.getIndexingFacde()
+                        .getIndexGroup("imported")
+                        .getAllCriterias()
+                        .values()));
+        IntStream.range(0, 7)
+                .forEach(i -> {
+                    final Map<String, Object> testQuery = Maps.newHashMap();
+                    testQuery.put("a", "A" + i);
+                    final RequestContext context = RequestContext.builder()
+                            .node(mapper.valueToTree(testQuery))
+                            .build();
+                    Assert.assertEquals(engine.search("testsearch", context, true),
+                            engine.search("imported", context, true));
+                });
+
+        lines[5000] = "{\"form\":\"DNF\",";
+        try {
+            engine.importIndexGroupLines("malformed", new StringReader(String.join("\n", lines)));
+            Assert.fail("should have thrown exception");
+        } catch (MustangException e) {
+            Assert.assertEquals(ErrorCode.INDEX_IMPORT_ERROR, e.getErrorCode());
+            assertTrue(e.getCause()
+                    .getMessage()
+                    .contains("line 5001"));
+        }
+    }
+
+    @Test
+    public void testLazilyLoadedIndexGroups() throws Exception {
+        final Path directory = folder.newFolder("groups")
+                .toPath();
+        engine.openSnapshotDirectory(directory);
+        final List<String> tenants = IntStream.range(0, 50)
+                .mapToObj(i -> "tenant/" + i)
+                .collect(Collectors.toList());
+        tenants.forEach(tenant -> {
+            engine.add(tenant, IntStream.range(0, 20)
+                    .mapToObj(i -> criteria(tenant + "-" + i, "A" + (i % 3)))
+                    .collect(Collectors.toList()));
+            engine.saveIndexGroup(tenant);
+        });
+
+        final MustangEngine follower = MustangEngine.builder()
+                .mapper(mapper)
+                .build();
+        follower.openSnapshotDirectory(directory);
+        tenants.forEach(tenant -> Assert.assertFalse(follower.isLoaded(tenant)));
+        Assert.assertEquals(0, follower.getLoadMetrics()
+                .getLoads()
+                .get());
+
+        final Map<String, Object> testQuery = Maps.newHashMap();
+        testQuery.put("a", "A1");
+        final RequestContext context = RequestContext.builder()
+                .node(mapper.valueToTree(testQuery))
+                .build();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<Set<String>>> results = IntStream.range(0, 8)
+                .mapToObj(i -> executor.submit(() -> {
+                    start.await();
+                    return follower.search("tenant/7", context, true);
+                }))
+                .collect(Collectors.toList());
+        start.countDown();
+        for (final Future<Set<String>> result : results) {
+            Assert.assertEquals(engine.search("tenant/7", context, true), result.get());
+        }
+        executor.shutdown();
+        Assert.assertEquals(1, follower.getLoadMetrics()
+                .getLoads()
+                .get());
+        assertTrue(follower.isLoaded("tenant/7"));
+        Assert.assertFalse(follower.isLoaded("tenant/8"));
+
+        try {
+            follower.importIndexGroup("tenant/8", new StringReader("[]"));
+            Assert.fail("should have thrown exception");
+        } catch (MustangException e) {
+            Assert.assertEquals(ErrorCode.INDEX_GROUP_EXISTS, e.getErrorCode());
+        }
+        follower.add("tenant/8", criteria("tenant/8-20", "A1"));
+        Assert.assertEquals(21, follower.getIndexingFacde()
+                .getIndexGroup("tenant/8")
+                .getAllCriterias()
+                .size());
+        Assert.assertEquals(2, follower.getLoadMetrics()
+                .getLoads()
+                .get());
+
+        try (Writer out = Files.newBufferedWriter(directory.resolve("tenant%2F9.snap"))) {
+            out.write("garbage");
+        }
+        try {
+            follower.search("tenant/9", context, true);
+            Assert.fail("should have thrown exception");
+        } catch (MustangException e) {
+            Assert.assertEquals(ErrorCode.INDEX_IMPORT_ERROR, e.getErrorCode());
+        }
+        Assert.assertEquals(1, follower.getLoadMetrics()
+                .getFailures()
+                .get());
+        try {
+            follower.getIndexingFacde()
+                    .getIndexGroup("tenant/50");
+            Assert.fail("should have thrown exception");
+        } catch (MustangException e) {
+            Assert.assertEquals(ErrorCode.INDEX_NOT_FOUND, e.getErrorCode());
+        }
+    }
+
+    @Test
+    public void testMemoryBudgetedEviction() {
+        engine.openSnapshotDirectory(folder.getRoot()
+                .toPath()
+                .resolve("groups"));
+        final Map<String, Object> testQuery = Maps.newHashMap();
+        testQuery.put("a", "A1");
+        final RequestContext context = RequestContext.builder()
+                .node(mapper.valueToTree(testQuery))
+                .build();
+        final Map<String, Set<String>> expected = Maps.newHashMap();
+        IntStream.range(0, 20)
+                .mapToObj(i -> "tenant/" + i)
+                .forEach(tenant -> {
+                    engine.add(tenant, IntStream.range(0, 50)
+                            .mapToObj(i -> criteria(tenant + "-" + i, "A" + (i % 3)))
+                            .collect(Collectors.toList()));
+                    expected.put(tenant, engine.search(tenant, context));
+                });
+        final long groupBytes = engine.getIndexingFacde()
+                .getIndexStats("tenant/0")
+                .getEstimatedBytes();
+        Assert.assertEquals(20 * groupBytes, engine.getResidentBytes());
+
+        final IndexView view = engine.getIndexingFacde()
+                .pin("tenant/0");
+        final long maxBytes = 5 * groupBytes + groupBytes / 2;
+        engine.setMemoryBudget(MemoryBudget.builder()
+                .maxBytes(maxBytes)
+                .policy(EvictionPolicy.LRU)
+                .build());
+        assertTrue(engine.getResidentBytes() <= maxBytes);
+        Assert.assertEquals(15, engine.getLoadMetrics()
+                .getEvictions()
+                .get());
+        assertTrue(engine.isLoaded("tenant/0"));
+
+        IntStream.range(1, 20)
+                .mapToObj(i -> "tenant/" + i)
+                .forEach(tenant -> Assert.assertEquals(expected.get(tenant), engine.search(tenant, context)));
+        // Evictions triggered by the searches run in the background, this settles whatever is left of them.
+        engine.enforceMemoryBudget();
+        assertTrue(engine.getResidentBytes() <= maxBytes);
+        assertTrue(engine.isLoaded("tenant/0"));
+        assertTrue(engine.isLoaded("tenant/19"));
+        Assert.assertEquals(5, IntStream.range(0, 20)
+                .filter(i -> engine.isLoaded("tenant/" + i))
+                .count());
+        engine.getIndexingFacde()
+                .unpin(view);
+
+        engine.setMemoryBudget(MemoryBudget.builder()
+                .maxBytes(maxBytes)
+                .policy(EvictionPolicy.LFU)
+                .build());
+        IntStream.range(0, 5)
+                .forEach(i -> engine.search("tenant/3", context));
+        IntStream.range(4, 12)
+                .mapToObj(i -> "tenant/" + i)
+                .forEach(tenant -> Assert.assertEquals(expected.get(tenant), engine.search(tenant, context)));
+        engine.enforceMemoryBudget();
+        assertTrue(engine.isLoaded("tenant/3"));
+        assertTrue(engine.getResidentBytes() <= maxBytes);
+
+        // Changes made since a group was loaded are written out when it gets evicted.
+        engine.add("tenant/1", criteria("tenant/1-50", "A1"));
+        engine.setMemoryBudget(MemoryBudget.builder()
+                .maxBytes(0)
+                .policy(EvictionPolicy.LRU)
+                .build());
+        Assert.assertEquals(0, engine.getResidentBytes());
+        assertThat(engine.search("tenant/1", context), is(Sets.union(expected.get("tenant/1"),
+                Sets.newHashSet("tenant/1-50"))));
+        Assert.assertEquals(0, engine.getLoadMetrics()
+                .getEvictionFailures()
+                .get());
+    }
+
+    @Test
+    public void testFrozenGroupsStayOutOfTheMemoryBudget() {
+        engine.openSnapshotDirectory(folder.getRoot()
+                .toPath()
+                .resolve("groups"));
+        Arrays.asList("heap", "direct", "live")
+                .forEach(index -> engine.add(index, IntStream.range(0, 50)
+                        .mapToObj(i -> criteria(index + "-" + i, "A" + (i % 3)))
+                        .collect(Collectors.toList())));
+        engine.freeze("heap");
+        engine.freeze("direct", PostingStorage.DIRECT);
+        final long liveBytes = engine.getIndexingFacde()
+                .getIndexStats("live")
+                .getEstimatedBytes();
+        Assert.assertEquals(liveBytes, engine.getResidentBytes());
+        assertTrue(engine.getIndexingFacde()
+                .getIndexStats("direct")
+                .getEstimatedBytes() < engine.getIndexingFacde()
+                        .getIndexStats("heap")
+                        .getEstimatedBytes());
+
+        engine.setMemoryBudget(MemoryBudget.builder()
+                .maxBytes(liveBytes)
+                .policy(EvictionPolicy.LRU)
+                .build());
+        Arrays.asList("heap", "direct", "live")
+                .forEach(index -> assertTrue(engine.isLoaded(index)));
+        Assert.assertEquals(0, engine.getLoadMetrics()
+                .getEvictions()
+                .get());
+    }
+
+    @Test
+    public void testEvictedGroupsSurviveCheckpointAndRecovery() throws IOException {
+        final Path directory = folder.newFolder("wal")
+                .toPath();
+        engine.recover(directory, Durability.NONE, 0);
+        engine.openSnapshotDirectory(folder.newFolder("groups")
+                .toPath());
+        IntStream.range(0, 4)
+                .mapToObj(i -> "tenant/" + i)
+                .forEach(tenant -> engine.add(tenant, IntStream.range(0, 10)
+                        .mapToObj(i -> criteria(tenant + "-" + i, "A" + (i % 3)))
+                        .collect(Collectors.toList())));
+        engine.checkpoint();
+        engine.add("tenant/1", criteria("tenant/1-10", "A1"));
+        engine.setMemoryBudget(MemoryBudget.builder()
+                .maxBytes(0)
+                .policy(EvictionPolicy.LRU)
+                .build());
+        IntStream.range(0, 4)
+                .forEach(i -> Assert.assertFalse(engine.isLoaded("tenant/" + i)));
+
+        // The newer checkpoint lets go of the older one & of the log segments before it.
+        engine.checkpoint();
+        engine.add("other", criteria("O1", "A1"));
+        engine.checkpoint();
+        Assert.assertEquals(1, checkpoints(directory));
+        engine.closeMutationLog();
+
+        final MustangEngine recovered = MustangEngine.builder()
+                .mapper(mapper)
+                .build();
+        recovered.recover(directory, Durability.NONE, 0);
+        IntStream.range(0, 4)
+                .mapToObj(i -> "tenant/" + i)
+                .forEach(tenant -> Assert.assertEquals(engine.getIndexingFacde()
+                        .getIndexGroup(tenant)
+                        .getAllCriterias()
+                        .keySet(),
+                        recovered.getIndexingFacde()
+                                .getIndexGroup(tenant)
+                                .getAllCriterias()
+                                .keySet()));
+        Assert.assertEquals(11, recovered.getIndexingFacde()
+                .getIndexGroup("tenant/1")
+                .getAllCriterias()
+                .size());
+        recovered.closeMutationLog();
+    }
+
+    @Test
+    public void testReplacedAndOpenedGroupsSurviveRecovery() throws IOException {
+        final Path directory = folder.newFolder("wal")
+                .toPath();
+        engine.recover(directory, Durability.SYNC, 0);
+        engine.add("live", IntStream.range(0, 10)
+                .mapToObj(i -> criteria("L" + i, "A" + (i % 3)))
+                .collect(Collectors.toList()));
+        engine.add("staged", IntStream.range(5, 15)
+                .mapToObj(i -> criteria("L" + i, "A" + ((i + 1) % 3)))
+                .collect(Collectors.toList()));
+        engine.checkpoint();
+        engine.replaceIndex("live", "staged");
+
+        final MustangEngine source = MustangEngine.builder()
+                .mapper(mapper)
+                .build();
+        source.add("source", IntStream.range(0, 10)
+                .mapToObj(i -> criteria("M" + i, "A" + (i % 3)))
+                .collect(Collectors.toList()));
+        final Path mapped = folder.newFolder("mapped")
+                .toPath()
+                .resolve("source.idx");
+        source.persistIndexGroup("source", mapped);
+        engine.openIndexGroup("mapped", mapped);
+        engine.closeMutationLog();
+
+        // Nothing past the checkpoint was checkpointed, the replace & the open only live in the log.
+        final MustangEngine recovered = MustangEngine.builder()
+                .mapper(mapper)
+                .build();
+        recovered.recover(directory, Durability.NONE, 0);
+        Assert.assertEquals(IntStream.range(5, 15)
+                .mapToObj(i -> "L" + i)
+                .collect(Collectors.toSet()),
+                recovered.getIndexingFacde()
+                        .getIndexGroup("live")
+                        .getAllCriterias()
+                        .keySet());
+        Assert.assertEquals(engine.getIndexingFacde()
+                .getIndexGroup("mapped")
+                .getAllCriterias()
+                .keySet(),
+                recovered.getIndexingFacde()
+                        .getIndexGroup("mapped")
+                        .getAllCriterias()
+                        .keySet());
+        IntStream.range(0, 3)
+                .forEach(i -> {
+                    final Map<String, Object> testQuery = Maps.newHashMap();
+                    testQuery.put("a", "A" + i);
+                    final RequestContext context = RequestContext.builder()
+                            .node(mapper.valueToTree(testQuery))
+                            .build();
+                    Assert.assertEquals(engine.search("live", context, true),
+                            recovered.search("live", context, true));
+                    Assert.assertEquals(engine.search("mapped", context, true),
+                            recovered.search("mapped", context, true));
+                });
+        try {
+            recovered.getIndexingFacde()
+                    .getIndexGroup("staged");
+            Assert.fail("Replaced group came back on recovery");
+        } catch (MustangException e) {
+            Assert.assertEquals(ErrorCode.INDEX_NOT_FOUND, e.getErrorCode());
+        }
+        recovered.closeMutationLog();
+    }
+
+    @Test
+    public void testFailedBatchIsNeitherAppliedNorLogged() throws IOException {
+        final Path directory = folder.newFolder("wal")
+                .toPath();
+        engine.recover(directory, Durability.SYNC, 0);
+        engine.add("testsearch", IntStream.range(0, 10)
+                .mapToObj(i -> criteria("D" + i, "A" + (i % 3)))
+                .collect(Collectors.toList()));
+        try {
+            engine.add("testsearch", Arrays.asList(criteria("D10", "A1"), criteria("D5", "A2"),
+                    criteria("D11", "A0")));
+            Assert.fail("Batch with a duplicate should have been rejected");
+        } catch (MustangException e) {
+            Assert.assertEquals(ErrorCode.INDEX_GENERATION_ERROR, e.getErrorCode());
+        }
+        try {
+            engine.add("testsearch", Arrays.asList(criteria("D12", "A1"), criteria("D12", "A2")));
+            Assert.fail("Batch with a duplicate should have been rejected");
+        } catch (MustangException e) {
+            Assert.assertEquals(ErrorCode.INDEX_GENERATION_ERROR, e.getErrorCode());
+        }
+        Assert.assertEquals(IntStream.range(0, 10)
+                .mapToObj(i -> "D" + i)
+                .collect(Collectors.toSet()),
+                engine.getIndexingFacde()
+                        .getIndexGroup("testsearch")
+                        .getAllCriterias()
+                        .keySet());
+        engine.add("testsearch", criteria("D10", "A1"));
+        engine.closeMutationLog();
+
+        final MustangEngine recovered = MustangEngine.builder()
+                .mapper(mapper)
+                .build();
+        recovered.recover(directory, Durability.NONE, 0);
+        Assert.assertEquals(engine.getIndexingFacde()
+                .getIndexGroup("testsearch")
+                .getAllCriterias(),
+                recovered.getIndexingFacde()
+                        .getIndexGroup("testsearch")
+                        .getAllCriterias());
+        recovered.closeMutationLog();
+    }
+
+    @Test
+    public void testFailedStreamingImportIsNotRecovered() throws IOException {
+        final Path directory = folder.newFolder("wal")
+                .toPath();
+        engine.recover(directory, Durability.SYNC, 0);
+        engine.add("testsearch", IntStream.range(0, 10000)
+                .mapToObj(i -> criteria("D" + i, "A" + (i % 3)))
+                .collect(Collectors.toList()));
+        final StringWriter exported = new StringWriter();
+        engine.exportIndexGroup("testsearch", exported);
+
+        // Fails well past the first batch read.
+        final String truncated = exported.toString()
+                .substring(0, exported.toString()
+                        .length() - 20);
+        try {
+            engine.importIndexGroup("truncated", new StringReader(truncated));
+            Assert.fail("should have thrown exception");
+        } catch (MustangException e) {
+            Assert.assertEquals(ErrorCode.INDEX_IMPORT_ERROR, e.getErrorCode());
+        }
+        engine.closeMutationLog();
+
+        final MustangEngine recovered = MustangEngine.builder()
+                .mapper(mapper)
+                .build();
+        recovered.recover(directory, Durability.NONE, 0);
+        Assert.assertEquals(10000, recovered.getIndexingFacde()
+                .getIndexGroup("testsearch")
+                .getAllCriterias()
+                .size());
+        try {
+            recovered.getIndexingFacde()
+                    .getIndexGroup("truncated");
+            Assert.fail("should have thrown exception");
+        } catch (MustangException e) {
+            Assert.assertEquals(ErrorCode.INDEX_NOT_FOUND, e.getErrorCode());
+        }
+        recovered.closeMutationLog();
+    }
+
+    @Test
+    public void testMutationsTheLogFailsToTakeAreNotApplied() throws Exception {
+        final Path directory = folder.newFolder("wal")
+                .toPath();
+        engine.recover(directory, Durability.SYNC, 0);
+        engine.add("testsearch", IntStream.range(0, 10)
+                .mapToObj(i -> criteria("D" + i, "A" + (i % 3)))
+                .collect(Collectors.toList()));
+        final long sequence = engine.getIndexingFacde()
+                .changesSince("testsearch", 0)
+                .getSequence();
+
+        // Closed underneath the facade, so that every append from here on fails.
+        final Field field = IndexingFacade.class.getDeclaredField("mutationLog");
+        field.setAccessible(true);
+        ((MutationLog) field.get(engine.getIndexingFacde())).close();
+        final List<Runnable> mutations = Arrays.asList(() -> engine.add("testsearch", criteria("D10", "A1")),
+                () -> engine.add("testsearch", Arrays.asList(criteria("D11", "A1"), criteria("D12", "A2"))),
+                () -> engine.update("testsearch", criteria("D1", "A2")),
+                () -> engine.delete("testsearch", criteria("D2", "A2")),
+                () -> engine.add("other", Arrays.asList(criteria("D0", "A1"), criteria("D1", "A2"))));
+        for (Runnable mutation : mutations) {
+            try {
+                mutation.run();
+                Assert.fail("should have thrown exception");
+            } catch (MustangException e) {
+                Assert.assertEquals(ErrorCode.MUTATION_LOG_ERROR, e.getErrorCode());
+            }
+        }
+        final IndexGroup indexGroup = engine.getIndexingFacde()
+                .getIndexGroup("testsearch");
+        Assert.assertEquals(IntStream.range(0, 10)
+                .mapToObj(i -> "D" + i)
+                .collect(Collectors.toSet()), indexGroup.getAllCriterias()
+                        .keySet());
+        Assert.assertEquals(criteria("D1", "A1"), indexGroup.getAllCriterias()
+                .get("D1"));
+        Assert.assertEquals(sequence, engine.getIndexingFacde()
+                .changesSince("testsearch", 0)
+                .getSequence());
+        try {
+            engine.getIndexingFacde()
+                    .getIndexGroup("other");
+            Assert.fail("should have thrown exception");
+        } catch (MustangException e) {
+            Assert.assertEquals(ErrorCode.INDEX_NOT_FOUND, e.getErrorCode());
+        }
+    }
+
+    @Test
+    public void testEveryDetailSurvivesTheMutationLog() throws IOException {
+        final Path directory = folder.newFolder("wal")
+                .toPath();
+        engine.recover(directory, Durability.SYNC, 0);
+        final List<Criteria> criterias = mapper.readValue(MIXED_CRITERIAS, new TypeReference<List<Criteria>>() {
+        });
+        criterias.forEach(criteria -> engine.add("testsearch", criteria));
+        engine.add("testsearch", TautologicalCriteria.generate(CriteriaForm.CNF, "T1"));
+        engine.closeMutationLog();
+
+        final MustangEngine recovered = MustangEngine.builder()
+                .mapper(mapper)
+                .build();
+        recovered.recover(directory, Durability.NONE, 0);
+        Assert.assertEquals(engine.getIndexingFacde()
+                .getIndexGroup("testsearch")
+                .getAllCriterias(),
+                recovered.getIndexingFacde()
+                        .getIndexGroup("testsearch")
+                        .getAllCriterias());
+        recovered.closeMutationLog();
+    }
+
+    @Test
+    public void testTornBatchIsNotReplayedInPart() throws IOException {
+        final Path directory = folder.newFolder("wal")
+                .toPath();
+        engine.recover(directory, Durability.SYNC, 0);
+        IntStream.range(0, 10)
+                .forEach(i -> engine.add("testsearch", criteria("D" + i, "A" + (i % 3))));
+        engine.add("testsearch", IntStream.range(10, 1000)
+                .mapToObj(i -> criteria("D" + i, "A" + (i % 3)))
+                .collect(Collectors.toList()));
+        engine.closeMutationLog();
+
+        // A crash part way through writing the batch.
+        final Path segment = Files.list(directory)
+                .filter(file -> file.getFileName()
+                        .toString()
+                        .startsWith("mutations-"))
+                .max(Comparator.naturalOrder())
+                .get();
+        final byte[] bytes = Files.readAllBytes(segment);
+        Files.write(segment, Arrays.copyOf(bytes, bytes.length - bytes.length / 4));
+
+        final MustangEngine recovered = MustangEngine.builder()
+                .mapper(mapper)
+                .build();
+        recovered.recover(directory, Durability.NONE, 0);
+        Assert.assertEquals(IntStream.range(0, 10)
+                .mapToObj(i -> "D" + i)
+                .collect(Collectors.toSet()),
+                recovered.getIndexingFacde()
+                        .getIndexGroup("testsearch")
+                        .getAllCriterias()
+                        .keySet());
+        recovered.closeMutationLog();
+    }
+
 }
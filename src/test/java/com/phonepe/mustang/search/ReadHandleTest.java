@@ -0,0 +1,222 @@
+/**
+ * Copyright (c) 2022 Original Author(s), PhonePe India Pvt. Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.phonepe.mustang.search;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.phonepe.mustang.MustangEngine;
+import com.phonepe.mustang.common.RequestContext;
+import com.phonepe.mustang.composition.impl.Conjunction;
+import com.phonepe.mustang.composition.impl.Disjunction;
+import com.phonepe.mustang.criteria.Criteria;
+import com.phonepe.mustang.criteria.CriteriaForm;
+import com.phonepe.mustang.criteria.impl.CNFCriteria;
+import com.phonepe.mustang.criteria.impl.DNFCriteria;
+import com.phonepe.mustang.criteria.tautology.TautologicalCriteria;
+import com.phonepe.mustang.exception.ErrorCode;
+import com.phonepe.mustang.exception.MustangException;
+import com.phonepe.mustang.index.version.IndexVersions;
+import com.phonepe.mustang.predicate.impl.IncludedPredicate;
+
+public class ReadHandleTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private MustangEngine engine;
+
+    @Before
+    public void setUp() throws Exception {
+        engine = MustangEngine.builder()
+                .mapper(mapper)
+                .build();
+    }
+
+    @Test
+    public void testPinnedVersionIsolatedFromMutations() {
+        engine.add("test", dnf("C1", "A1"));
+        engine.add("test", cnf("C2", "A1"));
+        engine.add("test", dnf("C3", "A2"));
+        final RequestContext context = context("A1");
+
+        try (ReadHandle handle = engine.openReadHandle("test")) {
+            engine.update("test", dnf("C1", "A2"));
+            engine.delete("test", cnf("C2", "A1"));
+            engine.update("test", dnf("C3", "A1"));
+            engine.add("test", TautologicalCriteria.generate(CriteriaForm.DNF, "C4"));
+
+            assertThat(handle.search(context), containsInAnyOrder("C1", "C2"));
+            assertThat(engine.search("test", context), containsInAnyOrder("C3", "C4"));
+            Assert.assertTrue(handle.getCriteria("C1")
+                    .evaluate(context));
+            Assert.assertFalse(engine.getIndexingFacde()
+                    .getIndexGroup("test")
+                    .getAllCriterias()
+                    .get("C1")
+                    .evaluate(context));
+            Assert.assertNotNull(handle.getCriteria("C2"));
+            Assert.assertNull(handle.getCriteria("C4"));
+            assertThat(handle.debug("C1", context)
+                    .isResult(), is(true));
+        }
+
+        Assert.assertTrue(engine.getIndexingFacde()
+                .getIndexGroup("test")
+                .getVersions()
+                .getPreImages()
+                .isEmpty());
+    }
+
+    @Test
+    public void testPinnedViewSeesMaskedSegments() {
+        engine.add("test", dnf("C1", "A1"));
+        engine.add("test", cnf("C2", "A1"));
+        engine.seal("test");
+        final RequestContext context = context("A1");
+
+        try (ReadHandle handle = engine.openReadHandle("test")) {
+            engine.update("test", dnf("C1", "A2"));
+            engine.delete("test", cnf("C2", "A1"));
+            engine.add("test", dnf("C3", "A1"));
+
+            assertThat(handle.search(context), containsInAnyOrder("C1", "C2"));
+            assertThat(engine.search("test", context), containsInAnyOrder("C3"));
+            assertThat(engine.search("test", context("A2")), containsInAnyOrder("C1"));
+
+            engine.seal("test");
+            assertThat(handle.search(context), containsInAnyOrder("C1", "C2"));
+            assertThat(engine.search("test", context), containsInAnyOrder("C3"));
+        }
+    }
+
+    @Test
+    public void testVersionsAdvancePerMutation() {
+        engine.add("test", dnf("C1", "A1"));
+        final ReadHandle first = engine.openReadHandle("test");
+        engine.update("test", dnf("C1", "A2"));
+        final ReadHandle second = engine.openReadHandle("test");
+        engine.delete("test", dnf("C1", "A2"));
+
+        Assert.assertTrue(first.getVersion() < second.getVersion());
+        assertThat(first.search(context("A1")), containsInAnyOrder("C1"));
+        assertThat(second.search(context("A2")), containsInAnyOrder("C1"));
+        Assert.assertTrue(second.search(context("A1"))
+                .isEmpty());
+
+        first.close();
+        assertThat(second.search(context("A2")), containsInAnyOrder("C1"));
+        second.close();
+        Assert.assertTrue(engine.search("test", context("A2"))
+                .isEmpty());
+    }
+
+    @Test
+    public void testConcurrentPinsAreNotLost() throws Exception {
+        final IndexVersions versions = new IndexVersions();
+        final int threads = 4;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        // Pins on one version keep dropping to none & coming back, then each thread keeps one.
+        final List<Future<Long>> kept = IntStream.range(0, threads)
+                .mapToObj(i -> executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < 200000; j++) {
+                        versions.unpin(versions.pin());
+                    }
+                    return versions.pin();
+                }))
+                .collect(Collectors.toList());
+        start.countDown();
+        for (final Future<Long> version : kept) {
+            Assert.assertEquals(0L, version.get()
+                    .longValue());
+        }
+        executor.shutdown();
+
+        Assert.assertEquals(threads, versions.getPins()
+                .get(0L)
+                .intValue());
+        IntStream.range(0, threads)
+                .forEach(i -> Assert.assertTrue(versions.isPinned()));
+        IntStream.range(0, threads)
+                .forEach(i -> versions.unpin(0L));
+        Assert.assertFalse(versions.isPinned());
+    }
+
+    @Test
+    public void testClosedHandle() {
+        engine.add("test", dnf("C1", "A1"));
+        final ReadHandle handle = engine.openReadHandle("test");
+        handle.close();
+        handle.close();
+        try {
+            handle.search(context("A1"));
+            Assert.fail("Mustang Exception should have been thrown");
+        } catch (MustangException e) {
+            Assert.assertEquals(ErrorCode.READ_HANDLE_CLOSED, e.getErrorCode());
+        }
+    }
+
+    private Criteria dnf(final String id, final String value) {
+        return DNFCriteria.builder()
+                .id(id)
+                .conjunction(Conjunction.builder()
+                        .predicate(IncludedPredicate.builder()
+                                .lhs("$.a")
+                                .values(Sets.newHashSet(value))
+                                .build())
+                        .build())
+                .build();
+    }
+
+    private Criteria cnf(final String id, final String value) {
+        return CNFCriteria.builder()
+                .id(id)
+                .disjunction(Disjunction.builder()
+                        .predicate(IncludedPredicate.builder()
+                                .lhs("$.a")
+                                .values(Sets.newHashSet(value))
+                                .build())
+                        .build())
+                .build();
+    }
+
+    private RequestContext context(final String value) {
+        final Map<String, Object> testQuery = Maps.newHashMap();
+        testQuery.put("a", value);
+        return RequestContext.builder()
+                .node(mapper.valueToTree(testQuery))
+                .build();
+    }
+
+}